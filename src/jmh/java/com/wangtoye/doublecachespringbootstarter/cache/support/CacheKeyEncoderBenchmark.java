@@ -0,0 +1,74 @@
+package com.wangtoye.doublecachespringbootstarter.cache.support;
+
+import com.wangtoye.doublecachespringbootstarter.support.InMemoryRedis;
+import com.wangtoye.doublecachespringbootstarter.support.TestRedisCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * key转换的基准测试
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 对比 {@link CacheKeyEncoder} 和RedisCache的 serializeKey，分别测试Long、String、
+ * 含非ASCII字符的String和UUID类型的key；加上 -prof gc 参数可以看到每次操作分配的字节数（gc.alloc.rate.norm）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheKeyEncoderBenchmark {
+    @Param({"long", "string", "unicode", "uuid"})
+    private String keyType;
+
+    private TestRedisCache redisCache;
+    private CacheKeyEncoder encoder;
+    private Object key;
+
+    @Setup
+    public void setup() {
+        redisCache = new TestRedisCache("users",
+                RedisCacheWriter.nonLockingRedisCacheWriter(new InMemoryRedis().getConnectionFactory()),
+                RedisCacheConfiguration.defaultCacheConfig());
+        encoder = new CacheKeyEncoder(redisCache, null);
+        switch (keyType) {
+            case "string":
+                key = "user:profile:1234567";
+                break;
+            case "unicode":
+                key = "用户:资料:1234567";
+                break;
+            case "uuid":
+                key = new UUID(0x0123456789abcdefL, 0xfedcba9876543210L);
+                break;
+            default:
+                key = 1234567L;
+        }
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return encoder.encode(key);
+    }
+
+    @Benchmark
+    public byte[] serializeKey() {
+        return redisCache.serializeKey(key);
+    }
+}
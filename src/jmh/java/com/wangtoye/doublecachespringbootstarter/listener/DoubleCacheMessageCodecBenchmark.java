@@ -0,0 +1,102 @@
+package com.wangtoye.doublecachespringbootstarter.listener;
+
+import com.wangtoye.doublecachespringbootstarter.utils.CacheUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 失效通知编解码的基准测试
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 对比二进制编码和之前RedisTemplate使用的GenericJackson2JsonRedisSerializer，
+ * 分别测试单个Long、String、UUID类型的key和100个Long类型key的批量消息；
+ * 加上 -prof gc 参数可以看到每次操作的内存分配
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DoubleCacheMessageCodecBenchmark {
+    @Param({"long", "string", "uuid", "batch"})
+    private String keyType;
+
+    private DoubleCacheMessageCodec codec;
+    private GenericJackson2JsonRedisSerializer jsonSerializer;
+    private DoubleCacheMessage message;
+    private DoubleCacheMessage legacyMessage;
+    private byte[] encoded;
+    private byte[] json;
+
+    @Setup
+    public void setup() {
+        codec = new DoubleCacheMessageCodec();
+        jsonSerializer = CacheUtils.getGenericJackson2JsonRedisSerializer();
+        long nodeId = 0x5eed5eed5eedL;
+        Object key;
+        switch (keyType) {
+            case "string":
+                key = "user:profile:1234567";
+                break;
+            case "uuid":
+                key = new UUID(0x0123456789abcdefL, 0xfedcba9876543210L);
+                break;
+            default:
+                key = 1234567L;
+        }
+        if ("batch".equals(keyType)) {
+            List<Object> keys = new ArrayList<>(100);
+            for (long i = 0; i < 100; i++) {
+                keys.add(1234567L + i);
+            }
+            message = new DoubleCacheMessage("users", keys, nodeId);
+        } else {
+            message = new DoubleCacheMessage("users", key, nodeId);
+        }
+        //之前的格式：缓存名、key和一个随机的uuid字符串
+        legacyMessage = new DoubleCacheMessage();
+        legacyMessage.setCacheName(message.getCacheName());
+        legacyMessage.setKey(message.getKey());
+        legacyMessage.setKeys(message.getKeys());
+        legacyMessage.setUuid(UUID.randomUUID().toString());
+        encoded = codec.encode(message);
+        json = jsonSerializer.serialize(legacyMessage);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return codec.encode(message);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() {
+        return jsonSerializer.serialize(legacyMessage);
+    }
+
+    @Benchmark
+    public DoubleCacheMessage decodeBinary() {
+        return codec.decode(encoded);
+    }
+
+    @Benchmark
+    public Object decodeJson() {
+        return jsonSerializer.deserialize(json);
+    }
+}
@@ -1,35 +1,70 @@
 package com.wangtoye.doublecachespringbootstarter;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wangtoye.doublecachespringbootstarter.annotation.BatchCacheable;
+import com.wangtoye.doublecachespringbootstarter.annotation.ReactiveCacheable;
+import com.wangtoye.doublecachespringbootstarter.cache.loader.BloomFilterKeySource;
 import com.wangtoye.doublecachespringbootstarter.cache.manager.DoubleCacheManager;
+import com.wangtoye.doublecachespringbootstarter.cache.manager.L1CacheFactory;
 import com.wangtoye.doublecachespringbootstarter.cache.writer.RedisCallbackCacheWriter;
+import com.wangtoye.doublecachespringbootstarter.configuration.AsyncExecutorConfiguration;
+import com.wangtoye.doublecachespringbootstarter.configuration.BloomFilterConfiguration;
 import com.wangtoye.doublecachespringbootstarter.configuration.CaffeineCacheConfiguration;
 import com.wangtoye.doublecachespringbootstarter.configuration.DoubleCacheConfiguration;
+import com.wangtoye.doublecachespringbootstarter.configuration.HotKeyConfiguration;
+import com.wangtoye.doublecachespringbootstarter.configuration.L1AdmissionConfiguration;
+import com.wangtoye.doublecachespringbootstarter.configuration.L1SnapshotConfiguration;
+import com.wangtoye.doublecachespringbootstarter.configuration.LoadLeaseConfiguration;
+import com.wangtoye.doublecachespringbootstarter.configuration.NegativeCacheConfiguration;
+import com.wangtoye.doublecachespringbootstarter.configuration.OffHeapConfiguration;
+import com.wangtoye.doublecachespringbootstarter.configuration.WriteBehindConfiguration;
+import com.wangtoye.doublecachespringbootstarter.interceptor.BatchCacheInterceptor;
+import com.wangtoye.doublecachespringbootstarter.interceptor.ReactiveCacheInterceptor;
 import com.wangtoye.doublecachespringbootstarter.listener.DoubleCacheMessageListener;
+import com.wangtoye.doublecachespringbootstarter.metrics.DoubleCacheMetrics;
 import com.wangtoye.doublecachespringbootstarter.properties.DoubleCacheProperties;
+import com.wangtoye.doublecachespringbootstarter.warmup.CacheWarmer;
+import com.wangtoye.doublecachespringbootstarter.warmup.CacheWarmupLifecycle;
+import com.wangtoye.doublecachespringbootstarter.warmup.CacheWarmupSource;
+import com.wangtoye.doublecachespringbootstarter.warmup.KeyListWarmupSource;
+import com.wangtoye.doublecachespringbootstarter.warmup.ScanWarmupSource;
 import javassist.ClassPool;
 import javassist.CtClass;
 import javassist.CtNewMethod;
 import javassist.Modifier;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheWriter;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.listener.ChannelTopic;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
 
+import java.nio.file.Paths;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 /**
  * 双缓存默认配置
@@ -61,18 +96,84 @@ public class DoubleCacheStarterAutoConfigure {
     @ConditionalOnMissingBean(CacheManager.class)
     public DoubleCacheManager cacheManager(
             RedisConnectionFactory connectionFactory, DoubleCacheProperties doubleCacheProperties,
-            RedisTemplate redisTemplate) {
-        //自定义redis缓存操作类-支持监听失效事件
-        RedisCacheWriter redisCacheWriter = new RedisCallbackCacheWriter(connectionFactory, Duration.ofMillis(50),
+            RedisTemplate redisTemplate, ObjectProvider<BloomFilterKeySource> bloomFilterKeySources) {
+        //自定义redis缓存操作类-支持监听失效事件，无锁模式下不再等待缓存锁
+        Duration sleepTime = doubleCacheProperties.isLockFreeWriter() ? Duration.ZERO : Duration.ofMillis(50);
+        RedisCallbackCacheWriter redisCacheWriter = new RedisCallbackCacheWriter(connectionFactory, sleepTime,
                 redisTemplate);
+        redisCacheWriter.setClearBatchSize(doubleCacheProperties.getClear().getBatchSize());
+        redisCacheWriter.setTtlJitter(doubleCacheProperties.getEarlyExpiration().getTtlJitter());
         //构造双缓存配置
         Map<String, DoubleCacheConfiguration> doubleCacheConfigurationMap =
                 buildDoubleCacheConfigurationMap(doubleCacheProperties);
 
-        return new DoubleCacheManager(redisCacheWriter,
+        DoubleCacheManager doubleCacheManager = new DoubleCacheManager(redisCacheWriter,
                 doubleCacheConfigurationMap,
                 doubleCacheProperties.isAllowNullValues(), doubleCacheProperties.isUseL1Cache(),
                 doubleCacheProperties.getTopic());
+        doubleCacheManager.setClearMode(doubleCacheProperties.getClear().getMode());
+        DoubleCacheProperties.L1 l1 = doubleCacheProperties.getL1();
+        String defaultSpec = StringUtils.hasText(l1.getDefaultSpec()) ? l1.getDefaultSpec() :
+                CaffeineCacheConfiguration.defaultCacheConfig().getSpec();
+        Map<String, Long> maximumBytes = new HashMap<>(l1.getMaximumBytes().size());
+        l1.getMaximumBytes().forEach((name, size) -> maximumBytes.put(name, size.toBytes()));
+        doubleCacheManager.setL1CacheFactory(new L1CacheFactory(defaultSpec, l1.getSharedSpec(),
+                toBytes(l1.getSharedMaximumBytes()), maximumBytes, toBytes(l1.getDefaultMaximumBytes())));
+        doubleCacheManager.setL1Admission(new L1AdmissionConfiguration(l1.getAdmission(),
+                l1.getAdmissionThreshold(), l1.getAdmissionSketchSize()));
+        DoubleCacheProperties.Async async = doubleCacheProperties.getAsync();
+        doubleCacheManager.setAsyncExecutorConfiguration(new AsyncExecutorConfiguration(async.getCorePoolSize(),
+                async.getMaxPoolSize(), async.getQueueCapacity(), async.getKeepAlive()));
+        DoubleCacheProperties.Invalidation invalidation = doubleCacheProperties.getInvalidation();
+        doubleCacheManager.setMessageBatch(invalidation.getBatchWindow(), invalidation.getBatchSize());
+        doubleCacheManager.setLegacyMessageFormat(invalidation.isLegacyFormat());
+        DoubleCacheProperties.Lease lease = doubleCacheProperties.getLease();
+        if (lease.isEnabled()) {
+            doubleCacheManager.setLoadLeaseConfiguration(new LoadLeaseConfiguration(lease.getLeaseTime(),
+                    lease.getWaitTime(), lease.getPollInterval()));
+        }
+        DoubleCacheProperties.Refresh refresh = doubleCacheProperties.getRefresh();
+        if (!refresh.getValueLoaderCacheNames().isEmpty()) {
+            doubleCacheManager.setRefreshValueLoader(refresh.getValueLoaderCacheNames(),
+                    refresh.getValueLoaderCapacity(), refresh.getValueLoaderTtl());
+        }
+        DoubleCacheProperties.EarlyExpiration earlyExpiration = doubleCacheProperties.getEarlyExpiration();
+        if (!earlyExpiration.getCacheNames().isEmpty()) {
+            doubleCacheManager.setEarlyExpiration(earlyExpiration.getCacheNames(), earlyExpiration.getBeta());
+        }
+        DoubleCacheProperties.WriteBehind writeBehind = doubleCacheProperties.getWriteBehind();
+        if (!writeBehind.getCacheNames().isEmpty()) {
+            doubleCacheManager.setWriteBehind(writeBehind.getCacheNames(), new WriteBehindConfiguration(
+                    writeBehind.getQueueCapacity(), writeBehind.getBatchSize(), writeBehind.getFlushInterval(),
+                    writeBehind.getMaxBlock()));
+        }
+        DoubleCacheProperties.OffHeap offHeap = doubleCacheProperties.getOffHeap();
+        if (!offHeap.getCacheNames().isEmpty()) {
+            doubleCacheManager.setOffHeap(offHeap.getCacheNames(), new OffHeapConfiguration(
+                    offHeap.getCapacity().toBytes(), offHeap.getSegments(), offHeap.getExpireAfterWrite()));
+        }
+        DoubleCacheProperties.HotKey hotKey = doubleCacheProperties.getHotKey();
+        if (!hotKey.getCacheNames().isEmpty()) {
+            doubleCacheManager.setHotKey(hotKey.getCacheNames(), new HotKeyConfiguration(hotKey.getThreshold(),
+                    hotKey.getSampleRate(), hotKey.getSketchSize(), hotKey.getCapacity(), hotKey.getTtl()));
+        }
+        DoubleCacheProperties.Negative negative = doubleCacheProperties.getNegative();
+        if (!negative.getCacheNames().isEmpty()) {
+            doubleCacheManager.setNegativeCache(negative.getCacheNames(), new NegativeCacheConfiguration(
+                    negative.getCapacity(), negative.getTtl(), negative.getRedisTtl()));
+        }
+        DoubleCacheProperties.BloomFilter bloomFilter = doubleCacheProperties.getBloomFilter();
+        if (!bloomFilter.getCacheNames().isEmpty()) {
+            doubleCacheManager.setBloomFilter(bloomFilter.getCacheNames(), new BloomFilterConfiguration(
+                    bloomFilter.getExpectedInsertions(), bloomFilter.getFpp(), bloomFilter.isShared()),
+                    bloomFilterKeySources.orderedStream().collect(Collectors.toList()));
+        }
+        DoubleCacheProperties.Snapshot snapshot = doubleCacheProperties.getSnapshot();
+        if (snapshot.isEnabled()) {
+            doubleCacheManager.setL1Snapshot(new L1SnapshotConfiguration(Paths.get(snapshot.getPath()),
+                    snapshot.getMaxEntriesPerCache(), snapshot.getMaxAge(), snapshot.isVerifyWithL2()));
+        }
+        return doubleCacheManager;
     }
 
     /**
@@ -97,6 +198,86 @@ public class DoubleCacheStarterAutoConfigure {
         return redisMessageListenerContainer;
     }
 
+    /**
+     * 按集合元素缓存批量查询方法的结果
+     *
+     * @param doubleCacheManager 双缓存管理类，第一次调用时才获取
+     * @return advisor
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    @ConditionalOnMissingBean(name = "batchCacheAdvisor")
+    public static Advisor batchCacheAdvisor(ObjectProvider<DoubleCacheManager> doubleCacheManager) {
+        return new DefaultPointcutAdvisor(AnnotationMatchingPointcut.forMethodAnnotation(BatchCacheable.class),
+                new BatchCacheInterceptor(doubleCacheManager::getObject));
+    }
+
+    /**
+     * 在应用开始接收流量之前预热缓存
+     *
+     * @param doubleCacheManager    双缓存管理类
+     * @param doubleCacheProperties 双缓存配置文件
+     * @param warmupSources         注册为bean的预热来源
+     * @return 预热的lifecycle
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "double-cache.warmup", name = "enabled", havingValue = "true")
+    @ConditionalOnMissingBean(CacheWarmupLifecycle.class)
+    public CacheWarmupLifecycle cacheWarmupLifecycle(DoubleCacheManager doubleCacheManager,
+                                                     DoubleCacheProperties doubleCacheProperties,
+                                                     ObjectProvider<CacheWarmupSource> warmupSources) {
+        DoubleCacheProperties.Warmup warmup = doubleCacheProperties.getWarmup();
+        List<CacheWarmupSource> sources = new ArrayList<>();
+        warmup.getKeys().forEach((cacheName, keys) -> sources.add(new KeyListWarmupSource(cacheName, () -> keys)));
+        for (String cacheName : warmup.getScanCacheNames()) {
+            sources.add(new ScanWarmupSource(cacheName, warmup.getScanLimit()));
+        }
+        warmupSources.orderedStream().forEach(sources::add);
+        CacheWarmer cacheWarmer = new CacheWarmer(doubleCacheManager, sources, warmup.getConcurrency(),
+                warmup.getBatchSize());
+        return new CacheWarmupLifecycle(doubleCacheManager, cacheWarmer, warmup.getTimeout());
+    }
+
+    /**
+     * 存在micrometer时注册缓存指标
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    static class DoubleCacheMetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean(DoubleCacheMetrics.class)
+        public DoubleCacheMetrics doubleCacheMetrics(DoubleCacheManager doubleCacheManager) {
+            return new DoubleCacheMetrics(doubleCacheManager);
+        }
+    }
+
+    /**
+     * 存在reactor时支持缓存返回 Mono/Flux 的方法
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "reactor.core.publisher.Mono")
+    static class ReactiveDoubleCacheConfiguration {
+
+        @Bean
+        @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+        @ConditionalOnMissingBean(name = "reactiveCacheAdvisor")
+        public static Advisor reactiveCacheAdvisor(ObjectProvider<DoubleCacheManager> doubleCacheManager) {
+            return new DefaultPointcutAdvisor(AnnotationMatchingPointcut.forMethodAnnotation(ReactiveCacheable.class),
+                    new ReactiveCacheInterceptor(doubleCacheManager::getObject));
+        }
+    }
+
+    /**
+     * 未配置的大小按0处理
+     *
+     * @param size 配置的大小
+     * @return 字节数
+     */
+    private static long toBytes(DataSize size) {
+        return size == null ? 0 : size.toBytes();
+    }
+
     /**
      * 构造doubleCacheConfiguration
      *
@@ -128,6 +309,22 @@ public class DoubleCacheStarterAutoConfigure {
                             "        ((com.wangtoye.doublecachespringbootstarter.cache.writer.RedisCallbackCacheWriter) cacheWriter).convertAndSend(topicName, message);\n" +
                             "    }\n" +
                             "}", cc));
+            cc.addMethod(CtNewMethod.make(
+                    "public byte[] serializeKey(Object key) {\n" +
+                            "    return createAndConvertCacheKey(key);\n" +
+                            "}", cc));
+            cc.addMethod(CtNewMethod.make(
+                    "public byte[] serializeValue(Object value) {\n" +
+                            "    Object cacheValue = preProcessCacheValue(value);\n" +
+                            "    if (cacheValue == null) {\n" +
+                            "        throw new IllegalArgumentException(\"Cache '\" + getName() + \"' does not allow 'null' values.\");\n" +
+                            "    }\n" +
+                            "    return serializeCacheValue(cacheValue);\n" +
+                            "}", cc));
+            cc.addMethod(CtNewMethod.make(
+                    "public Object deserializeValue(byte[] value) {\n" +
+                            "    return deserializeCacheValue(value);\n" +
+                            "}", cc));
             cc.getDeclaredConstructor(new CtClass[]{
                     pool.get(String.class.getName())
                     , pool.get(RedisCacheWriter.class.getName())
@@ -0,0 +1,49 @@
+package com.wangtoye.doublecachespringbootstarter.annotation;
+
+import org.springframework.core.annotation.AliasFor;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 按集合参数中的每个元素分别缓存批量查询方法的结果，例如 {@code List<User> findUsers(List<Long> ids)}
+ * <p>
+ * 调用时先通过批量接口查询一二级缓存，只用未命中的元素重新组装参数调用原方法，
+ * 再按参数的顺序拼装返回值。方法的返回值可以是以元素为key的 Map，
+ * 也可以是 List/Set/Collection，后者需要通过 {@link #elementKey()} 从返回的每个值中取出它的key。
+ * 原方法没有返回的元素按null值处理
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description:
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface BatchCacheable {
+
+    /**
+     * 缓存名
+     */
+    @AliasFor("cacheName")
+    String value() default "";
+
+    /**
+     * 缓存名
+     */
+    @AliasFor("value")
+    String cacheName() default "";
+
+    /**
+     * 作为key集合的参数名，为空时使用第一个 Collection 类型的参数
+     */
+    String keys() default "";
+
+    /**
+     * 返回值是集合时，以返回的每个值为根对象计算它的key的SpEL表达式，例如 "id"
+     */
+    String elementKey() default "";
+}
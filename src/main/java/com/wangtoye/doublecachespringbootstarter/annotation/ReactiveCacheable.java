@@ -0,0 +1,43 @@
+package com.wangtoye.doublecachespringbootstarter.annotation;
+
+import org.springframework.core.annotation.AliasFor;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 缓存返回 Mono/Flux 的方法的结果，缓存的是发出的值而不是 Mono/Flux 本身
+ * <p>
+ * Mono 缓存发出的值，空的 Mono 按null值处理；Flux 缓存全部元素组成的列表，
+ * 所以只适用于元素数量有限的 Flux
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description:
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ReactiveCacheable {
+
+    /**
+     * 缓存名
+     */
+    @AliasFor("cacheName")
+    String value() default "";
+
+    /**
+     * 缓存名
+     */
+    @AliasFor("value")
+    String cacheName() default "";
+
+    /**
+     * 计算key的SpEL表达式，可以通过 #参数名、#p0、#a0 引用参数，
+     * 为空时和 {@link org.springframework.cache.annotation.Cacheable} 一样使用全部参数作为key
+     */
+    String key() default "";
+}
@@ -0,0 +1,120 @@
+package com.wangtoye.doublecachespringbootstarter.cache;
+
+import com.wangtoye.doublecachespringbootstarter.cache.support.KeyBloomFilter;
+import com.wangtoye.doublecachespringbootstarter.cache.writer.RedisCallbackCacheWriter;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 布隆过滤器层
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 一定不存在的key直接拒绝；写入值不为null的key时加入，共享时同时设置redis中新增的位，
+ * null值由未命中缓存处理，不能让布隆过滤器认为这个key存在
+ */
+final class BloomFilterTier implements LocalTier {
+    /**
+     * 批量设置redis中布隆过滤器的位时，每次pipeline的位数
+     */
+    private static final int REDIS_BATCH_SIZE = 10000;
+
+    private final KeyBloomFilter bloomFilter;
+    private final String cacheName;
+    private final RedisCacheWriter cacheWriter;
+    /**
+     * 把key转换成redis中去掉前缀之后的key
+     */
+    private final Function<Object, byte[]> keyEncoder;
+
+    BloomFilterTier(KeyBloomFilter bloomFilter, String cacheName, RedisCacheWriter cacheWriter,
+                    Function<Object, byte[]> keyEncoder) {
+        this.bloomFilter = bloomFilter;
+        this.cacheName = cacheName;
+        this.cacheWriter = cacheWriter;
+        this.keyEncoder = keyEncoder;
+    }
+
+    KeyBloomFilter getBloomFilter() {
+        return bloomFilter;
+    }
+
+    @Override
+    public boolean rejects(Object key) {
+        return !bloomFilter.mightContain(keyEncoder.apply(key));
+    }
+
+    @Override
+    public void onPut(Map<?, ?> entries) {
+        List<Object> keys = new ArrayList<>(entries.size());
+        entries.forEach((key, value) -> {
+            if (value != null) {
+                keys.add(key);
+            }
+        });
+        putAll(keys);
+    }
+
+    @Override
+    public void onInvalidation(Collection<?> keys) {
+        //其他节点写入了这个key，删除通知也会加入，只会增加一点误判
+        keys.forEach(key -> bloomFilter.put(keyEncoder.apply(key)));
+    }
+
+    /**
+     * 构造布隆过滤器，共享时先合并redis中已有的位，再加入key来源中的全部key
+     *
+     * @param keys 全部可能存在的key，为null表示没有key来源
+     * @return 布隆过滤器是否开始生效
+     */
+    boolean init(Iterable<?> keys) {
+        boolean complete = keys != null;
+        if (bloomFilter.isShared() && cacheWriter instanceof RedisCallbackCacheWriter) {
+            byte[] bitmap = ((RedisCallbackCacheWriter) cacheWriter).getBloomFilter(cacheName);
+            if (bitmap != null) {
+                bloomFilter.merge(bitmap);
+                complete = true;
+            }
+        }
+        if (keys != null) {
+            putAll(keys);
+        }
+        if (complete) {
+            bloomFilter.markReady();
+        }
+        return complete;
+    }
+
+    /**
+     * 把多个key加入布隆过滤器，redis中新增的位分批通过pipeline设置
+     *
+     * @param keys 键
+     */
+    void putAll(Iterable<?> keys) {
+        if (!bloomFilter.isShared() || !(cacheWriter instanceof RedisCallbackCacheWriter)) {
+            keys.forEach(key -> bloomFilter.put(keyEncoder.apply(key)));
+            return;
+        }
+        long[] offsets = new long[REDIS_BATCH_SIZE];
+        int count = 0;
+        for (Object key : keys) {
+            for (long offset : bloomFilter.put(keyEncoder.apply(key))) {
+                offsets[count++] = offset;
+                if (count == offsets.length) {
+                    ((RedisCallbackCacheWriter) cacheWriter).setBloomFilterBits(cacheName, offsets);
+                    count = 0;
+                }
+            }
+        }
+        if (count > 0) {
+            long[] rest = new long[count];
+            System.arraycopy(offsets, 0, rest, 0, count);
+            ((RedisCallbackCacheWriter) cacheWriter).setBloomFilterBits(cacheName, rest);
+        }
+    }
+}
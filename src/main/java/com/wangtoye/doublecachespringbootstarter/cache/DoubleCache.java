@@ -2,15 +2,67 @@ package com.wangtoye.doublecachespringbootstarter.cache;
 
 
 import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wangtoye.doublecachespringbootstarter.cache.support.CacheKeyEncoder;
+import com.wangtoye.doublecachespringbootstarter.cache.support.DoubleCacheStats;
+import com.wangtoye.doublecachespringbootstarter.cache.support.EarlyExpirationValue;
+import com.wangtoye.doublecachespringbootstarter.cache.support.FrequencyAdmission;
+import com.wangtoye.doublecachespringbootstarter.cache.support.GenerationCacheKeyPrefix;
+import com.wangtoye.doublecachespringbootstarter.cache.support.HotKeyDetector;
+import com.wangtoye.doublecachespringbootstarter.cache.support.KeyBloomFilter;
+import com.wangtoye.doublecachespringbootstarter.cache.support.L1SnapshotFile;
+import com.wangtoye.doublecachespringbootstarter.cache.support.NegativeCache;
+import com.wangtoye.doublecachespringbootstarter.cache.support.OffHeapStore;
+import com.wangtoye.doublecachespringbootstarter.cache.support.SharedCaffeineCache;
+import com.wangtoye.doublecachespringbootstarter.cache.support.WriteBehindQueue;
+import com.wangtoye.doublecachespringbootstarter.cache.writer.RedisCallbackCacheWriter;
+import com.wangtoye.doublecachespringbootstarter.configuration.BloomFilterConfiguration;
+import com.wangtoye.doublecachespringbootstarter.configuration.ClearMode;
+import com.wangtoye.doublecachespringbootstarter.configuration.HotKeyConfiguration;
+import com.wangtoye.doublecachespringbootstarter.configuration.L1AdmissionConfiguration;
+import com.wangtoye.doublecachespringbootstarter.configuration.L1AdmissionMode;
+import com.wangtoye.doublecachespringbootstarter.configuration.LoadLeaseConfiguration;
+import com.wangtoye.doublecachespringbootstarter.configuration.NegativeCacheConfiguration;
+import com.wangtoye.doublecachespringbootstarter.configuration.OffHeapConfiguration;
+import com.wangtoye.doublecachespringbootstarter.configuration.WriteBehindConfiguration;
 import com.wangtoye.doublecachespringbootstarter.listener.DoubleCacheMessage;
+import com.wangtoye.doublecachespringbootstarter.listener.DoubleCacheMessagePublisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.cache.support.NullValue;
+import org.springframework.cache.support.SimpleValueWrapper;
 import org.springframework.data.redis.cache.RedisCache;
 import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.util.Assert;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
 
 /**
  * 使用caffeine作为一级缓存 redis作为二级缓存
@@ -21,12 +73,65 @@ import java.util.concurrent.Callable;
  */
 public class DoubleCache extends AbstractValueAdaptingCache {
     private static final Logger logger = LoggerFactory.getLogger(DoubleCache.class);
+    /**
+     * 不经过一级缓存批量读取二级缓存时，每次MGET的key数量
+     */
+    private static final int L2_READ_BATCH_SIZE = 1000;
 
     private String cacheName;
     private boolean useL1Cache;
     private CaffeineCache caffeineCache;
     private RedisCache redisCache;
     private String topic;
+    private LoadLeaseConfiguration loadLeaseConfiguration;
+    private ClearMode clearMode = ClearMode.SCAN;
+    private GenerationCacheKeyPrefix keyGeneration;
+    /**
+     * 把key转换成redis中的key，常见类型的key不经过RedisCache的ConversionService
+     */
+    private CacheKeyEncoder keyEncoder;
+    private Executor asyncExecutor = ForkJoinPool.commonPool();
+    private DoubleCacheMessagePublisher messagePublisher;
+    private WriteBehindQueue writeBehind;
+    /**
+     * 一级缓存和二级缓存之间的堆外缓存，为null表示不开启
+     */
+    private OffHeapStore offHeap;
+    /**
+     * 热点key探测，为null表示不开启
+     */
+    private HotKeyDetector hotKeys;
+    private L1AdmissionMode l1AdmissionMode = L1AdmissionMode.NONE;
+    /**
+     * 按频率准入一级缓存，只在 {@link L1AdmissionMode#FREQUENCY} 模式下不为null
+     */
+    private FrequencyAdmission l1Admission;
+    /**
+     * 回源结果为null的key，为null表示不开启
+     */
+    private NegativeCacheTier negativeCache;
+    /**
+     * 判断key是否可能存在的布隆过滤器，为null表示不开启
+     */
+    private BloomFilterTier bloomFilter;
+    /**
+     * 一级缓存和二级缓存之间开启的本地层，按查询顺序排列
+     */
+    private LocalTier localTiers = LocalTiers.NONE;
+    /**
+     * 提前过期的系数，不大于0表示不开启
+     */
+    private double earlyExpirationBeta;
+    /**
+     * 一级缓存刷新时二级缓存也未命中的情况下使用的 valueLoader，为null表示只从二级缓存刷新，
+     * 只有通过 {@link #setRefreshValueLoader(int, Duration)} 明确开启时才会记录
+     */
+    private Cache<Object, Supplier<? extends CompletableFuture<?>>> refreshLoaders;
+    private final DoubleCacheStats stats = new DoubleCacheStats();
+    /**
+     * 正在加载中的key，用于合并同一节点上对同一个key的并发加载
+     */
+    private final ConcurrentHashMap<Object, CompletableFuture<Object>> inFlightLoads = new ConcurrentHashMap<>();
 
     /**
      * @param cacheName           缓存名
@@ -46,6 +151,7 @@ public class DoubleCache extends AbstractValueAdaptingCache {
         }
         this.redisCache = redisCache;
         this.topic = topic;
+        this.keyEncoder = new CacheKeyEncoder((RedisCacheExt) redisCache, null);
     }
 
     /**
@@ -83,14 +189,25 @@ public class DoubleCache extends AbstractValueAdaptingCache {
     public ValueWrapper get(Object key) {
         ValueWrapper wrapper;
         if (useL1Cache) {
-            logger.info("从一级缓存获取{}的值", key);
             wrapper = caffeineCache.get(key);
             if (wrapper != null) {
+                stats.recordL1Hit();
                 return wrapper;
             }
         }
-        logger.info("从二级缓存获取{}的值", key);
-        return redisCache.get(key);
+        if (localTiers.rejects(key)) {
+            //布隆过滤器确定不存在和负缓存一样按缓存了null值处理，调用方不会再去回源
+            stats.recordMiss();
+            return new SimpleValueWrapper(null);
+        }
+        wrapper = getL2(key);
+        recordL2Result(wrapper != null);
+        if (wrapper != null) {
+            putL1FromL2(key, wrapper.get(), false);
+        } else if (isMissingInRedis(key)) {
+            return new SimpleValueWrapper(null);
+        }
+        return wrapper;
     }
 
     /**
@@ -102,22 +219,38 @@ public class DoubleCache extends AbstractValueAdaptingCache {
      * @return 指定类型的数据
      */
     @Override
+    @SuppressWarnings("unchecked")
     public <T> T get(Object key, Class<T> type) {
-        T value;
         if (useL1Cache) {
-            logger.info("从一级缓存获取{}的值", key);
-            value = caffeineCache.get(key, type);
+            T value = caffeineCache.get(key, type);
             if (value != null) {
+                stats.recordL1Hit();
                 return value;
             }
         }
-        logger.info("从二级缓存获取{}的值", key);
-        return redisCache.get(key, type);
+        if (localTiers.rejects(key)) {
+            stats.recordMiss();
+            return null;
+        }
+        ValueWrapper wrapper = getL2(key);
+        Object value = wrapper == null ? null : wrapper.get();
+        recordL2Result(value != null);
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException(
+                    "Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        if (wrapper != null) {
+            putL1FromL2(key, value, false);
+        }
+        return (T) value;
     }
 
     /**
      * 从缓存中获取 key 对应的值，如果缓存没有命中，则添加缓存，
      * 此时可异步地从 valueLoader 中获取对应的值（4.3版本新增）
+     * <p>
+     * 查询顺序为 一级缓存 -> 二级缓存 -> valueLoader，同一节点上同一个key的并发未命中只会有一个线程真正去查询，
+     * 其余线程等待其结果；只有二级缓存也未命中时才会调用 valueLoader，并把结果写回一二级缓存
      *
      * @param key         键
      * @param valueLoader 异步获取值
@@ -125,17 +258,310 @@ public class DoubleCache extends AbstractValueAdaptingCache {
      * @return 返回指定类型的值
      */
     @Override
+    @SuppressWarnings("unchecked")
     public <T> T get(Object key, Callable<T> valueLoader) {
-        T value;
         if (useL1Cache) {
-            logger.info("从一级缓存获取{}的值", key);
-            value = caffeineCache.get(key, valueLoader);
-            if (value != null) {
+            ValueWrapper wrapper = caffeineCache.get(key);
+            if (wrapper != null) {
+                stats.recordL1Hit();
+                return (T) wrapper.get();
+            }
+        }
+        if (localTiers.rejects(key)) {
+            //布隆过滤器判断一定不存在，或者最近已经确认不存在，不查询二级缓存也不调用 valueLoader
+            stats.recordMiss();
+            return null;
+        }
+        if (refreshLoaders != null) {
+            //一级缓存未命中时记录 valueLoader，之后刷新这个key时二级缓存也没有就用它重新加载
+            refreshLoaders.put(key, () -> {
+                try {
+                    return CompletableFuture.completedFuture(valueLoader.call());
+                } catch (Exception ex) {
+                    CompletableFuture<Object> failed = new CompletableFuture<>();
+                    failed.completeExceptionally(ex);
+                    return failed;
+                }
+            });
+        }
+
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = inFlightLoads.putIfAbsent(key, future);
+        if (inFlight != null) {
+            //当前节点已经有线程在加载这个key，等待它的结果即可
+            stats.recordMiss();
+            return (T) awaitLoad(inFlight);
+        }
+        Object value = null;
+        Throwable failure = null;
+        try {
+            value = loadThrough(key, valueLoader);
+        } catch (Throwable ex) {
+            failure = ex;
+        }
+        //先移除再完成，等待结果的线程再次读取时不会拿到已经完成的加载
+        inFlightLoads.remove(key, future);
+        if (failure != null) {
+            future.completeExceptionally(failure);
+        } else {
+            future.complete(value);
+        }
+        return (T) awaitLoad(future);
+    }
+
+    /**
+     * 一级缓存未命中之后的加载过程：先查二级缓存，二级缓存也没有才调用 valueLoader
+     *
+     * @param key         键
+     * @param valueLoader 获取值的函数
+     * @return 值
+     */
+    private Object loadThrough(Object key, Callable<?> valueLoader) {
+        ValueWrapper wrapper = getL2Raw(key);
+        if (wrapper != null) {
+            Object value = fromStoreValue(EarlyExpirationValue.unwrap(wrapper.get()));
+            if (!shouldRecomputeEarly(wrapper.get())) {
+                stats.recordL2Hit();
+                putL1FromL2(key, value, true);
                 return value;
             }
+            return recomputeEarly(key, value, valueLoader);
+        }
+        if (isMissingInRedis(key)) {
+            stats.recordMiss();
+            return null;
+        }
+        if (loadLeaseConfiguration != null && redisCache.getNativeCache() instanceof RedisCallbackCacheWriter) {
+            return loadWithLease(key, valueLoader);
+        }
+        return loadAndWriteBack(key, valueLoader);
+    }
+
+    /**
+     * 二级缓存中的值还没有过期但是被选中提前重新计算，开启了租约时只有获取到租约的节点重新计算，
+     * 其他节点继续使用还没有过期的值
+     *
+     * @param key          键
+     * @param currentValue 二级缓存中还没有过期的值
+     * @param valueLoader  获取值的函数
+     * @return 值
+     */
+    private Object recomputeEarly(Object key, Object currentValue, Callable<?> valueLoader) {
+        if (loadLeaseConfiguration == null || !(redisCache.getNativeCache() instanceof RedisCallbackCacheWriter)) {
+            return loadAndWriteBack(key, valueLoader);
+        }
+        RedisCallbackCacheWriter cacheWriter = (RedisCallbackCacheWriter) redisCache.getNativeCache();
+        byte[] redisKey = serializeKey(key);
+        byte[] token = UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8);
+        if (!cacheWriter.tryLease(cacheName, redisKey, token, loadLeaseConfiguration.getLeaseTime())) {
+            stats.recordL2Hit();
+            putL1FromL2(key, currentValue, true);
+            return currentValue;
+        }
+        try {
+            return loadAndWriteBack(key, valueLoader);
+        } finally {
+            cacheWriter.releaseLease(cacheName, redisKey, token);
+        }
+    }
+
+    /**
+     * 提前过期模式下按 XFetch 算法决定是否提前重新计算
+     *
+     * @param storeValue 二级缓存中读到的值
+     * @return 是否重新计算
+     */
+    private boolean shouldRecomputeEarly(Object storeValue) {
+        return earlyExpirationBeta > 0 && storeValue instanceof EarlyExpirationValue
+                && ((EarlyExpirationValue) storeValue).shouldRecompute(earlyExpirationBeta);
+    }
+
+    /**
+     * 提前过期模式下把值和计算耗时、过期时间一起写入二级缓存
+     *
+     * @param value    值
+     * @param loadTime 计算耗时，纳秒
+     * @return 写入二级缓存的值
+     */
+    private Object toL2Value(Object value, long loadTime) {
+        Duration ttl = redisCache.getCacheConfiguration().getTtl();
+        if (earlyExpirationBeta <= 0 || ttl == null || ttl.isZero() || ttl.isNegative()) {
+            return value;
+        }
+        //过期时间不包含二级缓存写入时的随机延长，延长只会让key在redis中多保留一会
+        return new EarlyExpirationValue(value == null ? NullValue.INSTANCE : value, TimeUnit.NANOSECONDS.toMillis(loadTime),
+                System.currentTimeMillis() + ttl.toMillis());
+    }
+
+    /**
+     * 集群范围内合并加载：获取到租约的节点负责加载，其他节点等待它写入二级缓存
+     *
+     * @param key         键
+     * @param valueLoader 获取值的函数
+     * @return 值
+     */
+    private Object loadWithLease(Object key, Callable<?> valueLoader) {
+        RedisCallbackCacheWriter cacheWriter = (RedisCallbackCacheWriter) redisCache.getNativeCache();
+        byte[] redisKey = serializeKey(key);
+        byte[] token = UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8);
+        Duration leaseTime = loadLeaseConfiguration.getLeaseTime();
+        long deadline = System.nanoTime() + loadLeaseConfiguration.getWaitTime().toNanos();
+        boolean waited = false;
+        while (!cacheWriter.tryLease(cacheName, redisKey, token, leaseTime)) {
+            if (System.nanoTime() - deadline >= 0) {
+                //持有者加载太慢或者已经宕机，不再等待，自行加载
+                return loadAndWriteBack(key, valueLoader);
+            }
+            try {
+                Thread.sleep(loadLeaseConfiguration.getPollInterval().toMillis());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new ValueRetrievalException(key, valueLoader, ex);
+            }
+            waited = true;
+            ValueWrapper wrapper = getL2(key);
+            if (wrapper != null) {
+                stats.recordL2Hit();
+                putL1Cache(key, wrapper.get());
+                return wrapper.get();
+            }
+            if (isMissingInRedis(key)) {
+                //持有者已经确认这个key不存在
+                stats.recordMiss();
+                return null;
+            }
+        }
+        try {
+            if (waited) {
+                //等待期间上一个持有者可能已经写入二级缓存后释放了租约
+                ValueWrapper wrapper = getL2(key);
+                if (wrapper != null) {
+                    stats.recordL2Hit();
+                    putL1Cache(key, wrapper.get());
+                    return wrapper.get();
+                }
+                if (isMissingInRedis(key)) {
+                    stats.recordMiss();
+                    return null;
+                }
+            }
+            return loadAndWriteBack(key, valueLoader);
+        } finally {
+            cacheWriter.releaseLease(cacheName, redisKey, token);
+        }
+    }
+
+    /**
+     * 调用 valueLoader 并写回一二级缓存
+     *
+     * @param key         键
+     * @param valueLoader 获取值的函数
+     * @return 值
+     */
+    private Object loadAndWriteBack(Object key, Callable<?> valueLoader) {
+        stats.recordMiss();
+        Object value;
+        long startTime = System.nanoTime();
+        try {
+            value = valueLoader.call();
+        } catch (Exception ex) {
+            stats.recordLoadFailure(System.nanoTime() - startTime);
+            throw new ValueRetrievalException(key, valueLoader, ex);
+        }
+        long loadTime = System.nanoTime() - startTime;
+        stats.recordLoadSuccess(loadTime);
+        if (value == null && negativeCache != null) {
+            negativeCache.remember(key);
+            return null;
+        }
+        //写回二级缓存再写一级缓存，这是一次未命中的回源而不是数据变更，所以不需要通知其他节点
+        if (value != null || redisCache.isAllowNullValues()) {
+            putRedis(key, toL2Value(value, loadTime));
+            localTiers.onPut(Collections.singletonMap(key, value));
+        }
+        putL1Cache(key, value);
+        return value;
+    }
+
+    /**
+     * 等待加载结果，把异步异常还原成调用方可以直接处理的异常
+     *
+     * @param future 加载中的结果
+     * @return 值
+     */
+    private static Object awaitLoad(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * 写入一级缓存，不允许存储null值时跳过null
+     *
+     * @param key   键
+     * @param value 值
+     */
+    private void putL1Cache(Object key, Object value) {
+        if (useL1Cache && (value != null || isAllowNullValues())) {
+            caffeineCache.put(key, value);
+        }
+    }
+
+    /**
+     * 二级缓存未命中之后查询redis中是否记录了这个key不存在
+     *
+     * @param key 键
+     * @return 是否记录了不存在
+     */
+    private boolean isMissingInRedis(Object key) {
+        return negativeCache != null && negativeCache.isMissingInRedis(key);
+    }
+
+    /**
+     * 删除redis中不存在的记录
+     *
+     * @param keys 键
+     */
+    private void removeMissingInRedis(Collection<?> keys) {
+        if (negativeCache != null) {
+            negativeCache.removeFromRedis(keys);
+        }
+    }
+
+    /**
+     * 二级缓存命中之后按准入模式决定是否写入一级缓存
+     *
+     * @param key     键
+     * @param value   二级缓存中的值
+     * @param loading 是否是带 valueLoader 的查询或批量查询，{@link L1AdmissionMode#NONE} 模式下只有这些查询写入一级缓存
+     */
+    private void putL1FromL2(Object key, Object value, boolean loading) {
+        if (!useL1Cache) {
+            return;
+        }
+        switch (l1AdmissionMode) {
+            case FREQUENCY:
+                if (l1Admission.admit(key)) {
+                    putL1Cache(key, value);
+                }
+                break;
+            case ALWAYS:
+                putL1Cache(key, value);
+                break;
+            default:
+                if (loading) {
+                    putL1Cache(key, value);
+                }
         }
-        logger.info("从二级缓存获取{}的值", key);
-        return redisCache.get(key, valueLoader);
     }
 
 
@@ -149,14 +575,102 @@ public class DoubleCache extends AbstractValueAdaptingCache {
     protected Object lookup(Object key) {
         Object value;
         if (useL1Cache) {
-            logger.info("从一级缓存获取{}的值", key);
             value = caffeineCache.get(key);
             if (value != null) {
                 return value;
             }
         }
-        logger.info("从二级缓存获取{}的值", key);
-        return redisCache.get(key);
+        return getL2(key);
+    }
+
+    /**
+     * 依次查询本地各层和二级缓存
+     *
+     * @param key 键
+     * @return ValueWrapper（值）
+     */
+    private ValueWrapper getL2(Object key) {
+        return unwrapEarlyExpiration(getL2Raw(key));
+    }
+
+    /**
+     * 依次查询本地各层和二级缓存，提前过期模式写入的值不解包
+     *
+     * @param key 键
+     * @return ValueWrapper（值）
+     */
+    private ValueWrapper getL2Raw(Object key) {
+        ValueWrapper local = localTiers.get(key);
+        if (local != null) {
+            return local == LocalTier.DELETED ? null : local;
+        }
+        //和 RedisCache#get(Object) 相同，只是key通过 CacheKeyEncoder 转换
+        return fromRedis(key, redisCache.getNativeCache().get(cacheName, serializeKey(key)));
+    }
+
+    /**
+     * 把二级缓存的查询结果交给本地各层
+     *
+     * @param key   键
+     * @param value 二级缓存中序列化之后的值，不存在时为null
+     * @return ValueWrapper（值），提前过期模式写入的值不解包
+     */
+    private ValueWrapper fromRedis(Object key, byte[] value) {
+        ValueWrapper wrapper = value == null ? null : deserializeValue(value);
+        localTiers.afterMiss(key, wrapper, value);
+        return wrapper;
+    }
+
+    private ValueWrapper deserializeValue(byte[] value) {
+        return toValueWrapper(((RedisCacheExt) redisCache).deserializeValue(value));
+    }
+
+    private ValueWrapper unwrapEarlyExpiration(ValueWrapper wrapper) {
+        return wrapper != null && wrapper.get() instanceof EarlyExpirationValue ?
+                toValueWrapper(EarlyExpirationValue.unwrap(wrapper.get())) : wrapper;
+    }
+
+    /**
+     * 写入二级缓存，和 {@link RedisCache#put(Object, Object)} 相同，只是key通过 {@link CacheKeyEncoder} 转换
+     *
+     * @param key   键
+     * @param value 值
+     */
+    private void putRedis(Object key, Object value) {
+        redisCache.getNativeCache().put(cacheName, serializeKey(key),
+                ((RedisCacheExt) redisCache).serializeValue(value), redisCache.getCacheConfiguration().getTtl());
+    }
+
+    /**
+     * 删除二级缓存，和 {@link RedisCache#evict(Object)} 相同，只是key通过 {@link CacheKeyEncoder} 转换
+     *
+     * @param key 键
+     */
+    private void evictRedis(Object key) {
+        redisCache.getNativeCache().remove(cacheName, serializeKey(key));
+    }
+
+    /**
+     * 把key转换成redis中的key
+     *
+     * @param key 键
+     * @return redis中的key
+     */
+    private byte[] serializeKey(Object key) {
+        return keyEncoder.encode(key);
+    }
+
+    /**
+     * 统计二级缓存的查询结果
+     *
+     * @param hit 是否命中
+     */
+    private void recordL2Result(boolean hit) {
+        if (hit) {
+            stats.recordL2Hit();
+        } else {
+            stats.recordMiss();
+        }
     }
 
     /**
@@ -167,13 +681,27 @@ public class DoubleCache extends AbstractValueAdaptingCache {
      */
     @Override
     public void put(Object key, Object value) {
+        if (value == null && negativeCache != null) {
+            //例如@Cacheable方法返回了null，删除旧值之后记录为不存在
+            evict(key);
+            negativeCache.remember(key);
+            return;
+        }
+        stats.recordPut();
         if (useL1Cache) {
             caffeineCache.put(key, value);
         }
-        redisCache.put(key, value);
+        if (writeBehind != null) {
+            //写后模式下写入二级缓存之后再由队列通知其他节点
+            writeBehind.put(key, checkL2Value(value));
+            localTiers.onPut(Collections.singletonMap(key, value));
+            return;
+        }
+        putRedis(key, value);
+        localTiers.onPut(Collections.singletonMap(key, value));
 
         //通知其他节点清空本地一级缓存
-        push(new DoubleCacheMessage(this.cacheName, key));
+        push(key);
     }
 
     /**
@@ -185,15 +713,21 @@ public class DoubleCache extends AbstractValueAdaptingCache {
      */
     @Override
     public ValueWrapper putIfAbsent(Object key, Object value) {
+        stats.recordPut();
+        if (writeBehind != null) {
+            //需要二级缓存中真实的旧值，先写入等待中的操作
+            writeBehind.flush();
+        }
         if (useL1Cache) {
             //此处只更新L1，但是不会把L1的结果返回，因为L2也需要操作，所以直接返回L2的结果，L1只做一次调用
             caffeineCache.putIfAbsent(key, value);
         }
 
-        ValueWrapper wrapper = redisCache.putIfAbsent(key, value);
+        ValueWrapper wrapper = unwrapEarlyExpiration(redisCache.putIfAbsent(key, value));
+        localTiers.onPut(Collections.singletonMap(key, value));
 
         //通知其他节点清空本地一级缓存
-        push(new DoubleCacheMessage(this.cacheName, key));
+        push(key);
         return wrapper;
     }
 
@@ -204,46 +738,1118 @@ public class DoubleCache extends AbstractValueAdaptingCache {
      */
     @Override
     public void evict(Object key) {
+        if (writeBehind != null) {
+            //删除和之前的写入在同一个队列中按顺序执行
+            writeBehind.remove(key);
+            removeMissingInRedis(Collections.singletonList(key));
+            localTiers.onEvict(Collections.singletonList(key));
+            if (useL1Cache) {
+                caffeineCache.evict(key);
+            }
+            return;
+        }
         //删除的时候要先删除L2再删除L1，否则有并发问题
-        redisCache.evict(key);
+        evictRedis(key);
+        removeMissingInRedis(Collections.singletonList(key));
+        localTiers.onEvict(Collections.singletonList(key));
         if (useL1Cache) {
             caffeineCache.evict(key);
         }
 
         //通知其他节点清空本地一级缓存
-        push(new DoubleCacheMessage(this.cacheName, key));
+        push(key);
     }
 
     /**
-     * 清空缓存
+     * 批量获取，一级缓存未命中的key通过一次MGET从二级缓存获取，二级缓存命中的值写入一级缓存
+     *
+     * @param keys 键
+     * @return 命中的key和值，缓存的null值不会出现在结果中
      */
-    @Override
-    public void clear() {
-        //清空的时候要先清空L2再清空L1，否则有并发问题
-        redisCache.clear();
+    public Map<Object, Object> getAll(Collection<?> keys) {
+        Map<Object, Object> result = new LinkedHashMap<>();
+        lookupAll(keys, null).forEach((key, wrapper) -> {
+            if (wrapper.get() != null) {
+                result.put(key, wrapper.get());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 批量获取，两级缓存都未命中的key只调用一次 batchLoader，加载结果通过pipeline写回二级缓存
+     * <p>
+     * batchLoader 返回的结果中没有的key按null值处理
+     *
+     * @param keys        键
+     * @param batchLoader 批量获取未命中的值
+     * @return key和值，值为null的key不会出现在结果中
+     */
+    public Map<Object, Object> getAll(Collection<?> keys,
+                                      Function<? super Set<Object>, ? extends Map<?, ?>> batchLoader) {
+        Set<Object> rejected = new HashSet<>();
+        Map<Object, ValueWrapper> found = lookupAll(keys, rejected);
+        Set<Object> missingKeys = new LinkedHashSet<>();
+        for (Object key : keys) {
+            if (!found.containsKey(key) && !rejected.contains(key)) {
+                missingKeys.add(key);
+            }
+        }
+        if (negativeCache != null) {
+            //和单个key的查询一样，二级缓存未命中之后先查询redis中的不存在记录，这里通过一次MGET查询
+            missingKeys.removeAll(negativeCache.missingInRedis(missingKeys));
+        }
+        Map<Object, Object> loaded = missingKeys.isEmpty() ? Collections.emptyMap() :
+                loadAll(missingKeys, batchLoader);
+
+        Map<Object, Object> result = new LinkedHashMap<>();
+        for (Object key : keys) {
+            ValueWrapper wrapper = found.get(key);
+            Object value = wrapper != null ? wrapper.get() : loaded.get(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 先查一级缓存，剩下的key依次查询本地各层，本地各层都没有的key一次MGET查询二级缓存
+     *
+     * @param keys     键
+     * @param rejected 收集本地判断一定不存在的key，可以为null
+     * @return 命中的key和值
+     */
+    private Map<Object, ValueWrapper> lookupAll(Collection<?> keys, Set<Object> rejected) {
+        Map<Object, ValueWrapper> found = new HashMap<>();
+        Set<Object> remaining = new LinkedHashSet<>(keys);
         if (useL1Cache) {
-            caffeineCache.clear();
+            caffeineCache.getNativeCache().getAllPresent(remaining).forEach((key, storeValue) -> {
+                stats.recordL1Hit();
+                found.put(key, toValueWrapper(storeValue));
+            });
+            remaining.removeAll(found.keySet());
+        }
+        List<Object> l2Keys = new ArrayList<>(remaining.size());
+        for (Object key : remaining) {
+            if (localTiers.rejects(key)) {
+                stats.recordMiss();
+                if (rejected != null) {
+                    rejected.add(key);
+                }
+                continue;
+            }
+            ValueWrapper local = localTiers.get(key);
+            if (local == null) {
+                l2Keys.add(key);
+            } else {
+                addL2Result(key, local == LocalTier.DELETED ? null : local, found);
+            }
+        }
+        if (l2Keys.isEmpty()) {
+            return found;
+        }
+        List<byte[]> values = getRedisAll(l2Keys);
+        for (int i = 0; i < l2Keys.size(); i++) {
+            Object key = l2Keys.get(i);
+            addL2Result(key, fromRedis(key, values.get(i)), found);
         }
+        return found;
+    }
 
-        //通知其他节点清空本地一级缓存
-        push(new DoubleCacheMessage(this.cacheName, null));
+    private void addL2Result(Object key, ValueWrapper wrapper, Map<Object, ValueWrapper> found) {
+        recordL2Result(wrapper != null);
+        if (wrapper != null) {
+            wrapper = unwrapEarlyExpiration(wrapper);
+            putL1FromL2(key, wrapper.get(), true);
+            found.put(key, wrapper);
+        }
     }
 
     /**
-     * 推送消息给订阅的系统
+     * 批量查询二级缓存，使用 {@link RedisCallbackCacheWriter} 时通过一次MGET查询
      *
-     * @param message 消息
+     * @param keys 键
+     * @return 和key一一对应的序列化之后的值，不存在的为null
      */
-    private void push(DoubleCacheMessage message) {
-        ((RedisCacheExt)redisCache).convertAndSend(topic, message);
+    private List<byte[]> getRedisAll(List<Object> keys) {
+        List<byte[]> redisKeys = new ArrayList<>(keys.size());
+        for (Object key : keys) {
+            redisKeys.add(serializeKey(key));
+        }
+        RedisCacheWriter cacheWriter = redisCache.getNativeCache();
+        if (cacheWriter instanceof RedisCallbackCacheWriter) {
+            List<byte[]> values = ((RedisCallbackCacheWriter) cacheWriter).getAll(cacheName, redisKeys);
+            return values != null ? values : Collections.nCopies(keys.size(), null);
+        }
+        List<byte[]> values = new ArrayList<>(keys.size());
+        for (byte[] redisKey : redisKeys) {
+            values.add(cacheWriter.get(cacheName, redisKey));
+        }
+        return values;
     }
 
     /**
-     * 清理一级缓存
+     * 调用 batchLoader 并写回一二级缓存
      *
-     * @param key 键
+     * @param keys        两级缓存都未命中的键
+     * @param batchLoader 批量获取值的函数
+     * @return 每个key对应的值，没有加载到的为null
      */
-    public void clearL1Cache(Object key) {
+    private Map<Object, Object> loadAll(Set<Object> keys,
+                                        Function<? super Set<Object>, ? extends Map<?, ?>> batchLoader) {
+        Map<?, ?> loaded;
+        long startTime = System.nanoTime();
+        try {
+            loaded = batchLoader.apply(Collections.unmodifiableSet(keys));
+        } catch (RuntimeException ex) {
+            stats.recordLoadFailure(System.nanoTime() - startTime);
+            throw ex;
+        }
+        stats.recordLoadSuccess(System.nanoTime() - startTime);
+
+        Map<Object, Object> values = new LinkedHashMap<>();
+        Map<Object, Object> l2Values = new LinkedHashMap<>();
+        List<Object> nullKeys = new ArrayList<>();
+        for (Object key : keys) {
+            Object value = loaded == null ? null : loaded.get(key);
+            values.put(key, value);
+            if (value == null && negativeCache != null) {
+                nullKeys.add(key);
+            } else if (value != null || redisCache.isAllowNullValues()) {
+                l2Values.put(key, value);
+            }
+        }
+        //和单个key的加载一样，未命中的回源不需要通知其他节点
+        putL2All(l2Values);
+        if (!nullKeys.isEmpty()) {
+            negativeCache.rememberAll(nullKeys);
+        }
+        localTiers.onPut(l2Values);
+        values.forEach((key, value) -> {
+            if (value != null || negativeCache == null) {
+                putL1Cache(key, value);
+            }
+        });
+        return values;
+    }
+
+    /**
+     * 批量添加一二级缓存，二级缓存通过pipeline一次写入
+     *
+     * @param entries 键值
+     */
+    public void putAll(Map<?, ?> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        entries.forEach((key, value) -> {
+            stats.recordPut();
+            if (useL1Cache) {
+                caffeineCache.put(key, value);
+            }
+        });
+        if (writeBehind != null) {
+            entries.forEach((key, value) -> writeBehind.put(key, checkL2Value(value)));
+            localTiers.onPut(entries);
+            return;
+        }
+        putL2All(entries);
+        localTiers.onPut(entries);
+
+        //通知其他节点清空本地一级缓存
+        pushAll(entries.keySet());
+    }
+
+    /**
+     * 批量删除，二级缓存通过一次DEL删除
+     *
+     * @param keys 键
+     */
+    public void evictAll(Collection<?> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        if (writeBehind != null) {
+            keys.forEach(writeBehind::remove);
+            removeMissingInRedis(keys);
+            localTiers.onEvict(keys);
+            if (useL1Cache) {
+                caffeineCache.getNativeCache().invalidateAll(keys);
+            }
+            return;
+        }
+        RedisCacheWriter cacheWriter = redisCache.getNativeCache();
+        if (cacheWriter instanceof RedisCallbackCacheWriter) {
+            List<byte[]> redisKeys = new ArrayList<>(keys.size());
+            for (Object key : keys) {
+                redisKeys.add(serializeKey(key));
+            }
+            ((RedisCallbackCacheWriter) cacheWriter).removeAll(cacheName, redisKeys);
+        } else {
+            keys.forEach(redisCache::evict);
+        }
+        removeMissingInRedis(keys);
+        //删除的时候要先删除L2再删除L1，否则有并发问题
+        localTiers.onEvict(keys);
+        if (useL1Cache) {
+            caffeineCache.getNativeCache().invalidateAll(keys);
+        }
+
+        //通知其他节点清空本地一级缓存
+        pushAll(keys);
+    }
+
+    private void putL2All(Map<?, ?> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        RedisCacheWriter cacheWriter = redisCache.getNativeCache();
+        if (!(cacheWriter instanceof RedisCallbackCacheWriter)) {
+            entries.forEach(redisCache::put);
+            return;
+        }
+        RedisCacheExt redisCacheExt = (RedisCacheExt) redisCache;
+        Map<byte[], byte[]> serialized = new LinkedHashMap<>();
+        entries.forEach((key, value) ->
+                serialized.put(serializeKey(key), redisCacheExt.serializeValue(value)));
+        ((RedisCallbackCacheWriter) cacheWriter).putAll(cacheName, serialized,
+                redisCache.getCacheConfiguration().getTtl());
+    }
+
+    /**
+     * 异步获取 key 对应的值，一级缓存命中时直接返回已完成的结果，
+     * 二级缓存的查询在lettuce连接下不占用线程
+     *
+     * @param key 键
+     * @return ValueWrapper（值），不存在时为null
+     */
+    public CompletableFuture<ValueWrapper> getAsync(Object key) {
+        if (useL1Cache) {
+            ValueWrapper wrapper = caffeineCache.get(key);
+            if (wrapper != null) {
+                stats.recordL1Hit();
+                return CompletableFuture.completedFuture(wrapper);
+            }
+        }
+        if (localTiers.rejects(key)) {
+            stats.recordMiss();
+            return CompletableFuture.completedFuture(new SimpleValueWrapper(null));
+        }
+        return getL2Async(key).thenApply(wrapper -> {
+            recordL2Result(wrapper != null);
+            if (wrapper != null) {
+                putL1FromL2(key, wrapper.get(), false);
+            }
+            return wrapper;
+        });
+    }
+
+    /**
+     * 异步版本的 {@link #get(Object, Callable)}，和同步版本共用同一个节点内的加载合并，
+     * 等待二级缓存和 valueLoader 时都不占用调用线程
+     *
+     * @param key         键
+     * @param valueLoader 异步获取值
+     * @param <T>         类型
+     * @return 值
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> getAsync(Object key, Supplier<? extends CompletableFuture<T>> valueLoader) {
+        if (useL1Cache) {
+            ValueWrapper wrapper = caffeineCache.get(key);
+            if (wrapper != null) {
+                stats.recordL1Hit();
+                return CompletableFuture.completedFuture((T) wrapper.get());
+            }
+        }
+        if (localTiers.rejects(key)) {
+            stats.recordMiss();
+            return CompletableFuture.completedFuture(null);
+        }
+        if (refreshLoaders != null) {
+            refreshLoaders.put(key, valueLoader);
+        }
+
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = inFlightLoads.putIfAbsent(key, future);
+        if (inFlight != null) {
+            stats.recordMiss();
+            return inFlight.thenApply(value -> (T) value);
+        }
+        getL2Async(key).thenCompose(wrapper -> {
+            if (wrapper != null) {
+                stats.recordL2Hit();
+                putL1FromL2(key, wrapper.get(), true);
+                return CompletableFuture.completedFuture(wrapper.get());
+            }
+            stats.recordMiss();
+            //valueLoader可能是阻塞的，不能在redis的IO线程上调用
+            return CompletableFuture.supplyAsync(valueLoader, asyncExecutor)
+                    .thenCompose(loaded -> loadAndWriteBackAsync(key, loaded));
+        }).whenComplete((value, ex) -> {
+            //先移除再完成，等待结果的调用方再次读取时不会拿到已经完成的加载
+            inFlightLoads.remove(key, future);
+            if (ex != null) {
+                future.completeExceptionally(ex instanceof CompletionException && ex.getCause() != null ?
+                        ex.getCause() : ex);
+            } else {
+                future.complete(value);
+            }
+        });
+        return future.thenApply(value -> (T) value);
+    }
+
+    /**
+     * 等待 valueLoader 的结果并写回一二级缓存，valueLoader 和二级缓存的异步结果可能在redis客户端的IO线程上完成，
+     * 之后的写回、未命中缓存和本地各层的操作可能阻塞，都放到 asyncExecutor 执行
+     *
+     * @param key    键
+     * @param loaded valueLoader 返回的结果
+     * @return 值
+     */
+    private CompletableFuture<Object> loadAndWriteBackAsync(Object key, CompletableFuture<?> loaded) {
+        long startTime = System.nanoTime();
+        return loaded.handle((value, ex) -> {
+            if (ex != null) {
+                stats.recordLoadFailure(System.nanoTime() - startTime);
+                throw ex instanceof CompletionException ? (CompletionException) ex : new CompletionException(ex);
+            }
+            long loadTime = System.nanoTime() - startTime;
+            stats.recordLoadSuccess(loadTime);
+            return new Object[]{value, loadTime};
+        }).thenComposeAsync(result -> {
+            Object value = result[0];
+            if (value == null && negativeCache != null) {
+                negativeCache.remember(key);
+                return CompletableFuture.completedFuture(null);
+            }
+            if (value == null && !redisCache.isAllowNullValues()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return putL2Async(key, toL2Value(value, (Long) result[1])).thenApplyAsync(ignored -> {
+                localTiers.onPut(Collections.singletonMap(key, value));
+                putL1Cache(key, value);
+                return value;
+            }, asyncExecutor);
+        }, asyncExecutor);
+    }
+
+    /**
+     * 异步添加一二级缓存，二级缓存写入完成之后再通知其他节点
+     *
+     * @param key   键
+     * @param value 值
+     * @return 完成信号
+     */
+    public CompletableFuture<Void> putAsync(Object key, Object value) {
+        if (writeBehind != null || (value == null && negativeCache != null)) {
+            //写后队列满时会等待，记录不存在和共享的布隆过滤器会写redis，都不能在调用线程上阻塞
+            return CompletableFuture.runAsync(() -> put(key, value), asyncExecutor);
+        }
+        stats.recordPut();
+        if (useL1Cache) {
+            caffeineCache.put(key, value);
+        }
+        return putL2Async(key, value).thenRunAsync(() -> {
+            localTiers.onPut(Collections.singletonMap(key, value));
+            push(key);
+        }, asyncExecutor);
+    }
+
+    /**
+     * 异步删除指定key的缓存
+     *
+     * @param key 键
+     * @return 完成信号
+     */
+    public CompletableFuture<Void> evictAsync(Object key) {
+        if (writeBehind != null) {
+            return CompletableFuture.runAsync(() -> evict(key), asyncExecutor);
+        }
+        RedisCacheWriter cacheWriter = redisCache.getNativeCache();
+        CompletableFuture<Void> l2Future = cacheWriter instanceof RedisCallbackCacheWriter ?
+                ((RedisCallbackCacheWriter) cacheWriter).removeAsync(cacheName,
+                        serializeKey(key)) :
+                CompletableFuture.runAsync(() -> redisCache.evict(key), asyncExecutor);
+        //删除的时候要先删除L2再删除L1，否则有并发问题
+        return l2Future.thenRunAsync(() -> {
+            removeMissingInRedis(Collections.singletonList(key));
+            localTiers.onEvict(Collections.singletonList(key));
+            if (useL1Cache) {
+                caffeineCache.evict(key);
+            }
+            push(key);
+        }, asyncExecutor);
+    }
+
+    /**
+     * 异步版本的 {@link #getL2(Object)}，本地各层都没有时才异步查询二级缓存
+     *
+     * @param key 键
+     * @return ValueWrapper（值）
+     */
+    private CompletableFuture<ValueWrapper> getL2Async(Object key) {
+        ValueWrapper local = localTiers.get(key);
+        if (local != null) {
+            return CompletableFuture.completedFuture(
+                    local == LocalTier.DELETED ? null : unwrapEarlyExpiration(local));
+        }
+        RedisCacheWriter cacheWriter = redisCache.getNativeCache();
+        CompletableFuture<byte[]> value = cacheWriter instanceof RedisCallbackCacheWriter ?
+                ((RedisCallbackCacheWriter) cacheWriter).getAsync(cacheName, serializeKey(key)) :
+                CompletableFuture.supplyAsync(() -> cacheWriter.get(cacheName, serializeKey(key)), asyncExecutor);
+        return value.thenApply(bytes -> unwrapEarlyExpiration(fromRedis(key, bytes)));
+    }
+
+    private CompletableFuture<Void> putL2Async(Object key, Object value) {
+        RedisCacheWriter cacheWriter = redisCache.getNativeCache();
+        if (!(cacheWriter instanceof RedisCallbackCacheWriter)) {
+            return CompletableFuture.runAsync(() -> redisCache.put(key, value), asyncExecutor);
+        }
+        RedisCacheExt redisCacheExt = (RedisCacheExt) redisCache;
+        return ((RedisCallbackCacheWriter) cacheWriter).putAsync(cacheName, serializeKey(key),
+                redisCacheExt.serializeValue(value), redisCache.getCacheConfiguration().getTtl());
+    }
+
+    /**
+     * 一级缓存的 refreshAfterWrite 到期后由 {@link com.wangtoye.doublecachespringbootstarter.cache.loader.DoubleCacheLoader}
+     * 调用，从二级缓存异步刷新；二级缓存也没有时，如果记录了这个key最近一次的 valueLoader 则重新加载并写回二级缓存
+     *
+     * @param key 键
+     * @return 一级缓存中存储的新值，为null时一级缓存删除这个key
+     */
+    public CompletableFuture<Object> refreshL1(Object key) {
+        return getL2Async(key).thenCompose(wrapper -> {
+            if (wrapper != null) {
+                return CompletableFuture.completedFuture(toL1StoreValue(wrapper.get()));
+            }
+            Supplier<? extends CompletableFuture<?>> valueLoader =
+                    refreshLoaders == null ? null : refreshLoaders.getIfPresent(key);
+            if (valueLoader == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            //valueLoader可能是阻塞的，不能在redis的IO线程上调用
+            return CompletableFuture.supplyAsync(valueLoader, asyncExecutor)
+                    .thenCompose(loaded -> loadAndWriteBackAsync(key, loaded))
+                    .thenApply(this::toL1StoreValue);
+        });
+    }
+
+    /**
+     * 转换成一级缓存中存储的值，不允许存储null值时返回null
+     */
+    private Object toL1StoreValue(Object value) {
+        if (value == null) {
+            return isAllowNullValues() ? NullValue.INSTANCE : null;
+        }
+        return value;
+    }
+
+    /**
+     * 一级缓存刷新时二级缓存也未命中的情况下，使用这个key最近一次的 valueLoader 重新加载。
+     * 默认不开启，刷新只从二级缓存读取，二级缓存也没有时一级缓存删除这个key。
+     * 开启后需要满足：
+     * <ul>
+     * <li>valueLoader 会持有方法参数和目标对象，直到被淘汰或者超过保留时间</li>
+     * <li>valueLoader 在异步线程池上调用，不在原来调用方的事务、安全上下文、请求作用域和ThreadLocal中</li>
+     * <li>因此只适合结果只由参数决定、可以在任意线程上重复调用的方法</li>
+     * </ul>
+     *
+     * @param capacity 最多记录的key数量，不大于0表示只从二级缓存刷新
+     * @param ttl      valueLoader 记录之后保留的时间，为null表示不限制
+     */
+    public void setRefreshValueLoader(int capacity, Duration ttl) {
+        if (capacity <= 0 || !useL1Cache) {
+            this.refreshLoaders = null;
+            return;
+        }
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().maximumSize(capacity);
+        if (ttl != null && !ttl.isZero() && !ttl.isNegative()) {
+            builder.expireAfterWrite(ttl);
+        }
+        this.refreshLoaders = builder.build();
+    }
+
+    /**
+     * 清空缓存，{@link ClearMode#ASYNC_SCAN} 模式下在后台执行
+     */
+    @Override
+    public void clear() {
+        if (writeBehind != null) {
+            writeBehind.clear();
+        }
+        if (keyGeneration != null) {
+            clearByGeneration();
+        } else if (clearMode == ClearMode.ASYNC_SCAN) {
+            clearAsync(deleted -> logger.debug("清空{}的二级缓存，已删除{}个key", cacheName, deleted));
+        } else {
+            clearL2Cache(null);
+            clearLocal();
+        }
+    }
+
+    /**
+     * 立即清空缓存，不受 {@link ClearMode#ASYNC_SCAN} 影响
+     *
+     * @return 是否清空过二级缓存
+     */
+    @Override
+    public boolean invalidate() {
+        if (writeBehind != null) {
+            writeBehind.clear();
+        }
+        if (keyGeneration != null) {
+            clearByGeneration();
+        } else {
+            clearL2Cache(null);
+            clearLocal();
+        }
+        return true;
+    }
+
+    /**
+     * 在后台清空缓存
+     *
+     * @param progress 每删除一批二级缓存之后回调已删除的总数，可以为null
+     * @return 删除的二级缓存数量，无法统计时为-1
+     */
+    public CompletableFuture<Long> clearAsync(LongConsumer progress) {
+        if (writeBehind != null) {
+            writeBehind.clear();
+        }
+        if (keyGeneration != null) {
+            clearByGeneration();
+            return CompletableFuture.completedFuture(-1L);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            long deleted = clearL2Cache(progress);
+            clearLocal();
+            return deleted;
+        }, asyncExecutor);
+    }
+
+    /**
+     * 分批清空二级缓存
+     *
+     * @param progress 进度回调，可以为null
+     * @return 删除的数量，无法统计时为-1
+     */
+    private long clearL2Cache(LongConsumer progress) {
+        RedisCacheWriter cacheWriter = redisCache.getNativeCache();
+        if (cacheWriter instanceof RedisCallbackCacheWriter) {
+            //和RedisCache.clear()使用相同的匹配规则
+            byte[] pattern = ((RedisCacheExt) redisCache).serializeKey("*");
+            return ((RedisCallbackCacheWriter) cacheWriter).clean(cacheName, pattern, progress);
+        }
+        redisCache.clear();
+        return -1;
+    }
+
+    /**
+     * 递增代数清空缓存，旧数据依靠过期时间回收，没有过期时间的旧数据在后台删除
+     */
+    private void clearByGeneration() {
+        RedisCallbackCacheWriter cacheWriter = (RedisCallbackCacheWriter) redisCache.getNativeCache();
+        byte[] oldPattern = ((RedisCacheExt) redisCache).serializeKey("*");
+        keyGeneration.updateGeneration(cacheWriter.incrementGeneration(cacheName));
+        clearLocal();
+
+        Duration ttl = redisCache.getCacheConfiguration().getTtl();
+        if (ttl == null || ttl.isZero() || ttl.isNegative()) {
+            CompletableFuture.runAsync(() -> cacheWriter.clean(cacheName, oldPattern, null), asyncExecutor);
+        }
+    }
+
+    /**
+     * 二级缓存清空之后清空一级缓存并通知其他节点
+     */
+    private void clearLocal() {
+        //清空的时候要先清空L2再清空L1，否则有并发问题
+        localTiers.clear();
+        if (useL1Cache) {
+            caffeineCache.clear();
+        }
+
+        //通知其他节点清空本地一级缓存
+        push(null);
+    }
+
+    /**
+     * 设置清空二级缓存的方式
+     *
+     * @param clearMode     清空方式
+     * @param keyGeneration {@link ClearMode#GENERATION} 模式下redisCache使用的带代数的key前缀，其他模式为null
+     */
+    public void setClearMode(ClearMode clearMode, GenerationCacheKeyPrefix keyGeneration) {
+        this.clearMode = clearMode;
+        this.keyGeneration = keyGeneration;
+        if (keyGeneration != null) {
+            //前缀中带有代数，代数变化时需要重新编码前缀
+            this.keyEncoder = new CacheKeyEncoder((RedisCacheExt) redisCache, keyGeneration);
+        }
+    }
+
+    /**
+     * 开启二级缓存的写后模式，只有使用 {@link RedisCallbackCacheWriter} 时可以开启
+     *
+     * @param configuration 写后模式配置，null表示不开启
+     */
+    public void setWriteBehind(WriteBehindConfiguration configuration) {
+        if (writeBehind != null) {
+            writeBehind.shutdown();
+            writeBehind = null;
+        }
+        RedisCacheWriter cacheWriter = redisCache.getNativeCache();
+        if (configuration != null && cacheWriter instanceof RedisCallbackCacheWriter) {
+            writeBehind = new WriteBehindQueue(cacheName, (RedisCallbackCacheWriter) cacheWriter,
+                    (RedisCacheExt) redisCache, redisCache.getCacheConfiguration().getTtl(), configuration,
+                    this::pushAll);
+        }
+        updateLocalTiers();
+    }
+
+    /**
+     * 开启一级缓存和二级缓存之间的堆外缓存，查询顺序变为 一级缓存 → 堆外缓存 → 二级缓存，
+     * 失效通知同时清除一级缓存和堆外缓存
+     *
+     * @param configuration 堆外缓存配置，null表示不开启
+     */
+    public void setOffHeap(OffHeapConfiguration configuration) {
+        this.offHeap = configuration == null ? null : new OffHeapStore(configuration);
+        updateLocalTiers();
+    }
+
+    /**
+     * 开启热点key探测，一级缓存未命中的读取按采样记录频率，热点key的值在本地保存很短的时间，
+     * 没有开启一级缓存时也生效
+     *
+     * @param configuration 热点key配置，null表示不开启
+     */
+    public void setHotKey(HotKeyConfiguration configuration) {
+        this.hotKeys = configuration == null ? null : new HotKeyDetector(configuration);
+        updateLocalTiers();
+    }
+
+    /**
+     * 设置二级缓存命中时放入一级缓存的准入策略，按频率准入时只有一段时间内反复读取的key才放入一级缓存，
+     * 只读一次的key（例如扫描类的流量）不会挤掉一级缓存中的热点数据
+     *
+     * @param configuration 准入配置，null表示使用默认的 {@link L1AdmissionMode#NONE}
+     */
+    public void setL1Admission(L1AdmissionConfiguration configuration) {
+        if (configuration == null || configuration.getMode() == null) {
+            this.l1AdmissionMode = L1AdmissionMode.NONE;
+            this.l1Admission = null;
+            return;
+        }
+        this.l1Admission = configuration.getMode() == L1AdmissionMode.FREQUENCY ?
+                new FrequencyAdmission(configuration.getSketchSize(), configuration.getThreshold()) : null;
+        this.l1AdmissionMode = configuration.getMode();
+    }
+
+    /**
+     * 开启未命中缓存，回源结果为null的key在很短的时间内直接返回null，不再查询二级缓存和 valueLoader；
+     * 开启之后null值不再按allowNullValues写入一二级缓存，put(key, null)也记录为不存在
+     *
+     * @param configuration 未命中缓存配置，null表示不开启
+     */
+    public void setNegativeCache(NegativeCacheConfiguration configuration) {
+        this.negativeCache = configuration == null ? null : new NegativeCacheTier(new NegativeCache(configuration),
+                cacheName, redisCache.getNativeCache(), this::serializeKey);
+        updateLocalTiers();
+    }
+
+    /**
+     * 开启布隆过滤器，查询一级缓存未命中之后先判断key是否可能存在，一定不存在的key直接返回null，
+     * 不查询二级缓存也不调用 valueLoader；写入的key自动加入，还没有写入缓存的新key需要通过
+     * {@link #addToBloomFilter(Collection)} 加入，构造完成（{@link #initBloomFilter(Iterable)}）之前不生效
+     *
+     * @param configuration 布隆过滤器配置，null表示不开启
+     */
+    public void setBloomFilter(BloomFilterConfiguration configuration) {
+        this.bloomFilter = configuration == null ? null : new BloomFilterTier(new KeyBloomFilter(configuration),
+                cacheName, redisCache.getNativeCache(), key -> keyEncoder.encodeWithoutPrefix(key));
+        updateLocalTiers();
+    }
+
+    /**
+     * 按查询顺序重新排列开启的本地层：先判断key是否一定不存在，再查询保存值的层
+     */
+    private void updateLocalTiers() {
+        List<LocalTier> tiers = new ArrayList<>();
+        if (bloomFilter != null) {
+            tiers.add(bloomFilter);
+        }
+        if (negativeCache != null) {
+            tiers.add(negativeCache);
+        }
+        if (writeBehind != null) {
+            tiers.add(new WriteBehindTier(writeBehind));
+        }
+        if (hotKeys != null) {
+            tiers.add(new HotKeyTier(hotKeys));
+        }
+        if (offHeap != null) {
+            tiers.add(new OffHeapTier(offHeap, this::deserializeValue));
+        }
+        this.localTiers = tiers.isEmpty() ? LocalTiers.NONE : new LocalTiers(tiers);
+    }
+
+    /**
+     * 布隆过滤器
+     *
+     * @return 布隆过滤器，没有开启时为null
+     */
+    public KeyBloomFilter getBloomFilter() {
+        return bloomFilter == null ? null : bloomFilter.getBloomFilter();
+    }
+
+    /**
+     * 构造布隆过滤器，共享时先合并redis中已有的位，再加入key来源中的全部key；
+     * 没有key来源并且redis中也没有已有的位时布隆过滤器保持不生效
+     *
+     * @param keys 全部可能存在的key，为null表示没有key来源
+     * @return 布隆过滤器是否开始生效
+     */
+    public boolean initBloomFilter(Iterable<?> keys) {
+        return bloomFilter != null && bloomFilter.init(keys);
+    }
+
+    /**
+     * 把新创建的key加入布隆过滤器，例如数据库新增了一条记录但是还没有写入缓存，并通知其他节点加入
+     *
+     * @param keys 键
+     */
+    public void addToBloomFilter(Collection<?> keys) {
+        if (bloomFilter == null || keys.isEmpty()) {
+            return;
+        }
+        bloomFilter.putAll(keys);
+        pushAll(keys);
+    }
+
+    /**
+     * 未命中缓存
+     *
+     * @return 未命中缓存，没有开启时为null
+     */
+    public NegativeCache getNegativeCache() {
+        return negativeCache == null ? null : negativeCache.getNegativeCache();
+    }
+
+    /**
+     * 热点key探测
+     *
+     * @return 热点key探测，没有开启时为null
+     */
+    public HotKeyDetector getHotKeyDetector() {
+        return hotKeys;
+    }
+
+    /**
+     * 写入写后队列中等待的操作并停止后台线程
+     */
+    public void shutdownWriteBehind() {
+        if (writeBehind != null) {
+            writeBehind.shutdown();
+        }
+    }
+
+    /**
+     * 开启提前过期模式，通过 valueLoader 加载的值会和计算耗时、过期时间一起写入二级缓存，
+     * 读取时按 XFetch 算法在过期之前随机地提前重新计算
+     *
+     * @param beta 系数，越大越倾向于提前计算，不大于0表示不开启
+     */
+    public void setEarlyExpirationBeta(double beta) {
+        this.earlyExpirationBeta = beta;
+    }
+
+    /**
+     * 二级缓存不允许null值时提前失败，避免在后台写入时才发现
+     *
+     * @param value 值
+     * @return 值
+     */
+    private Object checkL2Value(Object value) {
+        if (value == null && !redisCache.isAllowNullValues()) {
+            throw new IllegalArgumentException(String.format("Cache '%s' does not allow 'null' values.", cacheName));
+        }
+        return value;
+    }
+
+    /**
+     * 获取统计数据
+     *
+     * @return 统计数据
+     */
+    public DoubleCacheStats getStats() {
+        return stats;
+    }
+
+    /**
+     * 一级缓存当前的大约条数
+     *
+     * @return 条数，没有开启一级缓存时为null
+     */
+    public Long estimatedL1Size() {
+        return useL1Cache ? caffeineCache.getNativeCache().estimatedSize() : null;
+    }
+
+    /**
+     * 导出一级缓存中最热的条目，用于写入快照；没有按条数或权重限制大小时按遍历顺序导出
+     *
+     * @param limit         最多导出的条目数
+     * @param keySerializer 序列化key，无法序列化的条目跳过
+     * @return 快照条目，没有开启一级缓存时为空
+     */
+    public List<L1SnapshotFile.Entry> snapshotL1(int limit, RedisSerializer<Object> keySerializer) {
+        if (!useL1Cache || limit <= 0) {
+            return Collections.emptyList();
+        }
+        Cache<Object, Object> nativeCache = caffeineCache.getNativeCache();
+        boolean shared = SharedCaffeineCache.isView(nativeCache);
+        Map<Object, Object> entries = shared ? null :
+                nativeCache.policy().eviction().map(eviction -> eviction.hottest(limit)).orElse(null);
+        if (entries == null) {
+            entries = new LinkedHashMap<>();
+            for (Map.Entry<Object, Object> entry : nativeCache.asMap().entrySet()) {
+                if (entries.size() >= limit) {
+                    break;
+                }
+                entries.put(entry.getKey(), entry.getValue());
+            }
+        }
+        long now = System.currentTimeMillis();
+        long generation = keyGeneration == null ? -1 : keyGeneration.getGeneration();
+        RedisCacheExt redisCacheExt = (RedisCacheExt) redisCache;
+        List<L1SnapshotFile.Entry> snapshot = new ArrayList<>(entries.size());
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            long expireAt = shared ? 0 : expireAtOf(nativeCache, entry.getKey(), now);
+            try {
+                snapshot.add(new L1SnapshotFile.Entry(cacheName, generation, expireAt,
+                        keySerializer.serialize(entry.getKey()), redisCacheExt.serializeValue(entry.getValue())));
+            } catch (RuntimeException ex) {
+                logger.debug("缓存{}的key {}无法写入快照，已跳过", cacheName, entry.getKey(), ex);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * 按一级缓存的expireAfterWrite计算过期时间
+     *
+     * @param nativeCache 一级缓存
+     * @param key         键
+     * @param now         当前时间
+     * @return 过期时间，毫秒时间戳，没有配置expireAfterWrite时为0
+     */
+    private static long expireAtOf(Cache<Object, Object> nativeCache, Object key, long now) {
+        return nativeCache.policy().expireAfterWrite().map(expiration -> {
+            OptionalLong age = expiration.ageOf(key, TimeUnit.MILLISECONDS);
+            return age.isPresent() ? now + expiration.getExpiresAfter(TimeUnit.MILLISECONDS) - age.getAsLong() : 0L;
+        }).orElse(0L);
+    }
+
+    /**
+     * 把快照中的条目放回一级缓存，已经过期或者代数已经变化的条目丢弃，一级缓存中已有的key不覆盖
+     *
+     * @param entries       这个缓存的快照条目
+     * @param keySerializer 反序列化key
+     * @param verifyWithL2  是否只恢复二级缓存中仍然存在的key，值以二级缓存为准
+     * @return 恢复的条目数
+     */
+    public int restoreL1(List<L1SnapshotFile.Entry> entries, RedisSerializer<Object> keySerializer,
+                         boolean verifyWithL2) {
+        if (!useL1Cache || entries.isEmpty()) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        long generation = keyGeneration == null ? -1 : keyGeneration.getGeneration();
+        RedisCacheExt redisCacheExt = (RedisCacheExt) redisCache;
+        Map<Object, byte[]> candidates = new LinkedHashMap<>();
+        for (L1SnapshotFile.Entry entry : entries) {
+            if (entry.getGeneration() != generation || (entry.getExpireAt() != 0 && entry.getExpireAt() <= now)) {
+                continue;
+            }
+            try {
+                Object key = keySerializer.deserialize(entry.getKey());
+                if (key != null) {
+                    candidates.put(key, entry.getValue());
+                }
+            } catch (RuntimeException ex) {
+                logger.debug("缓存{}的快照中有无法反序列化的key，已跳过", cacheName, ex);
+            }
+        }
+        if (verifyWithL2 && !candidates.isEmpty()) {
+            candidates = readL2Bytes(candidates.keySet());
+        }
+        int restored = 0;
+        for (Map.Entry<Object, byte[]> candidate : candidates.entrySet()) {
+            ValueWrapper wrapper = toValueWrapper(
+                    EarlyExpirationValue.unwrap(redisCacheExt.deserializeValue(candidate.getValue())));
+            Object value = wrapper.get();
+            if (value != null || isAllowNullValues()) {
+                caffeineCache.putIfAbsent(candidate.getKey(), value);
+                restored++;
+            }
+        }
+        return restored;
+    }
+
+    /**
+     * 分批通过MGET读取二级缓存中序列化之后的值，不计入统计
+     *
+     * @param keys 键
+     * @return 二级缓存中存在的key和值
+     */
+    private Map<Object, byte[]> readL2Bytes(Collection<Object> keys) {
+        RedisCacheWriter cacheWriter = redisCache.getNativeCache();
+        Map<Object, byte[]> found = new LinkedHashMap<>();
+        List<Object> batch = new ArrayList<>(L2_READ_BATCH_SIZE);
+        Iterator<Object> iterator = keys.iterator();
+        while (iterator.hasNext()) {
+            batch.add(iterator.next());
+            if (batch.size() < L2_READ_BATCH_SIZE && iterator.hasNext()) {
+                continue;
+            }
+            List<byte[]> redisKeys = new ArrayList<>(batch.size());
+            for (Object key : batch) {
+                redisKeys.add(serializeKey(key));
+            }
+            if (cacheWriter instanceof RedisCallbackCacheWriter) {
+                List<byte[]> values = ((RedisCallbackCacheWriter) cacheWriter).getAll(cacheName, redisKeys);
+                for (int i = 0; values != null && i < batch.size(); i++) {
+                    if (values.get(i) != null) {
+                        found.put(batch.get(i), values.get(i));
+                    }
+                }
+            } else {
+                for (int i = 0; i < batch.size(); i++) {
+                    byte[] value = cacheWriter.get(cacheName, redisKeys.get(i));
+                    if (value != null) {
+                        found.put(batch.get(i), value);
+                    }
+                }
+            }
+            batch.clear();
+        }
+        return found;
+    }
+
+    /**
+     * 通过SCAN查找二级缓存中这个缓存的key，去掉前缀之后作为字符串返回，只适用于key是字符串的缓存
+     *
+     * @param limit 最多返回的key数量
+     * @return 二级缓存中的key，没有使用 {@link RedisCallbackCacheWriter} 时为空
+     */
+    public List<String> scanL2Keys(int limit) {
+        RedisCacheWriter cacheWriter = redisCache.getNativeCache();
+        if (!(cacheWriter instanceof RedisCallbackCacheWriter) || limit <= 0) {
+            return Collections.emptyList();
+        }
+        RedisCacheExt redisCacheExt = (RedisCacheExt) redisCache;
+        //和clear使用相同的匹配规则
+        byte[] pattern = redisCacheExt.serializeKey("*");
+        int prefixLength = redisCacheExt.serializeKey("").length;
+        List<byte[]> redisKeys = ((RedisCallbackCacheWriter) cacheWriter).scan(cacheName, pattern, limit);
+        List<String> keys = new ArrayList<>(redisKeys.size());
+        for (byte[] redisKey : redisKeys) {
+            if (redisKey.length >= prefixLength && !RedisCallbackCacheWriter.isInternalKey(redisKey)) {
+                keys.add(new String(redisKey, prefixLength, redisKey.length - prefixLength, StandardCharsets.UTF_8));
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * 堆外缓存当前的条数
+     *
+     * @return 条数，没有开启堆外缓存时为null
+     */
+    public Long estimatedOffHeapSize() {
+        return offHeap != null ? offHeap.size() : null;
+    }
+
+    /**
+     * 开启集群范围内的加载合并
+     *
+     * @param loadLeaseConfiguration 租约配置，null表示不开启
+     */
+    public void setLoadLeaseConfiguration(LoadLeaseConfiguration loadLeaseConfiguration) {
+        this.loadLeaseConfiguration = loadLeaseConfiguration;
+    }
+
+    /**
+     * 设置异步操作使用的线程池，没有设置时使用ForkJoinPool.commonPool
+     *
+     * @param asyncExecutor 线程池
+     */
+    public void setAsyncExecutor(Executor asyncExecutor) {
+        Assert.notNull(asyncExecutor, "AsyncExecutor must not be null!");
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    /**
+     * 设置失效通知的发布者
+     *
+     * @param messagePublisher 发布者，为null时直接通过redisCache发布
+     */
+    public void setMessagePublisher(DoubleCacheMessagePublisher messagePublisher) {
+        this.messagePublisher = messagePublisher;
+    }
+
+    /**
+     * 推送消息给订阅的系统
+     *
+     * @param key 失效的键，为null表示清空整个缓存
+     */
+    private void push(Object key) {
+        stats.recordInvalidationSent();
+        if (messagePublisher != null) {
+            messagePublisher.publish(cacheName, key);
+        } else {
+            //没有发布者时不知道节点id，自己也会收到这条消息，只是多清除一次一级缓存
+            ((RedisCacheExt) redisCache).convertAndSend(topic, new DoubleCacheMessage(cacheName, key, 0L));
+        }
+    }
+
+    /**
+     * 推送多个key的失效消息给订阅的系统
+     *
+     * @param keys 失效的键
+     */
+    private void pushAll(Collection<?> keys) {
+        stats.recordInvalidationsSent(keys.size());
+        if (messagePublisher != null) {
+            messagePublisher.publishAll(cacheName, keys);
+        } else {
+            ((RedisCacheExt) redisCache).convertAndSend(topic,
+                    new DoubleCacheMessage(cacheName, new ArrayList<>(keys), 0L));
+        }
+    }
+
+    /**
+     * 清理一级缓存
+     *
+     * @param key 键
+     */
+    public void clearL1Cache(Object key) {
+        stats.recordInvalidationReceived();
+        if (key == null && keyGeneration != null) {
+            //其他节点递增了代数，先同步代数再清空一级缓存，避免一级缓存又从旧代数中加载
+            keyGeneration.updateGeneration(
+                    ((RedisCallbackCacheWriter) redisCache.getNativeCache()).getGeneration(cacheName));
+        }
+        if (key == null) {
+            localTiers.clear();
+        } else {
+            localTiers.onInvalidation(Collections.singletonList(key));
+        }
+        if (!useL1Cache) {
+            return;
+        }
         if (key == null) {
             caffeineCache.clear();
         } else {
@@ -0,0 +1,49 @@
+package com.wangtoye.doublecachespringbootstarter.cache;
+
+import com.wangtoye.doublecachespringbootstarter.cache.support.HotKeyDetector;
+import org.springframework.cache.Cache.ValueWrapper;
+import org.springframework.cache.support.NullValue;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.Collection;
+
+/**
+ * 热点key层
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 未命中时记录一次读取，之后的层查到值并且这个key成为热点时保存在本地
+ */
+final class HotKeyTier implements LocalTier {
+    private final HotKeyDetector hotKeys;
+
+    HotKeyTier(HotKeyDetector hotKeys) {
+        this.hotKeys = hotKeys;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        Object storeValue = hotKeys.getIfPresent(key);
+        if (storeValue == null) {
+            return null;
+        }
+        return new SimpleValueWrapper(storeValue == NullValue.INSTANCE ? null : storeValue);
+    }
+
+    @Override
+    public void afterMiss(Object key, ValueWrapper found, byte[] serialized) {
+        if (hotKeys.recordAccess(key) && found != null) {
+            hotKeys.promote(key, found.get() == null ? NullValue.INSTANCE : found.get());
+        }
+    }
+
+    @Override
+    public void onEvict(Collection<?> keys) {
+        hotKeys.invalidateAll(keys);
+    }
+
+    @Override
+    public void clear() {
+        hotKeys.clear();
+    }
+}
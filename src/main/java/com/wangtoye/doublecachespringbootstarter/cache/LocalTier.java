@@ -0,0 +1,85 @@
+package com.wangtoye.doublecachespringbootstarter.cache;
+
+import org.springframework.cache.Cache.ValueWrapper;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 一级缓存和二级缓存之间的本地层
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 布隆过滤器、未命中缓存这类判断key是否存在的层实现 {@link #rejects(Object)}，
+ * 写后队列、热点key、堆外缓存这类保存值的层实现 {@link #get(Object)}；
+ * 单个和批量、同步和异步的读写都通过 {@link LocalTiers} 按同样的顺序经过每一层
+ */
+interface LocalTier {
+    /**
+     * 写后队列中等待删除的key，不再查询之后的层和二级缓存，按二级缓存未命中处理
+     */
+    ValueWrapper DELETED = new SimpleValueWrapper(null);
+
+    /**
+     * 判断key是否一定不存在，一定不存在时按缓存了null值处理，不查询二级缓存也不调用 valueLoader
+     *
+     * @param key 键
+     * @return 是否一定不存在
+     */
+    default boolean rejects(Object key) {
+        return false;
+    }
+
+    /**
+     * 查询本层
+     *
+     * @param key 键
+     * @return 二级缓存中存储的值，提前过期模式写入的值不解包；本层没有时为null，继续查询下一层
+     */
+    default ValueWrapper get(Object key) {
+        return null;
+    }
+
+    /**
+     * 本层未命中之后，下一层或者二级缓存的查询结果
+     *
+     * @param key        键
+     * @param found      查询到的值，二级缓存也没有时为null
+     * @param serialized 从二级缓存读取的序列化之后的值，不是从二级缓存读取时为null
+     */
+    default void afterMiss(Object key, ValueWrapper found, byte[] serialized) {
+    }
+
+    /**
+     * 当前节点写入了二级缓存，包括回源之后的写回
+     *
+     * @param entries 键值
+     */
+    default void onPut(Map<?, ?> entries) {
+        onEvict(entries.keySet());
+    }
+
+    /**
+     * 当前节点删除了二级缓存
+     *
+     * @param keys 键
+     */
+    default void onEvict(Collection<?> keys) {
+    }
+
+    /**
+     * 收到其他节点的失效通知
+     *
+     * @param keys 键
+     */
+    default void onInvalidation(Collection<?> keys) {
+        onEvict(keys);
+    }
+
+    /**
+     * 清空本层
+     */
+    default void clear() {
+    }
+}
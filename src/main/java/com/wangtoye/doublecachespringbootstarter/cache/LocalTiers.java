@@ -0,0 +1,87 @@
+package com.wangtoye.doublecachespringbootstarter.cache;
+
+import org.springframework.cache.Cache.ValueWrapper;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按查询顺序排列的本地层
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 某一层命中时，把值交给它前面未命中的层，例如堆外缓存命中时热点key也会记录这次读取
+ */
+final class LocalTiers implements LocalTier {
+    static final LocalTiers NONE = new LocalTiers(Collections.emptyList());
+
+    private final LocalTier[] tiers;
+
+    LocalTiers(List<LocalTier> tiers) {
+        this.tiers = tiers.toArray(new LocalTier[0]);
+    }
+
+    @Override
+    public boolean rejects(Object key) {
+        for (LocalTier tier : tiers) {
+            if (tier.rejects(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        for (int i = 0; i < tiers.length; i++) {
+            ValueWrapper found = tiers[i].get(key);
+            if (found == null) {
+                continue;
+            }
+            if (found != DELETED) {
+                for (int j = 0; j < i; j++) {
+                    tiers[j].afterMiss(key, found, null);
+                }
+            }
+            return found;
+        }
+        return null;
+    }
+
+    @Override
+    public void afterMiss(Object key, ValueWrapper found, byte[] serialized) {
+        for (LocalTier tier : tiers) {
+            tier.afterMiss(key, found, serialized);
+        }
+    }
+
+    @Override
+    public void onPut(Map<?, ?> entries) {
+        for (LocalTier tier : tiers) {
+            tier.onPut(entries);
+        }
+    }
+
+    @Override
+    public void onEvict(Collection<?> keys) {
+        for (LocalTier tier : tiers) {
+            tier.onEvict(keys);
+        }
+    }
+
+    @Override
+    public void onInvalidation(Collection<?> keys) {
+        for (LocalTier tier : tiers) {
+            tier.onInvalidation(keys);
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (LocalTier tier : tiers) {
+            tier.clear();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.wangtoye.doublecachespringbootstarter.cache;
+
+import com.wangtoye.doublecachespringbootstarter.cache.support.NegativeCache;
+import com.wangtoye.doublecachespringbootstarter.cache.writer.RedisCallbackCacheWriter;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 未命中缓存层
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 本地记录的不存在的key直接拒绝；开启redis记录时，二级缓存未命中之后再查询redis中的记录
+ */
+final class NegativeCacheTier implements LocalTier {
+    private final NegativeCache negativeCache;
+    private final String cacheName;
+    private final RedisCacheWriter cacheWriter;
+    /**
+     * 把key转换成redis中的key
+     */
+    private final Function<Object, byte[]> keySerializer;
+
+    NegativeCacheTier(NegativeCache negativeCache, String cacheName, RedisCacheWriter cacheWriter,
+                      Function<Object, byte[]> keySerializer) {
+        this.negativeCache = negativeCache;
+        this.cacheName = cacheName;
+        this.cacheWriter = cacheWriter;
+        this.keySerializer = keySerializer;
+    }
+
+    NegativeCache getNegativeCache() {
+        return negativeCache;
+    }
+
+    @Override
+    public boolean rejects(Object key) {
+        return negativeCache.contains(key);
+    }
+
+    @Override
+    public void onEvict(Collection<?> keys) {
+        negativeCache.invalidateAll(keys);
+    }
+
+    @Override
+    public void clear() {
+        negativeCache.clear();
+    }
+
+    /**
+     * 二级缓存未命中之后查询redis中是否记录了这个key不存在，记录存在时同时在本地记录
+     *
+     * @param key 键
+     * @return 是否记录了不存在
+     */
+    boolean isMissingInRedis(Object key) {
+        if (!negativeCache.isRedisEnabled()) {
+            return false;
+        }
+        byte[] marker = cacheWriter.get(cacheName, NegativeCache.redisKey(keySerializer.apply(key)));
+        if (marker == null) {
+            return false;
+        }
+        negativeCache.recordRedisHit();
+        negativeCache.add(key);
+        return true;
+    }
+
+    /**
+     * 批量查询redis中是否记录了这些key不存在，通过一次MGET查询，记录存在的key同时在本地记录
+     *
+     * @param keys 二级缓存未命中的键
+     * @return 记录了不存在的key
+     */
+    Set<Object> missingInRedis(Collection<?> keys) {
+        if (!negativeCache.isRedisEnabled() || keys.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<Object> missing = new HashSet<>();
+        if (!(cacheWriter instanceof RedisCallbackCacheWriter)) {
+            for (Object key : keys) {
+                if (isMissingInRedis(key)) {
+                    missing.add(key);
+                }
+            }
+            return missing;
+        }
+        List<Object> keyList = new ArrayList<>(keys);
+        List<byte[]> redisKeys = new ArrayList<>(keyList.size());
+        for (Object key : keyList) {
+            redisKeys.add(NegativeCache.redisKey(keySerializer.apply(key)));
+        }
+        List<byte[]> markers = ((RedisCallbackCacheWriter) cacheWriter).getAll(cacheName, redisKeys);
+        for (int i = 0; markers != null && i < keyList.size(); i++) {
+            if (markers.get(i) != null) {
+                negativeCache.recordRedisHit();
+                negativeCache.add(keyList.get(i));
+                missing.add(keyList.get(i));
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * 记录这个key不存在，和回源写回一样不通知其他节点
+     *
+     * @param key 键
+     */
+    void remember(Object key) {
+        negativeCache.add(key);
+        if (negativeCache.isRedisEnabled()) {
+            cacheWriter.put(cacheName, NegativeCache.redisKey(keySerializer.apply(key)),
+                    NegativeCache.REDIS_VALUE, negativeCache.getRedisTtl());
+        }
+    }
+
+    /**
+     * 记录多个key不存在，redis中的记录通过pipeline一次写入
+     *
+     * @param keys 键
+     */
+    void rememberAll(Collection<?> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        if (!negativeCache.isRedisEnabled() || !(cacheWriter instanceof RedisCallbackCacheWriter)) {
+            keys.forEach(this::remember);
+            return;
+        }
+        Map<byte[], byte[]> markers = new LinkedHashMap<>();
+        for (Object key : keys) {
+            negativeCache.add(key);
+            markers.put(NegativeCache.redisKey(keySerializer.apply(key)), NegativeCache.REDIS_VALUE);
+        }
+        ((RedisCallbackCacheWriter) cacheWriter).putAll(cacheName, markers, negativeCache.getRedisTtl());
+    }
+
+    /**
+     * 删除redis中不存在的记录，删除之后通常会写入新的值，不能继续返回null
+     *
+     * @param keys 键
+     */
+    void removeFromRedis(Collection<?> keys) {
+        if (!negativeCache.isRedisEnabled()) {
+            return;
+        }
+        List<byte[]> redisKeys = new ArrayList<>(keys.size());
+        for (Object key : keys) {
+            redisKeys.add(NegativeCache.redisKey(keySerializer.apply(key)));
+        }
+        if (cacheWriter instanceof RedisCallbackCacheWriter) {
+            ((RedisCallbackCacheWriter) cacheWriter).removeAll(cacheName, redisKeys);
+        } else {
+            redisKeys.forEach(redisKey -> cacheWriter.remove(cacheName, redisKey));
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.wangtoye.doublecachespringbootstarter.cache;
+
+import com.wangtoye.doublecachespringbootstarter.cache.support.OffHeapStore;
+import org.springframework.cache.Cache.ValueWrapper;
+
+import java.util.Collection;
+import java.util.function.Function;
+
+/**
+ * 堆外缓存层
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 保存从二级缓存读取的序列化之后的值，写入时不需要再序列化一次
+ */
+final class OffHeapTier implements LocalTier {
+    private final OffHeapStore offHeap;
+    /**
+     * 把序列化之后的值转换成二级缓存中存储的值
+     */
+    private final Function<byte[], ValueWrapper> valueDeserializer;
+
+    OffHeapTier(OffHeapStore offHeap, Function<byte[], ValueWrapper> valueDeserializer) {
+        this.offHeap = offHeap;
+        this.valueDeserializer = valueDeserializer;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        byte[] value = offHeap.get(key);
+        return value == null ? null : valueDeserializer.apply(value);
+    }
+
+    @Override
+    public void afterMiss(Object key, ValueWrapper found, byte[] serialized) {
+        if (serialized != null) {
+            offHeap.put(key, serialized);
+        }
+    }
+
+    @Override
+    public void onEvict(Collection<?> keys) {
+        offHeap.invalidateAll(keys);
+    }
+
+    @Override
+    public void clear() {
+        offHeap.clear();
+    }
+}
@@ -0,0 +1,109 @@
+package com.wangtoye.doublecachespringbootstarter.cache;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * DoubleCache 的响应式视图，缓存的是 Mono/Flux 发出的值而不是 Mono/Flux 本身
+ * <p>
+ * 一级缓存命中时在订阅线程上直接返回，二级缓存通过响应式连接查询，不会阻塞事件循环
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description:
+ */
+public class ReactiveDoubleCache {
+    private final DoubleCache doubleCache;
+
+    public ReactiveDoubleCache(DoubleCache doubleCache) {
+        this.doubleCache = doubleCache;
+    }
+
+    /**
+     * 获取缓存名称
+     *
+     * @return cacheName
+     */
+    public String getName() {
+        return doubleCache.getName();
+    }
+
+    /**
+     * 获取同步的缓存
+     *
+     * @return doubleCache
+     */
+    public DoubleCache getDoubleCache() {
+        return doubleCache;
+    }
+
+    /**
+     * 从缓存中获取 key 对应的值
+     *
+     * @param key 键
+     * @return 值，不存在时为空的Mono，缓存的null值也是空的Mono
+     */
+    public Mono<Object> get(Object key) {
+        return Mono.defer(() -> Mono.fromFuture(doubleCache.getAsync(key)))
+                .flatMap(wrapper -> Mono.justOrEmpty(wrapper.get()));
+    }
+
+    /**
+     * 从缓存中获取 key 对应的值，没有命中时订阅 valueLoader 返回的Mono并缓存它发出的值
+     *
+     * @param key         键
+     * @param valueLoader 获取值的Mono，为空时按null值处理
+     * @param <T>         类型
+     * @return 值
+     */
+    public <T> Mono<T> get(Object key, Supplier<? extends Mono<T>> valueLoader) {
+        return Mono.defer(() -> Mono.fromFuture(doubleCache.getAsync(key, () -> valueLoader.get().toFuture())));
+    }
+
+    /**
+     * 从缓存中获取 key 对应的元素列表，没有命中时收集 valueLoader 返回的Flux的全部元素后缓存
+     *
+     * @param key         键
+     * @param valueLoader 获取值的Flux
+     * @param <T>         类型
+     * @return 值
+     */
+    public <T> Flux<T> getFlux(Object key, Supplier<? extends Flux<T>> valueLoader) {
+        return Mono.defer(() -> Mono.fromFuture(
+                doubleCache.<List<T>>getAsync(key, () -> valueLoader.get().collectList().toFuture())))
+                .flatMapIterable(values -> values);
+    }
+
+    /**
+     * 添加一二级缓存
+     *
+     * @param key   键
+     * @param value 值
+     * @return 完成信号
+     */
+    public Mono<Void> put(Object key, Object value) {
+        return Mono.defer(() -> Mono.fromFuture(doubleCache.putAsync(key, value)));
+    }
+
+    /**
+     * 删除指定key的缓存
+     *
+     * @param key 键
+     * @return 完成信号
+     */
+    public Mono<Void> evict(Object key) {
+        return Mono.defer(() -> Mono.fromFuture(doubleCache.evictAsync(key)));
+    }
+
+    /**
+     * 清空缓存，二级缓存清空之后发出完成信号
+     *
+     * @return 完成信号
+     */
+    public Mono<Void> clear() {
+        return Mono.defer(() -> Mono.fromFuture(doubleCache.clearAsync(null))).then();
+    }
+}
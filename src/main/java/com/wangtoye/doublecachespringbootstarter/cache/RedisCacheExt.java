@@ -14,4 +14,28 @@ public interface RedisCacheExt {
      * @param message   键
      */
     void convertAndSend(String topicName, Object message);
+
+    /**
+     * 把缓存的key转换成redis中实际存储的key（包含前缀）
+     *
+     * @param key 键
+     * @return redis中的key
+     */
+    byte[] serializeKey(Object key);
+
+    /**
+     * 按照缓存配置序列化值，null值按照RedisCache的规则处理
+     *
+     * @param value 值
+     * @return redis中存储的值
+     */
+    byte[] serializeValue(Object value);
+
+    /**
+     * 按照缓存配置反序列化值
+     *
+     * @param value redis中存储的值
+     * @return 缓存中存储的值，可能是 {@link org.springframework.cache.support.NullValue}
+     */
+    Object deserializeValue(byte[] value);
 }
@@ -0,0 +1,28 @@
+package com.wangtoye.doublecachespringbootstarter.cache;
+
+import com.wangtoye.doublecachespringbootstarter.cache.support.WriteBehindQueue;
+import org.springframework.cache.Cache.ValueWrapper;
+
+/**
+ * 写后队列层
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 还没有写入二级缓存的值优先于二级缓存中的旧值；写入和删除本身由 {@link DoubleCache} 放入队列
+ */
+final class WriteBehindTier implements LocalTier {
+    private final WriteBehindQueue writeBehind;
+
+    WriteBehindTier(WriteBehindQueue writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper pending = writeBehind.getPending(key);
+        if (pending == null) {
+            return null;
+        }
+        return WriteBehindQueue.isDeletion(pending) ? DELETED : pending;
+    }
+}
@@ -0,0 +1,25 @@
+package com.wangtoye.doublecachespringbootstarter.cache.loader;
+
+/**
+ * 启动时构造布隆过滤器的key来源
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 注册为bean之后，开启了布隆过滤器的缓存创建时在后台读取全部key；
+ * 读取完成之前布隆过滤器不生效，所有key都当作可能存在
+ */
+public interface BloomFilterKeySource {
+    /**
+     * 对应的缓存名
+     *
+     * @return 缓存名
+     */
+    String getCacheName();
+
+    /**
+     * 全部可能存在的key，例如数据库中所有的主键
+     *
+     * @return key
+     */
+    Iterable<?> keys();
+}
@@ -1,11 +1,16 @@
 package com.wangtoye.doublecachespringbootstarter.cache.loader;
 
 import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.wangtoye.doublecachespringbootstarter.cache.DoubleCache;
+import com.wangtoye.doublecachespringbootstarter.cache.support.EarlyExpirationValue;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.NullValue;
 import org.springframework.data.redis.cache.RedisCache;
 
-import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Created with IntelliJ IDEA.
@@ -17,11 +22,24 @@ import java.util.Objects;
 public class DoubleCacheLoader implements CacheLoader<Object, Object> {
 
     private RedisCache redisCache;
+    /**
+     * 使用这个一级缓存的DoubleCache，创建之后绑定
+     */
+    private volatile DoubleCache doubleCache;
 
     public DoubleCacheLoader(RedisCache redisCache) {
         this.redisCache = redisCache;
     }
 
+    /**
+     * 绑定使用这个一级缓存的DoubleCache，绑定之后刷新操作通过它异步执行
+     *
+     * @param doubleCache doubleCache
+     */
+    public void setDoubleCache(DoubleCache doubleCache) {
+        this.doubleCache = doubleCache;
+    }
+
     /**
      * 如果值没有过期，则不会调用这个函数，如果过期，则会调用这个函数去load一份新缓存
      * 因为集成了redis，所以可以交给redis去获取缓存，而此处直接返回null即可
@@ -32,22 +50,45 @@ public class DoubleCacheLoader implements CacheLoader<Object, Object> {
     @Nullable
     @Override
     public Object load(@NonNull Object key) {
-        System.out.println(key);
         return null;
     }
 
     /**
-     * 如果配置refreshAfterWrite则需要这个方法
+     * 配置了refreshAfterWrite时，被访问的key到期后在后台刷新，刷新期间继续返回旧值
+     * 绑定了DoubleCache时二级缓存的查询不占用线程，二级缓存也没有时可以使用原始的 valueLoader 重新加载
+     *
+     * @param key      键
+     * @param oldValue 旧值
+     * @param executor caffeine的线程池
+     * @return 新值，为null时删除这个key
+     */
+    @NonNull
+    @Override
+    public CompletableFuture<Object> asyncReload(@NonNull Object key, @NonNull Object oldValue,
+                                                 @NonNull Executor executor) {
+        DoubleCache cache = this.doubleCache;
+        if (cache != null) {
+            return cache.refreshL1(key);
+        }
+        return CompletableFuture.supplyAsync(() -> reload(key, oldValue), executor);
+    }
+
+    /**
+     * 从二级缓存同步刷新
      *
      * @param key      键
      * @param oldValue 旧值
-     * @return 值
+     * @return 值，二级缓存中已经不存在时为null，一级缓存会删除这个key
      */
     @Nullable
     @Override
     public Object reload(@NonNull Object key, @NonNull Object oldValue) {
-        System.out.println(key);
-        System.out.println(oldValue);
-        return Objects.requireNonNull(redisCache.get(key)).get();
+        Cache.ValueWrapper wrapper = redisCache.get(key);
+        if (wrapper == null) {
+            return null;
+        }
+        //二级缓存中存储的是null值，一级缓存中对应的是NullValue
+        Object value = EarlyExpirationValue.unwrap(wrapper.get());
+        return value == null ? NullValue.INSTANCE : value;
     }
 }
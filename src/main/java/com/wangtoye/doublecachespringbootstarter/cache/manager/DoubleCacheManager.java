@@ -1,18 +1,54 @@
 package com.wangtoye.doublecachespringbootstarter.cache.manager;
 
-import com.github.benmanes.caffeine.cache.Caffeine;
 import com.wangtoye.doublecachespringbootstarter.cache.DoubleCache;
+import com.wangtoye.doublecachespringbootstarter.cache.ReactiveDoubleCache;
+import com.wangtoye.doublecachespringbootstarter.cache.RedisCacheExt;
+import com.wangtoye.doublecachespringbootstarter.cache.loader.BloomFilterKeySource;
 import com.wangtoye.doublecachespringbootstarter.cache.loader.DoubleCacheLoader;
+import com.wangtoye.doublecachespringbootstarter.cache.support.GenerationCacheKeyPrefix;
+import com.wangtoye.doublecachespringbootstarter.cache.support.L1SnapshotFile;
+import com.wangtoye.doublecachespringbootstarter.cache.support.SerializedSizeWeigher;
+import com.wangtoye.doublecachespringbootstarter.cache.writer.RedisCallbackCacheWriter;
+import com.wangtoye.doublecachespringbootstarter.configuration.AsyncExecutorConfiguration;
+import com.wangtoye.doublecachespringbootstarter.configuration.BloomFilterConfiguration;
 import com.wangtoye.doublecachespringbootstarter.configuration.CaffeineCacheConfiguration;
+import com.wangtoye.doublecachespringbootstarter.configuration.ClearMode;
 import com.wangtoye.doublecachespringbootstarter.configuration.DoubleCacheConfiguration;
+import com.wangtoye.doublecachespringbootstarter.configuration.HotKeyConfiguration;
+import com.wangtoye.doublecachespringbootstarter.configuration.L1AdmissionConfiguration;
+import com.wangtoye.doublecachespringbootstarter.configuration.L1SnapshotConfiguration;
+import com.wangtoye.doublecachespringbootstarter.configuration.LoadLeaseConfiguration;
+import com.wangtoye.doublecachespringbootstarter.configuration.NegativeCacheConfiguration;
+import com.wangtoye.doublecachespringbootstarter.configuration.OffHeapConfiguration;
+import com.wangtoye.doublecachespringbootstarter.configuration.WriteBehindConfiguration;
+import com.wangtoye.doublecachespringbootstarter.listener.DoubleCacheMessageCodec;
+import com.wangtoye.doublecachespringbootstarter.listener.DoubleCacheMessagePublisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.cache.Cache;
 import org.springframework.cache.transaction.AbstractTransactionSupportingCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
 import org.springframework.data.redis.cache.RedisCache;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
+import java.io.IOException;
 import java.lang.reflect.Constructor;
+import java.security.SecureRandom;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.StreamSupport;
 
 /**
  * Created with IntelliJ IDEA.
@@ -21,14 +57,65 @@ import java.util.*;
  * @date 2019-12-05
  * Description: 管理 caffeine 和 redis 多级缓存
  */
-public class DoubleCacheManager extends AbstractTransactionSupportingCacheManager {
-    private com.github.benmanes.caffeine.cache.Cache<Object, Object> caffeineCacheWriter;
+public class DoubleCacheManager extends AbstractTransactionSupportingCacheManager implements DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(DoubleCacheManager.class);
     private RedisCacheWriter redisCacheWriter;
     private Map<String, DoubleCacheConfiguration> initialCacheConfiguration;
     private boolean allowNullValues;
     private boolean useL1Cache;
     private String topic;
-    public static List<String> uuidList = Collections.synchronizedList(new ArrayList<>());
+    private LoadLeaseConfiguration loadLeaseConfiguration;
+    private WriteBehindConfiguration writeBehindConfiguration;
+    private Set<String> writeBehindCacheNames = Collections.emptySet();
+    private OffHeapConfiguration offHeapConfiguration;
+    private Set<String> offHeapCacheNames = Collections.emptySet();
+    private HotKeyConfiguration hotKeyConfiguration;
+    private Set<String> hotKeyCacheNames = Collections.emptySet();
+    private L1AdmissionConfiguration l1AdmissionConfiguration;
+    private NegativeCacheConfiguration negativeCacheConfiguration;
+    private Set<String> negativeCacheNames = Collections.emptySet();
+    private BloomFilterConfiguration bloomFilterConfiguration;
+    private Set<String> bloomFilterCacheNames = Collections.emptySet();
+    private List<BloomFilterKeySource> bloomFilterKeySources = Collections.emptyList();
+    /**
+     * 开启了布隆过滤器的缓存创建时在后台构造，完成时返回是否开始生效
+     */
+    private final List<CompletableFuture<Boolean>> bloomFilterLoads = new CopyOnWriteArrayList<>();
+    private L1SnapshotConfiguration l1SnapshotConfiguration;
+    /**
+     * 启动时在后台恢复一级缓存快照，完成时返回恢复的条目数
+     */
+    private volatile CompletableFuture<Integer> l1SnapshotRestore = CompletableFuture.completedFuture(0);
+    private Set<String> refreshValueLoaderCacheNames = Collections.emptySet();
+    private int refreshValueLoaderCapacity;
+    private Duration refreshValueLoaderTtl;
+    private Set<String> earlyExpirationCacheNames = Collections.emptySet();
+    private double earlyExpirationBeta;
+    private ClearMode clearMode = ClearMode.SCAN;
+    private L1CacheFactory l1CacheFactory = L1CacheFactory.defaultFactory();
+    private DoubleCacheMessagePublisher messagePublisher;
+    private boolean legacyMessageFormat;
+    /**
+     * 失效通知的编码方式，不是常见类型的key和旧格式一样使用RedisTemplate的序列化方式
+     */
+    private final DoubleCacheMessageCodec messageCodec;
+    /**
+     * 失效通知中的缓存id到本节点缓存的映射，id冲突时多个缓存都会被清除，多清除是安全的
+     */
+    private final Map<Integer, List<DoubleCache>> cachesById = new ConcurrentHashMap<>();
+    /**
+     * 新建缓存时的回调，用于注册指标等
+     */
+    private final List<Consumer<DoubleCache>> cacheCreationListeners = new CopyOnWriteArrayList<>();
+    /**
+     * 当前节点的id，发布的失效通知都带有这个id，收到自己发布的通知时直接忽略
+     */
+    private final long nodeId = createNodeId();
+    /**
+     * 所有缓存共用的异步操作线程池，由manager创建和关闭
+     */
+    private ThreadPoolExecutor asyncExecutor =
+            createAsyncExecutor(AsyncExecutorConfiguration.defaultAsyncExecutorConfig());
 
     /**
      * @param redisCacheWriter          redis操作缓存的工具
@@ -37,6 +124,7 @@ public class DoubleCacheManager extends AbstractTransactionSupportingCacheManage
      * @param useL1Cache                是否开启一级缓存
      * @param topic                     发布订阅的主题
      */
+    @SuppressWarnings("unchecked")
     public DoubleCacheManager(
             RedisCacheWriter redisCacheWriter,
             Map<String, DoubleCacheConfiguration> initialCacheConfiguration,
@@ -46,6 +134,13 @@ public class DoubleCacheManager extends AbstractTransactionSupportingCacheManage
         this.allowNullValues = allowNullValues;
         this.useL1Cache = useL1Cache;
         this.topic = topic;
+        this.messageCodec = new DoubleCacheMessageCodec(redisCacheWriter instanceof RedisCallbackCacheWriter ?
+                (RedisSerializer<Object>) ((RedisCallbackCacheWriter) redisCacheWriter).getValueSerializer() : null);
+        if (redisCacheWriter instanceof RedisCallbackCacheWriter) {
+            this.messagePublisher = new DoubleCacheMessagePublisher((RedisCallbackCacheWriter) redisCacheWriter,
+                    messageCodec, topic, nodeId, Duration.ZERO, 1);
+            ((RedisCallbackCacheWriter) redisCacheWriter).setAsyncExecutor(asyncExecutor);
+        }
     }
 
     /**
@@ -70,20 +165,22 @@ public class DoubleCacheManager extends AbstractTransactionSupportingCacheManage
      */
     @Override
     protected Cache getMissingCache(String name) {
-        RedisCache redisCache = getRedisCache(name, DoubleCacheConfiguration.defaultCacheConfig().getRedisCacheConfiguration());
+        RedisCacheConfiguration redisCacheConfiguration =
+                DoubleCacheConfiguration.defaultCacheConfig().getRedisCacheConfiguration();
+        GenerationCacheKeyPrefix keyGeneration = createKeyGeneration(name, redisCacheConfiguration);
+        RedisCache redisCache = getRedisCache(name, withKeyGeneration(redisCacheConfiguration, keyGeneration));
 
 //        RedisCache redisCache = new RedisCache(name, redisCacheWriter,
 //                DoubleCacheConfiguration.defaultCacheConfig().getRedisCacheConfiguration());
-        if (this.useL1Cache) {
-            //如果开启了一级缓存则取默认配置构造缓存操作类
-            caffeineCacheWriter =
-                    Caffeine.from(CaffeineCacheConfiguration.defaultCacheConfig().getSpec())
-                            .build(new DoubleCacheLoader(redisCache));
-        } else {
-            caffeineCacheWriter = null;
-        }
+        DoubleCacheLoader cacheLoader = new DoubleCacheLoader(redisCache);
+        //如果开启了一级缓存则取默认配置构造缓存操作类
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> caffeineCache =
+                this.useL1Cache ? l1CacheFactory.create(name, null, cacheLoader,
+                        new SerializedSizeWeigher((RedisCacheExt) redisCache)) : null;
 
-        return new DoubleCache(name, caffeineCacheWriter, redisCache, allowNullValues, topic);
+        DoubleCache doubleCache = new DoubleCache(name, caffeineCache, redisCache, allowNullValues, topic);
+        cacheLoader.setDoubleCache(doubleCache);
+        return decorateDoubleCache(doubleCache, keyGeneration);
     }
 
     /**
@@ -97,25 +194,434 @@ public class DoubleCacheManager extends AbstractTransactionSupportingCacheManage
         CaffeineCacheConfiguration caffeineCacheConfiguration =
                 doubleCacheConfiguration.getCaffeineCacheConfiguration();
 
-        RedisCache redisCache = getRedisCache(name, doubleCacheConfiguration.getRedisCacheConfiguration());
+        GenerationCacheKeyPrefix keyGeneration =
+                createKeyGeneration(name, doubleCacheConfiguration.getRedisCacheConfiguration());
+        RedisCache redisCache = getRedisCache(name,
+                withKeyGeneration(doubleCacheConfiguration.getRedisCacheConfiguration(), keyGeneration));
 
 //        RedisCache redisCache = new RedisCache(name, redisCacheWriter,
 //                doubleCacheConfiguration.getRedisCacheConfiguration());
 
-        if (this.useL1Cache) {
-            //根据caffeine的配置构造一个cacheWriter
-            if (caffeineCacheConfiguration == null) {
-                caffeineCacheWriter = Caffeine.newBuilder().build();
+        DoubleCacheLoader cacheLoader = new DoubleCacheLoader(redisCache);
+        //根据caffeine的配置构造一级缓存，没有配置时使用默认配置
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> caffeineCache = this.useL1Cache ?
+                l1CacheFactory.create(name, caffeineCacheConfiguration, cacheLoader,
+                        new SerializedSizeWeigher((RedisCacheExt) redisCache)) : null;
+
+        DoubleCache doubleCache = new DoubleCache(name, caffeineCache, redisCache, allowNullValues, topic);
+        cacheLoader.setDoubleCache(doubleCache);
+        return decorateDoubleCache(doubleCache, keyGeneration);
+    }
+
+    /**
+     * 为新建的cache设置可选的功能
+     *
+     * @param doubleCache   doubleCache
+     * @param keyGeneration 带代数的key前缀，没有时为null
+     * @return doubleCache
+     */
+    private DoubleCache decorateDoubleCache(DoubleCache doubleCache, GenerationCacheKeyPrefix keyGeneration) {
+        doubleCache.setAsyncExecutor(asyncExecutor);
+        doubleCache.setLoadLeaseConfiguration(loadLeaseConfiguration);
+        doubleCache.setMessagePublisher(messagePublisher);
+        if (refreshValueLoaderCacheNames.contains(doubleCache.getName())) {
+            doubleCache.setRefreshValueLoader(refreshValueLoaderCapacity, refreshValueLoaderTtl);
+        }
+        if (earlyExpirationCacheNames.contains(doubleCache.getName())) {
+            doubleCache.setEarlyExpirationBeta(earlyExpirationBeta);
+        }
+        if (writeBehindCacheNames.contains(doubleCache.getName())) {
+            doubleCache.setWriteBehind(writeBehindConfiguration);
+        }
+        if (offHeapCacheNames.contains(doubleCache.getName())) {
+            doubleCache.setOffHeap(offHeapConfiguration);
+        }
+        if (hotKeyCacheNames.contains(doubleCache.getName())) {
+            doubleCache.setHotKey(hotKeyConfiguration);
+        }
+        doubleCache.setL1Admission(l1AdmissionConfiguration);
+        if (negativeCacheNames.contains(doubleCache.getName())) {
+            doubleCache.setNegativeCache(negativeCacheConfiguration);
+        }
+        if (bloomFilterCacheNames.contains(doubleCache.getName())) {
+            doubleCache.setBloomFilter(bloomFilterConfiguration);
+            bloomFilterLoads.add(CompletableFuture.supplyAsync(() -> initBloomFilter(doubleCache), asyncExecutor));
+        }
+        doubleCache.setClearMode(keyGeneration == null && clearMode == ClearMode.GENERATION ?
+                ClearMode.SCAN : clearMode, keyGeneration);
+        cachesById.computeIfAbsent(DoubleCacheMessageCodec.cacheId(doubleCache.getName()),
+                id -> new CopyOnWriteArrayList<>()).add(doubleCache);
+        for (Consumer<DoubleCache> listener : cacheCreationListeners) {
+            listener.accept(doubleCache);
+        }
+        return doubleCache;
+    }
+
+    /**
+     * {@link ClearMode#GENERATION} 模式下从redis读取缓存当前的代数，构造带代数的key前缀
+     * 没有开启key前缀时无法使用代数，退回 {@link ClearMode#SCAN}
+     *
+     * @param name                    cacheName
+     * @param redisCacheConfiguration 二级缓存配置
+     * @return 带代数的key前缀，不使用代数时为null
+     */
+    private GenerationCacheKeyPrefix createKeyGeneration(String name, RedisCacheConfiguration redisCacheConfiguration) {
+        if (clearMode != ClearMode.GENERATION || !redisCacheConfiguration.usePrefix()
+                || !(redisCacheWriter instanceof RedisCallbackCacheWriter)) {
+            return null;
+        }
+        return new GenerationCacheKeyPrefix(redisCacheConfiguration::getKeyPrefixFor,
+                ((RedisCallbackCacheWriter) redisCacheWriter).getGeneration(name));
+    }
+
+    private static RedisCacheConfiguration withKeyGeneration(RedisCacheConfiguration redisCacheConfiguration,
+                                                             GenerationCacheKeyPrefix keyGeneration) {
+        return keyGeneration == null ? redisCacheConfiguration :
+                redisCacheConfiguration.computePrefixWith(keyGeneration);
+    }
+
+    /**
+     * 开启失效通知的批量发布，需要在cache创建之前设置
+     *
+     * @param batchWindow 合并的时间窗口，为0时逐条同步发布
+     * @param batchSize   一条消息最多合并的key数量
+     */
+    public void setMessageBatch(Duration batchWindow, int batchSize) {
+        if (redisCacheWriter instanceof RedisCallbackCacheWriter) {
+            this.messagePublisher.shutdown();
+            this.messagePublisher = new DoubleCacheMessagePublisher((RedisCallbackCacheWriter) redisCacheWriter,
+                    messageCodec, topic, nodeId, batchWindow, batchSize);
+            this.messagePublisher.setLegacyFormat(legacyMessageFormat);
+        }
+    }
+
+    /**
+     * 失效通知是否使用旧版本节点能解析的格式发布，滚动升级期间还有旧版本节点时开启，需要在cache创建之前设置
+     *
+     * @param legacyMessageFormat 是否使用旧格式
+     */
+    public void setLegacyMessageFormat(boolean legacyMessageFormat) {
+        this.legacyMessageFormat = legacyMessageFormat;
+        if (messagePublisher != null) {
+            messagePublisher.setLegacyFormat(legacyMessageFormat);
+        }
+    }
+
+    /**
+     * 创建配置中的缓存之后，在后台恢复一级缓存快照
+     */
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        if (l1SnapshotConfiguration != null && useL1Cache) {
+            l1SnapshotRestore = CompletableFuture.supplyAsync(this::restoreL1Snapshot, asyncExecutor);
+        }
+    }
+
+    /**
+     * 关闭时保存一级缓存快照，并发布还没有发布的失效通知
+     */
+    @Override
+    public void destroy() {
+        if (l1SnapshotConfiguration != null && useL1Cache) {
+            saveL1Snapshot();
+        }
+        //写后队列写入二级缓存之后还会发布失效通知，所以先于发布者关闭
+        for (List<DoubleCache> caches : cachesById.values()) {
+            caches.forEach(DoubleCache::shutdownWriteBehind);
+        }
+        if (messagePublisher != null) {
+            messagePublisher.shutdown();
+        }
+        shutdownAsyncExecutor(asyncExecutor);
+    }
+
+    /**
+     * 设置异步操作线程池的大小，需要在cache创建之前设置
+     *
+     * @param asyncExecutorConfiguration 线程池配置
+     */
+    public void setAsyncExecutorConfiguration(AsyncExecutorConfiguration asyncExecutorConfiguration) {
+        ThreadPoolExecutor previous = this.asyncExecutor;
+        this.asyncExecutor = createAsyncExecutor(asyncExecutorConfiguration);
+        if (redisCacheWriter instanceof RedisCallbackCacheWriter) {
+            ((RedisCallbackCacheWriter) redisCacheWriter).setAsyncExecutor(asyncExecutor);
+        }
+        shutdownAsyncExecutor(previous);
+    }
+
+    /**
+     * 创建有界的线程池，队列满时在提交任务的线程上执行，相当于对调用方限流；
+     * 关闭之后提交的任务也在调用线程上执行，不能像CallerRunsPolicy那样丢弃，否则对应的future永远不会完成
+     */
+    private static ThreadPoolExecutor createAsyncExecutor(AsyncExecutorConfiguration configuration) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(configuration.getCorePoolSize(),
+                Math.max(configuration.getCorePoolSize(), configuration.getMaxPoolSize()),
+                configuration.getKeepAlive().toNanos(), TimeUnit.NANOSECONDS,
+                new LinkedBlockingQueue<>(configuration.getQueueCapacity()), r -> {
+            Thread thread = new Thread(r, "double-cache-async-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, (r, e) -> r.run());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * 关闭线程池，已经提交的任务执行完之后线程退出
+     */
+    private static void shutdownAsyncExecutor(ThreadPoolExecutor executor) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                logger.warn("缓存异步线程池关闭时还有{}个任务没有执行完", executor.getQueue().size() + executor.getActiveCount());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 设置清空二级缓存的方式，需要在cache创建之前设置
+     *
+     * @param clearMode 清空方式
+     */
+    public void setClearMode(ClearMode clearMode) {
+        this.clearMode = clearMode;
+    }
+
+    /**
+     * 开启集群范围内的加载合并，需要在cache创建之前设置
+     *
+     * @param loadLeaseConfiguration 租约配置，null表示不开启
+     */
+    public void setLoadLeaseConfiguration(LoadLeaseConfiguration loadLeaseConfiguration) {
+        this.loadLeaseConfiguration = loadLeaseConfiguration;
+    }
+
+    /**
+     * 为指定的缓存开启二级缓存的写后模式，需要在cache创建之前设置
+     *
+     * @param cacheNames               开启写后模式的缓存名
+     * @param writeBehindConfiguration 写后模式配置
+     */
+    public void setWriteBehind(Set<String> cacheNames, WriteBehindConfiguration writeBehindConfiguration) {
+        this.writeBehindCacheNames = cacheNames == null ? Collections.emptySet() : cacheNames;
+        this.writeBehindConfiguration = writeBehindConfiguration;
+    }
+
+    /**
+     * 开启一级缓存快照，需要在cache创建之前设置
+     *
+     * @param l1SnapshotConfiguration 快照配置，null表示不开启
+     */
+    public void setL1Snapshot(L1SnapshotConfiguration l1SnapshotConfiguration) {
+        this.l1SnapshotConfiguration = l1SnapshotConfiguration;
+    }
+
+    /**
+     * 启动时恢复一级缓存快照的进度
+     *
+     * @return 完成时返回恢复的条目数，没有开启快照时已经完成
+     */
+    public CompletableFuture<Integer> getL1SnapshotRestore() {
+        return l1SnapshotRestore;
+    }
+
+    /**
+     * 把所有缓存最热的一级缓存条目写入快照文件
+     *
+     * @return 写入的条目数，失败时为-1
+     */
+    public int saveL1Snapshot() {
+        RedisSerializer<Object> keySerializer = new JdkSerializationRedisSerializer(getClass().getClassLoader());
+        List<L1SnapshotFile.Entry> entries = new ArrayList<>();
+        for (List<DoubleCache> caches : cachesById.values()) {
+            for (DoubleCache cache : caches) {
+                entries.addAll(cache.snapshotL1(l1SnapshotConfiguration.getMaxEntriesPerCache(), keySerializer));
+            }
+        }
+        try {
+            L1SnapshotFile.write(l1SnapshotConfiguration.getPath(), entries);
+            logger.info("一级缓存快照已写入{}，共{}条", l1SnapshotConfiguration.getPath(), entries.size());
+            return entries.size();
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("一级缓存快照写入{}失败", l1SnapshotConfiguration.getPath(), ex);
+            return -1;
+        }
+    }
+
+    /**
+     * 读取快照文件并放回各个缓存的一级缓存，超过有效期的快照整个丢弃
+     *
+     * @return 恢复的条目数
+     */
+    private int restoreL1Snapshot() {
+        L1SnapshotFile snapshot;
+        try {
+            snapshot = L1SnapshotFile.read(l1SnapshotConfiguration.getPath());
+        } catch (IOException ex) {
+            logger.warn("一级缓存快照{}读取失败", l1SnapshotConfiguration.getPath(), ex);
+            return 0;
+        }
+        if (snapshot == null) {
+            return 0;
+        }
+        Duration maxAge = l1SnapshotConfiguration.getMaxAge();
+        if (maxAge != null && System.currentTimeMillis() - snapshot.getCreatedAt() > maxAge.toMillis()) {
+            logger.info("一级缓存快照{}已超过有效期，不再恢复", l1SnapshotConfiguration.getPath());
+            return 0;
+        }
+        RedisSerializer<Object> keySerializer = new JdkSerializationRedisSerializer(getClass().getClassLoader());
+        Map<String, List<L1SnapshotFile.Entry>> entriesByCache = new LinkedHashMap<>();
+        for (L1SnapshotFile.Entry entry : snapshot.getEntries()) {
+            entriesByCache.computeIfAbsent(entry.getCacheName(), name -> new ArrayList<>()).add(entry);
+        }
+        int restored = 0;
+        for (Map.Entry<String, List<L1SnapshotFile.Entry>> entry : entriesByCache.entrySet()) {
+            DoubleCache cache = getDoubleCache(entry.getKey());
+            if (cache == null) {
+                continue;
+            }
+            try {
+                restored += cache.restoreL1(entry.getValue(), keySerializer,
+                        l1SnapshotConfiguration.isVerifyWithL2());
+            } catch (RuntimeException ex) {
+                logger.warn("缓存{}的一级缓存快照恢复失败", entry.getKey(), ex);
+            }
+        }
+        logger.info("一级缓存快照{}已恢复{}条", l1SnapshotConfiguration.getPath(), restored);
+        return restored;
+    }
+
+    /**
+     * 设置二级缓存命中时放入一级缓存的准入策略，对所有缓存生效，需要在cache创建之前设置
+     *
+     * @param l1AdmissionConfiguration 准入配置
+     */
+    public void setL1Admission(L1AdmissionConfiguration l1AdmissionConfiguration) {
+        this.l1AdmissionConfiguration = l1AdmissionConfiguration;
+    }
+
+    /**
+     * 构造一个缓存的布隆过滤器
+     *
+     * @param doubleCache doubleCache
+     * @return 布隆过滤器是否开始生效
+     */
+    private boolean initBloomFilter(DoubleCache doubleCache) {
+        List<BloomFilterKeySource> sources = new ArrayList<>();
+        for (BloomFilterKeySource source : bloomFilterKeySources) {
+            if (doubleCache.getName().equals(source.getCacheName())) {
+                sources.add(source);
+            }
+        }
+        Iterable<Object> keys = sources.isEmpty() ? null : () -> sources.stream()
+                .<Object>flatMap(source -> StreamSupport.stream(source.keys().spliterator(), false)).iterator();
+        try {
+            boolean ready = doubleCache.initBloomFilter(keys);
+            if (ready) {
+                logger.info("缓存{}的布隆过滤器构造完成", doubleCache.getName());
             } else {
-                //此处构造需要一个cacheLoader，因为入参中可能会包含refreshAfterWrite属性
-                caffeineCacheWriter =
-                        Caffeine.from(caffeineCacheConfiguration.getSpec()).build(new DoubleCacheLoader(redisCache));
+                logger.warn("缓存{}的布隆过滤器没有key来源，redis中也没有共享的位，布隆过滤器不生效", doubleCache.getName());
             }
-        } else {
-            caffeineCacheWriter = null;
+            return ready;
+        } catch (RuntimeException ex) {
+            logger.warn("缓存{}的布隆过滤器构造失败，布隆过滤器不生效", doubleCache.getName(), ex);
+            return false;
         }
+    }
+
+    /**
+     * 为指定的缓存开启布隆过滤器，需要在cache创建之前设置
+     *
+     * @param cacheNames               开启布隆过滤器的缓存名
+     * @param bloomFilterConfiguration 布隆过滤器配置
+     * @param keySources               启动时构造布隆过滤器的key来源
+     */
+    public void setBloomFilter(Set<String> cacheNames, BloomFilterConfiguration bloomFilterConfiguration,
+                               List<BloomFilterKeySource> keySources) {
+        this.bloomFilterCacheNames = cacheNames == null ? Collections.emptySet() : cacheNames;
+        this.bloomFilterConfiguration = bloomFilterConfiguration;
+        this.bloomFilterKeySources = keySources == null ? Collections.emptyList() : keySources;
+    }
 
-        return new DoubleCache(name, caffeineCacheWriter, redisCache, allowNullValues, topic);
+    /**
+     * 启动时构造布隆过滤器的进度
+     *
+     * @return 已经创建的缓存的布隆过滤器都构造完成时完成
+     */
+    public CompletableFuture<Void> getBloomFilterLoad() {
+        return CompletableFuture.allOf(bloomFilterLoads.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * 为指定的缓存开启未命中缓存，需要在cache创建之前设置
+     *
+     * @param cacheNames                 开启未命中缓存的缓存名
+     * @param negativeCacheConfiguration 未命中缓存配置
+     */
+    public void setNegativeCache(Set<String> cacheNames, NegativeCacheConfiguration negativeCacheConfiguration) {
+        this.negativeCacheNames = cacheNames == null ? Collections.emptySet() : cacheNames;
+        this.negativeCacheConfiguration = negativeCacheConfiguration;
+    }
+
+    /**
+     * 为指定的缓存开启热点key探测，需要在cache创建之前设置
+     *
+     * @param cacheNames          开启热点key探测的缓存名
+     * @param hotKeyConfiguration 热点key配置
+     */
+    public void setHotKey(Set<String> cacheNames, HotKeyConfiguration hotKeyConfiguration) {
+        this.hotKeyCacheNames = cacheNames == null ? Collections.emptySet() : cacheNames;
+        this.hotKeyConfiguration = hotKeyConfiguration;
+    }
+
+    /**
+     * 为指定的缓存开启堆外缓存，需要在cache创建之前设置
+     *
+     * @param cacheNames           开启堆外缓存的缓存名
+     * @param offHeapConfiguration 堆外缓存配置，每个缓存单独分配容量
+     */
+    public void setOffHeap(Set<String> cacheNames, OffHeapConfiguration offHeapConfiguration) {
+        this.offHeapCacheNames = cacheNames == null ? Collections.emptySet() : cacheNames;
+        this.offHeapConfiguration = offHeapConfiguration;
+    }
+
+    /**
+     * 为指定的缓存开启一级缓存刷新时使用 valueLoader 重新加载，二级缓存也已经过期时不直接删除一级缓存，
+     * 需要在cache创建之前设置。valueLoader 会在异步线程池上、脱离调用方的事务和请求上下文调用，
+     * 见 {@link DoubleCache#setRefreshValueLoader(int, Duration)}
+     *
+     * @param cacheNames 开启的缓存名
+     * @param capacity   每个缓存最多记录的 valueLoader 数量
+     * @param ttl        valueLoader 记录之后保留的时间
+     */
+    public void setRefreshValueLoader(Set<String> cacheNames, int capacity, Duration ttl) {
+        this.refreshValueLoaderCacheNames = cacheNames == null ? Collections.emptySet() : cacheNames;
+        this.refreshValueLoaderCapacity = capacity;
+        this.refreshValueLoaderTtl = ttl;
+    }
+
+    /**
+     * 设置一级缓存的构造方式，需要在cache创建之前设置
+     *
+     * @param l1CacheFactory 一级缓存工厂
+     */
+    public void setL1CacheFactory(L1CacheFactory l1CacheFactory) {
+        this.l1CacheFactory = l1CacheFactory;
+    }
+
+    /**
+     * 为指定的缓存开启提前过期模式，需要在cache创建之前设置
+     *
+     * @param cacheNames 开启提前过期的缓存名
+     * @param beta       XFetch算法的系数，越大越倾向于提前计算
+     */
+    public void setEarlyExpiration(Set<String> cacheNames, double beta) {
+        this.earlyExpirationCacheNames = cacheNames == null ? Collections.emptySet() : cacheNames;
+        this.earlyExpirationBeta = beta;
     }
 
     /**
@@ -141,9 +647,84 @@ public class DoubleCacheManager extends AbstractTransactionSupportingCacheManage
      * @param key       键
      */
     public void clearL1Cache(String cacheName, Object key) {
-        Cache cache = getCache(cacheName);
-        if (cache != null) {
-            ((DoubleCache) cache).clearL1Cache(key);
+        clearL1Cache(DoubleCacheMessageCodec.cacheId(cacheName), key);
+    }
+
+    /**
+     * 清除指定cache的值，本节点还没有创建的缓存不需要清除
+     *
+     * @param cacheId 缓存id，见 {@link DoubleCacheMessageCodec#cacheId(String)}
+     * @param key     键
+     */
+    public void clearL1Cache(int cacheId, Object key) {
+        List<DoubleCache> caches = cachesById.get(cacheId);
+        if (caches != null) {
+            for (DoubleCache cache : caches) {
+                cache.clearL1Cache(key);
+            }
+        }
+    }
+
+    /**
+     * 获取缓存的响应式视图，供返回 Mono/Flux 的调用方使用
+     *
+     * @param name cacheName
+     * @return 响应式缓存，缓存不存在或者不是DoubleCache时为null
+     */
+    public ReactiveDoubleCache getReactiveCache(String name) {
+        DoubleCache doubleCache = getDoubleCache(name);
+        return doubleCache == null ? null : new ReactiveDoubleCache(doubleCache);
+    }
+
+    /**
+     * 获取没有事务装饰的DoubleCache，用于批量、异步等 {@link Cache} 接口之外的操作
+     *
+     * @param name cacheName
+     * @return doubleCache，缓存不存在或者不是DoubleCache时为null
+     */
+    public DoubleCache getDoubleCache(String name) {
+        Cache cache = getCache(name);
+        if (cache instanceof TransactionAwareCacheDecorator) {
+            cache = ((TransactionAwareCacheDecorator) cache).getTargetCache();
         }
+        return cache instanceof DoubleCache ? (DoubleCache) cache : null;
+    }
+
+    /**
+     * 对已经创建的缓存以及之后新建的缓存执行回调
+     *
+     * @param listener 回调
+     */
+    public void forEachDoubleCache(Consumer<DoubleCache> listener) {
+        cacheCreationListeners.add(listener);
+        for (List<DoubleCache> caches : cachesById.values()) {
+            caches.forEach(listener);
+        }
+    }
+
+    /**
+     * 当前节点的id
+     *
+     * @return nodeId
+     */
+    public long getNodeId() {
+        return nodeId;
+    }
+
+    private static long createNodeId() {
+        long id;
+        do {
+            id = new SecureRandom().nextLong();
+        } while (id == 0L);
+        return id;
+    }
+
+    /**
+     * 失效通知的编码方式
+     *
+     * @return messageCodec
+     */
+    public DoubleCacheMessageCodec getMessageCodec() {
+        return messageCodec;
     }
 }
@@ -0,0 +1,119 @@
+package com.wangtoye.doublecachespringbootstarter.cache.manager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Weigher;
+import com.wangtoye.doublecachespringbootstarter.cache.loader.DoubleCacheLoader;
+import com.wangtoye.doublecachespringbootstarter.cache.support.SharedCaffeineCache;
+import com.wangtoye.doublecachespringbootstarter.configuration.CaffeineCacheConfiguration;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 构造每个缓存的一级缓存
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 每次调用都构造新的实例，没有可变状态，可以在多个线程中同时创建缓存；
+ * 配置了共享实例时所有缓存使用同一个caffeine实例的视图，总大小受同一个上限约束；
+ * 配置了字节数上限时按序列化后的大小计算权重，spec中的maximumSize不再生效
+ */
+public class L1CacheFactory {
+    private final String defaultSpec;
+    private final SharedCaffeineCache sharedCache;
+    private final Map<String, Long> maximumBytes;
+    private final long defaultMaximumBytes;
+
+    /**
+     * @param defaultSpec 没有单独配置的缓存（包括动态创建的缓存）使用的caffeine配置
+     * @param sharedSpec  所有缓存共用的caffeine实例的配置，为空时每个缓存使用独立的实例
+     */
+    public L1CacheFactory(String defaultSpec, String sharedSpec) {
+        this(defaultSpec, sharedSpec, 0, Collections.emptyMap(), 0);
+    }
+
+    /**
+     * @param defaultSpec         没有单独配置的缓存（包括动态创建的缓存）使用的caffeine配置
+     * @param sharedSpec          所有缓存共用的caffeine实例的配置，为空时每个缓存使用独立的实例
+     * @param sharedMaximumBytes  共用实例的字节数上限，不大于0时按sharedSpec中的条数限制
+     * @param maximumBytes        每个缓存的字节数上限，共用实例时不生效
+     * @param defaultMaximumBytes 没有单独设置字节数上限的缓存使用的上限，不大于0时按spec中的条数限制
+     */
+    public L1CacheFactory(String defaultSpec, String sharedSpec, long sharedMaximumBytes,
+                          Map<String, Long> maximumBytes, long defaultMaximumBytes) {
+        Assert.hasText(defaultSpec, "DefaultSpec must not be empty!");
+        this.defaultSpec = defaultSpec;
+        this.maximumBytes = maximumBytes == null ? Collections.emptyMap() : maximumBytes;
+        this.defaultMaximumBytes = defaultMaximumBytes;
+        if (StringUtils.hasText(sharedSpec)) {
+            boolean weighed = sharedMaximumBytes > 0;
+            String spec = weighed ? withMaximumWeight(sharedSpec, sharedMaximumBytes) : sharedSpec;
+            this.sharedCache = new SharedCaffeineCache(Caffeine.from(spec), weighed);
+        } else {
+            this.sharedCache = null;
+        }
+    }
+
+    /**
+     * 默认配置的工厂，每个缓存使用独立的实例
+     *
+     * @return 工厂
+     */
+    public static L1CacheFactory defaultFactory() {
+        return new L1CacheFactory(CaffeineCacheConfiguration.defaultCacheConfig().getSpec(), null);
+    }
+
+    /**
+     * 构造一级缓存
+     *
+     * @param cacheName     缓存名
+     * @param configuration 缓存单独的配置，为null时使用默认配置，共享模式下忽略
+     * @param cacheLoader   一级缓存的loader，支持refreshAfterWrite
+     * @param weigher       按字节数限制大小时计算每个条目的权重
+     * @return 一级缓存
+     */
+    public Cache<Object, Object> create(String cacheName, CaffeineCacheConfiguration configuration,
+                                        DoubleCacheLoader cacheLoader, Weigher<Object, Object> weigher) {
+        if (sharedCache != null) {
+            return sharedCache.view(cacheName, cacheLoader, weigher);
+        }
+        String spec = configuration == null || !StringUtils.hasText(configuration.getSpec()) ?
+                defaultSpec : configuration.getSpec();
+        long bytes = maximumBytes.getOrDefault(cacheName, defaultMaximumBytes);
+        if (bytes > 0) {
+            //此处构造需要一个cacheLoader，因为入参中可能会包含refreshAfterWrite属性
+            return Caffeine.from(withMaximumWeight(spec, bytes)).weigher(weigher).build(cacheLoader);
+        }
+        return Caffeine.from(spec).build(cacheLoader);
+    }
+
+    /**
+     * 把spec中的条数上限替换成权重上限
+     *
+     * @param spec  caffeine配置
+     * @param bytes 字节数上限
+     * @return 新的配置
+     */
+    static String withMaximumWeight(String spec, long bytes) {
+        String stripped = Arrays.stream(spec.split(","))
+                .map(String::trim)
+                .filter(option -> !option.isEmpty() && !option.startsWith("maximumSize")
+                        && !option.startsWith("maximumWeight"))
+                .collect(Collectors.joining(","));
+        return stripped.isEmpty() ? "maximumWeight=" + bytes : stripped + ",maximumWeight=" + bytes;
+    }
+
+    /**
+     * 是否所有缓存共用一个实例
+     *
+     * @return 是否共享
+     */
+    public boolean isShared() {
+        return sharedCache != null;
+    }
+}
@@ -0,0 +1,246 @@
+package com.wangtoye.doublecachespringbootstarter.cache.support;
+
+import com.wangtoye.doublecachespringbootstarter.cache.RedisCacheExt;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * 把缓存的key转换成redis中的key
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: RedisCache每次都要经过ConversionService转换成字符串、拼接前缀再按UTF-8编码，
+ * 中间会产生多个字符串和字节数组；常见的String、Long、Integer、UUID类型的key在这里直接写入最终的字节数组，
+ * 前缀只在创建时和代数变化时编码一次。创建时用几个样例和 {@link RedisCacheExt#serializeKey(Object)} 比较，
+ * 结果不一致（例如key的序列化方式不是UTF-8字符串，或者注册了自定义的key转换器）时全部交给RedisCache处理
+ */
+public class CacheKeyEncoder {
+    private static final byte[] DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NO_PREFIX = new byte[0];
+    private static final Object[] SAMPLES = {"sample", "样例:キー", "", Long.MIN_VALUE, -1L, 0L, Long.MAX_VALUE,
+            Integer.MIN_VALUE, 42, Integer.MAX_VALUE, new UUID(0x0123456789abcdefL, 0xfedcba9876543210L),
+            new UUID(-1L, 0L)};
+
+    private final RedisCacheExt redisCache;
+    private final GenerationCacheKeyPrefix keyGeneration;
+    private final boolean enabled;
+    private volatile Prefix prefix;
+
+    /**
+     * @param redisCache    redis缓存
+     * @param keyGeneration 带代数的key前缀，没有时为null
+     */
+    public CacheKeyEncoder(RedisCacheExt redisCache, GenerationCacheKeyPrefix keyGeneration) {
+        this.redisCache = redisCache;
+        this.keyGeneration = keyGeneration;
+        this.prefix = computePrefix();
+        this.enabled = matchesRedisCache();
+    }
+
+    /**
+     * 转换成redis中的key，和 {@link RedisCacheExt#serializeKey(Object)} 的结果相同
+     *
+     * @param key 键
+     * @return redis中的key
+     */
+    public byte[] encode(Object key) {
+        if (!enabled) {
+            return redisCache.serializeKey(key);
+        }
+        Class<?> type = key.getClass();
+        if (type == String.class) {
+            return encodeString(currentPrefix(), (String) key);
+        }
+        if (type == Long.class) {
+            return encodeLong(currentPrefix(), (Long) key);
+        }
+        if (type == Integer.class) {
+            return encodeLong(currentPrefix(), (Integer) key);
+        }
+        if (type == UUID.class) {
+            return encodeUuid(currentPrefix(), (UUID) key);
+        }
+        return redisCache.serializeKey(key);
+    }
+
+    /**
+     * 转换成redis中的key再去掉前缀，结果和代数无关，清空缓存之后同一个key的结果不变；
+     * key的序列化方式不是在前缀后面拼接key（例如不是UTF-8字符串）时返回完整的redis中的key
+     *
+     * @param key 键
+     * @return redis中的key去掉前缀之后的部分
+     */
+    public byte[] encodeWithoutPrefix(Object key) {
+        if (enabled) {
+            Class<?> type = key.getClass();
+            if (type == String.class) {
+                return encodeString(NO_PREFIX, (String) key);
+            }
+            if (type == Long.class) {
+                return encodeLong(NO_PREFIX, (Long) key);
+            }
+            if (type == Integer.class) {
+                return encodeLong(NO_PREFIX, (Integer) key);
+            }
+            if (type == UUID.class) {
+                return encodeUuid(NO_PREFIX, (UUID) key);
+            }
+        }
+        while (true) {
+            byte[] prefixBytes = currentPrefix();
+            byte[] redisKey = redisCache.serializeKey(key);
+            if (startsWith(redisKey, prefixBytes)) {
+                return Arrays.copyOfRange(redisKey, prefixBytes.length, redisKey.length);
+            }
+            if (prefixBytes == currentPrefix()) {
+                return redisKey;
+            }
+            //序列化期间代数发生了变化，按新的前缀重新序列化
+        }
+    }
+
+    /**
+     * 是否使用快速转换
+     *
+     * @return 是否使用快速转换
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private boolean matchesRedisCache() {
+        byte[] prefixBytes = prefix.bytes;
+        for (Object sample : SAMPLES) {
+            byte[] expected = redisCache.serializeKey(sample);
+            byte[] suffix = String.valueOf(sample).getBytes(StandardCharsets.UTF_8);
+            byte[] concatenated = Arrays.copyOf(prefixBytes, prefixBytes.length + suffix.length);
+            System.arraycopy(suffix, 0, concatenated, prefixBytes.length, suffix.length);
+            if (!Arrays.equals(expected, concatenated) || !Arrays.equals(expected, encode0(prefixBytes, sample))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] encode0(byte[] prefixBytes, Object sample) {
+        if (sample instanceof String) {
+            return encodeString(prefixBytes, (String) sample);
+        }
+        if (sample instanceof Long) {
+            return encodeLong(prefixBytes, (Long) sample);
+        }
+        if (sample instanceof Integer) {
+            return encodeLong(prefixBytes, (Integer) sample);
+        }
+        return encodeUuid(prefixBytes, (UUID) sample);
+    }
+
+    private static boolean startsWith(byte[] bytes, byte[] prefixBytes) {
+        if (bytes.length < prefixBytes.length) {
+            return false;
+        }
+        for (int i = 0; i < prefixBytes.length; i++) {
+            if (bytes[i] != prefixBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 当前代数的前缀，代数变化之后重新编码
+     */
+    private byte[] currentPrefix() {
+        Prefix current = prefix;
+        if (keyGeneration != null && current.generation != keyGeneration.getGeneration()) {
+            current = computePrefix();
+            prefix = current;
+        }
+        return current.bytes;
+    }
+
+    private Prefix computePrefix() {
+        //先读取代数再编码，编码时代数已经增加的话下次会再重新编码
+        long generation = keyGeneration == null ? 0 : keyGeneration.getGeneration();
+        return new Prefix(generation, redisCache.serializeKey(""));
+    }
+
+    private static byte[] encodeString(byte[] prefixBytes, String key) {
+        int length = key.length();
+        byte[] result = Arrays.copyOf(prefixBytes, prefixBytes.length + length);
+        for (int i = 0; i < length; i++) {
+            char c = key.charAt(i);
+            if (c >= 0x80) {
+                //非ASCII字符按UTF-8编码，长度会变化
+                byte[] suffix = key.getBytes(StandardCharsets.UTF_8);
+                result = Arrays.copyOf(prefixBytes, prefixBytes.length + suffix.length);
+                System.arraycopy(suffix, 0, result, prefixBytes.length, suffix.length);
+                return result;
+            }
+            result[prefixBytes.length + i] = (byte) c;
+        }
+        return result;
+    }
+
+    private static byte[] encodeLong(byte[] prefixBytes, long value) {
+        //按负数计算，Long.MIN_VALUE不会溢出
+        long negative = value < 0 ? value : -value;
+        int digits = 1;
+        for (long n = negative; n <= -10; n /= 10) {
+            digits++;
+        }
+        int length = digits + (value < 0 ? 1 : 0);
+        byte[] result = Arrays.copyOf(prefixBytes, prefixBytes.length + length);
+        int position = result.length;
+        do {
+            result[--position] = DIGITS[(int) -(negative % 10)];
+            negative /= 10;
+        } while (negative != 0);
+        if (value < 0) {
+            result[--position] = '-';
+        }
+        return result;
+    }
+
+    private static byte[] encodeUuid(byte[] prefixBytes, UUID key) {
+        byte[] result = Arrays.copyOf(prefixBytes, prefixBytes.length + 36);
+        int offset = prefixBytes.length;
+        long msb = key.getMostSignificantBits();
+        long lsb = key.getLeastSignificantBits();
+        writeHex(result, offset, msb >>> 32, 8);
+        result[offset + 8] = '-';
+        writeHex(result, offset + 9, msb >>> 16, 4);
+        result[offset + 13] = '-';
+        writeHex(result, offset + 14, msb, 4);
+        result[offset + 18] = '-';
+        writeHex(result, offset + 19, lsb >>> 48, 4);
+        result[offset + 23] = '-';
+        writeHex(result, offset + 24, lsb, 12);
+        return result;
+    }
+
+    /**
+     * 写入value低位的digits个十六进制数字
+     */
+    private static void writeHex(byte[] result, int offset, long value, int digits) {
+        for (int i = digits - 1; i >= 0; i--) {
+            result[offset + i] = DIGITS[(int) (value & 0xf)];
+            value >>>= 4;
+        }
+    }
+
+    /**
+     * 编码之后的前缀和对应的代数
+     */
+    private static final class Prefix {
+        private final long generation;
+        private final byte[] bytes;
+
+        Prefix(long generation, byte[] bytes) {
+            this.generation = generation;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.wangtoye.doublecachespringbootstarter.cache.support;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 双缓存的统计数据
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 使用LongAdder计数，读写路径上的开销只有一次无竞争的累加
+ */
+public class DoubleCacheStats {
+    private final LongAdder l1Hits = new LongAdder();
+    private final LongAdder l2Hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder loadSuccesses = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder loadSuccessTime = new LongAdder();
+    private final LongAdder loadFailureTime = new LongAdder();
+    private final LongAdder invalidationsSent = new LongAdder();
+    private final LongAdder invalidationsReceived = new LongAdder();
+
+    public void recordL1Hit() {
+        l1Hits.increment();
+    }
+
+    public void recordL2Hit() {
+        l2Hits.increment();
+    }
+
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    public void recordPut() {
+        puts.increment();
+    }
+
+    /**
+     * @param loadTime 加载耗时，单位纳秒
+     */
+    public void recordLoadSuccess(long loadTime) {
+        loadSuccesses.increment();
+        loadSuccessTime.add(loadTime);
+    }
+
+    /**
+     * @param loadTime 加载耗时，单位纳秒
+     */
+    public void recordLoadFailure(long loadTime) {
+        loadFailures.increment();
+        loadFailureTime.add(loadTime);
+    }
+
+    public void recordInvalidationSent() {
+        invalidationsSent.increment();
+    }
+
+    public void recordInvalidationsSent(int count) {
+        invalidationsSent.add(count);
+    }
+
+    public void recordInvalidationReceived() {
+        invalidationsReceived.increment();
+    }
+
+    public long l1HitCount() {
+        return l1Hits.sum();
+    }
+
+    public long l2HitCount() {
+        return l2Hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long putCount() {
+        return puts.sum();
+    }
+
+    public long loadSuccessCount() {
+        return loadSuccesses.sum();
+    }
+
+    public long loadFailureCount() {
+        return loadFailures.sum();
+    }
+
+    /**
+     * @return 加载成功的总耗时，单位纳秒
+     */
+    public long loadSuccessTime() {
+        return loadSuccessTime.sum();
+    }
+
+    /**
+     * @return 加载失败的总耗时，单位纳秒
+     */
+    public long loadFailureTime() {
+        return loadFailureTime.sum();
+    }
+
+    /**
+     * @return 加载总耗时，包括失败的加载，单位纳秒
+     */
+    public long totalLoadTime() {
+        return loadSuccessTime.sum() + loadFailureTime.sum();
+    }
+
+    public long invalidationSentCount() {
+        return invalidationsSent.sum();
+    }
+
+    public long invalidationReceivedCount() {
+        return invalidationsReceived.sum();
+    }
+}
@@ -0,0 +1,63 @@
+package com.wangtoye.doublecachespringbootstarter.cache.support;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 提前过期模式下二级缓存中存储的值，同时记录计算耗时和过期时间
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 读取时按 XFetch 算法，越接近过期、计算越慢，越有可能提前重新计算，
+ * 同时写入的key不会在同一时刻集中重新计算
+ */
+@Data
+@NoArgsConstructor
+public class EarlyExpirationValue implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 缓存的值
+     */
+    private Object value;
+    /**
+     * 计算这个值的耗时，毫秒
+     */
+    private long delta;
+    /**
+     * 过期时间，毫秒时间戳
+     */
+    private long expireAt;
+
+    public EarlyExpirationValue(Object value, long delta, long expireAt) {
+        this.value = value;
+        this.delta = delta;
+        this.expireAt = expireAt;
+    }
+
+    /**
+     * 是否应该提前重新计算，概率随着接近过期时间而增大
+     *
+     * @param beta 大于1时更倾向于提前计算，小于1时更倾向于等到快过期
+     * @return 是否重新计算
+     */
+    public boolean shouldRecompute(double beta) {
+        //1 - nextDouble() 的范围是 (0, 1]，避免 log(0)
+        double random = 1 - ThreadLocalRandom.current().nextDouble();
+        return System.currentTimeMillis() - delta * beta * Math.log(random) >= expireAt;
+    }
+
+    /**
+     * 取出真实的值，不是提前过期模式写入的值原样返回
+     *
+     * @param storeValue 二级缓存中读到的值
+     * @return 真实的值
+     */
+    public static Object unwrap(Object storeValue) {
+        return storeValue instanceof EarlyExpirationValue ? ((EarlyExpirationValue) storeValue).getValue() :
+                storeValue;
+    }
+}
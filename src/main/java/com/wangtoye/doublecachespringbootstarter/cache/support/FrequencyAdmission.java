@@ -0,0 +1,88 @@
+package com.wangtoye.doublecachespringbootstarter.cache.support;
+
+import org.springframework.util.Assert;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * TinyLFU风格的一级缓存准入策略
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 第一次访问只记录在门卫（一个小的布隆过滤器）中，之后的访问才计入 {@link FrequencySketch}，
+ * 只读一次的key不会占用计数器；估算频率达到阈值时允许放入一级缓存，门卫按相同的周期清空
+ */
+public class FrequencyAdmission {
+    private final FrequencySketch sketch;
+    private final AtomicLongArray doorkeeper;
+    private final int bitMask;
+    private final int threshold;
+    private final int resetSize;
+    private final AtomicInteger additions = new AtomicInteger();
+
+    /**
+     * @param expectedSize 需要区分的key数量，一般和一级缓存的容量相当
+     * @param threshold    允许放入一级缓存的最小访问次数，包括本次访问
+     */
+    public FrequencyAdmission(int expectedSize, int threshold) {
+        Assert.isTrue(threshold > 0 && threshold <= FrequencySketch.MAX_FREQUENCY + 1,
+                "Threshold must be between 1 and 16!");
+        this.sketch = new FrequencySketch(expectedSize);
+        //每个key8到16位，两个哈希函数
+        int bits = Math.max(64, Integer.highestOneBit(Math.min(expectedSize, 1 << 26) - 1) << 4);
+        this.doorkeeper = new AtomicLongArray(bits >>> 6);
+        this.bitMask = bits - 1;
+        this.threshold = threshold;
+        this.resetSize = 10 * Math.min(expectedSize, Integer.MAX_VALUE / 10);
+    }
+
+    /**
+     * 记录一次二级缓存命中，并判断是否允许放入一级缓存
+     *
+     * @param key 键
+     * @return 是否放入一级缓存
+     */
+    public boolean admit(Object key) {
+        if (additions.incrementAndGet() >= resetSize) {
+            resetDoorkeeper();
+        }
+        int hash = key.hashCode() * 0x9e3779b9;
+        int first = hash & bitMask;
+        int second = ((hash >>> 16) | (hash << 16)) & bitMask;
+        boolean seen = setBit(first) & setBit(second);
+        if (!seen) {
+            //第一次访问，只进入门卫
+            return threshold <= 1;
+        }
+        return sketch.increment(key) + 1 >= threshold;
+    }
+
+    /**
+     * 设置一位
+     *
+     * @return 之前是否已经设置
+     */
+    private boolean setBit(int bit) {
+        int slot = bit >>> 6;
+        long mask = 1L << (bit & 63);
+        while (true) {
+            long value = doorkeeper.get(slot);
+            if ((value & mask) != 0) {
+                return true;
+            }
+            if (doorkeeper.compareAndSet(slot, value, value | mask)) {
+                return false;
+            }
+        }
+    }
+
+    private void resetDoorkeeper() {
+        if (additions.getAndSet(0) < resetSize) {
+            return;
+        }
+        for (int i = 0; i < doorkeeper.length(); i++) {
+            doorkeeper.set(i, 0L);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.wangtoye.doublecachespringbootstarter.cache.support;
+
+import org.springframework.util.Assert;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 估算key最近访问频率的count-min sketch
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 每个key对应4个4位计数器，取最小值作为估计值，最大为15；
+ * 累计增加的次数达到容量的10倍后所有计数器减半，频率只反映最近的访问；并发增加时可能少计，不影响估算
+ */
+public class FrequencySketch {
+    /**
+     * 计数器的最大值
+     */
+    public static final int MAX_FREQUENCY = 15;
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final AtomicLongArray table;
+    private final int counterMask;
+    private final int sampleSize;
+    private final AtomicInteger additions = new AtomicInteger();
+
+    /**
+     * @param expectedSize 需要区分的key数量，决定计数器的数量和减半的周期
+     */
+    public FrequencySketch(int expectedSize) {
+        Assert.isTrue(expectedSize > 0, "ExpectedSize must be positive!");
+        //和caffeine一样每个key分配一个long，也就是16个计数器
+        int length = Math.max(1, Integer.highestOneBit(Math.min(expectedSize, 1 << 22) - 1) << 1);
+        this.table = new AtomicLongArray(length);
+        this.counterMask = (length << 4) - 1;
+        this.sampleSize = 10 * Math.min(expectedSize, Integer.MAX_VALUE / 10);
+    }
+
+    /**
+     * 估算访问频率
+     *
+     * @param key 键
+     * @return 频率，0到 {@link #MAX_FREQUENCY}
+     */
+    public int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_FREQUENCY;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int index = indexOf(hash, i);
+            long value = table.get(index >>> 4);
+            frequency = Math.min(frequency, (int) ((value >>> ((index & 15) << 2)) & 0xfL));
+        }
+        return frequency;
+    }
+
+    /**
+     * 记录一次访问
+     *
+     * @param key 键
+     * @return 记录之后的估算频率
+     */
+    public int increment(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_FREQUENCY;
+        for (int i = 0; i < SEEDS.length; i++) {
+            frequency = Math.min(frequency, incrementAt(indexOf(hash, i)));
+        }
+        if (additions.incrementAndGet() >= sampleSize) {
+            reset();
+        }
+        return frequency;
+    }
+
+    /**
+     * 增加一个计数器，已经达到最大值时不变
+     *
+     * @return 增加之后的值
+     */
+    private int incrementAt(int index) {
+        int slot = index >>> 4;
+        int shift = (index & 15) << 2;
+        while (true) {
+            long value = table.get(slot);
+            int count = (int) ((value >>> shift) & 0xfL);
+            if (count == MAX_FREQUENCY) {
+                return count;
+            }
+            if (table.compareAndSet(slot, value, value + (1L << shift))) {
+                return count + 1;
+            }
+        }
+    }
+
+    /**
+     * 所有计数器减半
+     */
+    private void reset() {
+        if (additions.getAndSet(0) < sampleSize) {
+            //其他线程已经减半过
+            return;
+        }
+        for (int i = 0; i < table.length(); i++) {
+            long value;
+            do {
+                value = table.get(i);
+            } while (!table.compareAndSet(i, value, (value >>> 1) & RESET_MASK));
+        }
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int) h & counterMask;
+    }
+
+    private static int spread(int hash) {
+        int h = hash * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,44 @@
+package com.wangtoye.doublecachespringbootstarter.cache.support;
+
+import org.springframework.data.redis.cache.CacheKeyPrefix;
+
+/**
+ * 带代数的key前缀，清空缓存时只需要递增代数，旧代数下的key不会再被读到
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 前缀格式为 原前缀 + 代数 + ":"
+ */
+public class GenerationCacheKeyPrefix implements CacheKeyPrefix {
+    private final CacheKeyPrefix delegate;
+    private volatile long generation;
+
+    /**
+     * @param delegate   原来的前缀计算方式
+     * @param generation 当前代数
+     */
+    public GenerationCacheKeyPrefix(CacheKeyPrefix delegate, long generation) {
+        this.delegate = delegate;
+        this.generation = generation;
+    }
+
+    @Override
+    public String compute(String cacheName) {
+        return delegate.compute(cacheName) + generation + ":";
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * 更新代数，代数只会增加，防止乱序的通知把代数改回旧值
+     *
+     * @param generation 新的代数
+     */
+    public synchronized void updateGeneration(long generation) {
+        if (generation > this.generation) {
+            this.generation = generation;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.wangtoye.doublecachespringbootstarter.cache.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wangtoye.doublecachespringbootstarter.configuration.HotKeyConfiguration;
+import org.springframework.util.Assert;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 热点key探测和热点key本地缓存
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 没有开启一级缓存或者一级缓存很小时，少数热点key仍然会集中访问同一个redis分片；
+ * 探测到的热点key在本地缓存中保存很短的时间，不依赖一级缓存是否开启
+ */
+public class HotKeyDetector {
+    private final FrequencySketch sketch;
+    private final int threshold;
+    private final int sampleRate;
+    private final Cache<Object, Object> hotKeys;
+    private final LongAdder promotions = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * @param configuration 热点key配置
+     */
+    public HotKeyDetector(HotKeyConfiguration configuration) {
+        Assert.isTrue(configuration.getThreshold() > 0 && configuration.getThreshold() <= FrequencySketch.MAX_FREQUENCY,
+                "Threshold must be between 1 and 15!");
+        Assert.isTrue(configuration.getSampleRate() > 0, "SampleRate must be positive!");
+        Assert.isTrue(configuration.getTtl() != null && !configuration.getTtl().isNegative()
+                && !configuration.getTtl().isZero(), "Ttl must be positive!");
+        this.sketch = new FrequencySketch(configuration.getSketchSize());
+        this.threshold = configuration.getThreshold();
+        this.sampleRate = configuration.getSampleRate();
+        this.hotKeys = Caffeine.newBuilder()
+                .maximumSize(configuration.getCapacity())
+                .expireAfterWrite(configuration.getTtl().toNanos(), TimeUnit.NANOSECONDS)
+                .build();
+    }
+
+    /**
+     * 查询热点key本地缓存
+     *
+     * @param key 键
+     * @return 二级缓存中存储的值，null值为 {@link org.springframework.cache.support.NullValue}，不是热点key时为null
+     */
+    public Object getIfPresent(Object key) {
+        Object value = hotKeys.getIfPresent(key);
+        if (value != null) {
+            hits.increment();
+        }
+        return value;
+    }
+
+    /**
+     * 按采样率记录一次读取
+     *
+     * @param key 键
+     * @return 是否是热点key
+     */
+    public boolean recordAccess(Object key) {
+        if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            return false;
+        }
+        return sketch.increment(key) >= threshold;
+    }
+
+    /**
+     * 把热点key的值放入本地缓存
+     *
+     * @param key        键
+     * @param storeValue 二级缓存中存储的值
+     */
+    public void promote(Object key, Object storeValue) {
+        if (hotKeys.asMap().put(key, storeValue) == null) {
+            promotions.increment();
+        }
+    }
+
+    public void invalidate(Object key) {
+        hotKeys.invalidate(key);
+    }
+
+    public void invalidateAll(Iterable<?> keys) {
+        hotKeys.invalidateAll(keys);
+    }
+
+    public void clear() {
+        hotKeys.invalidateAll();
+    }
+
+    /**
+     * 当前的热点key
+     *
+     * @return 热点key的快照
+     */
+    public Set<Object> getHotKeys() {
+        return Collections.unmodifiableSet(new HashSet<>(hotKeys.asMap().keySet()));
+    }
+
+    public long size() {
+        return hotKeys.estimatedSize();
+    }
+
+    /**
+     * 新增热点key的次数
+     *
+     * @return 次数
+     */
+    public long getPromotionCount() {
+        return promotions.sum();
+    }
+
+    /**
+     * 从热点key本地缓存读取到值的次数
+     *
+     * @return 次数
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+}
@@ -0,0 +1,186 @@
+package com.wangtoye.doublecachespringbootstarter.cache.support;
+
+import com.wangtoye.doublecachespringbootstarter.configuration.BloomFilterConfiguration;
+import org.springframework.util.Assert;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 判断key是否可能存在的布隆过滤器
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 对key在redis中去掉前缀之后的字节哈希（{@link CacheKeyEncoder#encodeWithoutPrefix(Object)}），
+ * 和redis中key的转换方式一致，也不受清空缓存时代数变化的影响；配置相同的节点对同一个key计算出相同的位，
+ * 可以和redis的bitmap互相合并；只能添加不能删除，清空缓存时也不清空；
+ * 构造完成（{@link #markReady()}）之前所有key都当作可能存在
+ */
+public class KeyBloomFilter {
+    private static final double LN2 = Math.log(2);
+
+    private final AtomicLongArray bits;
+    private final long bitSize;
+    private final int hashCount;
+    private final boolean shared;
+    private final LongAdder definiteMisses = new LongAdder();
+    private volatile boolean ready;
+
+    /**
+     * @param configuration 布隆过滤器配置
+     */
+    public KeyBloomFilter(BloomFilterConfiguration configuration) {
+        Assert.isTrue(configuration.getExpectedInsertions() > 0, "ExpectedInsertions must be positive!");
+        Assert.isTrue(configuration.getFpp() > 0 && configuration.getFpp() < 1, "Fpp must be between 0 and 1!");
+        long n = configuration.getExpectedInsertions();
+        long m = (long) Math.ceil(-n * Math.log(configuration.getFpp()) / (LN2 * LN2));
+        //按long对齐，AtomicLongArray的长度不能超过Integer.MAX_VALUE
+        long words = Math.max(1, (m + 63) >>> 6);
+        Assert.isTrue(words <= Integer.MAX_VALUE, "Bloom filter is too large!");
+        this.bits = new AtomicLongArray((int) words);
+        this.bitSize = words << 6;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitSize / n * LN2));
+        this.shared = configuration.isShared();
+    }
+
+    /**
+     * 判断key是否可能存在
+     *
+     * @param key redis中去掉前缀之后的key
+     * @return false表示一定不存在，构造完成之前总是true
+     */
+    public boolean mightContain(byte[] key) {
+        if (!ready) {
+            return true;
+        }
+        long h1 = hash(key);
+        long h2 = fmix64(h1 ^ 0x9e3779b97f4a7c15L);
+        for (int i = 1; i <= hashCount; i++) {
+            long index = indexOf(h1, h2, i);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                definiteMisses.increment();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 添加一个key
+     *
+     * @param key redis中去掉前缀之后的key
+     * @return 新设置的位在bitmap中的位置，所有位都已经设置时为空数组
+     */
+    public long[] put(byte[] key) {
+        long h1 = hash(key);
+        long h2 = fmix64(h1 ^ 0x9e3779b97f4a7c15L);
+        long[] changed = new long[hashCount];
+        int count = 0;
+        for (int i = 1; i <= hashCount; i++) {
+            long index = indexOf(h1, h2, i);
+            if (setBit(index)) {
+                changed[count++] = index;
+            }
+        }
+        if (count == hashCount) {
+            return changed;
+        }
+        long[] result = new long[count];
+        System.arraycopy(changed, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * 合并redis中的bitmap，redis中第i位是第i/8个字节的从高到低第i%8位
+     *
+     * @param bitmap redis中的bitmap
+     */
+    public void merge(byte[] bitmap) {
+        long length = Math.min((long) bitmap.length << 3, bitSize);
+        for (long index = 0; index < length; index++) {
+            if ((bitmap[(int) (index >>> 3)] & (0x80 >>> (index & 7))) != 0) {
+                setBit(index);
+            }
+        }
+    }
+
+    /**
+     * 构造完成，之后开始判断key是否存在
+     */
+    public void markReady() {
+        this.ready = true;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public boolean isShared() {
+        return shared;
+    }
+
+    public long getBitSize() {
+        return bitSize;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    /**
+     * 判断为一定不存在的次数
+     *
+     * @return 次数
+     */
+    public long getDefiniteMissCount() {
+        return definiteMisses.sum();
+    }
+
+    /**
+     * 设置一位
+     *
+     * @return 之前是否没有设置
+     */
+    private boolean setBit(long index) {
+        int slot = (int) (index >>> 6);
+        long mask = 1L << index;
+        while (true) {
+            long value = bits.get(slot);
+            if ((value & mask) != 0) {
+                return false;
+            }
+            if (bits.compareAndSet(slot, value, value | mask)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 用两个哈希值组合出第i个哈希函数的位置
+     */
+    private long indexOf(long h1, long h2, int i) {
+        return ((h1 + i * h2) & Long.MAX_VALUE) % bitSize;
+    }
+
+    /**
+     * 对key的字节计算64位哈希，不同JVM上结果相同
+     */
+    private static long hash(byte[] key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        //改善FNV低位的分布
+        return fmix64(h);
+    }
+
+    private static long fmix64(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb53fe1a85049L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
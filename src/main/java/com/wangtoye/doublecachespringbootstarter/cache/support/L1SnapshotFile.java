@@ -0,0 +1,183 @@
+package com.wangtoye.doublecachespringbootstarter.cache.support;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一级缓存快照文件的读写
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 文件通过内存映射一次写入和读取，先写入临时文件再替换，进程在写入过程中退出时不会留下损坏的快照；
+ * 格式：魔数、版本、创建时间、条目数，之后每个条目依次是缓存名、代数、过期时间、key、value
+ */
+public class L1SnapshotFile {
+    private static final int MAGIC = 0x44434c31;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4;
+
+    private final long createdAt;
+    private final List<Entry> entries;
+
+    public L1SnapshotFile(long createdAt, List<Entry> entries) {
+        this.createdAt = createdAt;
+        this.entries = entries;
+    }
+
+    /**
+     * 快照的创建时间，毫秒时间戳
+     *
+     * @return 创建时间
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * 写入快照
+     *
+     * @param path    快照文件
+     * @param entries 条目
+     * @throws IOException 写入失败
+     */
+    public static void write(Path path, Collection<Entry> entries) throws IOException {
+        long size = HEADER_SIZE;
+        for (Entry entry : entries) {
+            size += entry.size();
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("快照超过2GB，需要减少每个缓存保存的条目数");
+        }
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(System.currentTimeMillis()).putInt(entries.size());
+            for (Entry entry : entries) {
+                putBytes(buffer, entry.cacheName.getBytes(StandardCharsets.UTF_8));
+                buffer.putLong(entry.generation).putLong(entry.expireAt);
+                putBytes(buffer, entry.key);
+                putBytes(buffer, entry.value);
+            }
+            buffer.force();
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * 读取快照
+     *
+     * @param path 快照文件
+     * @return 快照，文件不存在时为null
+     * @throws IOException 读取失败或者文件格式不正确
+     */
+    public static L1SnapshotFile read(Path path) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("快照文件不完整: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("不支持的快照文件: " + path);
+            }
+            long createdAt = buffer.getLong();
+            int count = buffer.getInt();
+            List<Entry> entries = new ArrayList<>(Math.min(count, 1 << 16));
+            for (int i = 0; i < count; i++) {
+                String cacheName = new String(getBytes(buffer), StandardCharsets.UTF_8);
+                long generation = buffer.getLong();
+                long expireAt = buffer.getLong();
+                entries.add(new Entry(cacheName, generation, expireAt, getBytes(buffer), getBytes(buffer)));
+            }
+            return new L1SnapshotFile(createdAt, Collections.unmodifiableList(entries));
+        } catch (BufferUnderflowException | IllegalArgumentException ex) {
+            throw new IOException("快照文件不完整: " + path, ex);
+        }
+    }
+
+    private static void putBytes(MappedByteBuffer buffer, byte[] bytes) {
+        buffer.putInt(bytes.length).put(bytes);
+    }
+
+    private static byte[] getBytes(MappedByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * 快照中的一个条目
+     */
+    public static final class Entry {
+        private final String cacheName;
+        private final long generation;
+        private final long expireAt;
+        private final byte[] key;
+        private final byte[] value;
+
+        /**
+         * @param cacheName  缓存名
+         * @param generation 写入快照时缓存的代数，没有使用代数时为-1
+         * @param expireAt   一级缓存中的过期时间，毫秒时间戳，未知时为0
+         * @param key        序列化之后的key
+         * @param value      按二级缓存的方式序列化之后的值
+         */
+        public Entry(String cacheName, long generation, long expireAt, byte[] key, byte[] value) {
+            this.cacheName = cacheName;
+            this.generation = generation;
+            this.expireAt = expireAt;
+            this.key = key;
+            this.value = value;
+        }
+
+        private long size() {
+            return 4 + cacheName.getBytes(StandardCharsets.UTF_8).length + 8 + 8 + 4 + key.length + 4 + value.length;
+        }
+
+        public String getCacheName() {
+            return cacheName;
+        }
+
+        public long getGeneration() {
+            return generation;
+        }
+
+        public long getExpireAt() {
+            return expireAt;
+        }
+
+        public byte[] getKey() {
+            return key;
+        }
+
+        public byte[] getValue() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.wangtoye.doublecachespringbootstarter.cache.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wangtoye.doublecachespringbootstarter.configuration.NegativeCacheConfiguration;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 记录回源结果为null的key
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 不存在的key（爬虫、失效的链接）每次都会穿透两级缓存查询数据库，记录之后在很短的时间内直接返回null；
+ * 本地记录和一级缓存一样通过失效通知清除，redis中的记录是一个单独的key，不会和正常的值混在一起
+ */
+public class NegativeCache {
+    /**
+     * redis中未命中记录的key在正常key之后追加的后缀，正常的key一般不会包含0字节
+     */
+    private static final byte[] REDIS_KEY_SUFFIX = {0, '!', 'n', 'u', 'l', 'l'};
+    /**
+     * redis中未命中记录的值，只用来判断是否存在
+     */
+    public static final byte[] REDIS_VALUE = {1};
+
+    private final Cache<Object, Boolean> missingKeys;
+    private final Duration redisTtl;
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * @param configuration 未命中缓存配置
+     */
+    public NegativeCache(NegativeCacheConfiguration configuration) {
+        Assert.isTrue(configuration.getCapacity() > 0, "Capacity must be positive!");
+        Assert.isTrue(configuration.getTtl() != null && !configuration.getTtl().isNegative()
+                && !configuration.getTtl().isZero(), "Ttl must be positive!");
+        this.missingKeys = Caffeine.newBuilder()
+                .maximumSize(configuration.getCapacity())
+                .expireAfterWrite(configuration.getTtl().toNanos(), TimeUnit.NANOSECONDS)
+                .build();
+        Duration redisTtl = configuration.getRedisTtl();
+        this.redisTtl = redisTtl == null || redisTtl.isNegative() || redisTtl.isZero() ? null : redisTtl;
+    }
+
+    /**
+     * 查询本地是否记录了这个key不存在
+     *
+     * @param key 键
+     * @return 是否记录了不存在
+     */
+    public boolean contains(Object key) {
+        if (missingKeys.getIfPresent(key) == null) {
+            return false;
+        }
+        hits.increment();
+        return true;
+    }
+
+    /**
+     * 在本地记录这个key不存在
+     *
+     * @param key 键
+     */
+    public void add(Object key) {
+        missingKeys.put(key, Boolean.TRUE);
+    }
+
+    /**
+     * 记录一次从redis中读到的未命中记录
+     */
+    public void recordRedisHit() {
+        hits.increment();
+    }
+
+    public void invalidate(Object key) {
+        missingKeys.invalidate(key);
+    }
+
+    public void invalidateAll(Iterable<?> keys) {
+        missingKeys.invalidateAll(keys);
+    }
+
+    public void clear() {
+        missingKeys.invalidateAll();
+    }
+
+    public long size() {
+        return missingKeys.estimatedSize();
+    }
+
+    /**
+     * 直接返回null的次数，包括本地和redis中的记录
+     *
+     * @return 次数
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * 是否同时在redis中记录
+     *
+     * @return 是否在redis中记录
+     */
+    public boolean isRedisEnabled() {
+        return redisTtl != null;
+    }
+
+    public Duration getRedisTtl() {
+        return redisTtl;
+    }
+
+    /**
+     * redis中未命中记录的key
+     *
+     * @param redisKey 正常值的key
+     * @return 未命中记录的key
+     */
+    public static byte[] redisKey(byte[] redisKey) {
+        byte[] key = new byte[redisKey.length + REDIS_KEY_SUFFIX.length];
+        System.arraycopy(redisKey, 0, key, 0, redisKey.length);
+        System.arraycopy(REDIS_KEY_SUFFIX, 0, key, redisKey.length, REDIS_KEY_SUFFIX.length);
+        return key;
+    }
+
+    /**
+     * 是否是redis中未命中记录的key
+     *
+     * @param redisKey redis中的key
+     * @return 是否是未命中记录
+     */
+    public static boolean isRedisKey(byte[] redisKey) {
+        if (redisKey.length < REDIS_KEY_SUFFIX.length) {
+            return false;
+        }
+        int offset = redisKey.length - REDIS_KEY_SUFFIX.length;
+        for (int i = 0; i < REDIS_KEY_SUFFIX.length; i++) {
+            if (redisKey[offset + i] != REDIS_KEY_SUFFIX[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,259 @@
+package com.wangtoye.doublecachespringbootstarter.cache.support;
+
+import com.wangtoye.doublecachespringbootstarter.configuration.OffHeapConfiguration;
+import org.springframework.util.Assert;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 堆外的本地缓存，存储二级缓存序列化之后的值
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 按key的hash分成多个段，每段是一块直接内存的环形缓冲区，按写入顺序（FIFO）淘汰；
+ * 索引在堆上，值不占用堆内存，也不增加GC的负担
+ */
+public class OffHeapStore {
+    private final Segment[] segments;
+    private final long expireAfterWriteNanos;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param configuration 堆外缓存配置
+     */
+    public OffHeapStore(OffHeapConfiguration configuration) {
+        Assert.isTrue(configuration.getSegments() > 0, "Segments must be positive!");
+        long segmentCapacity = configuration.getCapacity() / configuration.getSegments();
+        Assert.isTrue(segmentCapacity > 0 && segmentCapacity <= Integer.MAX_VALUE,
+                "Capacity per segment must be between 1 and Integer.MAX_VALUE bytes!");
+        this.segments = new Segment[configuration.getSegments()];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment((int) segmentCapacity);
+        }
+        this.expireAfterWriteNanos = configuration.getExpireAfterWrite() == null ? 0 :
+                configuration.getExpireAfterWrite().toNanos();
+    }
+
+    /**
+     * 查询序列化之后的值
+     *
+     * @param key 键
+     * @return 值，不存在或者已经过期时为null
+     */
+    public byte[] get(Object key) {
+        byte[] value = segmentFor(key).get(key);
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    /**
+     * 写入序列化之后的值，超过单段容量的值不缓存
+     *
+     * @param key   键
+     * @param value 值
+     */
+    public void put(Object key, byte[] value) {
+        long expireAt = expireAfterWriteNanos > 0 ? System.nanoTime() + expireAfterWriteNanos : 0;
+        segmentFor(key).put(key, value, expireAt);
+    }
+
+    /**
+     * 删除一个key
+     *
+     * @param key 键
+     */
+    public void invalidate(Object key) {
+        segmentFor(key).invalidate(key);
+    }
+
+    /**
+     * 删除多个key
+     *
+     * @param keys 键
+     */
+    public void invalidateAll(Iterable<?> keys) {
+        keys.forEach(this::invalidate);
+    }
+
+    /**
+     * 清空所有的段
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * 当前的条数，包括还没有被淘汰的过期条目
+     *
+     * @return 条数
+     */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    private Segment segmentFor(Object key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return segments[(hash & Integer.MAX_VALUE) % segments.length];
+    }
+
+    /**
+     * 缓冲区中的一个值
+     */
+    private static final class Entry {
+        private final Object key;
+        private final int offset;
+        private final int length;
+        private final long expireAt;
+
+        Entry(Object key, int offset, int length, long expireAt) {
+            this.key = key;
+            this.offset = offset;
+            this.length = length;
+            this.expireAt = expireAt;
+        }
+
+        boolean isExpired(long now) {
+            return expireAt != 0 && now - expireAt >= 0;
+        }
+    }
+
+    /**
+     * 一段环形缓冲区，写入位置追上最早的条目时淘汰它
+     */
+    private static final class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ByteBuffer buffer;
+        private final Map<Object, Entry> index = new HashMap<>();
+        /**
+         * 按写入顺序排列的条目，也就是按缓冲区中的位置排列，已经删除或覆盖的条目在淘汰时跳过
+         */
+        private final ArrayDeque<Entry> order = new ArrayDeque<>();
+        private int writePosition;
+
+        Segment(int capacity) {
+            this.buffer = ByteBuffer.allocateDirect(capacity);
+        }
+
+        byte[] get(Object key) {
+            lock.lock();
+            try {
+                Entry entry = index.get(key);
+                if (entry == null) {
+                    return null;
+                }
+                if (entry.isExpired(System.nanoTime())) {
+                    index.remove(key);
+                    return null;
+                }
+                byte[] value = new byte[entry.length];
+                ByteBuffer view = buffer.duplicate();
+                view.position(entry.offset);
+                view.get(value);
+                return value;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void put(Object key, byte[] value, long expireAt) {
+            if (value.length > buffer.capacity()) {
+                invalidate(key);
+                return;
+            }
+            lock.lock();
+            try {
+                index.remove(key);
+                int offset = allocate(value.length);
+                ByteBuffer view = buffer.duplicate();
+                view.position(offset);
+                view.put(value);
+                Entry entry = new Entry(key, offset, value.length, expireAt);
+                index.put(key, entry);
+                order.addLast(entry);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 在写入位置分配空间，淘汰被覆盖的条目
+         */
+        private int allocate(int length) {
+            if (writePosition + length > buffer.capacity()) {
+                //剩余的尾部空间不够，尾部的条目是最早写入的，全部淘汰后从头开始写
+                while (!order.isEmpty() && order.peekFirst().offset >= writePosition) {
+                    evictFirst();
+                }
+                writePosition = 0;
+            }
+            while (!order.isEmpty() && order.peekFirst().offset >= writePosition
+                    && order.peekFirst().offset < writePosition + length) {
+                evictFirst();
+            }
+            int offset = writePosition;
+            writePosition += length;
+            return offset;
+        }
+
+        private void evictFirst() {
+            Entry entry = order.pollFirst();
+            if (entry != null && index.get(entry.key) == entry) {
+                index.remove(entry.key);
+            }
+        }
+
+        void invalidate(Object key) {
+            lock.lock();
+            try {
+                index.remove(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void clear() {
+            lock.lock();
+            try {
+                index.clear();
+                order.clear();
+                writePosition = 0;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return index.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
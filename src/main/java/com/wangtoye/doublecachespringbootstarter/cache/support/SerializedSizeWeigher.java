@@ -0,0 +1,51 @@
+package com.wangtoye.doublecachespringbootstarter.cache.support;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+import com.wangtoye.doublecachespringbootstarter.cache.RedisCacheExt;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 按二级缓存序列化后的字节数计算一级缓存条目的权重
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 只在写入一级缓存时计算一次，序列化失败时使用固定的估计值
+ */
+public class SerializedSizeWeigher implements Weigher<Object, Object> {
+    private static final Logger logger = LoggerFactory.getLogger(SerializedSizeWeigher.class);
+    /**
+     * 每个条目在caffeine中的固定开销，包括节点、key和对象头的估计
+     */
+    static final int ENTRY_OVERHEAD = 64;
+    /**
+     * 无法序列化时的估计值
+     */
+    static final int UNKNOWN_SIZE = 1024;
+
+    private final RedisCacheExt redisCache;
+
+    /**
+     * @param redisCache 使用这个缓存的序列化方式
+     */
+    public SerializedSizeWeigher(RedisCacheExt redisCache) {
+        this.redisCache = redisCache;
+    }
+
+    @Override
+    public int weigh(@NonNull Object key, @NonNull Object value) {
+        long size;
+        if (value instanceof byte[]) {
+            size = ((byte[]) value).length;
+        } else {
+            try {
+                size = redisCache.serializeValue(value).length;
+            } catch (RuntimeException ex) {
+                logger.debug("一级缓存的值无法序列化，使用估计值计算权重，key: {}", key, ex);
+                size = UNKNOWN_SIZE;
+            }
+        }
+        return (int) Math.min(Integer.MAX_VALUE, size + ENTRY_OVERHEAD);
+    }
+}
@@ -0,0 +1,333 @@
+package com.wangtoye.doublecachespringbootstarter.cache.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.Weigher;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * 所有缓存共用的一个caffeine实例，总条数（或者总权重）受同一个上限约束
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 每个缓存通过 {@link #view(String, CacheLoader, Weigher)} 得到一个只能看到自己的key的视图，
+ * 共享实例中的key是缓存名和原始key的组合
+ */
+public class SharedCaffeineCache {
+    private final LoadingCache<SharedKey, Object> cache;
+    /**
+     * 每个缓存自己的loader，refreshAfterWrite时按缓存名分发
+     */
+    private final Map<String, CacheLoader<Object, Object>> loaders = new ConcurrentHashMap<>();
+    /**
+     * 每个缓存自己的weigher，按字节限制总大小时按缓存名分发
+     */
+    private final Map<String, Weigher<Object, Object>> weighers = new ConcurrentHashMap<>();
+
+    /**
+     * @param builder 共享实例的配置
+     * @param weighed 是否按权重限制大小，builder中需要已经设置了maximumWeight
+     */
+    public SharedCaffeineCache(Caffeine<Object, Object> builder, boolean weighed) {
+        if (weighed) {
+            builder.weigher(new DispatchingWeigher());
+        }
+        this.cache = builder.build(new DispatchingLoader());
+    }
+
+    /**
+     * 获取某个缓存的视图
+     *
+     * @param cacheName 缓存名
+     * @param loader    这个缓存的loader
+     * @param weigher   这个缓存的weigher，不按权重限制大小时不使用
+     * @return 视图
+     */
+    public Cache<Object, Object> view(String cacheName, CacheLoader<Object, Object> loader,
+                                      Weigher<Object, Object> weigher) {
+        loaders.put(cacheName, loader);
+        weighers.put(cacheName, weigher);
+        return new View(cacheName);
+    }
+
+    /**
+     * 是否是共享实例的视图，视图的 {@link Cache#policy()} 作用于整个共享实例
+     *
+     * @param cache 一级缓存
+     * @return 是否是视图
+     */
+    public static boolean isView(Cache<?, ?> cache) {
+        return cache instanceof View;
+    }
+
+    /**
+     * 共享实例中的key
+     */
+    static final class SharedKey {
+        private final String cacheName;
+        private final Object key;
+
+        SharedKey(String cacheName, Object key) {
+            this.cacheName = cacheName;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof SharedKey)) {
+                return false;
+            }
+            SharedKey that = (SharedKey) o;
+            return cacheName.equals(that.cacheName) && key.equals(that.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * cacheName.hashCode() + key.hashCode();
+        }
+    }
+
+    private final class DispatchingLoader implements CacheLoader<SharedKey, Object> {
+
+        @Nullable
+        @Override
+        public Object load(@NonNull SharedKey key) throws Exception {
+            CacheLoader<Object, Object> loader = loaders.get(key.cacheName);
+            return loader == null ? null : loader.load(key.key);
+        }
+
+        @NonNull
+        @Override
+        public CompletableFuture<Object> asyncReload(@NonNull SharedKey key, @NonNull Object oldValue,
+                                                     @NonNull Executor executor) {
+            CacheLoader<Object, Object> loader = loaders.get(key.cacheName);
+            return loader == null ? CompletableFuture.completedFuture(null) :
+                    loader.asyncReload(key.key, oldValue, executor);
+        }
+    }
+
+    private final class DispatchingWeigher implements Weigher<SharedKey, Object> {
+
+        @Override
+        public int weigh(@NonNull SharedKey key, @NonNull Object value) {
+            Weigher<Object, Object> weigher = weighers.get(key.cacheName);
+            return weigher == null ? SerializedSizeWeigher.ENTRY_OVERHEAD : weigher.weigh(key.key, value);
+        }
+    }
+
+    /**
+     * 单个缓存的视图，清空和统计条数需要遍历共享实例
+     */
+    private final class View implements Cache<Object, Object> {
+        private final String cacheName;
+        private final ConcurrentMap<Object, Object> mapView = new MapView();
+
+        View(String cacheName) {
+            this.cacheName = cacheName;
+        }
+
+        private SharedKey wrap(Object key) {
+            return new SharedKey(cacheName, Objects.requireNonNull(key));
+        }
+
+        private boolean owns(SharedKey key) {
+            return key.cacheName.equals(cacheName);
+        }
+
+        @Nullable
+        @Override
+        public Object getIfPresent(@NonNull Object key) {
+            return cache.getIfPresent(wrap(key));
+        }
+
+        @Nullable
+        @Override
+        public Object get(@NonNull Object key, @NonNull Function<? super Object, ?> mappingFunction) {
+            return cache.get(wrap(key), sharedKey -> mappingFunction.apply(sharedKey.key));
+        }
+
+        @NonNull
+        @Override
+        public Map<Object, Object> getAllPresent(@NonNull Iterable<?> keys) {
+            List<SharedKey> sharedKeys = new ArrayList<>();
+            for (Object key : keys) {
+                sharedKeys.add(wrap(key));
+            }
+            Map<Object, Object> result = new HashMap<>();
+            cache.getAllPresent(sharedKeys).forEach((sharedKey, value) -> result.put(sharedKey.key, value));
+            return result;
+        }
+
+        @Override
+        public void put(@NonNull Object key, @NonNull Object value) {
+            cache.put(wrap(key), value);
+        }
+
+        @Override
+        public void putAll(@NonNull Map<?, ?> map) {
+            map.forEach(this::put);
+        }
+
+        @Override
+        public void invalidate(@NonNull Object key) {
+            cache.invalidate(wrap(key));
+        }
+
+        @Override
+        public void invalidateAll(@NonNull Iterable<?> keys) {
+            List<SharedKey> sharedKeys = new ArrayList<>();
+            for (Object key : keys) {
+                sharedKeys.add(wrap(key));
+            }
+            cache.invalidateAll(sharedKeys);
+        }
+
+        @Override
+        public void invalidateAll() {
+            cache.asMap().keySet().removeIf(this::owns);
+        }
+
+        @Override
+        public long estimatedSize() {
+            return cache.asMap().keySet().stream().filter(this::owns).count();
+        }
+
+        @NonNull
+        @Override
+        public CacheStats stats() {
+            return cache.stats();
+        }
+
+        @NonNull
+        @Override
+        public ConcurrentMap<Object, Object> asMap() {
+            return mapView;
+        }
+
+        @Override
+        public void cleanUp() {
+            cache.cleanUp();
+        }
+
+        /**
+         * 共享实例的策略，大小和上限是所有缓存合计的
+         */
+        @NonNull
+        @Override
+        @SuppressWarnings("unchecked")
+        public Policy<Object, Object> policy() {
+            return (Policy<Object, Object>) (Policy<?, ?>) cache.policy();
+        }
+
+        private final class MapView extends AbstractMap<Object, Object> implements ConcurrentMap<Object, Object> {
+
+            @Override
+            public Object get(Object key) {
+                return key == null ? null : cache.asMap().get(wrap(key));
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return key != null && cache.asMap().containsKey(wrap(key));
+            }
+
+            @Override
+            public Object put(Object key, Object value) {
+                return cache.asMap().put(wrap(key), value);
+            }
+
+            @Override
+            public Object remove(Object key) {
+                return key == null ? null : cache.asMap().remove(wrap(key));
+            }
+
+            @Override
+            public Object putIfAbsent(Object key, Object value) {
+                return cache.asMap().putIfAbsent(wrap(key), value);
+            }
+
+            @Override
+            public boolean remove(Object key, Object value) {
+                return key != null && cache.asMap().remove(wrap(key), value);
+            }
+
+            @Override
+            public boolean replace(Object key, Object oldValue, Object newValue) {
+                return cache.asMap().replace(wrap(key), oldValue, newValue);
+            }
+
+            @Override
+            public Object replace(Object key, Object value) {
+                return cache.asMap().replace(wrap(key), value);
+            }
+
+            @Override
+            public void clear() {
+                invalidateAll();
+            }
+
+            @Override
+            public Set<Entry<Object, Object>> entrySet() {
+                return new AbstractSet<Entry<Object, Object>>() {
+                    @Override
+                    public Iterator<Entry<Object, Object>> iterator() {
+                        Iterator<Entry<SharedKey, Object>> iterator = cache.asMap().entrySet().stream()
+                                .filter(entry -> owns(entry.getKey())).iterator();
+                        return new Iterator<Entry<Object, Object>>() {
+                            private SharedKey current;
+
+                            @Override
+                            public boolean hasNext() {
+                                return iterator.hasNext();
+                            }
+
+                            @Override
+                            public Entry<Object, Object> next() {
+                                Entry<SharedKey, Object> entry = iterator.next();
+                                current = entry.getKey();
+                                return new SimpleImmutableEntry<>(entry.getKey().key, entry.getValue());
+                            }
+
+                            @Override
+                            public void remove() {
+                                if (current == null) {
+                                    throw new IllegalStateException();
+                                }
+                                cache.asMap().remove(current);
+                                current = null;
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return (int) estimatedSize();
+                    }
+                };
+            }
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.wangtoye.doublecachespringbootstarter.cache.support;
+
+import com.wangtoye.doublecachespringbootstarter.cache.RedisCacheExt;
+import com.wangtoye.doublecachespringbootstarter.cache.writer.RedisCallbackCacheWriter;
+import com.wangtoye.doublecachespringbootstarter.configuration.WriteBehindConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache.ValueWrapper;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 单个缓存的二级缓存写后队列
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 同一个key的多次写入只保留最后一次，后台线程按批次通过pipeline写入二级缓存，
+ * 写入成功后再通知其他节点；队列满时调用方等待，等待超时后在调用线程上直接写入
+ */
+public class WriteBehindQueue {
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindQueue.class);
+    /**
+     * 等待中的删除操作
+     */
+    private static final ValueWrapper DELETE = new SimpleValueWrapper(null);
+
+    private final String cacheName;
+    private final RedisCallbackCacheWriter cacheWriter;
+    private final RedisCacheExt redisCache;
+    private final Duration ttl;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final long maxBlockNanos;
+    private final Consumer<Collection<Object>> flushListener;
+    /**
+     * 保护pending和inFlight
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    /**
+     * 保证取出的批次按顺序写入，调用方直接写入时也需要持有
+     */
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Map<Object, ValueWrapper> pending = new LinkedHashMap<>();
+    /**
+     * 已经从pending取出但是还没有写入完成的操作，写入完成之前读取仍然使用这些值，
+     * 否则本节点会从二级缓存读到旧值并放回本地缓存，而写入完成后的通知不会发给本节点
+     */
+    private final Map<Object, ValueWrapper> inFlight = new HashMap<>();
+    private final ScheduledExecutorService executor;
+    private boolean shutdown;
+
+    /**
+     * @param cacheName     缓存名
+     * @param cacheWriter   二级缓存操作类
+     * @param redisCache    序列化key和value
+     * @param ttl           二级缓存的过期时间
+     * @param configuration 写后模式配置
+     * @param flushListener 一批key写入二级缓存之后的回调，用于通知其他节点
+     */
+    public WriteBehindQueue(String cacheName, RedisCallbackCacheWriter cacheWriter, RedisCacheExt redisCache,
+                            Duration ttl, WriteBehindConfiguration configuration,
+                            Consumer<Collection<Object>> flushListener) {
+        Assert.isTrue(configuration.getQueueCapacity() > 0, "QueueCapacity must be positive!");
+        Assert.isTrue(configuration.getBatchSize() > 0, "BatchSize must be positive!");
+        Assert.isTrue(configuration.getFlushInterval() != null && !configuration.getFlushInterval().isZero()
+                && !configuration.getFlushInterval().isNegative(), "FlushInterval must be positive!");
+        this.cacheName = cacheName;
+        this.cacheWriter = cacheWriter;
+        this.redisCache = redisCache;
+        this.ttl = ttl;
+        this.queueCapacity = configuration.getQueueCapacity();
+        this.batchSize = configuration.getBatchSize();
+        this.maxBlockNanos = configuration.getMaxBlock() == null ? 0 : configuration.getMaxBlock().toNanos();
+        this.flushListener = flushListener;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "double-cache-write-behind-" + cacheName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = configuration.getFlushInterval().toNanos();
+        executor.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 排队写入
+     *
+     * @param key   键
+     * @param value 值
+     */
+    public void put(Object key, Object value) {
+        offer(key, new SimpleValueWrapper(value));
+    }
+
+    /**
+     * 排队删除
+     *
+     * @param key 键
+     */
+    public void remove(Object key) {
+        offer(key, DELETE);
+    }
+
+    /**
+     * 查询还没有写入二级缓存的操作，读取时优先使用，保证本节点读到自己的写入
+     *
+     * @param key 键
+     * @return 等待中的值，没有等待中的操作时为null，使用 {@link #isDeletion(ValueWrapper)} 判断是否是删除
+     */
+    public ValueWrapper getPending(Object key) {
+        lock.lock();
+        try {
+            ValueWrapper value = pending.get(key);
+            return value != null ? value : inFlight.get(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 等待中的操作是否是删除
+     *
+     * @param pendingValue {@link #getPending(Object)} 的结果
+     * @return 是否是删除
+     */
+    public static boolean isDeletion(ValueWrapper pendingValue) {
+        return pendingValue == DELETE;
+    }
+
+    private void offer(Object key, ValueWrapper value) {
+        long nanos = maxBlockNanos;
+        boolean flushRequested = false;
+        lock.lock();
+        try {
+            while (!shutdown && !pending.containsKey(key) && pending.size() >= queueCapacity) {
+                if (nanos <= 0) {
+                    break;
+                }
+                if (!flushRequested) {
+                    executor.execute(this::flushQuietly);
+                    flushRequested = true;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            if (!shutdown && (pending.containsKey(key) || pending.size() < queueCapacity)) {
+                //同一个key合并，只写入最后一次的值
+                pending.put(key, value);
+                if (pending.size() == batchSize) {
+                    executor.execute(this::flushQuietly);
+                }
+                return;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+
+        //队列已满或者已经关闭，在调用线程上直接写入
+        flushLock.lock();
+        try {
+            lock.lock();
+            try {
+                inFlight.put(key, value);
+            } finally {
+                lock.unlock();
+            }
+            write(Collections.singletonMap(key, value), false);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 把所有等待中的操作写入二级缓存
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<Object, ValueWrapper> batch;
+            while (!(batch = drain()).isEmpty()) {
+                write(batch, true);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            logger.warn("缓存{}的写后队列写入二级缓存失败，稍后重试", cacheName, ex);
+        }
+    }
+
+    /**
+     * 取出一批等待中的操作
+     */
+    private Map<Object, ValueWrapper> drain() {
+        lock.lock();
+        try {
+            Map<Object, ValueWrapper> batch = new LinkedHashMap<>();
+            Iterator<Map.Entry<Object, ValueWrapper>> iterator = pending.entrySet().iterator();
+            while (iterator.hasNext() && batch.size() < batchSize) {
+                Map.Entry<Object, ValueWrapper> entry = iterator.next();
+                batch.put(entry.getKey(), entry.getValue());
+                inFlight.put(entry.getKey(), entry.getValue());
+                iterator.remove();
+            }
+            if (!batch.isEmpty()) {
+                notFull.signalAll();
+            }
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 通过一次pipeline写入一批操作，成功后通知其他节点；调用前批次中的操作需要已经放入inFlight，
+     * 结束后无论成功与否都从inFlight中移除
+     *
+     * @param batch   一批操作
+     * @param requeue 失败时是否放回队列，已经有更新的值时不再放回
+     */
+    private void write(Map<Object, ValueWrapper> batch, boolean requeue) {
+        try {
+            writeBatch(batch, requeue);
+        } finally {
+            lock.lock();
+            try {
+                //写入期间同一个key可能又被直接写入，只移除本批次放入的值
+                batch.forEach(inFlight::remove);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void writeBatch(Map<Object, ValueWrapper> batch, boolean requeue) {
+        Map<byte[], byte[]> entries = new LinkedHashMap<>();
+        List<Object> keys = new ArrayList<>(batch.size());
+        for (Map.Entry<Object, ValueWrapper> entry : batch.entrySet()) {
+            try {
+                entries.put(redisCache.serializeKey(entry.getKey()), isDeletion(entry.getValue()) ? null :
+                        redisCache.serializeValue(entry.getValue().get()));
+                keys.add(entry.getKey());
+            } catch (RuntimeException ex) {
+                if (!requeue) {
+                    throw ex;
+                }
+                //无法序列化的值重试也不会成功，直接丢弃
+                logger.warn("缓存{}的key {}无法序列化，已丢弃", cacheName, entry.getKey(), ex);
+            }
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+        try {
+            cacheWriter.writeAll(cacheName, entries, ttl);
+        } catch (RuntimeException ex) {
+            if (requeue) {
+                lock.lock();
+                try {
+                    for (Object key : keys) {
+                        pending.putIfAbsent(key, batch.get(key));
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            throw ex;
+        }
+        flushListener.accept(keys);
+    }
+
+    /**
+     * 丢弃所有等待中的操作，并等待正在执行的写入完成，用于清空缓存
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            pending.clear();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        flushLock.lock();
+        flushLock.unlock();
+    }
+
+    /**
+     * 写入所有等待中的操作并停止后台线程，之后的写入在调用线程上直接执行
+     */
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+    }
+}
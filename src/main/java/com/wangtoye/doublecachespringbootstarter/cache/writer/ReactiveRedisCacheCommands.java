@@ -0,0 +1,50 @@
+package com.wangtoye.doublecachespringbootstarter.cache.writer;
+
+import org.springframework.data.redis.connection.ReactiveRedisConnection;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.util.ByteUtils;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * 使用响应式连接执行二级缓存命令，等待redis响应时不占用线程
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 单独成类，保证没有reactor的环境下不会加载到reactor的类
+ */
+final class ReactiveRedisCacheCommands {
+    private final ReactiveRedisConnectionFactory connectionFactory;
+
+    ReactiveRedisCacheCommands(ReactiveRedisConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+    }
+
+    CompletableFuture<byte[]> get(byte[] key) {
+        return execute(connection -> connection.stringCommands().get(ByteBuffer.wrap(key)).map(ByteUtils::getBytes));
+    }
+
+    CompletableFuture<Boolean> set(byte[] key, byte[] value, Expiration expiration) {
+        return execute(connection -> connection.stringCommands().set(ByteBuffer.wrap(key), ByteBuffer.wrap(value),
+                expiration, RedisStringCommands.SetOption.upsert()));
+    }
+
+    CompletableFuture<Long> del(byte[] key) {
+        return execute(connection -> connection.keyCommands().del(ByteBuffer.wrap(key)));
+    }
+
+    /**
+     * 响应式连接默认共享底层的原生连接，每次命令获取一个并在完成后释放
+     */
+    <T> CompletableFuture<T> execute(Function<ReactiveRedisConnection, Mono<T>> callback) {
+        ReactiveRedisConnection connection = connectionFactory.getReactiveConnection();
+        return callback.apply(connection)
+                .doFinally(signal -> connection.close())
+                .toFuture();
+    }
+}
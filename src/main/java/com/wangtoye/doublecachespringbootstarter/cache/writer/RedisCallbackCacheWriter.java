@@ -1,22 +1,40 @@
 package com.wangtoye.doublecachespringbootstarter.cache.writer;
 
+import com.wangtoye.doublecachespringbootstarter.cache.support.NegativeCache;
 import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.redis.RedisSystemException;
 import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
 import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
-import java.util.Collections;
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
 
 /**
  * 在DefaultRedisCacheWriter的基础上增加redis过期回调功能
@@ -26,9 +44,29 @@ import java.util.function.Function;
  * Description:
  */
 public class RedisCallbackCacheWriter implements RedisCacheWriter {
+    /**
+     * 只有持有者才能释放租约，防止租约过期后误删其他节点的租约
+     */
+    private static final byte[] RELEASE_LEASE_SCRIPT = ("if redis.call('get', KEYS[1]) == ARGV[1] then "
+            + "return redis.call('del', KEYS[1]) else return 0 end").getBytes(StandardCharsets.UTF_8);
+    private static final byte[] LEASE_SUFFIX = "~lease".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] LOCK_SUFFIX = "~lock".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] GENERATION_SUFFIX = "~generation".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BLOOM_SUFFIX = "~bloom".getBytes(StandardCharsets.UTF_8);
+
     private final RedisConnectionFactory connectionFactory;
     private final Duration sleepTime;
     private final RedisTemplate redisTemplate;
+    private int clearBatchSize = 1000;
+    /**
+     * 过期时间随机延长的最大比例
+     */
+    private double ttlJitter;
+    /**
+     * 连接工厂支持响应式连接时使用，否则为null
+     */
+    private final ReactiveRedisCacheCommands reactiveCommands;
+    private Executor asyncExecutor = ForkJoinPool.commonPool();
 
     /**
      * @param connectionFactory must not be {@literal null}.
@@ -51,6 +89,39 @@ public class RedisCallbackCacheWriter implements RedisCacheWriter {
         this.connectionFactory = connectionFactory;
         this.sleepTime = sleepTime;
         this.redisTemplate = redisTemplate;
+        this.reactiveCommands = connectionFactory instanceof ReactiveRedisConnectionFactory
+                && ClassUtils.isPresent("reactor.core.publisher.Mono", getClass().getClassLoader()) ?
+                new ReactiveRedisCacheCommands((ReactiveRedisConnectionFactory) connectionFactory) : null;
+    }
+
+    /**
+     * 设置连接工厂不支持响应式连接时执行异步操作的线程池
+     *
+     * @param asyncExecutor 线程池
+     */
+    public void setAsyncExecutor(Executor asyncExecutor) {
+        Assert.notNull(asyncExecutor, "AsyncExecutor must not be null!");
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    /**
+     * 设置清空缓存时每批SCAN和UNLINK的key数量
+     *
+     * @param clearBatchSize 每批数量
+     */
+    public void setClearBatchSize(int clearBatchSize) {
+        Assert.isTrue(clearBatchSize > 0, "ClearBatchSize must be positive!");
+        this.clearBatchSize = clearBatchSize;
+    }
+
+    /**
+     * 写入时把过期时间随机延长 [0, ttl * ttlJitter]，避免同时写入的key同时过期
+     *
+     * @param ttlJitter 最大延长比例，为0时不延长
+     */
+    public void setTtlJitter(double ttlJitter) {
+        Assert.isTrue(ttlJitter >= 0, "TtlJitter must not be negative!");
+        this.ttlJitter = ttlJitter;
     }
 
     @Override
@@ -61,7 +132,7 @@ public class RedisCallbackCacheWriter implements RedisCacheWriter {
         Assert.notNull(value, "Value must not be null!");
         execute(name, connection -> {
             if (shouldExpireWithin(ttl)) {
-                connection.set(key, value, Expiration.from(ttl.toMillis(), TimeUnit.MILLISECONDS),
+                connection.set(key, value, withJitter(ttl),
                         RedisStringCommands.SetOption.upsert());
             } else {
                 connection.set(key, value);
@@ -70,11 +141,15 @@ public class RedisCallbackCacheWriter implements RedisCacheWriter {
         });
     }
 
+    /**
+     * 读操作不检查缓存锁：锁只用于写操作之间的互斥，读到清空前后的任一状态都是正确的，
+     * 这样每次读取可以少一次 EXISTS 请求，也不会在清空缓存时被阻塞
+     */
     @Override
     public byte[] get(String name, byte[] key) {
         Assert.notNull(name, "Name must not be null!");
         Assert.notNull(key, "Key must not be null!");
-        return execute(name, connection -> connection.get(key));
+        return executeLockFree(connection -> connection.get(key));
     }
 
     @Override
@@ -89,10 +164,11 @@ public class RedisCallbackCacheWriter implements RedisCacheWriter {
                 doLock(name, connection);
             }
             try {
-                if (connection.setNX(key, value)) {
-                    if (shouldExpireWithin(ttl)) {
-                        connection.pExpire(key, ttl.toMillis());
-                    }
+                //SET NX PX 一次请求完成写入和设置过期时间，不会留下没有过期时间的key
+                Expiration expiration = shouldExpireWithin(ttl) ?
+                        withJitter(ttl) : Expiration.persistent();
+                if (Boolean.TRUE.equals(connection.set(key, value, expiration,
+                        RedisStringCommands.SetOption.ifAbsent()))) {
                     return null;
                 }
                 return connection.get(key);
@@ -111,27 +187,265 @@ public class RedisCallbackCacheWriter implements RedisCacheWriter {
         execute(name, connection -> connection.del(key));
     }
 
+    /**
+     * 一次MGET获取多个key，和 {@link #get(String, byte[])} 一样不检查缓存锁
+     *
+     * @param name the name of the cache.
+     * @param keys The keys to get.
+     * @return 和keys顺序一致的值，不存在的为null
+     */
+    public List<byte[]> getAll(String name, List<byte[]> keys) {
+        Assert.notNull(name, "Name must not be null!");
+        Assert.notNull(keys, "Keys must not be null!");
+        if (keys.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return executeLockFree(connection -> connection.mGet(keys.toArray(new byte[0][])));
+    }
+
+    /**
+     * 使用pipeline批量写入，所有key只需要一次往返
+     *
+     * @param name    the name of the cache.
+     * @param entries 序列化之后的key和value
+     * @param ttl     Optional expiration time. Can be {@literal null}.
+     */
+    public void putAll(String name, Map<byte[], byte[]> entries, @Nullable Duration ttl) {
+        Assert.notNull(entries, "Entries must not be null!");
+        Assert.isTrue(!entries.containsValue(null), "Values must not be null!");
+        writeAll(name, entries, ttl);
+    }
+
+    /**
+     * 使用pipeline批量写入和删除，所有key只需要一次往返
+     *
+     * @param name    the name of the cache.
+     * @param entries 序列化之后的key和value，value为null时删除这个key
+     * @param ttl     Optional expiration time. Can be {@literal null}.
+     */
+    public void writeAll(String name, Map<byte[], byte[]> entries, @Nullable Duration ttl) {
+        Assert.notNull(name, "Name must not be null!");
+        Assert.notNull(entries, "Entries must not be null!");
+        if (entries.isEmpty()) {
+            return;
+        }
+        execute(name, connection -> {
+            connection.openPipeline();
+            try {
+                for (Map.Entry<byte[], byte[]> entry : entries.entrySet()) {
+                    if (entry.getValue() == null) {
+                        connection.del(entry.getKey());
+                    } else if (shouldExpireWithin(ttl)) {
+                        connection.set(entry.getKey(), entry.getValue(),
+                                withJitter(ttl),
+                                RedisStringCommands.SetOption.upsert());
+                    } else {
+                        connection.set(entry.getKey(), entry.getValue());
+                    }
+                }
+            } finally {
+                connection.closePipeline();
+            }
+            return "OK";
+        });
+    }
+
+    /**
+     * 一次DEL删除多个key
+     *
+     * @param name the name of the cache.
+     * @param keys The keys to remove.
+     */
+    public void removeAll(String name, List<byte[]> keys) {
+        Assert.notNull(name, "Name must not be null!");
+        Assert.notNull(keys, "Keys must not be null!");
+        if (keys.isEmpty()) {
+            return;
+        }
+        execute(name, connection -> connection.del(keys.toArray(new byte[0][])));
+    }
+
     @Override
     public void clean(String name, byte[] pattern) {
+        clean(name, pattern, null);
+    }
+
+    /**
+     * 使用SCAN分批查找匹配的key并使用UNLINK分批删除，不会像KEYS那样长时间阻塞redis，
+     * UNLINK在redis后台线程释放内存，需要redis 4.0及以上版本；集群模式下依次SCAN每个主节点
+     *
+     * @param name     the name of the cache.
+     * @param pattern  The pattern for the keys to remove.
+     * @param progress 每删除一批之后回调已删除的总数，可以为null
+     * @return 删除的key数量
+     */
+    public long clean(String name, byte[] pattern, @Nullable LongConsumer progress) {
         Assert.notNull(name, "Name must not be null!");
         Assert.notNull(pattern, "Pattern must not be null!");
-        execute(name, connection -> {
+        return execute(name, connection -> {
             boolean wasLocked = false;
             try {
                 if (isLockingCacheWriter()) {
                     doLock(name, connection);
                     wasLocked = true;
                 }
-                byte[][] keys = Optional.ofNullable(connection.keys(pattern)).orElse(Collections.emptySet())
-                        .toArray(new byte[0][]);
-                if (keys.length > 0) {
-                    connection.del(keys);
-                }
+                return scanAndUnlink(connection, pattern, progress);
             } finally {
                 if (wasLocked && isLockingCacheWriter()) {
                     doUnlock(name, connection);
                 }
             }
+        });
+    }
+
+    private long scanAndUnlink(RedisConnection connection, byte[] pattern, @Nullable LongConsumer progress) {
+        long[] deleted = new long[1];
+        List<byte[]> batch = new ArrayList<>(clearBatchSize);
+        scanKeys(connection, pattern, key -> {
+            batch.add(key);
+            if (batch.size() >= clearBatchSize) {
+                deleted[0] += unlink(connection, batch);
+                if (progress != null) {
+                    progress.accept(deleted[0]);
+                }
+            }
+            return true;
+        });
+        if (!batch.isEmpty()) {
+            deleted[0] += unlink(connection, batch);
+            if (progress != null) {
+                progress.accept(deleted[0]);
+            }
+        }
+        return deleted[0];
+    }
+
+    /**
+     * 使用SCAN遍历匹配的key。集群模式下连接本身的SCAN不可用，依次遍历每个主节点
+     *
+     * @param connection 连接
+     * @param pattern    key的匹配模式
+     * @param consumer   处理每个key，返回false时停止遍历
+     */
+    private void scanKeys(RedisConnection connection, byte[] pattern, Predicate<byte[]> consumer) {
+        ScanOptions options = ScanOptions.scanOptions()
+                .match(new String(pattern, StandardCharsets.UTF_8)).count(clearBatchSize).build();
+        if (!(connection instanceof RedisClusterConnection)) {
+            scanKeys(connection.scan(options), consumer);
+            return;
+        }
+        RedisClusterConnection clusterConnection = (RedisClusterConnection) connection;
+        for (RedisClusterNode node : clusterConnection.clusterGetNodes()) {
+            //从节点上的key和主节点相同，已经下线的主节点由新的主节点代替
+            if (node.isMaster() && !node.isMarkedAsFail()
+                    && !scanKeys(clusterConnection.scan(node, options), consumer)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return 是否遍历完成，consumer返回false时为false
+     */
+    private static boolean scanKeys(Cursor<byte[]> cursor, Predicate<byte[]> consumer) {
+        try (Cursor<byte[]> closeable = cursor) {
+            while (closeable.hasNext()) {
+                if (!consumer.test(closeable.next())) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException ex) {
+            throw new RedisSystemException("Failed to close scan cursor", ex);
+        }
+    }
+
+    /**
+     * 使用SCAN查找匹配的key，用于预热
+     *
+     * @param name    the name of the cache.
+     * @param pattern key的匹配模式
+     * @param limit   最多返回的key数量
+     * @return 匹配的key
+     */
+    public List<byte[]> scan(String name, byte[] pattern, int limit) {
+        Assert.notNull(name, "Name must not be null!");
+        Assert.notNull(pattern, "Pattern must not be null!");
+        return execute(name, connection -> {
+            List<byte[]> keys = new ArrayList<>();
+            if (limit > 0) {
+                scanKeys(connection, pattern, key -> {
+                    keys.add(key);
+                    return keys.size() < limit;
+                });
+            }
+            return keys;
+        });
+    }
+
+    private static long unlink(RedisConnection connection, List<byte[]> batch) {
+        Long count = connection.unlink(batch.toArray(new byte[0][]));
+        batch.clear();
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * 获取缓存当前的代数
+     *
+     * @param name the name of the cache.
+     * @return 代数，不存在时为0
+     */
+    public long getGeneration(String name) {
+        Assert.notNull(name, "Name must not be null!");
+        byte[] generation = executeLockFree(connection -> connection.get(createGenerationKey(name)));
+        return generation == null ? 0 : Long.parseLong(new String(generation, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 递增缓存的代数
+     *
+     * @param name the name of the cache.
+     * @return 递增之后的代数
+     */
+    public long incrementGeneration(String name) {
+        Assert.notNull(name, "Name must not be null!");
+        Long generation = executeLockFree(connection -> connection.incr(createGenerationKey(name)));
+        return generation == null ? 0 : generation;
+    }
+
+    /**
+     * 读取缓存共享的布隆过滤器
+     *
+     * @param name the name of the cache.
+     * @return bitmap，不存在时为null
+     */
+    public byte[] getBloomFilter(String name) {
+        Assert.notNull(name, "Name must not be null!");
+        return executeLockFree(connection -> connection.get(createBloomFilterKey(name)));
+    }
+
+    /**
+     * 使用pipeline设置缓存共享的布隆过滤器中的位
+     *
+     * @param name    the name of the cache.
+     * @param offsets 需要设置的位
+     */
+    public void setBloomFilterBits(String name, long[] offsets) {
+        Assert.notNull(name, "Name must not be null!");
+        Assert.notNull(offsets, "Offsets must not be null!");
+        if (offsets.length == 0) {
+            return;
+        }
+        byte[] bloomFilterKey = createBloomFilterKey(name);
+        executeLockFree(connection -> {
+            connection.openPipeline();
+            try {
+                for (long offset : offsets) {
+                    connection.setBit(bloomFilterKey, offset, true);
+                }
+            } finally {
+                connection.closePipeline();
+            }
             return "OK";
         });
     }
@@ -154,6 +468,93 @@ public class RedisCallbackCacheWriter implements RedisCacheWriter {
         executeLockFree(connection -> doUnlock(name, connection));
     }
 
+    /**
+     * 异步获取，连接工厂支持响应式连接（lettuce）时不占用线程，否则在线程池中执行
+     *
+     * @param name the name of the cache.
+     * @param key  The key to get.
+     * @return 值，不存在时为null
+     */
+    public CompletableFuture<byte[]> getAsync(String name, byte[] key) {
+        Assert.notNull(name, "Name must not be null!");
+        Assert.notNull(key, "Key must not be null!");
+        if (reactiveCommands != null) {
+            return reactiveCommands.get(key);
+        }
+        return CompletableFuture.supplyAsync(() -> get(name, key), asyncExecutor);
+    }
+
+    /**
+     * 异步写入，响应式模式下不检查缓存锁
+     *
+     * @param name  the name of the cache.
+     * @param key   The key for the cache entry.
+     * @param value The value stored for the key.
+     * @param ttl   Optional expiration time. Can be {@literal null}.
+     * @return 完成信号
+     */
+    public CompletableFuture<Void> putAsync(String name, byte[] key, byte[] value, @Nullable Duration ttl) {
+        Assert.notNull(name, "Name must not be null!");
+        Assert.notNull(key, "Key must not be null!");
+        Assert.notNull(value, "Value must not be null!");
+        if (reactiveCommands != null) {
+            Expiration expiration = shouldExpireWithin(ttl) ?
+                    withJitter(ttl) : Expiration.persistent();
+            return reactiveCommands.set(key, value, expiration).thenApply(result -> null);
+        }
+        return CompletableFuture.runAsync(() -> put(name, key, value, ttl), asyncExecutor);
+    }
+
+    /**
+     * 异步删除，响应式模式下不检查缓存锁
+     *
+     * @param name the name of the cache.
+     * @param key  The key for the cache entry.
+     * @return 完成信号
+     */
+    public CompletableFuture<Void> removeAsync(String name, byte[] key) {
+        Assert.notNull(name, "Name must not be null!");
+        Assert.notNull(key, "Key must not be null!");
+        if (reactiveCommands != null) {
+            return reactiveCommands.del(key).thenApply(result -> null);
+        }
+        return CompletableFuture.runAsync(() -> remove(name, key), asyncExecutor);
+    }
+
+    /**
+     * 尝试获取某个key的加载租约，同一时间只有一个节点能拿到，租约到期自动释放
+     *
+     * @param name      the name of the cache.
+     * @param key       缓存的key
+     * @param token     持有者标识，释放时校验
+     * @param leaseTime 租约有效时间
+     * @return 是否获取成功
+     */
+    public boolean tryLease(String name, byte[] key, byte[] token, Duration leaseTime) {
+        Assert.notNull(name, "Name must not be null!");
+        Assert.notNull(key, "Key must not be null!");
+        Assert.notNull(token, "Token must not be null!");
+        Assert.isTrue(shouldExpireWithin(leaseTime), "LeaseTime must be positive!");
+        return Boolean.TRUE.equals(executeLockFree(connection -> connection.set(createLeaseKey(key), token,
+                Expiration.from(leaseTime.toMillis(), TimeUnit.MILLISECONDS),
+                RedisStringCommands.SetOption.ifAbsent())));
+    }
+
+    /**
+     * 释放自己持有的加载租约
+     *
+     * @param name  the name of the cache.
+     * @param key   缓存的key
+     * @param token 获取租约时使用的持有者标识
+     */
+    public void releaseLease(String name, byte[] key, byte[] token) {
+        Assert.notNull(name, "Name must not be null!");
+        Assert.notNull(key, "Key must not be null!");
+        Assert.notNull(token, "Token must not be null!");
+        executeLockFree(connection -> connection.eval(RELEASE_LEASE_SCRIPT, ReturnType.INTEGER, 1,
+                createLeaseKey(key), token));
+    }
+
     private Boolean doLock(String name, RedisConnection connection) {
         return connection.setNX(createCacheLockKey(name), new byte[0]);
     }
@@ -183,10 +584,10 @@ public class RedisCallbackCacheWriter implements RedisCacheWriter {
         }
     }
 
-    private void executeLockFree(Consumer<RedisConnection> callback) {
+    private <T> T executeLockFree(Function<RedisConnection, T> callback) {
         RedisConnection connection = connectionFactory.getConnection();
         try {
-            callback.accept(connection);
+            return callback.apply(connection);
         } finally {
             connection.close();
         }
@@ -209,12 +610,68 @@ public class RedisCallbackCacheWriter implements RedisCacheWriter {
         }
     }
 
+    private Expiration withJitter(Duration ttl) {
+        long millis = ttl.toMillis();
+        if (ttlJitter > 0) {
+            millis += (long) (ThreadLocalRandom.current().nextDouble() * millis * ttlJitter);
+        }
+        return Expiration.from(millis, TimeUnit.MILLISECONDS);
+    }
+
     private static boolean shouldExpireWithin(@Nullable Duration ttl) {
         return ttl != null && !ttl.isZero() && !ttl.isNegative();
     }
 
     private static byte[] createCacheLockKey(String name) {
-        return (name + "~lock").getBytes(StandardCharsets.UTF_8);
+        return concat(name, LOCK_SUFFIX);
+    }
+
+    private static byte[] createGenerationKey(String name) {
+        return concat(name, GENERATION_SUFFIX);
+    }
+
+    private static byte[] createBloomFilterKey(String name) {
+        return concat(name, BLOOM_SUFFIX);
+    }
+
+    /**
+     * 是否是缓存内部使用的key：租约、锁、版本号、布隆过滤器和未命中记录，扫描缓存的key时需要跳过
+     * 以这些后缀结尾的业务key也会被跳过
+     *
+     * @param redisKey redis中的key
+     * @return 是否是内部使用的key
+     */
+    public static boolean isInternalKey(byte[] redisKey) {
+        return endsWith(redisKey, LEASE_SUFFIX) || endsWith(redisKey, LOCK_SUFFIX)
+                || endsWith(redisKey, GENERATION_SUFFIX) || endsWith(redisKey, BLOOM_SUFFIX)
+                || NegativeCache.isRedisKey(redisKey);
+    }
+
+    private static boolean endsWith(byte[] key, byte[] suffix) {
+        if (key.length < suffix.length) {
+            return false;
+        }
+        int offset = key.length - suffix.length;
+        for (int i = 0; i < suffix.length; i++) {
+            if (key[offset + i] != suffix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] createLeaseKey(byte[] key) {
+        return concat(key, LEASE_SUFFIX);
+    }
+
+    private static byte[] concat(String name, byte[] suffix) {
+        return concat(name.getBytes(StandardCharsets.UTF_8), suffix);
+    }
+
+    private static byte[] concat(byte[] key, byte[] suffix) {
+        byte[] result = Arrays.copyOf(key, key.length + suffix.length);
+        System.arraycopy(suffix, 0, result, key.length, suffix.length);
+        return result;
     }
 
     /**
@@ -226,4 +683,23 @@ public class RedisCallbackCacheWriter implements RedisCacheWriter {
     public void convertAndSend(String topicName, Object message) {
         redisTemplate.convertAndSend(topicName, message);
     }
-}
\ No newline at end of file
+
+    /**
+     * 发布消息时RedisTemplate使用的序列化方式
+     *
+     * @return valueSerializer，没有RedisTemplate时为null
+     */
+    public RedisSerializer<?> getValueSerializer() {
+        return redisTemplate == null ? null : redisTemplate.getValueSerializer();
+    }
+
+    /**
+     * 发布已经编码好的消息
+     *
+     * @param topicName topicName
+     * @param message   消息内容
+     */
+    public void publish(String topicName, byte[] message) {
+        executeLockFree(connection -> connection.publish(topicName.getBytes(StandardCharsets.UTF_8), message));
+    }
+}
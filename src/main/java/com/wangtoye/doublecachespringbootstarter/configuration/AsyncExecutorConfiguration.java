@@ -0,0 +1,47 @@
+package com.wangtoye.doublecachespringbootstarter.configuration;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.time.Duration;
+
+/**
+ * 异步操作线程池的配置
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 异步读写二级缓存、异步加载以及启动时构造布隆过滤器、恢复一级缓存快照都使用这个线程池，
+ * 不占用ForkJoinPool.commonPool；队列满时在提交任务的线程上直接执行
+ */
+@Data
+@Accessors(chain = true)
+public class AsyncExecutorConfiguration {
+    /**
+     * 核心线程数
+     */
+    private int corePoolSize;
+    /**
+     * 最大线程数，队列满之后才会创建核心线程以外的线程
+     */
+    private int maxPoolSize;
+    /**
+     * 等待执行的任务数量上限
+     */
+    private int queueCapacity;
+    /**
+     * 线程空闲多久之后回收
+     */
+    private Duration keepAlive;
+
+    public AsyncExecutorConfiguration(int corePoolSize, int maxPoolSize, int queueCapacity, Duration keepAlive) {
+        this.corePoolSize = corePoolSize;
+        this.maxPoolSize = maxPoolSize;
+        this.queueCapacity = queueCapacity;
+        this.keepAlive = keepAlive;
+    }
+
+    public static AsyncExecutorConfiguration defaultAsyncExecutorConfig() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        return new AsyncExecutorConfiguration(processors, processors * 2, 10000, Duration.ofSeconds(60));
+    }
+}
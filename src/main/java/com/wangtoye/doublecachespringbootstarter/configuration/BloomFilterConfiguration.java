@@ -0,0 +1,38 @@
+package com.wangtoye.doublecachespringbootstarter.configuration;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * 布隆过滤器的配置
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 适合key来自一个已知集合（例如数据库主键）的缓存，不在集合中的key直接返回未命中
+ */
+@Data
+@Accessors(chain = true)
+public class BloomFilterConfiguration {
+    /**
+     * 预计的key数量，超过之后误判率会升高
+     */
+    private long expectedInsertions;
+    /**
+     * 误判率，也就是不存在的key被当作可能存在的概率
+     */
+    private double fpp;
+    /**
+     * 是否通过redis的bitmap在节点之间共享，新启动的节点从redis读取已有的位
+     */
+    private boolean shared;
+
+    public BloomFilterConfiguration(long expectedInsertions, double fpp, boolean shared) {
+        this.expectedInsertions = expectedInsertions;
+        this.fpp = fpp;
+        this.shared = shared;
+    }
+
+    public static BloomFilterConfiguration defaultBloomFilterConfig() {
+        return new BloomFilterConfiguration(1000000, 0.01, false);
+    }
+}
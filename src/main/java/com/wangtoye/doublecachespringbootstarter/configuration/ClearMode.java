@@ -0,0 +1,24 @@
+package com.wangtoye.doublecachespringbootstarter.configuration;
+
+/**
+ * 清空二级缓存的方式
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description:
+ */
+public enum ClearMode {
+    /**
+     * 使用SCAN分批查找并UNLINK删除，在调用线程上完成。UNLINK需要redis 4.0及以上版本，
+     * 集群模式下依次SCAN每个主节点
+     */
+    SCAN,
+    /**
+     * 与SCAN相同，但是在后台线程执行，clear()立即返回
+     */
+    ASYNC_SCAN,
+    /**
+     * 递增缓存的代数从而改变key前缀，旧数据不再可见并依靠过期时间回收，清空操作是O(1)的
+     */
+    GENERATION
+}
@@ -0,0 +1,50 @@
+package com.wangtoye.doublecachespringbootstarter.configuration;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.time.Duration;
+
+/**
+ * 热点key探测的配置
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 一级缓存未命中的读取按采样率记录访问频率，频率达到阈值的key放入一个容量很小、过期时间很短的本地缓存
+ */
+@Data
+@Accessors(chain = true)
+public class HotKeyConfiguration {
+    /**
+     * 判定为热点的估算频率，1到15
+     */
+    private int threshold;
+    /**
+     * 每多少次读取记录一次，为1时记录每次读取
+     */
+    private int sampleRate;
+    /**
+     * 频率统计能区分的key数量
+     */
+    private int sketchSize;
+    /**
+     * 热点key本地缓存的最大条数
+     */
+    private int capacity;
+    /**
+     * 热点key在本地缓存中的过期时间，也是其他节点修改之后最多读到旧值的时间
+     */
+    private Duration ttl;
+
+    public HotKeyConfiguration(int threshold, int sampleRate, int sketchSize, int capacity, Duration ttl) {
+        this.threshold = threshold;
+        this.sampleRate = sampleRate;
+        this.sketchSize = sketchSize;
+        this.capacity = capacity;
+        this.ttl = ttl;
+    }
+
+    public static HotKeyConfiguration defaultHotKeyConfig() {
+        return new HotKeyConfiguration(8, 1, 4096, 100, Duration.ofSeconds(1));
+    }
+}
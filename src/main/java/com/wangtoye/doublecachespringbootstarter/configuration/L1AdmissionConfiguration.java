@@ -0,0 +1,38 @@
+package com.wangtoye.doublecachespringbootstarter.configuration;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * 二级缓存命中时放入一级缓存的准入配置
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 只在 {@link L1AdmissionMode#FREQUENCY} 模式下使用阈值和计数器数量
+ */
+@Data
+@Accessors(chain = true)
+public class L1AdmissionConfiguration {
+    /**
+     * 准入模式
+     */
+    private L1AdmissionMode mode;
+    /**
+     * 一段时间内二级缓存命中多少次之后放入一级缓存，包括本次命中
+     */
+    private int threshold;
+    /**
+     * 需要区分的key数量，一般和一级缓存的容量相当
+     */
+    private int sketchSize;
+
+    public L1AdmissionConfiguration(L1AdmissionMode mode, int threshold, int sketchSize) {
+        this.mode = mode;
+        this.threshold = threshold;
+        this.sketchSize = sketchSize;
+    }
+
+    public static L1AdmissionConfiguration defaultL1AdmissionConfig() {
+        return new L1AdmissionConfiguration(L1AdmissionMode.NONE, 2, 10000);
+    }
+}
@@ -0,0 +1,23 @@
+package com.wangtoye.doublecachespringbootstarter.configuration;
+
+/**
+ * 二级缓存命中时是否把值放入一级缓存
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description:
+ */
+public enum L1AdmissionMode {
+    /**
+     * 只有带 valueLoader 的查询和批量查询在二级缓存命中时放入一级缓存，get(key)不放入
+     */
+    NONE,
+    /**
+     * 所有查询在二级缓存命中时都放入一级缓存
+     */
+    ALWAYS,
+    /**
+     * 所有查询在二级缓存命中时按访问频率决定，只有最近被反复读取的key才放入一级缓存，避免扫描类的流量冲掉热点数据
+     */
+    FREQUENCY
+}
@@ -0,0 +1,42 @@
+package com.wangtoye.doublecachespringbootstarter.configuration;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * 一级缓存快照的配置
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 关闭时把每个缓存最热的条目写入本地文件，启动时在后台读取并放回一级缓存
+ */
+@Data
+@Accessors(chain = true)
+public class L1SnapshotConfiguration {
+    /**
+     * 快照文件
+     */
+    private Path path;
+    /**
+     * 每个缓存最多保存的条目数
+     */
+    private int maxEntriesPerCache;
+    /**
+     * 快照的最长有效时间，超过之后整个快照都不再使用
+     */
+    private Duration maxAge;
+    /**
+     * 是否用二级缓存校验，开启时只恢复二级缓存中仍然存在的key，值以二级缓存为准
+     */
+    private boolean verifyWithL2;
+
+    public L1SnapshotConfiguration(Path path, int maxEntriesPerCache, Duration maxAge, boolean verifyWithL2) {
+        this.path = path;
+        this.maxEntriesPerCache = maxEntriesPerCache;
+        this.maxAge = maxAge;
+        this.verifyWithL2 = verifyWithL2;
+    }
+}
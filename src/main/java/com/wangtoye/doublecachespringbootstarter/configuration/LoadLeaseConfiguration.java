@@ -0,0 +1,40 @@
+package com.wangtoye.doublecachespringbootstarter.configuration;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.time.Duration;
+
+/**
+ * 集群范围内合并缓存未命中加载的租约配置
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 第一个未命中的节点获取租约并加载，其他节点等待二级缓存的结果
+ */
+@Data
+@Accessors(chain = true)
+public class LoadLeaseConfiguration {
+    /**
+     * 租约有效时间，应大于一次加载的耗时，持有者宕机后租约到期自动释放
+     */
+    private Duration leaseTime;
+    /**
+     * 未获取到租约的节点等待二级缓存结果的最长时间，超时后自行加载
+     */
+    private Duration waitTime;
+    /**
+     * 等待期间查询二级缓存的间隔
+     */
+    private Duration pollInterval;
+
+    public LoadLeaseConfiguration(Duration leaseTime, Duration waitTime, Duration pollInterval) {
+        this.leaseTime = leaseTime;
+        this.waitTime = waitTime;
+        this.pollInterval = pollInterval;
+    }
+
+    public static LoadLeaseConfiguration defaultLeaseConfig() {
+        return new LoadLeaseConfiguration(Duration.ofSeconds(3), Duration.ofSeconds(1), Duration.ofMillis(20));
+    }
+}
@@ -0,0 +1,40 @@
+package com.wangtoye.doublecachespringbootstarter.configuration;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.time.Duration;
+
+/**
+ * 未命中缓存的配置
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 回源结果为null的key单独记录，使用比正常值短得多的过期时间和独立的容量，不受allowNullValues影响
+ */
+@Data
+@Accessors(chain = true)
+public class NegativeCacheConfiguration {
+    /**
+     * 本地记录的最大条数
+     */
+    private int capacity;
+    /**
+     * 本地记录的过期时间
+     */
+    private Duration ttl;
+    /**
+     * 在redis中记录的过期时间，为null时只在本地记录
+     */
+    private Duration redisTtl;
+
+    public NegativeCacheConfiguration(int capacity, Duration ttl, Duration redisTtl) {
+        this.capacity = capacity;
+        this.ttl = ttl;
+        this.redisTtl = redisTtl;
+    }
+
+    public static NegativeCacheConfiguration defaultNegativeCacheConfig() {
+        return new NegativeCacheConfiguration(10000, Duration.ofSeconds(5), null);
+    }
+}
@@ -0,0 +1,40 @@
+package com.wangtoye.doublecachespringbootstarter.configuration;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.time.Duration;
+
+/**
+ * 堆外缓存的配置
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 堆外缓存位于一级缓存和二级缓存之间，存储二级缓存序列化之后的值
+ */
+@Data
+@Accessors(chain = true)
+public class OffHeapConfiguration {
+    /**
+     * 每个缓存占用的直接内存字节数
+     */
+    private long capacity;
+    /**
+     * 分段数，每段单独加锁
+     */
+    private int segments;
+    /**
+     * 写入之后的过期时间，为null时只按容量淘汰
+     */
+    private Duration expireAfterWrite;
+
+    public OffHeapConfiguration(long capacity, int segments, Duration expireAfterWrite) {
+        this.capacity = capacity;
+        this.segments = segments;
+        this.expireAfterWrite = expireAfterWrite;
+    }
+
+    public static OffHeapConfiguration defaultOffHeapConfig() {
+        return new OffHeapConfiguration(64L * 1024 * 1024, 16, Duration.ofSeconds(60));
+    }
+}
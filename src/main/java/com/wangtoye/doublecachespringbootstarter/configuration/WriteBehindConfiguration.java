@@ -0,0 +1,45 @@
+package com.wangtoye.doublecachespringbootstarter.configuration;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.time.Duration;
+
+/**
+ * 二级缓存写后模式的配置
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 写操作立即更新一级缓存，二级缓存的写入在后台合并后通过pipeline批量执行
+ */
+@Data
+@Accessors(chain = true)
+public class WriteBehindConfiguration {
+    /**
+     * 等待写入二级缓存的最大key数量，同一个key的多次写入只占一个位置
+     */
+    private int queueCapacity;
+    /**
+     * 一次pipeline最多写入的key数量
+     */
+    private int batchSize;
+    /**
+     * 后台写入的间隔，也是二级缓存最多落后的时间
+     */
+    private Duration flushInterval;
+    /**
+     * 队列满时调用方等待的最长时间，超时后在调用线程上直接写入二级缓存
+     */
+    private Duration maxBlock;
+
+    public WriteBehindConfiguration(int queueCapacity, int batchSize, Duration flushInterval, Duration maxBlock) {
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.maxBlock = maxBlock;
+    }
+
+    public static WriteBehindConfiguration defaultWriteBehindConfig() {
+        return new WriteBehindConfiguration(10000, 500, Duration.ofMillis(5), Duration.ofMillis(100));
+    }
+}
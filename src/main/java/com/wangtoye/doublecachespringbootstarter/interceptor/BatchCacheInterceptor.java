@@ -0,0 +1,177 @@
+package com.wangtoye.doublecachespringbootstarter.interceptor;
+
+import com.wangtoye.doublecachespringbootstarter.annotation.BatchCacheable;
+import com.wangtoye.doublecachespringbootstarter.cache.DoubleCache;
+import com.wangtoye.doublecachespringbootstarter.cache.manager.DoubleCacheManager;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.cache.interceptor.CacheOperationInvoker;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * 处理 {@link BatchCacheable}，集合参数中的每个元素单独缓存，原方法只查询未命中的元素
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description:
+ */
+public class BatchCacheInterceptor implements MethodInterceptor {
+    private final Supplier<DoubleCacheManager> cacheManagerSupplier;
+    private final CacheKeyEvaluator keyEvaluator = new CacheKeyEvaluator();
+    private final ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+
+    /**
+     * @param cacheManagerSupplier 延迟获取缓存管理类，避免创建advisor的时候提前初始化缓存管理类
+     */
+    public BatchCacheInterceptor(Supplier<DoubleCacheManager> cacheManagerSupplier) {
+        this.cacheManagerSupplier = cacheManagerSupplier;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Object target = invocation.getThis();
+        Method method = target == null ? invocation.getMethod() :
+                AopUtils.getMostSpecificMethod(invocation.getMethod(), AopUtils.getTargetClass(target));
+        BatchCacheable cacheable = AnnotatedElementUtils.findMergedAnnotation(method, BatchCacheable.class);
+        if (cacheable == null) {
+            return invocation.proceed();
+        }
+        //缓存名为空时 getDoubleCache("") 会创建一个名为空字符串的缓存，不同方法的结果会混在一起
+        Assert.hasText(cacheable.cacheName(), () -> "@BatchCacheable on " + method + " must specify a cacheName");
+        Class<?> returnType = method.getReturnType();
+        boolean mapResult = Map.class.isAssignableFrom(returnType);
+        validateReturnType(method, returnType, mapResult, cacheable.elementKey());
+        int keysIndex = findKeysParameter(method, cacheable.keys());
+
+        Object[] arguments = invocation.getArguments();
+        Collection<?> keys = (Collection<?>) arguments[keysIndex];
+        DoubleCache cache = cacheManagerSupplier.get().getDoubleCache(cacheable.cacheName());
+        if (keys == null || keys.isEmpty() || cache == null) {
+            return invocation.proceed();
+        }
+
+        Map<Object, Object> values;
+        try {
+            values = cache.getAll(keys, missingKeys -> {
+                //只用未命中的元素调用原方法，调用发生在当前线程，可以直接替换参数
+                arguments[keysIndex] = copyKeys(missingKeys, method.getParameterTypes()[keysIndex]);
+                try {
+                    return toMap(invocation.proceed(), mapResult, cacheable.elementKey());
+                } catch (RuntimeException | Error ex) {
+                    throw ex;
+                } catch (Throwable ex) {
+                    throw new CacheOperationInvoker.ThrowableWrapper(ex);
+                }
+            });
+        } catch (CacheOperationInvoker.ThrowableWrapper ex) {
+            throw ex.getOriginal();
+        } finally {
+            arguments[keysIndex] = keys;
+        }
+        return assemble(values, keys, returnType, mapResult);
+    }
+
+    /**
+     * 原方法的返回值转换成key和值
+     */
+    private Map<Object, Object> toMap(Object result, boolean mapResult, String elementKey) {
+        Map<Object, Object> values = new LinkedHashMap<>();
+        if (result == null) {
+            return values;
+        }
+        if (mapResult) {
+            values.putAll((Map<?, ?>) result);
+            return values;
+        }
+        for (Object element : (Collection<?>) result) {
+            if (element != null) {
+                values.put(keyEvaluator.evaluateOn(elementKey, element), element);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 按照参数中key的顺序拼装返回值
+     */
+    private static Object assemble(Map<Object, Object> values, Collection<?> keys, Class<?> returnType,
+                                   boolean mapResult) {
+        Set<Object> orderedKeys = new LinkedHashSet<>(keys);
+        if (mapResult) {
+            Map<Object, Object> result = new LinkedHashMap<>();
+            for (Object key : orderedKeys) {
+                if (values.containsKey(key)) {
+                    result.put(key, values.get(key));
+                }
+            }
+            return result;
+        }
+        Collection<Object> result = returnType.isAssignableFrom(ArrayList.class) ?
+                new ArrayList<>(values.size()) : new LinkedHashSet<>();
+        for (Object key : orderedKeys) {
+            Object value = values.get(key);
+            if (value != null) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    private static Collection<Object> copyKeys(Set<Object> keys, Class<?> parameterType) {
+        return parameterType.isAssignableFrom(ArrayList.class) ? new ArrayList<>(keys) : new LinkedHashSet<>(keys);
+    }
+
+    private static void validateReturnType(Method method, Class<?> returnType, boolean mapResult,
+                                           String elementKey) {
+        if (mapResult) {
+            if (!returnType.isAssignableFrom(LinkedHashMap.class)) {
+                throw new IllegalStateException("@BatchCacheable method must return Map, found " + method);
+            }
+            return;
+        }
+        if (!returnType.isAssignableFrom(ArrayList.class) && !returnType.isAssignableFrom(LinkedHashSet.class)) {
+            throw new IllegalStateException("@BatchCacheable method must return Map, List, Set or Collection, found "
+                    + method);
+        }
+        if (!StringUtils.hasText(elementKey)) {
+            throw new IllegalStateException("@BatchCacheable method returning a collection requires elementKey: "
+                    + method);
+        }
+    }
+
+    /**
+     * 找到作为key集合的参数
+     *
+     * @param method 方法
+     * @param name   参数名，为空时使用第一个 Collection 类型的参数
+     * @return 参数的位置
+     */
+    private int findKeysParameter(Method method, String name) {
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        String[] parameterNames = StringUtils.hasText(name) ? parameterNameDiscoverer.getParameterNames(method) : null;
+        for (int i = 0; i < parameterTypes.length; i++) {
+            boolean matched = parameterNames == null ? !StringUtils.hasText(name) : name.equals(parameterNames[i]);
+            if (matched && Collection.class.isAssignableFrom(parameterTypes[i])
+                    && (parameterTypes[i].isAssignableFrom(ArrayList.class)
+                    || parameterTypes[i].isAssignableFrom(LinkedHashSet.class))) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("@BatchCacheable method has no List, Set or Collection parameter"
+                + (StringUtils.hasText(name) ? " named '" + name + "'" : "") + ": " + method);
+    }
+}
@@ -0,0 +1,78 @@
+package com.wangtoye.doublecachespringbootstarter.interceptor;
+
+import org.springframework.cache.interceptor.SimpleKeyGenerator;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.util.StringUtils;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 缓存注解中key表达式的计算，解析过的表达式会被缓存
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description:
+ */
+public class CacheKeyEvaluator {
+    private final SpelExpressionParser parser = new SpelExpressionParser();
+    private final ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+    private final Map<String, Expression> expressionCache = new ConcurrentHashMap<>();
+
+    /**
+     * 计算方法调用对应的缓存key
+     *
+     * @param keyExpression key的SpEL表达式，为空时使用全部参数
+     * @param method        方法
+     * @param args          参数
+     * @param target        被调用的对象
+     * @return key
+     */
+    public Object generateKey(String keyExpression, Method method, Object[] args, Object target) {
+        if (!StringUtils.hasText(keyExpression)) {
+            return SimpleKeyGenerator.generateKey(args);
+        }
+        return evaluate(keyExpression, createContext(method, args, target));
+    }
+
+    /**
+     * 创建方法调用的计算上下文，根对象是被调用的对象
+     *
+     * @param method 方法
+     * @param args   参数
+     * @param target 被调用的对象
+     * @return 上下文
+     */
+    public EvaluationContext createContext(Method method, Object[] args, Object target) {
+        return new MethodBasedEvaluationContext(target, method, args, parameterNameDiscoverer);
+    }
+
+    /**
+     * 以指定对象为根对象计算表达式，例如从返回的元素中取出它的key
+     *
+     * @param expression 表达式
+     * @param root       根对象
+     * @return 结果
+     */
+    public Object evaluateOn(String expression, Object root) {
+        return evaluate(expression, new StandardEvaluationContext(root));
+    }
+
+    /**
+     * 在指定上下文中计算表达式
+     *
+     * @param expression 表达式
+     * @param context    上下文
+     * @return 结果
+     */
+    public Object evaluate(String expression, EvaluationContext context) {
+        return expressionCache.computeIfAbsent(expression, parser::parseExpression).getValue(context);
+    }
+}
@@ -0,0 +1,79 @@
+package com.wangtoye.doublecachespringbootstarter.interceptor;
+
+import com.wangtoye.doublecachespringbootstarter.annotation.ReactiveCacheable;
+import com.wangtoye.doublecachespringbootstarter.cache.ReactiveDoubleCache;
+import com.wangtoye.doublecachespringbootstarter.cache.manager.DoubleCacheManager;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.reactivestreams.Publisher;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Method;
+import java.util.function.Supplier;
+
+/**
+ * 处理 {@link ReactiveCacheable}，只有缓存未命中时才会订阅原方法返回的 Mono/Flux
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description:
+ */
+public class ReactiveCacheInterceptor implements MethodInterceptor {
+    private final Supplier<DoubleCacheManager> cacheManagerSupplier;
+    private final CacheKeyEvaluator keyEvaluator = new CacheKeyEvaluator();
+
+    /**
+     * @param cacheManagerSupplier 延迟获取缓存管理类，避免创建advisor的时候提前初始化缓存管理类
+     */
+    public ReactiveCacheInterceptor(Supplier<DoubleCacheManager> cacheManagerSupplier) {
+        this.cacheManagerSupplier = cacheManagerSupplier;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Object target = invocation.getThis();
+        Method method = target == null ? invocation.getMethod() :
+                AopUtils.getMostSpecificMethod(invocation.getMethod(), AopUtils.getTargetClass(target));
+        ReactiveCacheable cacheable = AnnotatedElementUtils.findMergedAnnotation(method, ReactiveCacheable.class);
+        Class<?> returnType = method.getReturnType();
+        if (cacheable == null || !(Mono.class.isAssignableFrom(returnType) || Flux.class.isAssignableFrom(returnType))) {
+            return invocation.proceed();
+        }
+        //缓存名为空时 getCache("") 会创建一个名为空字符串的缓存，不同方法的结果会混在一起
+        Assert.hasText(cacheable.cacheName(), () -> "@ReactiveCacheable on " + method + " must specify a cacheName");
+        ReactiveDoubleCache cache = cacheManagerSupplier.get().getReactiveCache(cacheable.cacheName());
+        if (cache == null) {
+            return invocation.proceed();
+        }
+
+        Object key = keyEvaluator.generateKey(cacheable.key(), method, invocation.getArguments(), target);
+        //原方法在未命中时才调用，那时候当前的调用链已经返回，需要复制一份调用链
+        MethodInvocation deferred = invocation instanceof ProxyMethodInvocation ?
+                ((ProxyMethodInvocation) invocation).invocableClone() : invocation;
+        if (Mono.class.isAssignableFrom(returnType)) {
+            return cache.get(key, () -> Mono.from(proceed(deferred)));
+        }
+        return cache.getFlux(key, () -> Flux.from(proceed(deferred)));
+    }
+
+    /**
+     * 调用原方法，原方法返回null时按空处理
+     *
+     * @param invocation 调用链
+     * @return 原方法返回的 Mono/Flux
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Publisher<T> proceed(MethodInvocation invocation) {
+        try {
+            Object result = invocation.proceed();
+            return result == null ? Mono.empty() : (Publisher<T>) result;
+        } catch (Throwable ex) {
+            return Mono.error(ex);
+        }
+    }
+}
@@ -1,10 +1,10 @@
 package com.wangtoye.doublecachespringbootstarter.listener;
 
-import com.wangtoye.doublecachespringbootstarter.cache.manager.DoubleCacheManager;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 
 import java.io.Serializable;
-import java.util.UUID;
+import java.util.List;
 
 /**
  * Created with IntelliJ IDEA.
@@ -16,17 +16,41 @@ import java.util.UUID;
 @Data
 public class DoubleCacheMessage implements Serializable {
     private String cacheName;
+    /**
+     * 二进制消息中代替缓存名的id，见 {@link DoubleCacheMessageCodec#cacheId(String)}；
+     * 以下新增字段为默认值时不写入json，旧格式的消息只有cacheName、key、uuid，旧版本节点才能解析
+     */
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private int cacheId;
     private Object key;
+    /**
+     * 批量失效的key，不为null时忽略key字段；
+     * 不认识这个字段的旧节点看到的key为null，会清空整个一级缓存，仍然是安全的
+     */
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private List<Object> keys;
+    /**
+     * 发布消息的节点id，用于忽略自己发布的消息，0表示来源未知
+     */
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private long nodeId;
+    /**
+     * 旧版本节点用来识别自己发布的消息；以旧格式发布时写入 {@link DoubleCacheMessageCodec#legacyUuid(long)}
+     */
     private String uuid;
 
     public DoubleCacheMessage() {
     }
 
-    public DoubleCacheMessage(String cacheName, Object key) {
+    public DoubleCacheMessage(String cacheName, Object key, long nodeId) {
         this.cacheName = cacheName;
+        this.cacheId = DoubleCacheMessageCodec.cacheId(cacheName);
         this.key = key;
-        //自动创建一个uuid，防止订阅到自己发布的消息
-        this.uuid = UUID.randomUUID().toString();
-        DoubleCacheManager.uuidList.add(this.uuid);
+        this.nodeId = nodeId;
+    }
+
+    public DoubleCacheMessage(String cacheName, List<Object> keys, long nodeId) {
+        this(cacheName, (Object) null, nodeId);
+        this.keys = keys;
     }
 }
@@ -0,0 +1,417 @@
+package com.wangtoye.doublecachespringbootstarter.listener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 失效通知的二进制编解码
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 格式为
+ * <pre>
+ * magic(1) version(1) flags(1) nodeId(8) cacheId(4) keyCount(varint) [keyType(1) keyBytes]...
+ * </pre>
+ * 版本1使用16字节的uuid代替nodeId，解析时当作来源未知的消息处理；
+ * cacheId是缓存名的hashCode，各节点计算结果一致；String、Long、Integer、UUID类型的key直接写入，
+ * 其他类型的key使用后备的序列化方式，和旧格式一样使用RedisTemplate的序列化方式，不会在收到的消息上使用JDK反序列化；
+ * 没有后备的序列化方式或者序列化失败时，这条消息改为清空整个缓存，发布方不会因为key无法编码而失败。
+ * 新版本节点两种格式都能解析，旧版本节点只能解析RedisTemplate序列化的消息，收到二进制消息时反序列化失败，
+ * 这条失效通知就丢失了，所以滚动升级期间要用 {@link DoubleCacheMessagePublisher#setLegacyFormat(boolean)}
+ * 继续发布旧格式，全部节点升级之后再关闭
+ */
+public class DoubleCacheMessageCodec {
+    private static final Logger logger = LoggerFactory.getLogger(DoubleCacheMessageCodec.class);
+    private static final byte MAGIC = (byte) 0xDC;
+    private static final byte VERSION = 2;
+    private static final byte VERSION_UUID = 1;
+    private static final int FLAG_CLEAR = 1;
+
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_LONG = 2;
+    private static final byte TYPE_INTEGER = 3;
+    private static final byte TYPE_UUID = 4;
+    private static final byte TYPE_SERIALIZED = 5;
+
+    /**
+     * 旧格式消息中代表节点id的uuid的高位，旧版本节点生成的随机uuid不会是这个值
+     */
+    private static final long LEGACY_UUID_MSB = 0x646f75626c65L;
+
+    private final RedisSerializer<Object> fallbackSerializer;
+    /**
+     * 已经提示过有key无法编码的缓存，每个缓存只提示一次
+     */
+    private final Set<String> unencodableCacheNames = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 没有后备的序列化方式，其他类型的key的失效通知改为清空整个缓存
+     */
+    public DoubleCacheMessageCodec() {
+        this(null);
+    }
+
+    /**
+     * @param fallbackSerializer 不是常见类型的key使用的序列化方式，通常是RedisTemplate的valueSerializer，
+     *                           为null时这类key的失效通知改为清空整个缓存
+     */
+    public DoubleCacheMessageCodec(RedisSerializer<Object> fallbackSerializer) {
+        this.fallbackSerializer = fallbackSerializer;
+    }
+
+    /**
+     * 缓存名对应的id，不同节点上同一个缓存名的id相同
+     *
+     * @param cacheName 缓存名
+     * @return id
+     */
+    public static int cacheId(String cacheName) {
+        return cacheName.hashCode();
+    }
+
+    /**
+     * 以旧格式发布时代替节点id的uuid，旧版本节点不认识这个uuid，会正常清除一级缓存
+     *
+     * @param nodeId 节点id
+     * @return uuid
+     */
+    public static String legacyUuid(long nodeId) {
+        return new UUID(LEGACY_UUID_MSB, nodeId).toString();
+    }
+
+    /**
+     * 从旧格式消息的uuid中取出节点id
+     *
+     * @param uuid uuid
+     * @return 节点id，不是 {@link #legacyUuid(long)} 生成的uuid时返回0
+     */
+    public static long legacyNodeId(String uuid) {
+        if (uuid == null) {
+            return 0;
+        }
+        try {
+            UUID parsed = UUID.fromString(uuid);
+            return parsed.getMostSignificantBits() == LEGACY_UUID_MSB ? parsed.getLeastSignificantBits() : 0;
+        } catch (IllegalArgumentException ex) {
+            return 0;
+        }
+    }
+
+    /**
+     * 判断消息是否是本编码格式，旧版本节点发布的消息使用RedisTemplate的序列化方式
+     *
+     * @param body 消息内容
+     * @return 是否是本编码格式
+     */
+    public boolean isEncoded(byte[] body) {
+        return body != null && body.length > 1 && body[0] == MAGIC;
+    }
+
+    /**
+     * 编码，有key无法编码时改为清空整个缓存的消息
+     *
+     * @param message 消息
+     * @return 二进制内容
+     */
+    public byte[] encode(DoubleCacheMessage message) {
+        try {
+            return encode(message, false);
+        } catch (SerializationException ex) {
+            if (unencodableCacheNames.add(String.valueOf(message.getCacheName()))) {
+                logger.warn("缓存{}的key无法编码到失效通知中，改为通知其他节点清空整个缓存，" +
+                        "请使用String、Long、Integer、UUID类型的key或者设置RedisTemplate的valueSerializer",
+                        message.getCacheName(), ex);
+            }
+            return encode(message, true);
+        }
+    }
+
+    private byte[] encode(DoubleCacheMessage message, boolean clearCache) {
+        List<Object> keys = message.getKeys();
+        boolean clear = clearCache || keys == null && message.getKey() == null;
+        Output out = new Output(keys == null ? 40 : 24 + keys.size() * 16);
+        out.writeByte(MAGIC);
+        out.writeByte(VERSION);
+        out.writeByte(clear ? FLAG_CLEAR : 0);
+        out.writeLong(message.getNodeId());
+        out.writeInt(cacheId(message.getCacheName()));
+        if (clear) {
+            out.writeVarInt(0);
+        } else if (keys == null) {
+            out.writeVarInt(1);
+            writeKey(out, message.getKey());
+        } else {
+            out.writeVarInt(keys.size());
+            for (Object key : keys) {
+                writeKey(out, key);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 解码，解码出的消息没有缓存名，只有 {@link DoubleCacheMessage#getCacheId()}
+     *
+     * @param body 二进制内容
+     * @return 消息
+     */
+    public DoubleCacheMessage decode(byte[] body) {
+        Input in = new Input(body);
+        if (in.readByte() != MAGIC) {
+            throw new SerializationException("Not a double cache message");
+        }
+        byte version = in.readByte();
+        if (version != VERSION && version != VERSION_UUID) {
+            throw new SerializationException("Unsupported double cache message version " + version);
+        }
+        int flags = in.readByte();
+        DoubleCacheMessage message = new DoubleCacheMessage();
+        if (version == VERSION_UUID) {
+            in.readLong();
+            in.readLong();
+        } else {
+            message.setNodeId(in.readLong());
+        }
+        message.setCacheId(in.readInt());
+        int count = in.readVarInt();
+        if ((flags & FLAG_CLEAR) != 0) {
+            return message;
+        }
+        if (count == 1) {
+            message.setKey(readKey(in));
+        } else {
+            List<Object> keys = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                keys.add(readKey(in));
+            }
+            message.setKeys(keys);
+        }
+        return message;
+    }
+
+    private void writeKey(Output out, Object key) {
+        if (key instanceof String) {
+            out.writeByte(TYPE_STRING);
+            out.writeUtf8((String) key);
+        } else if (key instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong((Long) key);
+        } else if (key instanceof Integer) {
+            out.writeByte(TYPE_INTEGER);
+            out.writeInt((Integer) key);
+        } else if (key instanceof UUID) {
+            out.writeByte(TYPE_UUID);
+            out.writeLong(((UUID) key).getMostSignificantBits());
+            out.writeLong(((UUID) key).getLeastSignificantBits());
+        } else {
+            if (fallbackSerializer == null) {
+                throw new SerializationException("No fallback serializer for key type " + key.getClass().getName());
+            }
+            byte[] bytes = fallbackSerializer.serialize(key);
+            if (bytes == null) {
+                throw new SerializationException("Fallback serializer returned null for key type "
+                        + key.getClass().getName());
+            }
+            out.writeByte(TYPE_SERIALIZED);
+            out.writeVarInt(bytes.length);
+            out.writeBytes(bytes);
+        }
+    }
+
+    private Object readKey(Input in) {
+        byte type = in.readByte();
+        switch (type) {
+            case TYPE_STRING:
+                return in.readUtf8();
+            case TYPE_LONG:
+                return in.readLong();
+            case TYPE_INTEGER:
+                return in.readInt();
+            case TYPE_UUID:
+                return new UUID(in.readLong(), in.readLong());
+            case TYPE_SERIALIZED:
+                if (fallbackSerializer == null) {
+                    throw new SerializationException("No fallback serializer for serialized key");
+                }
+                return fallbackSerializer.deserialize(in.readBytes(in.readVarInt()));
+            default:
+                throw new SerializationException("Unknown key type " + type);
+        }
+    }
+
+    /**
+     * 按需扩容的写缓冲区
+     */
+    private static final class Output {
+        private byte[] buf;
+        private int pos;
+
+        Output(int capacity) {
+            this.buf = new byte[capacity];
+        }
+
+        private void ensure(int size) {
+            if (pos + size > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length << 1, pos + size));
+            }
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            buf[pos++] = (byte) b;
+        }
+
+        void writeInt(int v) {
+            ensure(4);
+            buf[pos++] = (byte) (v >>> 24);
+            buf[pos++] = (byte) (v >>> 16);
+            buf[pos++] = (byte) (v >>> 8);
+            buf[pos++] = (byte) v;
+        }
+
+        void writeLong(long v) {
+            writeInt((int) (v >>> 32));
+            writeInt((int) v);
+        }
+
+        void writeVarInt(int v) {
+            ensure(5);
+            while ((v & ~0x7F) != 0) {
+                buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[pos++] = (byte) v;
+        }
+
+        void writeBytes(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+            pos += bytes.length;
+        }
+
+        /**
+         * 直接把字符串按UTF-8写入缓冲区，不创建中间的byte数组
+         */
+        void writeUtf8(String s) {
+            int length = s.length();
+            int utf8Length = 0;
+            for (int i = 0; i < length; i++) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    utf8Length++;
+                } else if (c < 0x800) {
+                    utf8Length += 2;
+                } else if (Character.isSurrogate(c)) {
+                    //代理对按4字节计算，单独出现的代理字符按'?'处理
+                    if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                        utf8Length += 4;
+                        i++;
+                    } else {
+                        utf8Length++;
+                    }
+                } else {
+                    utf8Length += 3;
+                }
+            }
+            writeVarInt(utf8Length);
+            ensure(utf8Length);
+            for (int i = 0; i < length; i++) {
+                char c = s.charAt(i);
+                if (c < 0x80) {
+                    buf[pos++] = (byte) c;
+                } else if (c < 0x800) {
+                    buf[pos++] = (byte) (0xC0 | (c >> 6));
+                    buf[pos++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                        int cp = Character.toCodePoint(c, s.charAt(++i));
+                        buf[pos++] = (byte) (0xF0 | (cp >> 18));
+                        buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                        buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                        buf[pos++] = (byte) (0x80 | (cp & 0x3F));
+                    } else {
+                        buf[pos++] = '?';
+                    }
+                } else {
+                    buf[pos++] = (byte) (0xE0 | (c >> 12));
+                    buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buf[pos++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+        }
+
+        byte[] toByteArray() {
+            return pos == buf.length ? buf : Arrays.copyOf(buf, pos);
+        }
+    }
+
+    /**
+     * 读缓冲区，直接在消息内容上读取
+     */
+    private static final class Input {
+        private final byte[] buf;
+        private int pos;
+
+        Input(byte[] buf) {
+            this.buf = buf;
+        }
+
+        private void require(int size) {
+            if (pos + size > buf.length) {
+                throw new SerializationException("Truncated double cache message");
+            }
+        }
+
+        byte readByte() {
+            require(1);
+            return buf[pos++];
+        }
+
+        int readInt() {
+            require(4);
+            return ((buf[pos++] & 0xFF) << 24) | ((buf[pos++] & 0xFF) << 16)
+                    | ((buf[pos++] & 0xFF) << 8) | (buf[pos++] & 0xFF);
+        }
+
+        long readLong() {
+            return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+        }
+
+        int readVarInt() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                byte b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new SerializationException("Malformed varint in double cache message");
+        }
+
+        byte[] readBytes(int length) {
+            require(length);
+            byte[] bytes = Arrays.copyOfRange(buf, pos, pos + length);
+            pos += length;
+            return bytes;
+        }
+
+        String readUtf8() {
+            int length = readVarInt();
+            require(length);
+            String s = new String(buf, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return s;
+        }
+    }
+}
@@ -1,12 +1,9 @@
 package com.wangtoye.doublecachespringbootstarter.listener;
 
 import com.wangtoye.doublecachespringbootstarter.cache.manager.DoubleCacheManager;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.data.redis.connection.Message;
 import org.springframework.data.redis.connection.MessageListener;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.util.StringUtils;
 
 /**
  * 通知节点同步数据
@@ -16,31 +13,39 @@ import org.springframework.util.StringUtils;
  * Description:
  */
 public class DoubleCacheMessageListener implements MessageListener {
-    private static final Logger logger = LoggerFactory.getLogger(DoubleCacheMessageListener.class);
-
     private RedisTemplate<String, Object> redisTemplate;
     private DoubleCacheManager doubleCacheManager;
+    private DoubleCacheMessageCodec messageCodec;
 
     public DoubleCacheMessageListener(RedisTemplate<String, Object> redisTemplate,
                                       DoubleCacheManager doubleCacheManager) {
         this.redisTemplate = redisTemplate;
         this.doubleCacheManager = doubleCacheManager;
+        this.messageCodec = doubleCacheManager.getMessageCodec();
     }
 
     @Override
     public void onMessage(Message message, byte[] pattern) {
-        DoubleCacheMessage doubleCacheMessage =
-                (DoubleCacheMessage) redisTemplate.getValueSerializer().deserialize(message.getBody());
-        if (doubleCacheMessage != null) {
-            logger.info("接受到订阅的消息，内容是{}", doubleCacheMessage.toString());
-            String uuid = doubleCacheMessage.getUuid();
-            if (!StringUtils.isEmpty(uuid) && DoubleCacheManager.uuidList.contains(uuid)) {
-                DoubleCacheManager.uuidList.remove(uuid);
-                logger.info("接受到当前节点发布的信息，不需要清除一级缓存");
-            } else {
-                logger.info("开始清除一级缓存");
-                doubleCacheManager.clearL1Cache(doubleCacheMessage.getCacheName(), doubleCacheMessage.getKey());
+        byte[] body = message.getBody();
+        //兼容旧版本节点使用RedisTemplate序列化的消息
+        DoubleCacheMessage doubleCacheMessage = messageCodec.isEncoded(body) ? messageCodec.decode(body) :
+                (DoubleCacheMessage) redisTemplate.getValueSerializer().deserialize(body);
+        if (doubleCacheMessage != null && doubleCacheMessage.getNodeId() == 0) {
+            //以旧格式发布的消息，节点id在uuid中
+            doubleCacheMessage.setNodeId(DoubleCacheMessageCodec.legacyNodeId(doubleCacheMessage.getUuid()));
+        }
+        if (doubleCacheMessage == null || doubleCacheMessage.getNodeId() == doubleCacheManager.getNodeId()) {
+            //当前节点发布的信息，不需要清除一级缓存
+            return;
+        }
+        int cacheId = doubleCacheMessage.getCacheName() == null ? doubleCacheMessage.getCacheId() :
+                DoubleCacheMessageCodec.cacheId(doubleCacheMessage.getCacheName());
+        if (doubleCacheMessage.getKeys() != null) {
+            for (Object key : doubleCacheMessage.getKeys()) {
+                doubleCacheManager.clearL1Cache(cacheId, key);
             }
+        } else {
+            doubleCacheManager.clearL1Cache(cacheId, doubleCacheMessage.getKey());
         }
     }
 }
@@ -0,0 +1,242 @@
+package com.wangtoye.doublecachespringbootstarter.listener;
+
+import com.wangtoye.doublecachespringbootstarter.cache.writer.RedisCallbackCacheWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 发布一级缓存失效通知
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 开启批量发布后，同一个缓存在一个时间窗口内的key会去重合并成一条消息，在后台线程发布
+ */
+public class DoubleCacheMessagePublisher {
+    private static final Logger logger = LoggerFactory.getLogger(DoubleCacheMessagePublisher.class);
+
+    private final RedisCallbackCacheWriter redisCacheWriter;
+    private final DoubleCacheMessageCodec messageCodec;
+    private final String topic;
+    private final long nodeId;
+    private final Duration batchWindow;
+    private final int batchSize;
+    /**
+     * 每个缓存等待发布的key
+     */
+    private final Map<String, Set<Object>> pendingKeys = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor executor;
+    private volatile boolean legacyFormat;
+
+    /**
+     * @param redisCacheWriter 发布消息使用的redis操作类
+     * @param messageCodec     消息编码方式
+     * @param topic            发布订阅的主题
+     * @param nodeId           当前节点id
+     * @param batchWindow      合并的时间窗口，为0时在调用线程上逐条发布
+     * @param batchSize        一条消息最多合并的key数量，达到之后立即发布
+     */
+    public DoubleCacheMessagePublisher(RedisCallbackCacheWriter redisCacheWriter,
+                                       DoubleCacheMessageCodec messageCodec, String topic, long nodeId,
+                                       Duration batchWindow, int batchSize) {
+        Assert.notNull(redisCacheWriter, "RedisCacheWriter must not be null!");
+        Assert.isTrue(batchSize > 0, "BatchSize must be positive!");
+        this.redisCacheWriter = redisCacheWriter;
+        this.messageCodec = messageCodec;
+        this.topic = topic;
+        this.nodeId = nodeId;
+        this.batchWindow = batchWindow == null || batchWindow.isNegative() ? Duration.ZERO : batchWindow;
+        this.batchSize = batchSize;
+        if (this.batchWindow.isZero()) {
+            this.executor = null;
+        } else {
+            this.executor = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread thread = new Thread(r, "double-cache-publisher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            //关闭时不再等待时间窗口结束，等待中的key在shutdown中直接发布
+            this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        }
+    }
+
+    /**
+     * 通知其他节点清除一级缓存
+     *
+     * @param cacheName 缓存名
+     * @param key       键，为null表示清空整个缓存
+     */
+    public void publish(String cacheName, Object key) {
+        if (executor == null || executor.isShutdown()) {
+            //关闭之后不再合并，在调用线程上逐条发布
+            send(new DoubleCacheMessage(cacheName, key, nodeId));
+            return;
+        }
+        if (key == null) {
+            //清空整个缓存的消息会覆盖还没发布的key
+            pendingKeys.remove(cacheName);
+            submit(() -> send(new DoubleCacheMessage(cacheName, null, nodeId)), 0);
+            return;
+        }
+
+        int[] size = new int[1];
+        pendingKeys.compute(cacheName, (name, keys) -> {
+            if (keys == null) {
+                keys = new LinkedHashSet<>();
+            }
+            keys.add(key);
+            size[0] = keys.size();
+            return keys;
+        });
+        if (size[0] == 1) {
+            submit(() -> flush(cacheName), batchWindow.toNanos());
+        } else if (size[0] == batchSize) {
+            submit(() -> flush(cacheName), 0);
+        }
+    }
+
+    /**
+     * 在后台线程执行，检查之后才关闭的后台线程会拒绝任务，这时在调用线程上直接执行
+     *
+     * @param task       任务
+     * @param delayNanos 延迟的纳秒数，为0时立即执行
+     */
+    private void submit(Runnable task, long delayNanos) {
+        try {
+            if (delayNanos > 0) {
+                executor.schedule(task, delayNanos, TimeUnit.NANOSECONDS);
+            } else {
+                executor.execute(task);
+            }
+        } catch (RejectedExecutionException ex) {
+            task.run();
+        }
+    }
+
+    /**
+     * 通知其他节点清除一级缓存中的多个key，不开启批量发布时也按batchSize合并成尽量少的消息
+     *
+     * @param cacheName 缓存名
+     * @param keys      键
+     */
+    public void publishAll(String cacheName, Collection<?> keys) {
+        if (executor != null && !executor.isShutdown()) {
+            for (Object key : keys) {
+                publish(cacheName, key);
+            }
+            return;
+        }
+        sendAll(cacheName, keys);
+    }
+
+    /**
+     * 发布某个缓存等待中的key。触发发布到真正取出之间还可能有新的key加入，取出的key可能超过batchSize
+     *
+     * @param cacheName 缓存名
+     */
+    private void flush(String cacheName) {
+        Set<Object> keys = pendingKeys.remove(cacheName);
+        if (keys != null && !keys.isEmpty()) {
+            sendAll(cacheName, keys);
+        }
+    }
+
+    /**
+     * 按batchSize拆分成多条消息发布
+     *
+     * @param cacheName 缓存名
+     * @param keys      键
+     */
+    private void sendAll(String cacheName, Collection<?> keys) {
+        List<Object> batch = new ArrayList<>(Math.min(keys.size(), batchSize));
+        for (Object key : keys) {
+            batch.add(key);
+            if (batch.size() == batchSize) {
+                send(new DoubleCacheMessage(cacheName, batch, nodeId));
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            send(new DoubleCacheMessage(cacheName, batch, nodeId));
+        }
+    }
+
+    /**
+     * 是否使用旧格式发布，滚动升级期间还有旧版本节点时开启，见 {@link DoubleCacheMessageCodec}
+     *
+     * @param legacyFormat 是否使用旧格式
+     */
+    public void setLegacyFormat(boolean legacyFormat) {
+        this.legacyFormat = legacyFormat;
+    }
+
+    private void send(DoubleCacheMessage message) {
+        try {
+            if (legacyFormat) {
+                sendLegacy(message);
+            } else {
+                redisCacheWriter.publish(topic, messageCodec.encode(message));
+            }
+        } catch (RuntimeException ex) {
+            if (executor == null) {
+                throw ex;
+            }
+            logger.warn("发布缓存{}的失效通知失败", message.getCacheName(), ex);
+        }
+    }
+
+    /**
+     * 按旧格式通过RedisTemplate发布，旧版本节点不认识批量的key，每个key单独发布一条消息
+     *
+     * @param message 消息
+     */
+    private void sendLegacy(DoubleCacheMessage message) {
+        String uuid = DoubleCacheMessageCodec.legacyUuid(nodeId);
+        if (message.getKeys() == null) {
+            redisCacheWriter.convertAndSend(topic, legacyMessage(message.getCacheName(), message.getKey(), uuid));
+            return;
+        }
+        for (Object key : message.getKeys()) {
+            redisCacheWriter.convertAndSend(topic, legacyMessage(message.getCacheName(), key, uuid));
+        }
+    }
+
+    private static DoubleCacheMessage legacyMessage(String cacheName, Object key, String uuid) {
+        //只设置旧版本节点认识的字段，其余字段为默认值时不会写入
+        DoubleCacheMessage message = new DoubleCacheMessage();
+        message.setCacheName(cacheName);
+        message.setKey(key);
+        message.setUuid(uuid);
+        return message;
+    }
+
+    /**
+     * 停止后台线程并立即发布所有等待中的key，之后的发布在调用线程上逐条进行
+     */
+    public void shutdown() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        for (String cacheName : new ArrayList<>(pendingKeys.keySet())) {
+            flush(cacheName);
+        }
+    }
+}
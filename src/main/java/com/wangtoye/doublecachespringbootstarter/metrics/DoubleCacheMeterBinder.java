@@ -0,0 +1,132 @@
+package com.wangtoye.doublecachespringbootstarter.metrics;
+
+import com.wangtoye.doublecachespringbootstarter.cache.DoubleCache;
+import com.wangtoye.doublecachespringbootstarter.cache.support.DoubleCacheStats;
+import com.wangtoye.doublecachespringbootstarter.cache.support.HotKeyDetector;
+import com.wangtoye.doublecachespringbootstarter.cache.support.KeyBloomFilter;
+import com.wangtoye.doublecachespringbootstarter.cache.support.NegativeCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个双缓存的指标
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 除了通用的cache.gets/cache.puts之外，按级别统计命中，并统计加载耗时和失效通知数量
+ */
+public class DoubleCacheMeterBinder extends CacheMeterBinder {
+    private final DoubleCacheStats stats;
+    private final DoubleCache doubleCache;
+
+    public DoubleCacheMeterBinder(DoubleCache doubleCache, Iterable<Tag> tags) {
+        super(doubleCache, doubleCache.getName(), tags);
+        this.doubleCache = doubleCache;
+        this.stats = doubleCache.getStats();
+    }
+
+    @Override
+    protected Long size() {
+        return doubleCache.estimatedL1Size();
+    }
+
+    @Override
+    protected long hitCount() {
+        return stats.l1HitCount() + stats.l2HitCount();
+    }
+
+    @Override
+    protected Long missCount() {
+        return stats.missCount();
+    }
+
+    @Override
+    protected Long evictionCount() {
+        return null;
+    }
+
+    @Override
+    protected long putCount() {
+        return stats.putCount();
+    }
+
+    @Override
+    protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+        FunctionCounter.builder("cache.level.hits", stats, DoubleCacheStats::l1HitCount)
+                .tags(getTagsWithCacheName()).tag("level", "l1")
+                .description("The number of times cache lookup methods have returned a value from the given level")
+                .register(registry);
+        FunctionCounter.builder("cache.level.hits", stats, DoubleCacheStats::l2HitCount)
+                .tags(getTagsWithCacheName()).tag("level", "l2")
+                .description("The number of times cache lookup methods have returned a value from the given level")
+                .register(registry);
+        if (doubleCache.estimatedOffHeapSize() != null) {
+            Gauge.builder("cache.offheap.size", doubleCache, cache -> cache.estimatedOffHeapSize().doubleValue())
+                    .tags(getTagsWithCacheName())
+                    .description("The number of entries in the off-heap tier")
+                    .register(registry);
+        }
+
+        HotKeyDetector hotKeys = doubleCache.getHotKeyDetector();
+        if (hotKeys != null) {
+            Gauge.builder("cache.hotkeys.size", hotKeys, HotKeyDetector::size)
+                    .tags(getTagsWithCacheName())
+                    .description("The number of keys currently pinned as hot keys")
+                    .register(registry);
+            FunctionCounter.builder("cache.hotkeys.promotions", hotKeys, HotKeyDetector::getPromotionCount)
+                    .tags(getTagsWithCacheName())
+                    .description("The number of times a key was detected as hot and pinned locally")
+                    .register(registry);
+            FunctionCounter.builder("cache.level.hits", hotKeys, HotKeyDetector::getHitCount)
+                    .tags(getTagsWithCacheName()).tag("level", "hotkey")
+                    .description("The number of times cache lookup methods have returned a value from the given level")
+                    .register(registry);
+        }
+
+        NegativeCache negativeCache = doubleCache.getNegativeCache();
+        if (negativeCache != null) {
+            Gauge.builder("cache.negative.size", negativeCache, NegativeCache::size)
+                    .tags(getTagsWithCacheName())
+                    .description("The number of keys remembered locally as missing")
+                    .register(registry);
+            FunctionCounter.builder("cache.level.hits", negativeCache, NegativeCache::getHitCount)
+                    .tags(getTagsWithCacheName()).tag("level", "negative")
+                    .description("The number of times cache lookup methods have returned a value from the given level")
+                    .register(registry);
+        }
+
+        KeyBloomFilter bloomFilter = doubleCache.getBloomFilter();
+        if (bloomFilter != null) {
+            FunctionCounter.builder("cache.bloom.rejections", bloomFilter, KeyBloomFilter::getDefiniteMissCount)
+                    .tags(getTagsWithCacheName())
+                    .description("The number of lookups answered as definite misses by the bloom filter")
+                    .register(registry);
+        }
+
+        FunctionTimer.builder("cache.load", stats, DoubleCacheStats::loadSuccessCount,
+                DoubleCacheStats::loadSuccessTime, TimeUnit.NANOSECONDS)
+                .tags(getTagsWithCacheName()).tag("result", "success")
+                .description("The number of value loader calls with the given result and the total time they took")
+                .register(registry);
+        FunctionTimer.builder("cache.load", stats, DoubleCacheStats::loadFailureCount,
+                DoubleCacheStats::loadFailureTime, TimeUnit.NANOSECONDS)
+                .tags(getTagsWithCacheName()).tag("result", "failure")
+                .description("The number of value loader calls with the given result and the total time they took")
+                .register(registry);
+
+        FunctionCounter.builder("cache.invalidations", stats, DoubleCacheStats::invalidationSentCount)
+                .tags(getTagsWithCacheName()).tag("direction", "sent")
+                .description("The number of L1 invalidations published to or received from other nodes")
+                .register(registry);
+        FunctionCounter.builder("cache.invalidations", stats, DoubleCacheStats::invalidationReceivedCount)
+                .tags(getTagsWithCacheName()).tag("direction", "received")
+                .description("The number of L1 invalidations published to or received from other nodes")
+                .register(registry);
+    }
+}
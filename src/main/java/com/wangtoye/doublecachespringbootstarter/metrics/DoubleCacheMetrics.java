@@ -0,0 +1,35 @@
+package com.wangtoye.doublecachespringbootstarter.metrics;
+
+import com.wangtoye.doublecachespringbootstarter.cache.manager.DoubleCacheManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.Collections;
+
+/**
+ * 注册DoubleCacheManager下所有缓存的指标，之后动态创建的缓存也会自动注册
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description:
+ */
+public class DoubleCacheMetrics implements MeterBinder {
+    private final DoubleCacheManager doubleCacheManager;
+    private final Iterable<Tag> tags;
+
+    public DoubleCacheMetrics(DoubleCacheManager doubleCacheManager) {
+        this(doubleCacheManager, Collections.emptyList());
+    }
+
+    public DoubleCacheMetrics(DoubleCacheManager doubleCacheManager, Iterable<Tag> tags) {
+        this.doubleCacheManager = doubleCacheManager;
+        this.tags = tags;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        doubleCacheManager.forEachDoubleCache(doubleCache ->
+                new DoubleCacheMeterBinder(doubleCache, tags).bindTo(registry));
+    }
+}
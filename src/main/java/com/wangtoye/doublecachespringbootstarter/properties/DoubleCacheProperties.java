@@ -1,11 +1,19 @@
 package com.wangtoye.doublecachespringbootstarter.properties;
 
+import com.wangtoye.doublecachespringbootstarter.configuration.ClearMode;
+import com.wangtoye.doublecachespringbootstarter.configuration.L1AdmissionMode;
 import lombok.Data;
 import org.springframework.boot.autoconfigure.cache.CacheProperties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Created with IntelliJ IDEA.
@@ -23,4 +31,374 @@ public class DoubleCacheProperties {
     private String topic="cache:redis:caffeine:topic";
     private boolean allowNullValues = false;
     private boolean useL1Cache = false;
-}
\ No newline at end of file
+    /**
+     * 二级缓存使用无锁写模式，写操作和清空缓存不再使用整个缓存级别的锁
+     */
+    private boolean lockFreeWriter = false;
+    /**
+     * 集群范围内合并缓存未命中的加载
+     */
+    private Lease lease = new Lease();
+    /**
+     * 清空二级缓存的方式
+     */
+    private Clear clear = new Clear();
+    /**
+     * 一级缓存失效通知的发布方式
+     */
+    private Invalidation invalidation = new Invalidation();
+    /**
+     * 二级缓存的写后模式
+     */
+    private WriteBehind writeBehind = new WriteBehind();
+    /**
+     * 一级缓存的提前刷新，需要在caffeine的spec中配置refreshAfterWrite
+     */
+    private Refresh refresh = new Refresh();
+    /**
+     * 二级缓存的提前过期，避免同时写入的key同时过期后集中回源
+     */
+    private EarlyExpiration earlyExpiration = new EarlyExpiration();
+    /**
+     * 一级缓存的构造方式
+     */
+    private L1 l1 = new L1();
+    /**
+     * 一级缓存和二级缓存之间的堆外缓存
+     */
+    private OffHeap offHeap = new OffHeap();
+    /**
+     * 一级缓存快照，重启之后不需要从空的一级缓存开始
+     */
+    private Snapshot snapshot = new Snapshot();
+    /**
+     * 启动时的缓存预热
+     */
+    private Warmup warmup = new Warmup();
+    /**
+     * 热点key探测
+     */
+    private HotKey hotKey = new HotKey();
+    /**
+     * 未命中缓存
+     */
+    private Negative negative = new Negative();
+    /**
+     * 布隆过滤器
+     */
+    private BloomFilter bloomFilter = new BloomFilter();
+    /**
+     * 异步读写二级缓存、异步加载以及启动时后台任务使用的线程池
+     */
+    private Async async = new Async();
+
+    @Data
+    public static class Async {
+        /**
+         * 核心线程数，默认为CPU核数
+         */
+        private int corePoolSize = Runtime.getRuntime().availableProcessors();
+        /**
+         * 最大线程数，队列满之后才会创建核心线程以外的线程
+         */
+        private int maxPoolSize = Runtime.getRuntime().availableProcessors() * 2;
+        /**
+         * 等待执行的任务数量上限，达到上限后在提交任务的线程上直接执行
+         */
+        private int queueCapacity = 10000;
+        /**
+         * 线程空闲多久之后回收
+         */
+        private Duration keepAlive = Duration.ofSeconds(60);
+    }
+
+    @Data
+    public static class Lease {
+        /**
+         * 是否开启，开启后同一个key同一时间只有一个节点调用loader
+         */
+        private boolean enabled = false;
+        /**
+         * 租约有效时间，应大于一次加载的耗时
+         */
+        private Duration leaseTime = Duration.ofSeconds(3);
+        /**
+         * 未获取到租约的节点等待二级缓存结果的最长时间，超时后自行加载
+         */
+        private Duration waitTime = Duration.ofSeconds(1);
+        /**
+         * 等待期间查询二级缓存的间隔
+         */
+        private Duration pollInterval = Duration.ofMillis(20);
+    }
+
+    @Data
+    public static class Clear {
+        /**
+         * 清空方式，SCAN和ASYNC_SCAN使用UNLINK删除，需要redis 4.0及以上版本；集群模式下依次SCAN每个主节点
+         */
+        private ClearMode mode = ClearMode.SCAN;
+        /**
+         * 每批SCAN和UNLINK的key数量
+         */
+        private int batchSize = 1000;
+    }
+
+    @Data
+    public static class Invalidation {
+        /**
+         * 合并失效通知的时间窗口，窗口内同一个缓存的key去重后合并成一条消息在后台发布，为0时逐条同步发布
+         */
+        private Duration batchWindow = Duration.ZERO;
+        /**
+         * 一条消息最多合并的key数量，达到之后立即发布
+         */
+        private int batchSize = 100;
+        /**
+         * 是否用旧版本的json格式发布失效通知。旧版本节点无法解析二进制格式的消息，会丢失失效通知，
+         * 滚动升级期间需要开启，所有节点升级之后关闭；开启时批量的key会逐个发布
+         */
+        private boolean legacyFormat = false;
+    }
+
+    @Data
+    public static class WriteBehind {
+        /**
+         * 开启写后模式的缓存名，写操作立即更新一级缓存，二级缓存在后台批量写入
+         */
+        private Set<String> cacheNames = new HashSet<>();
+        /**
+         * 等待写入二级缓存的最大key数量，同一个key的多次写入只占一个位置
+         */
+        private int queueCapacity = 10000;
+        /**
+         * 一次pipeline最多写入的key数量
+         */
+        private int batchSize = 500;
+        /**
+         * 后台写入的间隔，也是二级缓存最多落后的时间
+         */
+        private Duration flushInterval = Duration.ofMillis(5);
+        /**
+         * 队列满时调用方等待的最长时间，超时后在调用线程上直接写入二级缓存
+         */
+        private Duration maxBlock = Duration.ofMillis(100);
+    }
+
+    @Data
+    public static class Refresh {
+        /**
+         * 刷新时二级缓存也已经过期的情况下，使用最近一次的valueLoader重新加载的缓存名，其他缓存只从二级缓存刷新，
+         * 二级缓存也没有时一级缓存直接删除这个key。
+         * valueLoader是@Cacheable方法调用的闭包，会持有方法参数和目标对象，之后在异步线程池上调用，
+         * 不在原来的事务、安全上下文和请求作用域中，只适合结果只由参数决定的方法
+         */
+        private Set<String> valueLoaderCacheNames = new HashSet<>();
+        /**
+         * 每个缓存最多记录的valueLoader数量
+         */
+        private int valueLoaderCapacity = 10000;
+        /**
+         * valueLoader记录之后保留的时间，过期后不再持有闭包，这个key刷新时只从二级缓存读取
+         */
+        private Duration valueLoaderTtl = Duration.ofMinutes(10);
+    }
+
+    @Data
+    public static class EarlyExpiration {
+        /**
+         * 开启提前过期的缓存名，通过valueLoader加载的值会记录计算耗时，在过期之前随机地提前重新计算
+         */
+        private Set<String> cacheNames = new HashSet<>();
+        /**
+         * XFetch算法的系数，大于1时更倾向于提前计算，小于1时更倾向于等到快过期
+         */
+        private double beta = 1.0;
+        /**
+         * 写入二级缓存时过期时间随机延长的最大比例，例如0.1表示最多延长10%，对所有缓存生效，为0时不延长
+         */
+        private double ttlJitter = 0;
+    }
+
+    @Data
+    public static class L1 {
+        /**
+         * 没有单独配置caffeine的缓存（包括运行时动态创建的缓存）使用的spec，为空时使用内置的默认配置
+         */
+        private String defaultSpec;
+        /**
+         * 所有缓存共用一个caffeine实例时的spec，例如maximumSize=100000，为空时每个缓存使用独立的实例
+         */
+        private String sharedSpec;
+        /**
+         * 共用实例的字节数上限，按二级缓存序列化后的大小计算，设置后sharedSpec中的maximumSize不再生效
+         */
+        private DataSize sharedMaximumBytes;
+        /**
+         * 每个缓存的字节数上限，设置后这个缓存spec中的maximumSize不再生效，共用实例时不生效
+         */
+        private Map<String, DataSize> maximumBytes = new HashMap<>();
+        /**
+         * 没有单独设置字节数上限的缓存使用的上限，为空时按spec中的条数限制
+         */
+        private DataSize defaultMaximumBytes;
+        /**
+         * 二级缓存命中时是否放入一级缓存，默认只有带valueLoader的查询放入；
+         * FREQUENCY时只有反复读取的key才放入，适合少量key占大部分读取的场景
+         */
+        private L1AdmissionMode admission = L1AdmissionMode.NONE;
+        /**
+         * FREQUENCY模式下二级缓存命中多少次之后放入一级缓存，包括本次命中，1到16
+         */
+        private int admissionThreshold = 2;
+        /**
+         * FREQUENCY模式下频率统计能区分的key数量，一般和一级缓存的容量相当
+         */
+        private int admissionSketchSize = 10000;
+    }
+
+    @Data
+    public static class OffHeap {
+        /**
+         * 开启堆外缓存的缓存名，查询顺序变为 一级缓存 → 堆外缓存 → 二级缓存
+         */
+        private Set<String> cacheNames = new HashSet<>();
+        /**
+         * 每个缓存占用的直接内存大小，需要小于-XX:MaxDirectMemorySize
+         */
+        private DataSize capacity = DataSize.ofMegabytes(64);
+        /**
+         * 分段数，每段单独加锁，按写入顺序淘汰
+         */
+        private int segments = 16;
+        /**
+         * 写入之后的过期时间
+         */
+        private Duration expireAfterWrite = Duration.ofSeconds(60);
+    }
+
+    @Data
+    public static class Snapshot {
+        /**
+         * 是否开启，开启后关闭时把每个缓存最热的一级缓存条目写入本地文件，启动时在后台恢复
+         */
+        private boolean enabled = false;
+        /**
+         * 快照文件
+         */
+        private String path = "double-cache-l1.snapshot";
+        /**
+         * 每个缓存最多保存的条目数
+         */
+        private int maxEntriesPerCache = 10000;
+        /**
+         * 快照的最长有效时间，超过之后整个快照都不再使用
+         */
+        private Duration maxAge = Duration.ofMinutes(10);
+        /**
+         * 是否只恢复二级缓存中仍然存在的key，关闭时停机期间被其他节点修改或删除的key也会被恢复，直到一级缓存过期
+         */
+        private boolean verifyWithL2 = true;
+    }
+
+    @Data
+    public static class Warmup {
+        /**
+         * 是否开启，开启后在应用开始接收流量之前执行预热，注册为bean的CacheWarmupSource也会被执行
+         */
+        private boolean enabled = false;
+        /**
+         * 需要预热的字符串key，key为缓存名
+         */
+        private Map<String, List<String>> keys = new HashMap<>();
+        /**
+         * 通过SCAN二级缓存预热的缓存名，只适用于key是字符串的缓存
+         */
+        private Set<String> scanCacheNames = new HashSet<>();
+        /**
+         * 每个缓存通过SCAN最多预热的key数量
+         */
+        private int scanLimit = 10000;
+        /**
+         * 最多同时执行的预热任务数
+         */
+        private int concurrency = 4;
+        /**
+         * 每次MGET的key数量
+         */
+        private int batchSize = 500;
+        /**
+         * 预热的最长时间，包括等待一级缓存快照恢复的时间，超时后应用照常启动
+         */
+        private Duration timeout = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class HotKey {
+        /**
+         * 开启热点key探测的缓存名，没有开启一级缓存时也生效
+         */
+        private Set<String> cacheNames = new HashSet<>();
+        /**
+         * 判定为热点的估算频率，1到15，频率每累计sketchSize的10倍次记录后减半
+         */
+        private int threshold = 8;
+        /**
+         * 每多少次读取记录一次，为1时记录每次读取
+         */
+        private int sampleRate = 1;
+        /**
+         * 频率统计能区分的key数量
+         */
+        private int sketchSize = 4096;
+        /**
+         * 热点key本地缓存的最大条数
+         */
+        private int capacity = 100;
+        /**
+         * 热点key在本地缓存中的过期时间，也是其他节点修改之后最多读到旧值的时间
+         */
+        private Duration ttl = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class Negative {
+        /**
+         * 开启未命中缓存的缓存名，开启后回源结果为null时不再按allowNullValues缓存null值，而是单独记录
+         */
+        private Set<String> cacheNames = new HashSet<>();
+        /**
+         * 本地记录的最大条数
+         */
+        private int capacity = 10000;
+        /**
+         * 本地记录的过期时间，也是数据写入之后其他节点最多还返回null的时间（正常情况下失效通知会更早清除）
+         */
+        private Duration ttl = Duration.ofSeconds(5);
+        /**
+         * 在redis中记录的过期时间，为空时只在本地记录，设置后其他节点也可以直接返回null
+         */
+        private Duration redisTtl;
+    }
+
+    @Data
+    public static class BloomFilter {
+        /**
+         * 开启布隆过滤器的缓存名，一定不存在的key直接返回null；需要注册BloomFilterKeySource或者开启共享，
+         * 否则布隆过滤器不生效
+         */
+        private Set<String> cacheNames = new HashSet<>();
+        /**
+         * 预计的key数量
+         */
+        private long expectedInsertions = 1000000;
+        /**
+         * 误判率
+         */
+        private double fpp = 0.01;
+        /**
+         * 是否通过redis的bitmap在节点之间共享
+         */
+        private boolean shared;
+    }
+}
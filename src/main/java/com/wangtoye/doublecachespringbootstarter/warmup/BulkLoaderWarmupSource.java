@@ -0,0 +1,49 @@
+package com.wangtoye.doublecachespringbootstarter.warmup;
+
+import com.wangtoye.doublecachespringbootstarter.cache.DoubleCache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 预热指定的key，两级缓存都没有的key通过批量加载函数加载并写回
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 每批key先查一级缓存和二级缓存，未命中的key一次调用 batchLoader
+ */
+public class BulkLoaderWarmupSource implements CacheWarmupSource {
+    private final String cacheName;
+    private final Supplier<? extends Collection<?>> keys;
+    private final Function<? super Set<Object>, ? extends Map<?, ?>> batchLoader;
+
+    /**
+     * @param cacheName   缓存名
+     * @param keys        需要预热的key，在预热时才调用
+     * @param batchLoader 批量加载函数，返回的map中没有的key不缓存
+     */
+    public BulkLoaderWarmupSource(String cacheName, Supplier<? extends Collection<?>> keys,
+                                  Function<? super Set<Object>, ? extends Map<?, ?>> batchLoader) {
+        this.cacheName = cacheName;
+        this.keys = keys;
+        this.batchLoader = batchLoader;
+    }
+
+    @Override
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    @Override
+    public Collection<?> keys(DoubleCache cache) {
+        return keys.get();
+    }
+
+    @Override
+    public void load(DoubleCache cache, Collection<?> keys) {
+        cache.getAll(keys, batchLoader);
+    }
+}
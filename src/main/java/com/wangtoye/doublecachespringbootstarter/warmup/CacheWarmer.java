@@ -0,0 +1,119 @@
+package com.wangtoye.doublecachespringbootstarter.warmup;
+
+import com.wangtoye.doublecachespringbootstarter.cache.DoubleCache;
+import com.wangtoye.doublecachespringbootstarter.cache.manager.DoubleCacheManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 执行缓存预热
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 所有来源的取key和每批key的加载都在同一个固定大小的线程池中执行，并发数受线程数限制；
+ * 到达截止时间后不再等待，未完成的任务被中断
+ */
+public class CacheWarmer {
+    private static final Logger logger = LoggerFactory.getLogger(CacheWarmer.class);
+
+    private final DoubleCacheManager cacheManager;
+    private final List<CacheWarmupSource> sources;
+    private final int concurrency;
+    private final int batchSize;
+
+    /**
+     * @param cacheManager 缓存管理类
+     * @param sources      预热来源
+     * @param concurrency  最多同时执行的任务数
+     * @param batchSize    每次MGET的key数量
+     */
+    public CacheWarmer(DoubleCacheManager cacheManager, List<CacheWarmupSource> sources, int concurrency,
+                       int batchSize) {
+        Assert.isTrue(concurrency > 0, "Concurrency must be positive!");
+        Assert.isTrue(batchSize > 0, "BatchSize must be positive!");
+        this.cacheManager = cacheManager;
+        this.sources = sources;
+        this.concurrency = concurrency;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * 执行预热并等待完成
+     *
+     * @param timeout 最长等待时间
+     * @return 是否在截止时间之前完成
+     */
+    public boolean warmup(Duration timeout) {
+        if (sources.isEmpty()) {
+            return true;
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread thread = new Thread(r, "double-cache-warmup-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicLong warmed = new AtomicLong();
+        long startTime = System.nanoTime();
+        try {
+            List<CompletableFuture<Void>> futures = new ArrayList<>(sources.size());
+            for (CacheWarmupSource source : sources) {
+                futures.add(warmup(source, executor, warmed));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                    .get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            logger.info("缓存预热完成，共查询{}个key，耗时{}ms", warmed.get(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+            return true;
+        } catch (TimeoutException ex) {
+            logger.warn("缓存预热超过{}未完成，已查询{}个key，剩余的key不再预热", timeout, warmed.get());
+            return false;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException ex) {
+            //每个来源的异常已经单独处理，这里不会出现
+            return false;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private CompletableFuture<Void> warmup(CacheWarmupSource source, ExecutorService executor, AtomicLong warmed) {
+        String cacheName = source.getCacheName();
+        return CompletableFuture.supplyAsync(() -> {
+            DoubleCache cache = cacheManager.getDoubleCache(cacheName);
+            if (cache == null) {
+                logger.warn("缓存{}不是DoubleCache，跳过预热", cacheName);
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+            List<Object> keys = new ArrayList<>(source.keys(cache));
+            List<CompletableFuture<Void>> batches = new ArrayList<>();
+            for (int from = 0; from < keys.size(); from += batchSize) {
+                Collection<Object> batch = keys.subList(from, Math.min(keys.size(), from + batchSize));
+                batches.add(CompletableFuture.runAsync(() -> {
+                    source.load(cache, batch);
+                    warmed.addAndGet(batch.size());
+                }, executor));
+            }
+            return CompletableFuture.allOf(batches.toArray(new CompletableFuture[0]));
+        }, executor).thenCompose(batches -> batches).exceptionally(ex -> {
+            logger.warn("缓存{}预热失败", cacheName, ex);
+            return null;
+        });
+    }
+}
@@ -0,0 +1,80 @@
+package com.wangtoye.doublecachespringbootstarter.warmup;
+
+import com.wangtoye.doublecachespringbootstarter.cache.manager.DoubleCacheManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 在应用开始接收流量之前预热缓存
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 在容器刷新的最后阶段同步执行，web服务器在所有lifecycle启动之后才开始监听端口，
+ * 所以预热完成或者到达截止时间之前不会有请求进入；一级缓存快照的恢复和布隆过滤器的构造也计入同一个截止时间
+ */
+public class CacheWarmupLifecycle implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(CacheWarmupLifecycle.class);
+
+    private final DoubleCacheManager cacheManager;
+    private final CacheWarmer cacheWarmer;
+    private final Duration timeout;
+    private volatile boolean running;
+
+    /**
+     * @param cacheManager 缓存管理类
+     * @param cacheWarmer  预热执行器
+     * @param timeout      最长等待时间，包括等待一级缓存快照恢复的时间
+     */
+    public CacheWarmupLifecycle(DoubleCacheManager cacheManager, CacheWarmer cacheWarmer, Duration timeout) {
+        this.cacheManager = cacheManager;
+        this.cacheWarmer = cacheWarmer;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        long deadline = System.nanoTime() + timeout.toNanos();
+        try {
+            cacheManager.getL1SnapshotRestore().get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            logger.warn("一级缓存快照在{}内没有恢复完成，继续在后台恢复", timeout);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException ex) {
+            logger.warn("一级缓存快照恢复失败", ex.getCause());
+        }
+        try {
+            //布隆过滤器构造完成之前不生效，等待只是为了开始接收流量时就能拦截不存在的key
+            cacheManager.getBloomFilterLoad().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            logger.warn("布隆过滤器在{}内没有构造完成，继续在后台构造", timeout);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException ex) {
+            logger.warn("布隆过滤器构造失败", ex.getCause());
+        }
+        long remaining = deadline - System.nanoTime();
+        if (remaining > 0) {
+            cacheWarmer.warmup(Duration.ofNanos(remaining));
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
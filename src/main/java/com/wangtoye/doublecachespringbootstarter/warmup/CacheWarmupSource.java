@@ -0,0 +1,40 @@
+package com.wangtoye.doublecachespringbootstarter.warmup;
+
+import com.wangtoye.doublecachespringbootstarter.cache.DoubleCache;
+
+import java.util.Collection;
+
+/**
+ * 一个缓存的预热来源
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 先取出需要预热的key，再按批次加载；注册为bean之后在应用就绪之前执行
+ */
+public interface CacheWarmupSource {
+
+    /**
+     * 需要预热的缓存名
+     *
+     * @return 缓存名
+     */
+    String getCacheName();
+
+    /**
+     * 需要预热的key
+     *
+     * @param cache 需要预热的缓存
+     * @return key
+     */
+    Collection<?> keys(DoubleCache cache);
+
+    /**
+     * 加载一批key，默认通过一次MGET从二级缓存读取到一级缓存，二级缓存中没有的key跳过
+     *
+     * @param cache 需要预热的缓存
+     * @param keys  一批key
+     */
+    default void load(DoubleCache cache, Collection<?> keys) {
+        cache.getAll(keys);
+    }
+}
@@ -0,0 +1,37 @@
+package com.wangtoye.doublecachespringbootstarter.warmup;
+
+import com.wangtoye.doublecachespringbootstarter.cache.DoubleCache;
+
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * 预热指定的key
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 只从二级缓存读取到一级缓存，二级缓存中没有的key不会调用业务方法加载
+ */
+public class KeyListWarmupSource implements CacheWarmupSource {
+    private final String cacheName;
+    private final Supplier<? extends Collection<?>> keys;
+
+    /**
+     * @param cacheName 缓存名
+     * @param keys      需要预热的key，在预热时才调用
+     */
+    public KeyListWarmupSource(String cacheName, Supplier<? extends Collection<?>> keys) {
+        this.cacheName = cacheName;
+        this.keys = keys;
+    }
+
+    @Override
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    @Override
+    public Collection<?> keys(DoubleCache cache) {
+        return keys.get();
+    }
+}
@@ -0,0 +1,36 @@
+package com.wangtoye.doublecachespringbootstarter.warmup;
+
+import com.wangtoye.doublecachespringbootstarter.cache.DoubleCache;
+
+import java.util.Collection;
+
+/**
+ * 通过SCAN二级缓存中这个缓存前缀下的key预热
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: SCAN得到的key去掉前缀之后是字符串，只适用于key是字符串的缓存，其他类型的key在一级缓存中查不到
+ */
+public class ScanWarmupSource implements CacheWarmupSource {
+    private final String cacheName;
+    private final int limit;
+
+    /**
+     * @param cacheName 缓存名
+     * @param limit     最多预热的key数量
+     */
+    public ScanWarmupSource(String cacheName, int limit) {
+        this.cacheName = cacheName;
+        this.limit = limit;
+    }
+
+    @Override
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    @Override
+    public Collection<?> keys(DoubleCache cache) {
+        return cache.scanL2Keys(limit);
+    }
+}
@@ -0,0 +1,80 @@
+package com.wangtoye.doublecachespringbootstarter.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wangtoye.doublecachespringbootstarter.cache.writer.RedisCallbackCacheWriter;
+import com.wangtoye.doublecachespringbootstarter.configuration.L1AdmissionConfiguration;
+import com.wangtoye.doublecachespringbootstarter.configuration.L1AdmissionMode;
+import com.wangtoye.doublecachespringbootstarter.support.InMemoryRedis;
+import com.wangtoye.doublecachespringbootstarter.support.TestRedisCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 二级缓存命中之后按准入模式写入一级缓存
+ *
+ * @author wangtoye
+ * @date 2026-10-18
+ * Description:
+ */
+class DoubleCacheAdmissionTest {
+    private final Cache<Object, Object> l1 = Caffeine.newBuilder().build();
+    private TestRedisCache redisCache;
+    private DoubleCache cache;
+
+    @BeforeEach
+    void setUp() {
+        redisCache = new TestRedisCache("users",
+                new RedisCallbackCacheWriter(new InMemoryRedis().getConnectionFactory(), null),
+                RedisCacheConfiguration.defaultCacheConfig());
+        cache = new DoubleCache("users", l1, redisCache, true, "topic");
+        redisCache.put("1", "v1");
+    }
+
+    @Test
+    void noneOnlyFillsL1OnLoadingReads() {
+        assertThat(cache.get("1").get()).isEqualTo("v1");
+        assertThat(l1.getIfPresent("1")).isNull();
+
+        assertThat(cache.get("1", () -> "loaded")).isEqualTo("v1");
+        assertThat(l1.getIfPresent("1")).isEqualTo("v1");
+    }
+
+    @Test
+    void alwaysFillsL1OnEveryL2Hit() {
+        cache.setL1Admission(new L1AdmissionConfiguration(L1AdmissionMode.ALWAYS, 2, 1024));
+
+        assertThat(cache.get("1").get()).isEqualTo("v1");
+        assertThat(l1.getIfPresent("1")).isEqualTo("v1");
+    }
+
+    @Test
+    void frequencyFillsL1OnlyForRepeatedKeys() {
+        cache.setL1Admission(new L1AdmissionConfiguration(L1AdmissionMode.FREQUENCY, 2, 1024));
+        redisCache.put("2", "v2");
+
+        //带 valueLoader 的查询也按频率准入
+        assertThat(cache.get("1", () -> "loaded")).isEqualTo("v1");
+        assertThat(cache.getAll(Collections.singletonList("2"))).containsEntry("2", "v2");
+        assertThat(l1.asMap()).isEmpty();
+
+        assertThat(cache.get("1").get()).isEqualTo("v1");
+        assertThat(l1.asMap()).containsOnlyKeys("1");
+        assertThat(cache.getStats().l2HitCount()).isEqualTo(3);
+        assertThat(cache.get("1").get()).isEqualTo("v1");
+        assertThat(cache.getStats().l1HitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void valuesLoadedFromTheSourceBypassAdmission() {
+        cache.setL1Admission(new L1AdmissionConfiguration(L1AdmissionMode.FREQUENCY, 2, 1024));
+
+        assertThat(cache.get("3", () -> "v3")).isEqualTo("v3");
+        assertThat(l1.getIfPresent("3")).isEqualTo("v3");
+    }
+}
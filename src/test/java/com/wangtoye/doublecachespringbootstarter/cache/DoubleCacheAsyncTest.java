@@ -0,0 +1,119 @@
+package com.wangtoye.doublecachespringbootstarter.cache;
+
+import com.wangtoye.doublecachespringbootstarter.cache.writer.RedisCallbackCacheWriter;
+import com.wangtoye.doublecachespringbootstarter.configuration.NegativeCacheConfiguration;
+import com.wangtoye.doublecachespringbootstarter.support.InMemoryRedis;
+import com.wangtoye.doublecachespringbootstarter.support.TestRedisCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+/**
+ * 异步读写和加载
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 可能阻塞的redis写入都在 asyncExecutor 上执行，不占用完成异步结果的线程和调用线程；
+ * 同一个key的异步加载和同步版本一样只执行一次
+ */
+class DoubleCacheAsyncTest {
+    private final List<String> writeThreads = new CopyOnWriteArrayList<>();
+    private TestRedisCache redisCache;
+    private DoubleCache cache;
+
+    @BeforeEach
+    void setUp() {
+        RedisCallbackCacheWriter cacheWriter = spy(new RedisCallbackCacheWriter(
+                new InMemoryRedis().getConnectionFactory(), null));
+        doAnswer(invocation -> {
+            writeThreads.add(Thread.currentThread().getName());
+            return invocation.callRealMethod();
+        }).when(cacheWriter).put(any(), any(), any(), any());
+        redisCache = new TestRedisCache("users", cacheWriter,
+                RedisCacheConfiguration.defaultCacheConfig());
+        cache = new DoubleCache("users", null, redisCache, true, "topic");
+        cache.setAsyncExecutor(command -> new Thread(command, "cache-async").start());
+        cache.setNegativeCache(new NegativeCacheConfiguration(100, Duration.ofMinutes(1), Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void nullLoadIsRememberedOnAsyncExecutor() throws Exception {
+        CompletableFuture<String> loaded = new CompletableFuture<>();
+        CompletableFuture<String> result = cache.getAsync("1", () -> loaded);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (loaded.getNumberOfDependents() == 0) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(1);
+        }
+        //模拟在redis客户端的IO线程上完成的 valueLoader
+        Thread io = new Thread(() -> loaded.complete(null), "redis-io");
+        io.start();
+        io.join();
+
+        assertThat(result.get(5, TimeUnit.SECONDS)).isNull();
+        assertThat(writeThreads).containsExactly("cache-async");
+    }
+
+    @Test
+    void putAsyncOfNullDoesNotBlockCaller() throws Exception {
+        cache.putAsync("1", null).get(5, TimeUnit.SECONDS);
+
+        assertThat(writeThreads).containsExactly("cache-async");
+        assertThat(cache.get("1").get()).isNull();
+    }
+
+    @Test
+    void getAsyncReadsL2() throws Exception {
+        redisCache.put("1", "v1");
+
+        assertThat(cache.getAsync("1").get(5, TimeUnit.SECONDS).get()).isEqualTo("v1");
+        assertThat(cache.getAsync("2").get(5, TimeUnit.SECONDS)).isNull();
+    }
+
+    @Test
+    void concurrentAsyncLoadsAreCoalesced() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<String> loaded = new CompletableFuture<>();
+        CompletableFuture<String> first = cache.getAsync("1", () -> {
+            loads.incrementAndGet();
+            return loaded;
+        });
+        CompletableFuture<String> second = cache.getAsync("1", () -> {
+            loads.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+        loaded.complete("v1");
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("v1");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("v1");
+        assertThat(loads).hasValue(1);
+        assertThat(redisCache.get("1").get()).isEqualTo("v1");
+    }
+
+    @Test
+    void failedAsyncLoadIsNotCached() throws Exception {
+        CompletableFuture<String> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("db down"));
+
+        assertThatThrownBy(() -> cache.getAsync("1", () -> failed).get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+        //失败的加载不会留在加载合并中，下次调用重新加载
+        assertThat(cache.getAsync("1", () -> CompletableFuture.completedFuture("v1")).get(5, TimeUnit.SECONDS))
+                .isEqualTo("v1");
+    }
+}
@@ -0,0 +1,116 @@
+package com.wangtoye.doublecachespringbootstarter.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wangtoye.doublecachespringbootstarter.cache.writer.RedisCallbackCacheWriter;
+import com.wangtoye.doublecachespringbootstarter.listener.DoubleCacheMessage;
+import com.wangtoye.doublecachespringbootstarter.support.InMemoryRedis;
+import com.wangtoye.doublecachespringbootstarter.support.TestRedisCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 批量读写
+ *
+ * @author wangtoye
+ * @date 2026-10-18
+ * Description: 一级缓存未命中的key一次MGET查询二级缓存，写入一次pipeline，失效通知合并成一条消息
+ */
+class DoubleCacheBulkTest {
+    private RedisCallbackCacheWriter cacheWriter;
+    private TestRedisCache redisCache;
+    private DoubleCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cacheWriter = spy(new RedisCallbackCacheWriter(new InMemoryRedis().getConnectionFactory(), null));
+        redisCache = new TestRedisCache("users", cacheWriter, RedisCacheConfiguration.defaultCacheConfig());
+        cache = new DoubleCache("users", Caffeine.newBuilder().build(), redisCache, true, "topic");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void l1MissesAreReadWithOneMget() {
+        redisCache.put("2", "v2");
+        cache.put("1", "v1");
+        clearInvocations(cacheWriter);
+
+        assertThat(cache.getAll(Arrays.asList("1", "2", "3"))).containsOnly(entry("1", "v1"), entry("2", "v2"));
+        ArgumentCaptor<List<byte[]>> redisKeys = ArgumentCaptor.forClass(List.class);
+        verify(cacheWriter).getAll(eq("users"), redisKeys.capture());
+        assertThat(redisKeys.getValue()).containsExactly(redisCache.serializeKey("2"), redisCache.serializeKey("3"));
+        verify(cacheWriter, never()).get(any(), any());
+
+        //二级缓存命中的值写入了一级缓存
+        clearInvocations(cacheWriter);
+        assertThat(cache.getAll(Arrays.asList("1", "2"))).hasSize(2);
+        verify(cacheWriter, never()).getAll(any(), anyList());
+    }
+
+    @Test
+    void missesAreLoadedInOneBatchAndWrittenWithOnePipeline() {
+        redisCache.put("1", "v1");
+        List<Set<Object>> batches = new CopyOnWriteArrayList<>();
+        clearInvocations(cacheWriter);
+
+        Map<Object, Object> values = cache.getAll(Arrays.asList("1", "2", "3"), keys -> {
+            batches.add(keys);
+            //没有返回的key按null值处理
+            return Collections.singletonMap("2", "v2");
+        });
+
+        assertThat(values).containsOnly(entry("1", "v1"), entry("2", "v2"));
+        assertThat(batches).hasSize(1);
+        assertThat(batches.get(0)).containsExactly("2", "3");
+        verify(cacheWriter, times(1)).writeAll(eq("users"), anyMap(), any());
+        verify(cacheWriter, never()).put(any(), any(), any(), any());
+        assertThat(redisCache.get("2").get()).isEqualTo("v2");
+        //回源的结果不需要通知其他节点
+        assertThat(redisCache.getSentMessages()).isEmpty();
+    }
+
+    @Test
+    void putAllWritesOnePipelineAndOneMessage() {
+        Map<Object, Object> entries = new HashMap<>();
+        entries.put("1", "v1");
+        entries.put("2", "v2");
+
+        cache.putAll(entries);
+
+        verify(cacheWriter, times(1)).writeAll(eq("users"), anyMap(), any());
+        assertThat(redisCache.get("1").get()).isEqualTo("v1");
+        assertThat(redisCache.get("2").get()).isEqualTo("v2");
+        assertThat(redisCache.getSentMessages()).hasSize(1);
+        assertThat(((DoubleCacheMessage) redisCache.getSentMessages().get(0)).getKeys())
+                .containsExactlyInAnyOrder("1", "2");
+
+        cache.evictAll(entries.keySet());
+        verify(cacheWriter, times(1)).removeAll(eq("users"), anyList());
+        assertThat(redisCache.get("1")).isNull();
+        assertThat(cache.getAll(entries.keySet())).isEmpty();
+    }
+
+    private static Map.Entry<Object, Object> entry(Object key, Object value) {
+        return new HashMap.SimpleEntry<>(key, value);
+    }
+}
@@ -0,0 +1,111 @@
+package com.wangtoye.doublecachespringbootstarter.cache;
+
+import com.wangtoye.doublecachespringbootstarter.cache.support.EarlyExpirationValue;
+import com.wangtoye.doublecachespringbootstarter.cache.writer.RedisCallbackCacheWriter;
+import com.wangtoye.doublecachespringbootstarter.support.InMemoryRedis;
+import com.wangtoye.doublecachespringbootstarter.support.TestRedisCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 二级缓存的提前过期和过期时间随机延长
+ *
+ * @author wangtoye
+ * @date 2026-10-18
+ * Description: 已经过期的值一定重新计算，计算耗时为0并且离过期还远的值不会重新计算
+ */
+class DoubleCacheEarlyExpirationTest {
+    private static final Duration TTL = Duration.ofMinutes(1);
+
+    private InMemoryRedis redis;
+    private RedisCallbackCacheWriter cacheWriter;
+    private TestRedisCache redisCache;
+    private DoubleCache cache;
+
+    @BeforeEach
+    void setUp() {
+        redis = new InMemoryRedis();
+        cacheWriter = new RedisCallbackCacheWriter(redis.getConnectionFactory(), null);
+        redisCache = new TestRedisCache("users", cacheWriter,
+                RedisCacheConfiguration.defaultCacheConfig().entryTtl(TTL));
+        cache = new DoubleCache("users", null, redisCache, true, "topic");
+        cache.setEarlyExpirationBeta(1.0);
+    }
+
+    @Test
+    void loadedValuesCarryDeltaAndExpiry() {
+        long before = System.currentTimeMillis();
+        assertThat(cache.get("1", () -> "v1")).isEqualTo("v1");
+
+        Object stored = redisCache.deserializeValue(redis.get(redisCache.serializeKey("1")));
+        assertThat(stored).isInstanceOf(EarlyExpirationValue.class);
+        assertThat(((EarlyExpirationValue) stored).getExpireAt()).isBetween(before + TTL.toMillis(),
+                System.currentTimeMillis() + TTL.toMillis());
+        //其他读取方式拿到的是真实的值
+        assertThat(cache.get("1").get()).isEqualTo("v1");
+    }
+
+    @Test
+    void freshValueIsNotRecomputed() {
+        putL2("1", new EarlyExpirationValue("old", 0, System.currentTimeMillis() + TTL.toMillis()));
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(cache.get("1", () -> "v" + loads.incrementAndGet())).isEqualTo("old");
+        }
+        assertThat(loads).hasValue(0);
+    }
+
+    @Test
+    void valuePastItsExpiryIsRecomputedBeforeRedisDropsIt() {
+        putL2("1", new EarlyExpirationValue("old", 100, System.currentTimeMillis() - 1));
+
+        assertThat(cache.get("1", () -> "new")).isEqualTo("new");
+        assertThat(EarlyExpirationValue.unwrap(redisCache.deserializeValue(redis.get(redisCache.serializeKey("1")))))
+                .isEqualTo("new");
+    }
+
+    @Test
+    void slowValuesAreRecomputedEarlierThanFastOnes() {
+        long expireAt = System.currentTimeMillis() + 1000;
+        EarlyExpirationValue slow = new EarlyExpirationValue("v", 10_000, expireAt);
+        EarlyExpirationValue fast = new EarlyExpirationValue("v", 1, expireAt);
+        int slowRecomputes = 0;
+        int fastRecomputes = 0;
+        for (int i = 0; i < 1000; i++) {
+            slowRecomputes += slow.shouldRecompute(1.0) ? 1 : 0;
+            fastRecomputes += fast.shouldRecompute(1.0) ? 1 : 0;
+        }
+        //离过期还有1秒，慢的值重新计算的概率为 e^(-1000/10000) ≈ 90%，快的值为 e^(-1000) ≈ 0
+        assertThat(slowRecomputes).isBetween(800, 980);
+        assertThat(fastRecomputes).isZero();
+    }
+
+    @Test
+    void ttlJitterSpreadsExpiry() {
+        cacheWriter.setTtlJitter(0.5);
+        Set<Long> ttls = new HashSet<>();
+        for (int i = 0; i < 50; i++) {
+            byte[] key = ("users::" + i).getBytes(StandardCharsets.UTF_8);
+            cacheWriter.put("users", key, new byte[]{1}, Duration.ofSeconds(100));
+            long ttl = redis.pttl(key);
+            //随机延长0到50%，写入和读取之间可能过去了几毫秒
+            assertThat(ttl).isBetween(99_000L, 150_000L);
+            ttls.add(ttl / 1000);
+        }
+        assertThat(ttls.size()).isGreaterThan(1);
+    }
+
+    private void putL2(Object key, Object value) {
+        cacheWriter.put("users", redisCache.serializeKey(key), redisCache.serializeValue(value), null);
+    }
+}
@@ -0,0 +1,88 @@
+package com.wangtoye.doublecachespringbootstarter.cache;
+
+import com.wangtoye.doublecachespringbootstarter.cache.support.HotKeyDetector;
+import com.wangtoye.doublecachespringbootstarter.cache.writer.RedisCallbackCacheWriter;
+import com.wangtoye.doublecachespringbootstarter.configuration.HotKeyConfiguration;
+import com.wangtoye.doublecachespringbootstarter.support.InMemoryRedis;
+import com.wangtoye.doublecachespringbootstarter.support.TestRedisCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 热点key的探测和本地缓存
+ *
+ * @author wangtoye
+ * @date 2026-10-18
+ * Description: 不开启一级缓存，同一个key读取达到阈值之后不再查询二级缓存
+ */
+class DoubleCacheHotKeyTest {
+    private RedisCallbackCacheWriter cacheWriter;
+    private TestRedisCache redisCache;
+    private DoubleCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cacheWriter = new RedisCallbackCacheWriter(new InMemoryRedis().getConnectionFactory(), null);
+        redisCache = new TestRedisCache("users", cacheWriter, RedisCacheConfiguration.defaultCacheConfig());
+        cache = new DoubleCache("users", null, redisCache, true, "topic");
+        cache.setHotKey(new HotKeyConfiguration(3, 1, 1024, 10, Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void keysReadAtTheThresholdArePromoted() {
+        redisCache.put("1", "v1");
+        redisCache.put("2", "v2");
+        HotKeyDetector detector = cache.getHotKeyDetector();
+
+        cache.get("1");
+        cache.get("1");
+        cache.get("2");
+        assertThat(detector.getHotKeys()).isEmpty();
+        cache.get("1");
+        assertThat(detector.getHotKeys()).containsOnly("1");
+        assertThat(detector.getPromotionCount()).isEqualTo(1);
+
+        //二级缓存中的值被其他方式删除之后，热点key仍然从本地返回
+        removeL2("1");
+        removeL2("2");
+        assertThat(cache.get("1").get()).isEqualTo("v1");
+        assertThat(cache.get("2")).isNull();
+        assertThat(detector.getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void missingKeysAreNotPromoted() {
+        for (int i = 0; i < 5; i++) {
+            assertThat(cache.get("1")).isNull();
+        }
+        assertThat(cache.getHotKeyDetector().getHotKeys()).isEmpty();
+    }
+
+    @Test
+    void writesAndInvalidationsDropHotKeys() {
+        redisCache.put("1", "v1");
+        for (int i = 0; i < 3; i++) {
+            cache.get("1");
+        }
+        assertThat(cache.getHotKeyDetector().getHotKeys()).containsOnly("1");
+
+        cache.put("1", "v2");
+        assertThat(cache.getHotKeyDetector().getHotKeys()).isEmpty();
+        assertThat(cache.get("1").get()).isEqualTo("v2");
+
+        //其他节点的失效通知
+        cache.get("1");
+        assertThat(cache.getHotKeyDetector().getHotKeys()).containsOnly("1");
+        cache.clearL1Cache("1");
+        assertThat(cache.getHotKeyDetector().getHotKeys()).isEmpty();
+    }
+
+    private void removeL2(Object key) {
+        cacheWriter.remove("users", redisCache.serializeKey(key));
+    }
+}
@@ -0,0 +1,155 @@
+package com.wangtoye.doublecachespringbootstarter.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wangtoye.doublecachespringbootstarter.cache.writer.RedisCallbackCacheWriter;
+import com.wangtoye.doublecachespringbootstarter.configuration.LoadLeaseConfiguration;
+import com.wangtoye.doublecachespringbootstarter.support.InMemoryRedis;
+import com.wangtoye.doublecachespringbootstarter.support.TestRedisCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache.ValueRetrievalException;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 一级缓存未命中之后的合并加载
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 同一节点内等待正在加载的线程，多个节点之间通过加载租约只让一个节点调用 valueLoader
+ */
+class DoubleCacheLoadTest {
+    private InMemoryRedis redis;
+    private RedisCallbackCacheWriter cacheWriter;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        redis = new InMemoryRedis();
+        cacheWriter = new RedisCallbackCacheWriter(redis.getConnectionFactory(), null);
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private DoubleCache createCache() {
+        TestRedisCache redisCache = new TestRedisCache("users", cacheWriter,
+                RedisCacheConfiguration.defaultCacheConfig());
+        return new DoubleCache("users", Caffeine.newBuilder().build(), redisCache, true, "topic");
+    }
+
+    @Test
+    void followerWaitsForLeaderInsteadOfLoading() throws Exception {
+        DoubleCache cache = createCache();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> leader = executor.submit(() -> cache.get("1", () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            release.await();
+            return "loaded";
+        }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Thread[] followerThread = new Thread[1];
+        Future<String> follower = executor.submit(() -> {
+            followerThread[0] = Thread.currentThread();
+            return cache.get("1", () -> {
+                loads.incrementAndGet();
+                return "follower";
+            });
+        });
+        awaitWaiting(followerThread);
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("loaded");
+        assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("loaded");
+        assertThat(loads).hasValue(1);
+        assertThat(cache.get("1").get()).isEqualTo("loaded");
+    }
+
+    @Test
+    void followerSeesLeaderFailureAndNextCallerLoadsAgain() throws Exception {
+        DoubleCache cache = createCache();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> leader = executor.submit(() -> cache.get("1", () -> {
+            loading.countDown();
+            release.await();
+            throw new IllegalStateException("db down");
+        }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Thread[] followerThread = new Thread[1];
+        Future<String> follower = executor.submit(() -> {
+            followerThread[0] = Thread.currentThread();
+            return cache.get("1", () -> "follower");
+        });
+        awaitWaiting(followerThread);
+        release.countDown();
+
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(ValueRetrievalException.class);
+        assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(ValueRetrievalException.class);
+        //失败的加载不会留在等待表中
+        assertThat(cache.get("1", () -> "retry")).isEqualTo("retry");
+    }
+
+    @Test
+    void leaseLetsOnlyOneNodeLoad() throws Exception {
+        LoadLeaseConfiguration lease = new LoadLeaseConfiguration(Duration.ofSeconds(10), Duration.ofSeconds(5),
+                Duration.ofMillis(10));
+        DoubleCache nodeA = createCache();
+        DoubleCache nodeB = createCache();
+        nodeA.setLoadLeaseConfiguration(lease);
+        nodeB.setLoadLeaseConfiguration(lease);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> leader = executor.submit(() -> nodeA.get("1", () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            release.await();
+            return "loaded";
+        }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<String> follower = executor.submit(() -> nodeB.get("1", () -> {
+            loads.incrementAndGet();
+            return "nodeB";
+        }));
+        Thread.sleep(50);
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("loaded");
+        assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("loaded");
+        assertThat(loads).hasValue(1);
+    }
+
+    /**
+     * 等待线程进入等待状态，也就是已经在等待正在进行的加载
+     */
+    private static void awaitWaiting(Thread[] thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread[0] == null || thread[0].getState() != Thread.State.WAITING) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(1);
+        }
+    }
+}
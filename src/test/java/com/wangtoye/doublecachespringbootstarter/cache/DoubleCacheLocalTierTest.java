@@ -0,0 +1,80 @@
+package com.wangtoye.doublecachespringbootstarter.cache;
+
+import com.wangtoye.doublecachespringbootstarter.cache.writer.RedisCallbackCacheWriter;
+import com.wangtoye.doublecachespringbootstarter.configuration.NegativeCacheConfiguration;
+import com.wangtoye.doublecachespringbootstarter.configuration.OffHeapConfiguration;
+import com.wangtoye.doublecachespringbootstarter.support.InMemoryRedis;
+import com.wangtoye.doublecachespringbootstarter.support.TestRedisCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 单个和批量、同步和异步的读取经过同样的本地层
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 不开启一级缓存，读取都会经过本地层
+ */
+class DoubleCacheLocalTierTest {
+    private RedisCallbackCacheWriter cacheWriter;
+    private TestRedisCache redisCache;
+    private DoubleCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cacheWriter = new RedisCallbackCacheWriter(new InMemoryRedis().getConnectionFactory(), null);
+        redisCache = new TestRedisCache("users", cacheWriter, RedisCacheConfiguration.defaultCacheConfig());
+        cache = new DoubleCache("users", null, redisCache, true, "topic");
+    }
+
+    @Test
+    void negativeCacheRejectsOnEveryReadPath() throws Exception {
+        cache.setNegativeCache(new NegativeCacheConfiguration(100, Duration.ofMinutes(1), null));
+        AtomicInteger loads = new AtomicInteger();
+        assertThat((Object) cache.get("1", () -> {
+            loads.incrementAndGet();
+            return null;
+        })).isNull();
+        //本地记录不存在之后，其他节点写入的值要等失效通知才能看到
+        cacheWriter.put("users", redisCache.serializeKey("1"), redisCache.serializeValue("v1"), null);
+
+        assertThat(cache.get("1").get()).isNull();
+        assertThat(cache.getAsync("1").get(5, TimeUnit.SECONDS).get()).isNull();
+        assertThat(cache.getAll(Collections.singletonList("1"), keys -> {
+            loads.incrementAndGet();
+            return Collections.singletonMap("1", "v2");
+        })).isEmpty();
+        assertThat(loads).hasValue(1);
+
+        cache.clearL1Cache("1");
+        assertThat(cache.getAll(Collections.singletonList("1"))).containsEntry("1", "v1");
+    }
+
+    @Test
+    void offHeapIsFilledAndReadOnEveryReadPath() throws Exception {
+        cache.setOffHeap(new OffHeapConfiguration(1024 * 1024, 1, Duration.ofMinutes(1)));
+        cacheWriter.put("users", redisCache.serializeKey("1"), redisCache.serializeValue("v1"), null);
+        cacheWriter.put("users", redisCache.serializeKey("2"), redisCache.serializeValue("v2"), null);
+        cacheWriter.put("users", redisCache.serializeKey("3"), redisCache.serializeValue("v3"), null);
+
+        assertThat(cache.getAll(Arrays.asList("1", "2"))).containsEntry("1", "v1").containsEntry("2", "v2");
+        assertThat(cache.getAsync("3").get(5, TimeUnit.SECONDS).get()).isEqualTo("v3");
+        //二级缓存中的值被删除之后，堆外缓存中仍然有
+        cacheWriter.removeAll("users", Arrays.asList(redisCache.serializeKey("1"), redisCache.serializeKey("2"),
+                redisCache.serializeKey("3")));
+
+        assertThat(cache.get("1").get()).isEqualTo("v1");
+        assertThat(cache.getAsync("2").get(5, TimeUnit.SECONDS).get()).isEqualTo("v2");
+        assertThat(cache.getAll(Collections.singletonList("3"))).containsEntry("3", "v3");
+        assertThat(cache.getStats().l2HitCount()).isEqualTo(6);
+    }
+}
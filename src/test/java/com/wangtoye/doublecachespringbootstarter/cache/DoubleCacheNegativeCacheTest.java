@@ -0,0 +1,163 @@
+package com.wangtoye.doublecachespringbootstarter.cache;
+
+import com.wangtoye.doublecachespringbootstarter.cache.support.NegativeCache;
+import com.wangtoye.doublecachespringbootstarter.cache.writer.RedisCallbackCacheWriter;
+import com.wangtoye.doublecachespringbootstarter.configuration.NegativeCacheConfiguration;
+import com.wangtoye.doublecachespringbootstarter.support.InMemoryRedis;
+import com.wangtoye.doublecachespringbootstarter.support.TestRedisCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 回源结果为null的key在本地和redis中的记录
+ *
+ * @author wangtoye
+ * @date 2026-10-18
+ * Description: 两个DoubleCache共用同一个redis，模拟两个节点
+ */
+class DoubleCacheNegativeCacheTest {
+    private static final NegativeCacheConfiguration CONFIGURATION =
+            new NegativeCacheConfiguration(100, Duration.ofMinutes(1), Duration.ofSeconds(30));
+
+    private InMemoryRedis redis;
+    private TestRedisCache redisCache;
+    private DoubleCache cache;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        redis = new InMemoryRedis();
+        redisCache = new TestRedisCache("users", new RedisCallbackCacheWriter(redis.getConnectionFactory(), null),
+                RedisCacheConfiguration.defaultCacheConfig());
+        cache = newNode(CONFIGURATION);
+    }
+
+    @Test
+    void nullLoadsAreRememberedLocallyAndInRedis() {
+        assertThat((Object) cache.get("1", this::loadNull)).isNull();
+        assertThat((Object) cache.get("1", this::loadNull)).isNull();
+
+        assertThat(loads).hasValue(1);
+        assertThat(cache.getNegativeCache().getHitCount()).isEqualTo(1);
+        //值本身没有写入二级缓存，只有单独的记录
+        assertThat(redis.get(redisCache.serializeKey("1"))).isNull();
+        assertThat(redis.get(markerKey("1"))).isEqualTo(NegativeCache.REDIS_VALUE);
+        assertThat(redis.pttl(markerKey("1"))).isBetween(1L, 30_000L);
+    }
+
+    @Test
+    void otherNodesReadTheRedisMarker() {
+        cache.get("1", this::loadNull);
+        DoubleCache otherNode = newNode(CONFIGURATION);
+
+        assertThat((Object) otherNode.get("1", this::loadNull)).isNull();
+        assertThat(otherNode.get("1").get()).isNull();
+
+        assertThat(loads).hasValue(1);
+        //第一次从redis读到记录之后在本地记录，第二次不再查询redis
+        assertThat(otherNode.getNegativeCache().size()).isEqualTo(1);
+        assertThat(otherNode.getNegativeCache().getHitCount()).isEqualTo(2);
+    }
+
+    @Test
+    void writtenValuesTakePrecedenceOverMarkers() {
+        cache.get("1", this::loadNull);
+        DoubleCache otherNode = newNode(CONFIGURATION);
+        assertThat(otherNode.get("1").get()).isNull();
+
+        cache.put("1", "v1");
+        //其他节点收到失效通知后清除本地记录，二级缓存中的值优先于redis中的记录
+        otherNode.clearL1Cache("1");
+
+        assertThat(cache.get("1").get()).isEqualTo("v1");
+        assertThat(otherNode.get("1", this::loadNull)).isEqualTo("v1");
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void evictionClearsTheMarker() {
+        cache.get("1", this::loadNull);
+
+        cache.evict("1");
+
+        assertThat(redis.get(markerKey("1"))).isNull();
+        assertThat((Object) newNode(CONFIGURATION).get("1", this::loadNull)).isNull();
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void puttingNullReplacesTheValueWithAMarker() {
+        cache.put("1", "v1");
+
+        cache.put("1", null);
+
+        assertThat(redis.get(redisCache.serializeKey("1"))).isNull();
+        assertThat(redis.get(markerKey("1"))).isNotNull();
+        assertThat((Object) cache.get("1", this::loadNull)).isNull();
+        assertThat(loads).hasValue(0);
+    }
+
+    @Test
+    void batchLoadsRememberMissingKeys() {
+        assertThat(cache.getAll(Arrays.asList("1", "2", "3"), keys -> Collections.singletonMap("2", "v2")))
+                .containsOnlyKeys("2");
+
+        assertThat(redis.get(markerKey("1"))).isNotNull();
+        assertThat(redis.get(markerKey("2"))).isNull();
+        assertThat(redis.get(markerKey("3"))).isNotNull();
+        assertThat(newNode(CONFIGURATION).getAll(Arrays.asList("1", "3"), keys -> {
+            loads.incrementAndGet();
+            return Collections.emptyMap();
+        })).isEmpty();
+        assertThat(loads).hasValue(0);
+    }
+
+    @Test
+    void withoutRedisTtlMarkersStayLocal() {
+        DoubleCache localOnly = newNode(new NegativeCacheConfiguration(100, Duration.ofMinutes(1), null));
+
+        localOnly.get("1", this::loadNull);
+        localOnly.get("1", this::loadNull);
+
+        assertThat(loads).hasValue(1);
+        assertThat(localOnly.getNegativeCache().isRedisEnabled()).isFalse();
+        assertThat(redis.get(markerKey("1"))).isNull();
+        //其他节点仍然回源
+        newNode(CONFIGURATION).get("1", this::loadNull);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void markerKeysAreRecognised() {
+        byte[] key = "users::1".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(NegativeCache.isRedisKey(NegativeCache.redisKey(key))).isTrue();
+        assertThat(NegativeCache.isRedisKey(key)).isFalse();
+        assertThat(NegativeCache.isRedisKey(new byte[]{'!'})).isFalse();
+        assertThat(RedisCallbackCacheWriter.isInternalKey(NegativeCache.redisKey(key))).isTrue();
+    }
+
+    private DoubleCache newNode(NegativeCacheConfiguration configuration) {
+        DoubleCache node = new DoubleCache("users", null, redisCache, true, "topic");
+        node.setNegativeCache(configuration);
+        return node;
+    }
+
+    private Object loadNull() {
+        loads.incrementAndGet();
+        return null;
+    }
+
+    private byte[] markerKey(Object key) {
+        return NegativeCache.redisKey(redisCache.serializeKey(key));
+    }
+}
@@ -0,0 +1,78 @@
+package com.wangtoye.doublecachespringbootstarter.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wangtoye.doublecachespringbootstarter.cache.writer.RedisCallbackCacheWriter;
+import com.wangtoye.doublecachespringbootstarter.support.InMemoryRedis;
+import com.wangtoye.doublecachespringbootstarter.support.TestRedisCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 一级缓存的刷新
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 默认只从二级缓存刷新，明确开启之后才会保留 valueLoader 重新加载
+ */
+class DoubleCacheRefreshTest {
+    private RedisCallbackCacheWriter cacheWriter;
+    private TestRedisCache redisCache;
+    private DoubleCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cacheWriter = new RedisCallbackCacheWriter(new InMemoryRedis().getConnectionFactory(), null);
+        redisCache = new TestRedisCache("users", cacheWriter, RedisCacheConfiguration.defaultCacheConfig());
+        cache = new DoubleCache("users", Caffeine.newBuilder().build(), redisCache, true, "topic");
+    }
+
+    @Test
+    void refreshesFromL2() throws Exception {
+        cache.get("1", () -> "v1");
+        cacheWriter.put("users", redisCache.serializeKey("1"), redisCache.serializeValue("v2"), null);
+
+        assertThat(cache.refreshL1("1").get(5, TimeUnit.SECONDS)).isEqualTo("v2");
+    }
+
+    @Test
+    void doesNotKeepValueLoaderByDefault() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("1", () -> "v" + loads.incrementAndGet());
+        cacheWriter.remove("users", redisCache.serializeKey("1"));
+
+        assertThat(cache.refreshL1("1").get(5, TimeUnit.SECONDS)).isNull();
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void reloadsWithValueLoaderWhenEnabled() throws Exception {
+        cache.setRefreshValueLoader(100, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("1", () -> "v" + loads.incrementAndGet());
+        cacheWriter.remove("users", redisCache.serializeKey("1"));
+
+        assertThat(cache.refreshL1("1").get(5, TimeUnit.SECONDS)).isEqualTo("v2");
+        //重新加载的值写回二级缓存
+        assertThat(redisCache.deserializeValue(cacheWriter.get("users", redisCache.serializeKey("1"))))
+                .isEqualTo("v2");
+    }
+
+    @Test
+    void forgetsValueLoaderAfterTtl() throws Exception {
+        cache.setRefreshValueLoader(100, Duration.ofMillis(50));
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("1", () -> "v" + loads.incrementAndGet());
+        cacheWriter.remove("users", redisCache.serializeKey("1"));
+        Thread.sleep(100);
+
+        assertThat(cache.refreshL1("1").get(5, TimeUnit.SECONDS)).isNull();
+        assertThat(loads).hasValue(1);
+    }
+}
@@ -0,0 +1,138 @@
+package com.wangtoye.doublecachespringbootstarter.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wangtoye.doublecachespringbootstarter.cache.support.L1SnapshotFile;
+import com.wangtoye.doublecachespringbootstarter.cache.writer.RedisCallbackCacheWriter;
+import com.wangtoye.doublecachespringbootstarter.support.InMemoryRedis;
+import com.wangtoye.doublecachespringbootstarter.support.TestRedisCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 一级缓存快照的写入和恢复
+ *
+ * @author wangtoye
+ * @date 2026-10-18
+ * Description: 关闭前导出的条目写入文件，新的实例读取文件后放回一级缓存
+ */
+class DoubleCacheSnapshotTest {
+    private static final RedisSerializer<Object> KEY_SERIALIZER = RedisSerializer.java();
+
+    @TempDir
+    Path tempDir;
+
+    private TestRedisCache redisCache;
+    private DoubleCache cache;
+    /**
+     * 最近一次创建的缓存使用的一级缓存
+     */
+    private Cache<Object, Object> l1;
+
+    @BeforeEach
+    void setUp() {
+        redisCache = new TestRedisCache("users",
+                new RedisCallbackCacheWriter(new InMemoryRedis().getConnectionFactory(), null),
+                RedisCacheConfiguration.defaultCacheConfig());
+        cache = newCache();
+    }
+
+    @Test
+    void snapshotRoundTrip() throws IOException {
+        cache.put("1", "v1");
+        cache.put("2", "v2");
+        cache.put(3L, Arrays.asList("a", "b"));
+        Path path = tempDir.resolve("l1.snapshot");
+
+        L1SnapshotFile.write(path, cache.snapshotL1(10, KEY_SERIALIZER));
+        L1SnapshotFile snapshot = L1SnapshotFile.read(path);
+
+        assertThat(snapshot.getEntries()).hasSize(3);
+        assertThat(snapshot.getEntries()).allSatisfy(entry -> {
+            assertThat(entry.getCacheName()).isEqualTo("users");
+            assertThat(entry.getGeneration()).isEqualTo(-1);
+            //按一级缓存的expireAfterWrite计算
+            assertThat(entry.getExpireAt()).isGreaterThan(System.currentTimeMillis());
+        });
+        assertThat(Files.exists(tempDir.resolve("l1.snapshot.tmp"))).isFalse();
+
+        DoubleCache restored = newCache();
+        assertThat(restored.restoreL1(snapshot.getEntries(), KEY_SERIALIZER, false)).isEqualTo(3);
+        assertThat(l1.getIfPresent("1")).isEqualTo("v1");
+        assertThat(l1.getIfPresent("2")).isEqualTo("v2");
+        assertThat(l1.getIfPresent(3L)).isEqualTo(Arrays.asList("a", "b"));
+    }
+
+    @Test
+    void expiredAndStaleGenerationEntriesAreDropped() {
+        long future = System.currentTimeMillis() + 60_000;
+        List<L1SnapshotFile.Entry> entries = Arrays.asList(
+                entry("1", "v1", -1, future),
+                entry("2", "v2", -1, System.currentTimeMillis() - 1),
+                entry("3", "v3", 7, future),
+                entry("4", "v4", -1, 0));
+
+        DoubleCache restored = newCache();
+        assertThat(restored.restoreL1(entries, KEY_SERIALIZER, false)).isEqualTo(2);
+        assertThat(l1.asMap()).containsOnlyKeys("1", "4");
+    }
+
+    @Test
+    void restoreDoesNotOverwriteNewerValues() {
+        DoubleCache restored = newCache();
+        l1.put("1", "newer");
+
+        restored.restoreL1(Arrays.asList(entry("1", "v1", -1, 0)), KEY_SERIALIZER, false);
+
+        assertThat(l1.getIfPresent("1")).isEqualTo("newer");
+    }
+
+    @Test
+    void verifyWithL2KeepsOnlyKeysStillInRedisWithTheirCurrentValues() {
+        redisCache.put("1", "changed");
+        List<L1SnapshotFile.Entry> entries = Arrays.asList(entry("1", "v1", -1, 0), entry("2", "v2", -1, 0));
+
+        DoubleCache restored = newCache();
+        assertThat(restored.restoreL1(entries, KEY_SERIALIZER, true)).isEqualTo(1);
+        assertThat(l1.asMap()).containsOnlyKeys("1");
+        assertThat(l1.getIfPresent("1")).isEqualTo("changed");
+    }
+
+    @Test
+    void missingAndCorruptFiles() throws IOException {
+        assertThat(L1SnapshotFile.read(tempDir.resolve("missing"))).isNull();
+
+        Path truncated = tempDir.resolve("truncated");
+        L1SnapshotFile.write(truncated, Arrays.asList(entry("1", "v1", -1, 0)));
+        byte[] bytes = Files.readAllBytes(truncated);
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 3));
+        assertThatThrownBy(() -> L1SnapshotFile.read(truncated)).isInstanceOf(IOException.class);
+
+        Path garbage = tempDir.resolve("garbage");
+        Files.write(garbage, new byte[64]);
+        assertThatThrownBy(() -> L1SnapshotFile.read(garbage)).isInstanceOf(IOException.class);
+    }
+
+    private DoubleCache newCache() {
+        l1 = Caffeine.newBuilder().maximumSize(100).expireAfterWrite(Duration.ofMinutes(1)).build();
+        return new DoubleCache("users", l1, redisCache, true, "topic");
+    }
+
+    private L1SnapshotFile.Entry entry(Object key, Object value, long generation, long expireAt) {
+        return new L1SnapshotFile.Entry("users", generation, expireAt, KEY_SERIALIZER.serialize(key),
+                redisCache.serializeValue(value));
+    }
+}
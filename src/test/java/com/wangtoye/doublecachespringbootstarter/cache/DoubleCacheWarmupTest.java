@@ -0,0 +1,49 @@
+package com.wangtoye.doublecachespringbootstarter.cache;
+
+import com.wangtoye.doublecachespringbootstarter.cache.support.NegativeCache;
+import com.wangtoye.doublecachespringbootstarter.cache.writer.RedisCallbackCacheWriter;
+import com.wangtoye.doublecachespringbootstarter.support.InMemoryRedis;
+import com.wangtoye.doublecachespringbootstarter.support.TestRedisCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 预热时扫描二级缓存的key
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 不使用key前缀时，锁、版本号和布隆过滤器的key也能被匹配到
+ */
+class DoubleCacheWarmupTest {
+    private RedisCallbackCacheWriter cacheWriter;
+    private TestRedisCache redisCache;
+    private DoubleCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cacheWriter = new RedisCallbackCacheWriter(new InMemoryRedis().getConnectionFactory(), null);
+        redisCache = new TestRedisCache("users", cacheWriter,
+                RedisCacheConfiguration.defaultCacheConfig().disableKeyPrefix());
+        cache = new DoubleCache("users", null, redisCache, true, "topic");
+    }
+
+    @Test
+    void scanL2KeysSkipsInternalKeys() {
+        byte[] key = redisCache.serializeKey("1");
+        cacheWriter.put("users", key, redisCache.serializeValue("v1"), null);
+        cacheWriter.put("users", NegativeCache.redisKey(redisCache.serializeKey("2")), NegativeCache.REDIS_VALUE,
+                null);
+        assertThat(cacheWriter.tryLease("users", key, new byte[]{1}, Duration.ofMinutes(1))).isTrue();
+        for (String internal : new String[]{"users~lock", "users~generation", "users~bloom"}) {
+            cacheWriter.put("users", internal.getBytes(StandardCharsets.UTF_8), new byte[]{1}, null);
+        }
+
+        assertThat(cache.scanL2Keys(100)).containsExactly("1");
+    }
+}
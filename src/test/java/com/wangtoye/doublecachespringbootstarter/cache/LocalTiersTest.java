@@ -0,0 +1,90 @@
+package com.wangtoye.doublecachespringbootstarter.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache.ValueWrapper;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 本地层的查询顺序和回填
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description:
+ */
+class LocalTiersTest {
+
+    @Test
+    void hitIsPassedToEarlierTiersOnly() {
+        RecordingTier first = new RecordingTier(null);
+        RecordingTier second = new RecordingTier(new SimpleValueWrapper("v"));
+        RecordingTier third = new RecordingTier(new SimpleValueWrapper("other"));
+        LocalTiers tiers = new LocalTiers(Arrays.asList(first, second, third));
+
+        assertThat(tiers.get("k").get()).isEqualTo("v");
+        assertThat(first.filled).containsExactly("v");
+        assertThat(second.filled).isEmpty();
+        assertThat(third.queried).isFalse();
+    }
+
+    @Test
+    void deletedStopsWithoutFilling() {
+        RecordingTier first = new RecordingTier(null);
+        RecordingTier deleted = new RecordingTier(LocalTier.DELETED);
+        RecordingTier last = new RecordingTier(new SimpleValueWrapper("stale"));
+        LocalTiers tiers = new LocalTiers(Arrays.asList(first, deleted, last));
+
+        assertThat(tiers.get("k")).isSameAs(LocalTier.DELETED);
+        assertThat(first.filled).isEmpty();
+        assertThat(last.queried).isFalse();
+    }
+
+    @Test
+    void writeCallbacksReachEveryTier() {
+        RecordingTier first = new RecordingTier(null);
+        RecordingTier second = new RecordingTier(null);
+        LocalTiers tiers = new LocalTiers(Arrays.asList(first, second));
+
+        tiers.onPut(Collections.singletonMap("a", 1));
+        tiers.onInvalidation(Collections.singletonList("b"));
+        tiers.onEvict(Collections.singletonList("c"));
+        //默认的写入和失效通知都按删除处理
+        assertThat(first.evicted).containsExactly("a", "b", "c");
+        assertThat(second.evicted).containsExactly("a", "b", "c");
+        assertThat(tiers.rejects("a")).isFalse();
+    }
+
+    private static class RecordingTier implements LocalTier {
+        private final ValueWrapper value;
+        private final List<Object> filled = new ArrayList<>();
+        private final List<Object> evicted = new ArrayList<>();
+        private boolean queried;
+
+        RecordingTier(ValueWrapper value) {
+            this.value = value;
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            queried = true;
+            return value;
+        }
+
+        @Override
+        public void afterMiss(Object key, ValueWrapper found, byte[] serialized) {
+            filled.add(found.get());
+        }
+
+        @Override
+        public void onEvict(Collection<?> keys) {
+            evicted.addAll(keys);
+        }
+    }
+}
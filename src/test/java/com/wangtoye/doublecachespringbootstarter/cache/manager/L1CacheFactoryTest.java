@@ -0,0 +1,119 @@
+package com.wangtoye.doublecachespringbootstarter.cache.manager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.wangtoye.doublecachespringbootstarter.cache.loader.DoubleCacheLoader;
+import com.wangtoye.doublecachespringbootstarter.cache.support.SerializedSizeWeigher;
+import com.wangtoye.doublecachespringbootstarter.configuration.CaffeineCacheConfiguration;
+import com.wangtoye.doublecachespringbootstarter.support.InMemoryRedis;
+import com.wangtoye.doublecachespringbootstarter.support.TestRedisCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 一级缓存的构造、共享实例和按字节数限制大小
+ *
+ * @author wangtoye
+ * @date 2026-10-18
+ * Description:
+ */
+class L1CacheFactoryTest {
+    private final TestRedisCache redisCache = new TestRedisCache("users",
+            RedisCacheWriter.nonLockingRedisCacheWriter(new InMemoryRedis().getConnectionFactory()),
+            RedisCacheConfiguration.defaultCacheConfig());
+    private final DoubleCacheLoader cacheLoader = new DoubleCacheLoader(redisCache);
+    private final SerializedSizeWeigher weigher = new SerializedSizeWeigher(redisCache);
+
+    @Test
+    void cachesWithoutSpecUseDefaultSpec() {
+        L1CacheFactory factory = new L1CacheFactory("maximumSize=2", null);
+
+        Cache<Object, Object> unconfigured = factory.create("users", null, cacheLoader, weigher);
+        Cache<Object, Object> configured = factory.create("orders", new CaffeineCacheConfiguration("maximumSize=5"),
+                cacheLoader, weigher);
+
+        assertThat(unconfigured.policy().eviction().get().getMaximum()).isEqualTo(2);
+        assertThat(configured.policy().eviction().get().getMaximum()).isEqualTo(5);
+        //每次调用都是新的实例
+        assertThat(factory.create("users", null, cacheLoader, weigher)).isNotSameAs(unconfigured);
+    }
+
+    @Test
+    void sharedViewsOnlySeeTheirOwnKeys() {
+        L1CacheFactory factory = new L1CacheFactory("maximumSize=2", "maximumSize=100");
+        Cache<Object, Object> users = factory.create("users", null, cacheLoader, weigher);
+        Cache<Object, Object> orders = factory.create("orders", null, cacheLoader, weigher);
+
+        users.put("1", "user");
+        orders.put("1", "order");
+        orders.put("2", "order");
+
+        assertThat(users.getIfPresent("1")).isEqualTo("user");
+        assertThat(orders.getIfPresent("1")).isEqualTo("order");
+        assertThat(users.estimatedSize()).isEqualTo(1);
+        assertThat(orders.estimatedSize()).isEqualTo(2);
+        users.invalidateAll();
+        assertThat(users.getIfPresent("1")).isNull();
+        assertThat(orders.asMap()).containsOnlyKeys("1", "2");
+        //共享实例的上限是所有缓存合计的，不使用默认配置
+        assertThat(users.policy().eviction().get().getMaximum()).isEqualTo(100);
+    }
+
+    @Test
+    void byteBudgetReplacesMaximumSize() {
+        assertThat(L1CacheFactory.withMaximumWeight("initialCapacity=10, maximumSize=100,expireAfterWrite=60s", 4096))
+                .isEqualTo("initialCapacity=10,expireAfterWrite=60s,maximumWeight=4096");
+        assertThat(L1CacheFactory.withMaximumWeight("maximumWeight=1", 4096)).isEqualTo("maximumWeight=4096");
+
+        L1CacheFactory factory = new L1CacheFactory("maximumSize=1000", null, 0,
+                Collections.singletonMap("users", 4096L), 0);
+        Cache<Object, Object> cache = factory.create("users", null, cacheLoader, weigher);
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, "value-" + i);
+        }
+        cache.cleanUp();
+
+        Policy.Eviction<Object, Object> eviction = cache.policy().eviction().get();
+        assertThat(eviction.isWeighted()).isTrue();
+        assertThat(eviction.weightedSize().getAsLong()).isLessThanOrEqualTo(4096);
+        assertThat(cache.estimatedSize()).isLessThan(100);
+        assertThat(weigher.weigh("1", "value-1"))
+                .isEqualTo(redisCache.serializeValue("value-1").length + 64);
+    }
+
+    @Test
+    void sharedByteBudgetWeighsEachCacheWithItsOwnWeigher() {
+        L1CacheFactory factory = new L1CacheFactory("maximumSize=2", "maximumSize=100", 100_000,
+                Collections.emptyMap(), 0);
+        List<String> weighed = new CopyOnWriteArrayList<>();
+        Cache<Object, Object> small = factory.create("small", null, cacheLoader, (key, value) -> {
+            weighed.add("small");
+            return 1;
+        });
+        Cache<Object, Object> large = factory.create("large", null, cacheLoader, (key, value) -> {
+            weighed.add("large");
+            return 1000;
+        });
+        for (int i = 0; i < 10; i++) {
+            small.put(i, "v");
+        }
+        for (int i = 0; i < 5; i++) {
+            large.put(i, "v");
+        }
+        small.cleanUp();
+
+        assertThat(weighed).containsOnly("small", "large");
+        //两个缓存共用一个按字节数限制的实例，各自的条目按各自的weigher计算
+        Policy.Eviction<Object, Object> eviction = small.policy().eviction().get();
+        assertThat(eviction.getMaximum()).isEqualTo(100_000);
+        assertThat(eviction.weightedSize().getAsLong()).isEqualTo(10 + 5 * 1000);
+        assertThat(large.policy().eviction().get().weightedSize().getAsLong()).isEqualTo(10 + 5 * 1000);
+    }
+}
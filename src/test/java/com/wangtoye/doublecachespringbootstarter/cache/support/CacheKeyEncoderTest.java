@@ -0,0 +1,114 @@
+package com.wangtoye.doublecachespringbootstarter.cache.support;
+
+import com.wangtoye.doublecachespringbootstarter.support.InMemoryRedis;
+import com.wangtoye.doublecachespringbootstarter.support.TestRedisCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * key的快速转换和RedisCache的结果一致
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description:
+ */
+class CacheKeyEncoderTest {
+    private final RedisCacheWriter cacheWriter = RedisCacheWriter.nonLockingRedisCacheWriter(
+            new InMemoryRedis().getConnectionFactory());
+
+    @Test
+    void matchesRedisCacheForCommonKeyTypes() {
+        TestRedisCache redisCache = new TestRedisCache("users", cacheWriter,
+                RedisCacheConfiguration.defaultCacheConfig());
+        CacheKeyEncoder encoder = new CacheKeyEncoder(redisCache, null);
+        assertThat(encoder.isEnabled()).isTrue();
+
+        Random random = new Random(17);
+        for (int i = 0; i < 10000; i++) {
+            assertEncodesLikeRedisCache(encoder, redisCache, random.nextLong());
+            assertEncodesLikeRedisCache(encoder, redisCache, random.nextInt());
+            assertEncodesLikeRedisCache(encoder, redisCache, new UUID(random.nextLong(), random.nextLong()));
+            assertEncodesLikeRedisCache(encoder, redisCache, randomString(random));
+        }
+        //其他类型交给RedisCache转换
+        assertEncodesLikeRedisCache(encoder, redisCache, 1.5d);
+    }
+
+    @Test
+    void followsGenerationChanges() {
+        RedisCacheConfiguration configuration = RedisCacheConfiguration.defaultCacheConfig();
+        GenerationCacheKeyPrefix keyGeneration = new GenerationCacheKeyPrefix(configuration::getKeyPrefixFor, 1);
+        TestRedisCache redisCache = new TestRedisCache("users", cacheWriter,
+                configuration.computePrefixWith(keyGeneration));
+        CacheKeyEncoder encoder = new CacheKeyEncoder(redisCache, keyGeneration);
+        assertEncodesLikeRedisCache(encoder, redisCache, 42L);
+
+        keyGeneration.updateGeneration(2);
+        assertEncodesLikeRedisCache(encoder, redisCache, 42L);
+        assertEncodesLikeRedisCache(encoder, redisCache, "user:1");
+    }
+
+    @Test
+    void encodeWithoutPrefixDoesNotChangeWithGeneration() {
+        RedisCacheConfiguration configuration = RedisCacheConfiguration.defaultCacheConfig();
+        GenerationCacheKeyPrefix keyGeneration = new GenerationCacheKeyPrefix(configuration::getKeyPrefixFor, 1);
+        TestRedisCache redisCache = new TestRedisCache("users", cacheWriter,
+                configuration.computePrefixWith(keyGeneration));
+        CacheKeyEncoder encoder = new CacheKeyEncoder(redisCache, keyGeneration);
+        assertThat(encoder.encodeWithoutPrefix(42L)).isEqualTo(utf8("42"));
+        //其他类型按RedisCache转换之后再去掉前缀
+        assertThat(encoder.encodeWithoutPrefix(1.5d)).isEqualTo(utf8("1.5"));
+
+        keyGeneration.updateGeneration(2);
+        assertThat(encoder.encodeWithoutPrefix(42L)).isEqualTo(utf8("42"));
+        assertThat(encoder.encodeWithoutPrefix(1.5d)).isEqualTo(utf8("1.5"));
+    }
+
+    @Test
+    void disabledWhenKeysAreNotUtf8() {
+        TestRedisCache redisCache = new TestRedisCache("users", cacheWriter,
+                RedisCacheConfiguration.defaultCacheConfig().serializeKeysWith(
+                        RedisSerializationContext.SerializationPair.fromSerializer(
+                                new StringRedisSerializer(StandardCharsets.UTF_16))));
+        CacheKeyEncoder encoder = new CacheKeyEncoder(redisCache, null);
+        assertThat(encoder.isEnabled()).isFalse();
+        assertEncodesLikeRedisCache(encoder, redisCache, 42L);
+    }
+
+    @Test
+    void customPrefixIsEncodedOnce() {
+        TestRedisCache redisCache = new TestRedisCache("users", cacheWriter,
+                RedisCacheConfiguration.defaultCacheConfig().computePrefixWith(
+                        cacheName -> "前缀:" + cacheName + "::"));
+        CacheKeyEncoder encoder = new CacheKeyEncoder(redisCache, null);
+        assertThat(encoder.isEnabled()).isTrue();
+        assertEncodesLikeRedisCache(encoder, redisCache, "键");
+        assertEncodesLikeRedisCache(encoder, redisCache, Long.MIN_VALUE);
+    }
+
+    private static void assertEncodesLikeRedisCache(CacheKeyEncoder encoder, TestRedisCache redisCache, Object key) {
+        assertThat(encoder.encode(key)).as("key %s", key).isEqualTo(redisCache.serializeKey(key));
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String randomString(Random random) {
+        char[] chars = new char[random.nextInt(20)];
+        for (int i = 0; i < chars.length; i++) {
+            //偶尔混入非ASCII字符
+            chars[i] = random.nextInt(10) == 0 ? (char) (0x4e00 + random.nextInt(100)) : (char) (32 + random.nextInt(95));
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,54 @@
+package com.wangtoye.doublecachespringbootstarter.cache.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 按访问频率准入一级缓存
+ *
+ * @author wangtoye
+ * @date 2026-10-18
+ * Description: 阈值包括本次访问，第一次访问只进入门卫
+ */
+class FrequencyAdmissionTest {
+
+    @Test
+    void keysAreAdmittedAtTheThreshold() {
+        FrequencyAdmission admission = new FrequencyAdmission(1024, 3);
+
+        assertThat(admission.admit("a")).isFalse();
+        assertThat(admission.admit("a")).isFalse();
+        assertThat(admission.admit("a")).isTrue();
+        assertThat(admission.admit("a")).isTrue();
+    }
+
+    @Test
+    void thresholdOfOneAdmitsEveryKey() {
+        FrequencyAdmission admission = new FrequencyAdmission(1024, 1);
+
+        assertThat(admission.admit("a")).isTrue();
+        assertThat(admission.admit("b")).isTrue();
+    }
+
+    @Test
+    void keysReadOnceAreNotAdmitted() {
+        FrequencyAdmission admission = new FrequencyAdmission(1024, 2);
+
+        assertThat(IntStream.range(0, 500).filter(i -> admission.admit("once-" + i)).count()).isZero();
+        assertThat(admission.admit("once-1")).isTrue();
+    }
+
+    @Test
+    void doorkeeperIsClearedAfterTenTimesTheExpectedSize() {
+        FrequencyAdmission admission = new FrequencyAdmission(16, 2);
+        admission.admit("a");
+        IntStream.range(0, 158).forEach(admission::admit);
+
+        //第160次记录前清空门卫，a重新按第一次访问处理
+        assertThat(admission.admit("a")).isFalse();
+        assertThat(admission.admit("a")).isTrue();
+    }
+}
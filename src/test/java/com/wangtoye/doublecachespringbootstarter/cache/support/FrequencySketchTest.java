@@ -0,0 +1,55 @@
+package com.wangtoye.doublecachespringbootstarter.cache.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 访问频率的估算、上限和减半
+ *
+ * @author wangtoye
+ * @date 2026-10-18
+ * Description:
+ */
+class FrequencySketchTest {
+
+    @Test
+    void countsUpToTheMaximum() {
+        FrequencySketch sketch = new FrequencySketch(1024);
+        assertThat(sketch.frequency("a")).isZero();
+
+        for (int i = 1; i <= FrequencySketch.MAX_FREQUENCY; i++) {
+            assertThat(sketch.increment("a")).isEqualTo(i);
+        }
+        assertThat(sketch.increment("a")).isEqualTo(FrequencySketch.MAX_FREQUENCY);
+        assertThat(sketch.frequency("a")).isEqualTo(FrequencySketch.MAX_FREQUENCY);
+    }
+
+    @Test
+    void hotKeysStandOutFromColdOnes() {
+        FrequencySketch sketch = new FrequencySketch(1024);
+        for (int i = 0; i < 10; i++) {
+            sketch.increment("hot");
+        }
+        IntStream.range(0, 500).forEach(i -> sketch.increment("cold-" + i));
+
+        assertThat(sketch.frequency("hot")).isGreaterThanOrEqualTo(10);
+        assertThat(IntStream.range(0, 500).filter(i -> sketch.frequency("cold-" + i) >= 8).count()).isZero();
+    }
+
+    @Test
+    void countersAreHalvedAfterTenTimesTheExpectedSize() {
+        FrequencySketch sketch = new FrequencySketch(16);
+        for (int i = 0; i < FrequencySketch.MAX_FREQUENCY; i++) {
+            sketch.increment("a");
+        }
+        //第160次增加之后减半
+        IntStream.range(0, 160 - FrequencySketch.MAX_FREQUENCY - 1).forEach(i -> sketch.increment(i));
+        assertThat(sketch.frequency("a")).isEqualTo(FrequencySketch.MAX_FREQUENCY);
+
+        sketch.increment(-1);
+        assertThat(sketch.frequency("a")).isEqualTo(FrequencySketch.MAX_FREQUENCY / 2);
+    }
+}
@@ -0,0 +1,103 @@
+package com.wangtoye.doublecachespringbootstarter.cache.support;
+
+import com.wangtoye.doublecachespringbootstarter.configuration.OffHeapConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 堆外缓存环形缓冲区的淘汰
+ *
+ * @author wangtoye
+ * @date 2026-10-18
+ * Description: 只用一个段，缓冲区100字节，每个值30字节，写满三个之后第四个从头开始写
+ */
+class OffHeapStoreTest {
+    private final OffHeapStore store = new OffHeapStore(new OffHeapConfiguration(100, 1, null));
+
+    @Test
+    void wrappingOverwritesTheOldestEntries() {
+        for (int i = 1; i <= 3; i++) {
+            store.put(i, value(i, 30));
+        }
+        assertThat(store.size()).isEqualTo(3);
+
+        //尾部剩余10字节不够，从头开始写，覆盖了最早的1
+        store.put(4, value(4, 30));
+        assertThat(store.get(1)).isNull();
+        assertThat(store.get(2)).isEqualTo(value(2, 30));
+        assertThat(store.get(3)).isEqualTo(value(3, 30));
+        assertThat(store.get(4)).isEqualTo(value(4, 30));
+
+        //40字节跨过了2和3的位置
+        store.put(5, value(5, 40));
+        assertThat(store.get(2)).isNull();
+        assertThat(store.get(3)).isNull();
+        assertThat(store.get(4)).isEqualTo(value(4, 30));
+        assertThat(store.get(5)).isEqualTo(value(5, 40));
+        assertThat(store.size()).isEqualTo(2);
+    }
+
+    @Test
+    void overwrittenEntriesAreNotEvictedTwice() {
+        store.put(1, value(1, 30));
+        store.put(2, value(2, 30));
+        //1重新写在60的位置，0的位置上是已经失效的旧条目
+        store.put(1, value(9, 30));
+
+        //从头写时淘汰的是旧的1，新的1不受影响
+        store.put(3, value(3, 30));
+        assertThat(store.get(1)).isEqualTo(value(9, 30));
+        assertThat(store.get(2)).isEqualTo(value(2, 30));
+        assertThat(store.get(3)).isEqualTo(value(3, 30));
+    }
+
+    @Test
+    void valuesLargerThanASegmentAreNotCached() {
+        store.put(1, value(1, 30));
+        store.put(1, value(2, 101));
+
+        //旧值已经过时，不能继续返回
+        assertThat(store.get(1)).isNull();
+        assertThat(store.getMissCount()).isEqualTo(1);
+        assertThat(store.size()).isZero();
+    }
+
+    @Test
+    void expiredEntriesAreNotReturned() {
+        OffHeapStore expiring = new OffHeapStore(new OffHeapConfiguration(100, 1, Duration.ofNanos(1)));
+        expiring.put(1, value(1, 10));
+
+        assertThat(expiring.get(1)).isNull();
+        assertThat(expiring.size()).isZero();
+    }
+
+    @Test
+    void invalidateAndClear() {
+        OffHeapStore segmented = new OffHeapStore(new OffHeapConfiguration(1000, 4, null));
+        for (int i = 0; i < 8; i++) {
+            segmented.put(i, value(i, 10));
+        }
+
+        segmented.invalidateAll(Arrays.asList(0, 1));
+        assertThat(segmented.get(0)).isNull();
+        assertThat(segmented.get(2)).isEqualTo(value(2, 10));
+        assertThat(segmented.size()).isEqualTo(6);
+
+        segmented.clear();
+        assertThat(segmented.size()).isZero();
+        assertThat(segmented.get(2)).isNull();
+        //清空之后从头开始写
+        segmented.put(2, value(2, 250));
+        assertThat(segmented.get(2)).isEqualTo(value(2, 250));
+    }
+
+    private static byte[] value(int fill, int length) {
+        byte[] value = new byte[length];
+        Arrays.fill(value, (byte) fill);
+        return value;
+    }
+}
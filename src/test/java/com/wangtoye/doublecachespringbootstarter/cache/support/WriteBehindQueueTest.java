@@ -0,0 +1,184 @@
+package com.wangtoye.doublecachespringbootstarter.cache.support;
+
+import com.wangtoye.doublecachespringbootstarter.cache.RedisCacheExt;
+import com.wangtoye.doublecachespringbootstarter.cache.writer.RedisCallbackCacheWriter;
+import com.wangtoye.doublecachespringbootstarter.configuration.WriteBehindConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache.ValueWrapper;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 写后队列的合并、顺序和写入期间的可见性
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 二级缓存写入用mockito记录，key和value都按字符串序列化，value为null表示删除
+ */
+class WriteBehindQueueTest {
+    /**
+     * 定时写入的间隔足够长，测试中只通过flush和批次大小触发写入
+     */
+    private static final Duration NEVER = Duration.ofHours(1);
+
+    private final List<Map<String, String>> writes = new CopyOnWriteArrayList<>();
+    private final List<List<Object>> notified = new CopyOnWriteArrayList<>();
+    private RedisCallbackCacheWriter cacheWriter;
+    private RedisCacheExt redisCache;
+    private WriteBehindQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        cacheWriter = mock(RedisCallbackCacheWriter.class);
+        redisCache = mock(RedisCacheExt.class);
+        when(redisCache.serializeKey(any())).thenAnswer(invocation ->
+                invocation.getArgument(0).toString().getBytes(StandardCharsets.UTF_8));
+        when(redisCache.serializeValue(any())).thenAnswer(invocation ->
+                invocation.getArgument(0).toString().getBytes(StandardCharsets.UTF_8));
+        doAnswer(invocation -> {
+            writes.add(decode(invocation.getArgument(1)));
+            return null;
+        }).when(cacheWriter).writeAll(eq("users"), anyMap(), any());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (queue != null) {
+            queue.shutdown();
+        }
+    }
+
+    private WriteBehindQueue createQueue(int queueCapacity, int batchSize) {
+        queue = new WriteBehindQueue("users", cacheWriter, redisCache, null,
+                new WriteBehindConfiguration(queueCapacity, batchSize, NEVER, Duration.ofSeconds(1)),
+                keys -> notified.add(new ArrayList<>(keys)));
+        return queue;
+    }
+
+    @Test
+    void coalescesWritesToTheSameKey() {
+        WriteBehindQueue queue = createQueue(100, 100);
+        queue.put("a", 1);
+        queue.put("b", 1);
+        queue.put("a", 2);
+        queue.remove("b");
+        queue.put("c", 3);
+
+        assertThat(queue.getPending("a").get()).isEqualTo(2);
+        assertThat(WriteBehindQueue.isDeletion(queue.getPending("b"))).isTrue();
+        queue.flush();
+
+        Map<String, String> expected = new LinkedHashMap<>();
+        expected.put("a", "2");
+        expected.put("b", null);
+        expected.put("c", "3");
+        assertThat(writes).containsExactly(expected);
+        assertThat(notified).containsExactly(Arrays.asList("a", "b", "c"));
+        assertThat(queue.getPending("a")).isNull();
+    }
+
+    @Test
+    void batchesAreWrittenInInsertionOrder() {
+        WriteBehindQueue queue = createQueue(100, 2);
+        for (int i = 0; i < 5; i++) {
+            queue.put("k" + i, i);
+        }
+        queue.flush();
+
+        List<String> order = new ArrayList<>();
+        writes.forEach(batch -> {
+            assertThat(batch.size()).isLessThanOrEqualTo(2);
+            order.addAll(batch.keySet());
+        });
+        assertThat(order).containsExactly("k0", "k1", "k2", "k3", "k4");
+    }
+
+    @Test
+    void valuesStayVisibleUntilTheWriteCompletes() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            writes.add(decode(invocation.getArgument(1)));
+            return null;
+        }).when(cacheWriter).writeAll(eq("users"), anyMap(), any());
+        WriteBehindQueue queue = createQueue(100, 100);
+        queue.put("a", 1);
+
+        CompletableFuture<Void> flush = CompletableFuture.runAsync(queue::flush);
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        //已经取出但还没写入完成，读取仍然要看到这个值，不能去二级缓存读旧值
+        ValueWrapper inFlight = queue.getPending("a");
+        assertThat(inFlight).isNotNull();
+        assertThat(inFlight.get()).isEqualTo(1);
+
+        release.countDown();
+        flush.get(5, TimeUnit.SECONDS);
+        assertThat(queue.getPending("a")).isNull();
+    }
+
+    @Test
+    void failedBatchIsRequeuedWithoutOverwritingNewerValues() {
+        AtomicBoolean fail = new AtomicBoolean(true);
+        doAnswer(invocation -> {
+            if (fail.getAndSet(false)) {
+                //写入失败之前又有新的写入
+                queue.put("a", 2);
+                throw new IllegalStateException("redis down");
+            }
+            writes.add(decode(invocation.getArgument(1)));
+            return null;
+        }).when(cacheWriter).writeAll(eq("users"), anyMap(), any());
+        WriteBehindQueue queue = createQueue(100, 100);
+        queue.put("a", 1);
+        queue.put("b", 1);
+
+        assertThatThrownBy(queue::flush).isInstanceOf(IllegalStateException.class);
+        assertThat(notified).isEmpty();
+        queue.flush();
+
+        assertThat(writes).hasSize(1);
+        assertThat(writes.get(0)).containsEntry("a", "2").containsEntry("b", "1");
+    }
+
+    @Test
+    void writesOnCallerThreadAfterShutdown() {
+        WriteBehindQueue queue = createQueue(100, 100);
+        queue.shutdown();
+        queue.put("a", 1);
+
+        assertThat(writes).containsExactly(Collections.singletonMap("a", "1"));
+        assertThat(notified).containsExactly(Collections.singletonList("a"));
+    }
+
+    private static Map<String, String> decode(Map<byte[], byte[]> entries) {
+        Map<String, String> decoded = new LinkedHashMap<>();
+        entries.forEach((key, value) -> decoded.put(new String(key, StandardCharsets.UTF_8),
+                value == null ? null : new String(value, StandardCharsets.UTF_8)));
+        return decoded;
+    }
+}
@@ -0,0 +1,102 @@
+package com.wangtoye.doublecachespringbootstarter.cache.writer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisNode.NodeType;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 集群模式下的SCAN
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 集群连接不支持不指定节点的SCAN，需要依次遍历每个主节点
+ */
+class RedisCallbackCacheWriterClusterTest {
+    private static final byte[] PATTERN = "users::*".getBytes(StandardCharsets.UTF_8);
+
+    private final RedisClusterNode master1 = node("10.0.0.1", NodeType.MASTER, RedisClusterNode.Flag.MASTER);
+    private final RedisClusterNode master2 = node("10.0.0.2", NodeType.MASTER, RedisClusterNode.Flag.MASTER);
+    private final RedisClusterNode replica = node("10.0.0.3", NodeType.SLAVE, RedisClusterNode.Flag.SLAVE);
+    private final RedisClusterNode failed = node("10.0.0.4", NodeType.MASTER, RedisClusterNode.Flag.FAIL);
+
+    private final List<List<String>> unlinked = new ArrayList<>();
+    private RedisClusterConnection connection;
+    private RedisCallbackCacheWriter cacheWriter;
+
+    @BeforeEach
+    void setUp() {
+        connection = mock(RedisClusterConnection.class);
+        RedisConnectionFactory connectionFactory = mock(RedisConnectionFactory.class);
+        when(connectionFactory.getConnection()).thenReturn(connection);
+        when(connection.clusterGetNodes()).thenReturn(Arrays.asList(master1, replica, master2, failed));
+        when(connection.scan(eq(master1), any(ScanOptions.class)))
+                .thenAnswer(invocation -> cursor("users::1", "users::2", "users::3"));
+        when(connection.scan(eq(master2), any(ScanOptions.class)))
+                .thenAnswer(invocation -> cursor("users::4"));
+        when(connection.unlink(any())).thenAnswer(invocation -> {
+            //mockito把可变参数展开成单独的参数
+            List<String> keys = Arrays.stream(invocation.getArguments())
+                    .map(key -> new String((byte[]) key, StandardCharsets.UTF_8)).collect(Collectors.toList());
+            unlinked.add(keys);
+            return (long) keys.size();
+        });
+        cacheWriter = new RedisCallbackCacheWriter(connectionFactory, null);
+        cacheWriter.setClearBatchSize(2);
+    }
+
+    @Test
+    void cleanScansEveryMasterNode() {
+        assertThat(cacheWriter.clean("users", PATTERN, null)).isEqualTo(4);
+
+        assertThat(unlinked).containsExactly(Arrays.asList("users::1", "users::2"),
+                Arrays.asList("users::3", "users::4"));
+        verify(connection, never()).scan(any(ScanOptions.class));
+        verify(connection, never()).scan(eq(replica), any(ScanOptions.class));
+        verify(connection, never()).scan(eq(failed), any(ScanOptions.class));
+    }
+
+    @Test
+    void scanStopsAtLimitAcrossNodes() {
+        assertThat(cacheWriter.scan("users", PATTERN, 2)).hasSize(2);
+        verify(connection, never()).scan(eq(master2), any(ScanOptions.class));
+
+        assertThat(cacheWriter.scan("users", PATTERN, 10))
+                .extracting(key -> new String(key, StandardCharsets.UTF_8))
+                .containsExactly("users::1", "users::2", "users::3", "users::4");
+    }
+
+    private static RedisClusterNode node(String host, NodeType type, RedisClusterNode.Flag flag) {
+        return RedisClusterNode.newRedisClusterNode().listeningAt(host, 6379).promotedAs(type)
+                .withFlags(EnumSet.of(flag)).build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Cursor<byte[]> cursor(String... keys) {
+        Iterator<String> iterator = Arrays.asList(keys).iterator();
+        Cursor<byte[]> cursor = mock(Cursor.class);
+        when(cursor.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+        when(cursor.next()).thenAnswer(invocation -> iterator.next().getBytes(StandardCharsets.UTF_8));
+        return cursor;
+    }
+}
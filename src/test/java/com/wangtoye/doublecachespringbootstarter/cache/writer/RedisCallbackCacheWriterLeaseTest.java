@@ -0,0 +1,72 @@
+package com.wangtoye.doublecachespringbootstarter.cache.writer;
+
+import com.wangtoye.doublecachespringbootstarter.support.InMemoryRedis;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 加载租约的获取、过期和释放
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description:
+ */
+class RedisCallbackCacheWriterLeaseTest {
+    private static final byte[] KEY = "users::1".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] TOKEN_A = "node-a".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] TOKEN_B = "node-b".getBytes(StandardCharsets.UTF_8);
+
+    private InMemoryRedis redis;
+    private RedisCallbackCacheWriter cacheWriter;
+
+    @BeforeEach
+    void setUp() {
+        redis = new InMemoryRedis();
+        cacheWriter = new RedisCallbackCacheWriter(redis.getConnectionFactory(), null);
+    }
+
+    @Test
+    void onlyOneHolderAtATime() {
+        assertThat(cacheWriter.tryLease("users", KEY, TOKEN_A, Duration.ofSeconds(10))).isTrue();
+        assertThat(cacheWriter.tryLease("users", KEY, TOKEN_B, Duration.ofSeconds(10))).isFalse();
+        assertThat(cacheWriter.tryLease("users", KEY, TOKEN_A, Duration.ofSeconds(10))).isFalse();
+    }
+
+    @Test
+    void leaseExpiresWithoutRelease() throws InterruptedException {
+        assertThat(cacheWriter.tryLease("users", KEY, TOKEN_A, Duration.ofMillis(50))).isTrue();
+        Thread.sleep(100);
+        assertThat(cacheWriter.tryLease("users", KEY, TOKEN_B, Duration.ofSeconds(10))).isTrue();
+    }
+
+    @Test
+    void releaseByHolderFreesLease() {
+        assertThat(cacheWriter.tryLease("users", KEY, TOKEN_A, Duration.ofSeconds(10))).isTrue();
+        cacheWriter.releaseLease("users", KEY, TOKEN_A);
+        assertThat(cacheWriter.tryLease("users", KEY, TOKEN_B, Duration.ofSeconds(10))).isTrue();
+    }
+
+    @Test
+    void releaseAfterExpiryDoesNotDeleteNewHolder() throws InterruptedException {
+        assertThat(cacheWriter.tryLease("users", KEY, TOKEN_A, Duration.ofMillis(50))).isTrue();
+        Thread.sleep(100);
+        assertThat(cacheWriter.tryLease("users", KEY, TOKEN_B, Duration.ofSeconds(10))).isTrue();
+        //A的租约已经过期，释放时比较持有者标识，不能删除B的租约
+        cacheWriter.releaseLease("users", KEY, TOKEN_A);
+        assertThat(cacheWriter.tryLease("users", KEY, TOKEN_A, Duration.ofSeconds(10))).isFalse();
+        cacheWriter.releaseLease("users", KEY, TOKEN_B);
+        assertThat(cacheWriter.tryLease("users", KEY, TOKEN_A, Duration.ofSeconds(10))).isTrue();
+    }
+
+    @Test
+    void leaseKeyDoesNotOverwriteCachedValue() {
+        cacheWriter.put("users", KEY, "value".getBytes(StandardCharsets.UTF_8), null);
+        assertThat(cacheWriter.tryLease("users", KEY, TOKEN_A, Duration.ofSeconds(10))).isTrue();
+        assertThat(cacheWriter.get("users", KEY)).isEqualTo("value".getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,78 @@
+package com.wangtoye.doublecachespringbootstarter.cache.writer;
+
+import com.wangtoye.doublecachespringbootstarter.support.InMemoryRedis;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+/**
+ * 缓存锁只用于写操作之间的互斥
+ *
+ * @author wangtoye
+ * @date 2026-10-18
+ * Description: 无锁模式的写入和任何模式下的读取都不等待缓存锁
+ */
+class RedisCallbackCacheWriterLockTest {
+    private static final byte[] KEY = "users::1".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] VALUE = "v1".getBytes(StandardCharsets.UTF_8);
+
+    private InMemoryRedis redis;
+    private RedisCallbackCacheWriter lockingWriter;
+
+    @BeforeEach
+    void setUp() {
+        redis = new InMemoryRedis();
+        lockingWriter = new RedisCallbackCacheWriter(redis.getConnectionFactory(), Duration.ofMillis(10), null);
+    }
+
+    @Test
+    void lockFreeWriterDoesNotWaitForLock() {
+        RedisCallbackCacheWriter lockFreeWriter = new RedisCallbackCacheWriter(redis.getConnectionFactory(), null);
+        lockingWriter.lock("users");
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            lockFreeWriter.put("users", KEY, VALUE, null);
+            assertThat(lockFreeWriter.putIfAbsent("users", KEY, VALUE, null)).isEqualTo(VALUE);
+        });
+        assertThat(redis.get(KEY)).isEqualTo(VALUE);
+    }
+
+    @Test
+    void readsDoNotWaitForLock() {
+        lockingWriter.put("users", KEY, VALUE, null);
+        lockingWriter.lock("users");
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> assertThat(lockingWriter.get("users", KEY)).isEqualTo(VALUE));
+    }
+
+    @Test
+    void lockingWriterWaitsForLock() throws Exception {
+        lockingWriter.lock("users");
+        CompletableFuture<Void> put = CompletableFuture.runAsync(() -> lockingWriter.put("users", KEY, VALUE, null));
+        Thread.sleep(100);
+        assertThat(put).isNotDone();
+        assertThat(redis.get(KEY)).isNull();
+
+        lockingWriter.unlock("users");
+        put.get(5, TimeUnit.SECONDS);
+        assertThat(redis.get(KEY)).isEqualTo(VALUE);
+    }
+
+    @Test
+    void putIfAbsentSetsValueAndTtlTogether() throws InterruptedException {
+        assertThat(lockingWriter.putIfAbsent("users", KEY, VALUE, Duration.ofMillis(50))).isNull();
+        assertThat(lockingWriter.putIfAbsent("users", KEY, "v2".getBytes(StandardCharsets.UTF_8),
+                Duration.ofMillis(50))).isEqualTo(VALUE);
+
+        Thread.sleep(100);
+        assertThat(redis.get(KEY)).isNull();
+    }
+}
@@ -0,0 +1,160 @@
+package com.wangtoye.doublecachespringbootstarter.interceptor;
+
+import com.wangtoye.doublecachespringbootstarter.annotation.BatchCacheable;
+import com.wangtoye.doublecachespringbootstarter.cache.DoubleCache;
+import com.wangtoye.doublecachespringbootstarter.cache.manager.DoubleCacheManager;
+import com.wangtoye.doublecachespringbootstarter.cache.writer.RedisCallbackCacheWriter;
+import com.wangtoye.doublecachespringbootstarter.support.InMemoryRedis;
+import com.wangtoye.doublecachespringbootstarter.support.TestRedisCache;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 批量查询方法的缓存
+ *
+ * @author wangtoye
+ * @date 2026-10-18
+ * Description:
+ */
+class BatchCacheInterceptorTest {
+    private final UserService userService = new UserService();
+    private BatchCacheInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        TestRedisCache redisCache = new TestRedisCache("users",
+                new RedisCallbackCacheWriter(new InMemoryRedis().getConnectionFactory(), null),
+                RedisCacheConfiguration.defaultCacheConfig());
+        DoubleCacheManager cacheManager = mock(DoubleCacheManager.class);
+        when(cacheManager.getDoubleCache("users")).thenReturn(new DoubleCache("users", null, redisCache, true, "topic"));
+        interceptor = new BatchCacheInterceptor(() -> cacheManager);
+    }
+
+    @Test
+    void onlyMissingElementsReachTheMethod() throws Throwable {
+        assertThat(interceptor.invoke(invocation("findNames", Arrays.asList(1L, 2L))))
+                .isEqualTo(map(1L, "user-1", 2L, "user-2"));
+        assertThat(interceptor.invoke(invocation("findNames", Arrays.asList(3L, 2L, 1L))))
+                .isEqualTo(map(3L, "user-3", 2L, "user-2", 1L, "user-1"));
+
+        assertThat(userService.requested).containsExactly(Arrays.asList(1L, 2L), Collections.singletonList(3L));
+    }
+
+    @Test
+    void elementsMissingFromTheResultAreCachedAsNull() throws Throwable {
+        assertThat(interceptor.invoke(invocation("findNames", Arrays.asList(1L, -1L))))
+                .isEqualTo(map(1L, "user-1"));
+        assertThat(interceptor.invoke(invocation("findNames", Arrays.asList(1L, -1L))))
+                .isEqualTo(map(1L, "user-1"));
+
+        assertThat(userService.requested).containsExactly(Arrays.asList(1L, -1L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void collectionResultsAreKeyedByElementKey() throws Throwable {
+        interceptor.invoke(invocation("findUsers", Arrays.asList(1L, 2L)));
+        List<User> users = (List<User>) interceptor.invoke(invocation("findUsers", Arrays.asList(2L, 3L)));
+
+        assertThat(users.stream().map(User::getName).collect(Collectors.toList())).containsExactly("user-2", "user-3");
+        assertThat(userService.requested).containsExactly(Arrays.asList(1L, 2L), Collections.singletonList(3L));
+    }
+
+    @Test
+    void rejectsEmptyCacheName() throws Exception {
+        BatchCacheInterceptor interceptor = new BatchCacheInterceptor(() -> {
+            throw new AssertionError("缓存名为空时不应该获取缓存");
+        });
+        MethodInvocation invocation = mock(MethodInvocation.class);
+        when(invocation.getThis()).thenReturn(new UserService());
+        when(invocation.getMethod()).thenReturn(UserService.class.getMethod("unnamed", List.class));
+
+        assertThatThrownBy(() -> interceptor.invoke(invocation))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("unnamed");
+    }
+
+    private MethodInvocation invocation(String methodName, List<Long> ids) throws Throwable {
+        Object[] arguments = {ids};
+        MethodInvocation invocation = mock(MethodInvocation.class);
+        when(invocation.getThis()).thenReturn(userService);
+        when(invocation.getMethod()).thenReturn(UserService.class.getMethod(methodName, List.class));
+        when(invocation.getArguments()).thenReturn(arguments);
+        //和真实的调用链一样使用被替换之后的参数
+        when(invocation.proceed()).thenAnswer(ignored ->
+                UserService.class.getMethod(methodName, List.class).invoke(userService, arguments));
+        return invocation;
+    }
+
+    private static Map<Object, Object> map(Object... keysAndValues) {
+        Map<Object, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return map;
+    }
+
+    static class UserService {
+        private final List<List<Long>> requested = new ArrayList<>();
+
+        @BatchCacheable
+        public Map<Long, String> unnamed(List<Long> ids) {
+            return Collections.emptyMap();
+        }
+
+        /**
+         * 负数的id不存在
+         */
+        @BatchCacheable("users")
+        public Map<Long, String> findNames(List<Long> ids) {
+            requested.add(new ArrayList<>(ids));
+            Map<Long, String> names = new LinkedHashMap<>();
+            for (Long id : ids) {
+                if (id > 0) {
+                    names.put(id, "user-" + id);
+                }
+            }
+            return names;
+        }
+
+        @BatchCacheable(cacheName = "users", elementKey = "id")
+        public List<User> findUsers(List<Long> ids) {
+            requested.add(new ArrayList<>(ids));
+            return ids.stream().map(id -> new User(id, "user-" + id)).collect(Collectors.toList());
+        }
+    }
+
+    static class User implements Serializable {
+        private final Long id;
+        private final String name;
+
+        User(Long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.wangtoye.doublecachespringbootstarter.interceptor;
+
+import com.wangtoye.doublecachespringbootstarter.annotation.ReactiveCacheable;
+import com.wangtoye.doublecachespringbootstarter.cache.DoubleCache;
+import com.wangtoye.doublecachespringbootstarter.cache.ReactiveDoubleCache;
+import com.wangtoye.doublecachespringbootstarter.cache.manager.DoubleCacheManager;
+import com.wangtoye.doublecachespringbootstarter.cache.writer.RedisCallbackCacheWriter;
+import com.wangtoye.doublecachespringbootstarter.support.InMemoryRedis;
+import com.wangtoye.doublecachespringbootstarter.support.TestRedisCache;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 响应式方法的缓存
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description:
+ */
+class ReactiveCacheInterceptorTest {
+    private final AtomicInteger calls = new AtomicInteger();
+    private TestRedisCache redisCache;
+    private ReactiveCacheInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        redisCache = new TestRedisCache("users",
+                new RedisCallbackCacheWriter(new InMemoryRedis().getConnectionFactory(), null),
+                RedisCacheConfiguration.defaultCacheConfig());
+        DoubleCacheManager cacheManager = mock(DoubleCacheManager.class);
+        when(cacheManager.getReactiveCache("users"))
+                .thenReturn(new ReactiveDoubleCache(new DoubleCache("users", null, redisCache, true, "topic")));
+        interceptor = new ReactiveCacheInterceptor(() -> cacheManager);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void cachesTheValueEmittedByMono() throws Throwable {
+        Mono<String> result = (Mono<String>) interceptor.invoke(invocation("find", "1"));
+        //订阅之前不调用原方法
+        assertThat(calls).hasValue(0);
+        assertThat(result.block()).isEqualTo("user-1");
+        assertThat(((Mono<String>) interceptor.invoke(invocation("find", "1"))).block()).isEqualTo("user-1");
+
+        assertThat(calls).hasValue(1);
+        assertThat(redisCache.get("1").get()).isEqualTo("user-1");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void cachesAllElementsEmittedByFlux() throws Throwable {
+        assertThat(((Flux<String>) interceptor.invoke(invocation("findAll", "1"))).collectList().block())
+                .containsExactly("user-1", "friend-1");
+        assertThat(((Flux<String>) interceptor.invoke(invocation("findAll", "1"))).collectList().block())
+                .containsExactly("user-1", "friend-1");
+
+        assertThat(calls).hasValue(1);
+        assertThat(redisCache.get("1").get()).isEqualTo(Arrays.asList("user-1", "friend-1"));
+    }
+
+    @Test
+    void rejectsEmptyCacheName() throws Exception {
+        ReactiveCacheInterceptor interceptor = new ReactiveCacheInterceptor(() -> {
+            throw new AssertionError("缓存名为空时不应该获取缓存");
+        });
+        MethodInvocation invocation = mock(MethodInvocation.class);
+        when(invocation.getThis()).thenReturn(new UserService());
+        when(invocation.getMethod()).thenReturn(UserService.class.getMethod("unnamed", String.class));
+
+        assertThatThrownBy(() -> interceptor.invoke(invocation))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("unnamed");
+    }
+
+    private MethodInvocation invocation(String methodName, String id) throws Throwable {
+        UserService target = new UserService();
+        MethodInvocation invocation = mock(MethodInvocation.class);
+        when(invocation.getThis()).thenReturn(target);
+        when(invocation.getMethod()).thenReturn(UserService.class.getMethod(methodName, String.class));
+        when(invocation.getArguments()).thenReturn(new Object[]{id});
+        when(invocation.proceed()).thenAnswer(ignored -> {
+            calls.incrementAndGet();
+            return UserService.class.getMethod(methodName, String.class).invoke(target, id);
+        });
+        return invocation;
+    }
+
+    static class UserService {
+        @ReactiveCacheable(key = "#id")
+        public Mono<String> unnamed(String id) {
+            return Mono.just(id);
+        }
+
+        @ReactiveCacheable(cacheName = "users", key = "#id")
+        public Mono<String> find(String id) {
+            return Mono.just("user-" + id);
+        }
+
+        @ReactiveCacheable(cacheName = "users", key = "#id")
+        public Flux<String> findAll(String id) {
+            return Flux.just("user-" + id, "friend-" + id);
+        }
+    }
+}
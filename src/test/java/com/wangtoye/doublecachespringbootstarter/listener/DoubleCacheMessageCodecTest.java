@@ -0,0 +1,128 @@
+package com.wangtoye.doublecachespringbootstarter.listener;
+
+import com.wangtoye.doublecachespringbootstarter.utils.CacheUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 失效通知的编解码
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description:
+ */
+class DoubleCacheMessageCodecTest {
+    private final DoubleCacheMessageCodec codec = new DoubleCacheMessageCodec(new JdkSerializationRedisSerializer());
+
+    @Test
+    void singleKeysRoundTrip() {
+        Object[] keys = {"user:1", "样例:キー😀", "", Long.MIN_VALUE, 42L, Integer.MAX_VALUE, -7,
+                UUID.randomUUID(), LocalDate.of(2026, 10, 17)};
+        for (Object key : keys) {
+            DoubleCacheMessage decoded = codec.decode(codec.encode(new DoubleCacheMessage("users", key, 99L)));
+            assertThat(decoded.getKey()).isEqualTo(key);
+            assertThat(decoded.getKeys()).isNull();
+            assertThat(decoded.getNodeId()).isEqualTo(99L);
+            assertThat(decoded.getCacheId()).isEqualTo(DoubleCacheMessageCodec.cacheId("users"));
+        }
+    }
+
+    @Test
+    void batchRoundTrip() {
+        DoubleCacheMessage message = new DoubleCacheMessage("users",
+                Arrays.asList("a", 1L, 2, new UUID(1, 2)), -1L);
+        DoubleCacheMessage decoded = codec.decode(codec.encode(message));
+        assertThat(decoded.getKeys()).containsExactly("a", 1L, 2, new UUID(1, 2));
+        assertThat(decoded.getNodeId()).isEqualTo(-1L);
+    }
+
+    @Test
+    void clearRoundTrip() {
+        DoubleCacheMessage decoded = codec.decode(codec.encode(new DoubleCacheMessage("users", null, 5L)));
+        assertThat(decoded.getKey()).isNull();
+        assertThat(decoded.getKeys()).isNull();
+        assertThat(decoded.getCacheId()).isEqualTo(DoubleCacheMessageCodec.cacheId("users"));
+    }
+
+    @Test
+    void unencodableKeysBecomeClearMessages() {
+        DoubleCacheMessageCodec withoutFallback = new DoubleCacheMessageCodec();
+        Object[] messages = {new DoubleCacheMessage("users", LocalDate.of(2026, 10, 17), 5L),
+                new DoubleCacheMessage("users", Arrays.asList("a", new Object()), 5L)};
+        for (Object message : messages) {
+            DoubleCacheMessage decoded = withoutFallback.decode(withoutFallback.encode((DoubleCacheMessage) message));
+            assertThat(decoded.getKey()).isNull();
+            assertThat(decoded.getKeys()).isNull();
+            assertThat(decoded.getCacheId()).isEqualTo(DoubleCacheMessageCodec.cacheId("users"));
+        }
+        //后备的序列化方式也无法序列化时同样改为清空整个缓存
+        DoubleCacheMessage decoded = codec.decode(codec.encode(new DoubleCacheMessage("users", new Object(), 5L)));
+        assertThat(decoded.getKey()).isNull();
+        assertThat(decoded.getKeys()).isNull();
+    }
+
+    @Test
+    void decodesVersionOneAsUnknownOrigin() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(0xDC);
+        out.writeByte(1);
+        out.writeByte(0);
+        UUID origin = UUID.randomUUID();
+        out.writeLong(origin.getMostSignificantBits());
+        out.writeLong(origin.getLeastSignificantBits());
+        out.writeInt(DoubleCacheMessageCodec.cacheId("users"));
+        out.writeByte(1);
+        out.writeByte(1);
+        byte[] key = "user:1".getBytes(StandardCharsets.UTF_8);
+        out.writeByte(key.length);
+        out.write(key);
+
+        byte[] body = bytes.toByteArray();
+        assertThat(codec.isEncoded(body)).isTrue();
+        DoubleCacheMessage decoded = codec.decode(body);
+        assertThat(decoded.getKey()).isEqualTo("user:1");
+        assertThat(decoded.getNodeId()).isZero();
+        assertThat(decoded.getCacheId()).isEqualTo(DoubleCacheMessageCodec.cacheId("users"));
+    }
+
+    @Test
+    void rejectsUnknownVersion() {
+        byte[] body = codec.encode(new DoubleCacheMessage("users", 1L, 1L));
+        body[1] = 9;
+        assertThatThrownBy(() -> codec.decode(body)).isInstanceOf(SerializationException.class);
+    }
+
+    @Test
+    void legacyJsonIsNotEncodedAndKeepsOldFields() {
+        GenericJackson2JsonRedisSerializer serializer = CacheUtils.getGenericJackson2JsonRedisSerializer();
+        DoubleCacheMessage legacy = new DoubleCacheMessage();
+        legacy.setCacheName("users");
+        legacy.setKey("user:1");
+        legacy.setUuid(DoubleCacheMessageCodec.legacyUuid(123L));
+        byte[] json = serializer.serialize(legacy);
+
+        assertThat(codec.isEncoded(json)).isFalse();
+        //旧版本节点的DoubleCacheMessage只有这三个字段，多出的字段会导致反序列化失败
+        assertThat(new String(json, StandardCharsets.UTF_8))
+                .contains("\"cacheName\"", "\"key\"", "\"uuid\"")
+                .doesNotContain("cacheId", "nodeId", "keys");
+        DoubleCacheMessage decoded = (DoubleCacheMessage) serializer.deserialize(json);
+        assertThat(DoubleCacheMessageCodec.legacyNodeId(decoded.getUuid())).isEqualTo(123L);
+        assertThat(DoubleCacheMessageCodec.legacyNodeId(UUID.randomUUID().toString())).isZero();
+        assertThat(DoubleCacheMessageCodec.legacyNodeId("not-a-uuid")).isZero();
+    }
+}
@@ -0,0 +1,85 @@
+package com.wangtoye.doublecachespringbootstarter.listener;
+
+import com.wangtoye.doublecachespringbootstarter.cache.manager.DoubleCacheManager;
+import com.wangtoye.doublecachespringbootstarter.utils.CacheUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 按节点id过滤当前节点发布的失效通知
+ *
+ * @author wangtoye
+ * @date 2026-10-18
+ * Description: 新格式的消息带有节点id，旧格式的消息从uuid中取出节点id
+ */
+class DoubleCacheMessageListenerTest {
+    private static final long NODE_ID = 42L;
+    private static final byte[] CHANNEL = "topic".getBytes(StandardCharsets.UTF_8);
+
+    private final DoubleCacheMessageCodec codec = new DoubleCacheMessageCodec(new JdkSerializationRedisSerializer());
+    private final GenericJackson2JsonRedisSerializer jsonSerializer = CacheUtils.getGenericJackson2JsonRedisSerializer();
+    private DoubleCacheManager cacheManager;
+    private DoubleCacheMessageListener listener;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        cacheManager = mock(DoubleCacheManager.class);
+        when(cacheManager.getNodeId()).thenReturn(NODE_ID);
+        when(cacheManager.getMessageCodec()).thenReturn(codec);
+        RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+        doReturn(jsonSerializer).when(redisTemplate).getValueSerializer();
+        listener = new DoubleCacheMessageListener(redisTemplate, cacheManager);
+    }
+
+    @Test
+    void ignoresMessagesFromThisNode() {
+        listener.onMessage(message(codec.encode(new DoubleCacheMessage("users", "1", NODE_ID))), null);
+
+        verify(cacheManager, never()).clearL1Cache(anyInt(), any());
+    }
+
+    @Test
+    void clearsOnMessagesFromOtherNodes() {
+        listener.onMessage(message(codec.encode(new DoubleCacheMessage("users", "1", NODE_ID + 1))), null);
+
+        verify(cacheManager).clearL1Cache(DoubleCacheMessageCodec.cacheId("users"), "1");
+    }
+
+    @Test
+    void legacyMessagesCarryTheNodeIdInTheUuid() {
+        listener.onMessage(message(legacyMessage("1", DoubleCacheMessageCodec.legacyUuid(NODE_ID))), null);
+        verify(cacheManager, never()).clearL1Cache(anyInt(), any());
+
+        //旧版本节点发布的消息带有随机的uuid
+        listener.onMessage(message(legacyMessage("2", UUID.randomUUID().toString())), null);
+        verify(cacheManager).clearL1Cache(DoubleCacheMessageCodec.cacheId("users"), "2");
+    }
+
+    private byte[] legacyMessage(Object key, String uuid) {
+        DoubleCacheMessage legacy = new DoubleCacheMessage();
+        legacy.setCacheName("users");
+        legacy.setKey(key);
+        legacy.setUuid(uuid);
+        return jsonSerializer.serialize(legacy);
+    }
+
+    private static DefaultMessage message(byte[] body) {
+        return new DefaultMessage(CHANNEL, body);
+    }
+}
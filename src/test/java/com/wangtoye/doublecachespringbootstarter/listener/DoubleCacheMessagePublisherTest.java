@@ -0,0 +1,163 @@
+package com.wangtoye.doublecachespringbootstarter.listener;
+
+import com.wangtoye.doublecachespringbootstarter.cache.writer.RedisCallbackCacheWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 失效通知的发布
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 发布的二进制消息解码后检查，旧格式的消息直接记录发送的对象
+ */
+class DoubleCacheMessagePublisherTest {
+    private static final long NODE_ID = 7L;
+
+    private final DoubleCacheMessageCodec codec = new DoubleCacheMessageCodec();
+    private final List<DoubleCacheMessage> published = new CopyOnWriteArrayList<>();
+    private final List<DoubleCacheMessage> legacyPublished = new CopyOnWriteArrayList<>();
+    private RedisCallbackCacheWriter cacheWriter;
+
+    @BeforeEach
+    void setUp() {
+        cacheWriter = mock(RedisCallbackCacheWriter.class);
+        doAnswer(invocation -> published.add(codec.decode(invocation.getArgument(1))))
+                .when(cacheWriter).publish(eq("topic"), any());
+        doAnswer(invocation -> legacyPublished.add(invocation.getArgument(1)))
+                .when(cacheWriter).convertAndSend(eq("topic"), any());
+    }
+
+    @Test
+    void publishesEachKeyWithoutBatchWindow() {
+        DoubleCacheMessagePublisher publisher = new DoubleCacheMessagePublisher(cacheWriter, codec, "topic",
+                NODE_ID, Duration.ZERO, 100);
+        publisher.publish("users", 1L);
+        publisher.publish("users", null);
+
+        assertThat(published).hasSize(2);
+        assertThat(published.get(0).getKey()).isEqualTo(1L);
+        assertThat(published.get(0).getNodeId()).isEqualTo(NODE_ID);
+        assertThat(published.get(1).getKey()).isNull();
+        assertThat(published.get(1).getKeys()).isNull();
+    }
+
+    @Test
+    void publishAllSplitsAtBatchSize() {
+        DoubleCacheMessagePublisher publisher = new DoubleCacheMessagePublisher(cacheWriter, codec, "topic",
+                NODE_ID, Duration.ZERO, 2);
+        publisher.publishAll("users", Arrays.asList(1L, 2L, 3L, 4L, 5L));
+
+        assertThat(published).extracting(DoubleCacheMessagePublisherTest::keysOf)
+                .containsExactly(Arrays.asList(1L, 2L), Arrays.asList(3L, 4L), Collections.singletonList(5L));
+    }
+
+    @Test
+    void batchWindowMergesAndDeduplicatesKeys() {
+        DoubleCacheMessagePublisher publisher = new DoubleCacheMessagePublisher(cacheWriter, codec, "topic",
+                NODE_ID, Duration.ofMillis(200), 100);
+        publisher.publish("users", 1L);
+        publisher.publish("users", 2L);
+        publisher.publish("users", 1L);
+        assertThat(published).isEmpty();
+
+        //关闭时不等待时间窗口结束，立即发布所有等待中的key
+        publisher.shutdown();
+        assertThat(published).hasSize(1);
+        assertThat(published.get(0).getKeys()).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void publishesDirectlyAfterShutdown() {
+        DoubleCacheMessagePublisher publisher = new DoubleCacheMessagePublisher(cacheWriter, codec, "topic",
+                NODE_ID, Duration.ofMillis(200), 100);
+        publisher.shutdown();
+        //关闭之后例如其他bean在销毁时写入缓存，不能因为后台线程已经停止而抛出异常
+        publisher.publish("users", 1L);
+        publisher.publishAll("users", Arrays.asList(2L, 3L));
+        publisher.publish("users", null);
+
+        assertThat(published).extracting(DoubleCacheMessagePublisherTest::keysOf)
+                .containsExactly(Collections.singletonList(1L), Arrays.asList(2L, 3L),
+                        Collections.singletonList(null));
+    }
+
+    @Test
+    void batchWindowSplitsAtBatchSize() throws Exception {
+        CountDownLatch publishing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            publishing.countDown();
+            release.await();
+            return published.add(codec.decode(invocation.getArgument(1)));
+        }).when(cacheWriter).publish(eq("topic"), any());
+        DoubleCacheMessagePublisher publisher = new DoubleCacheMessagePublisher(cacheWriter, codec, "topic",
+                NODE_ID, Duration.ofMillis(10), 2);
+        //后台线程阻塞在发布上，期间同一个缓存积累的key超过batchSize
+        publisher.publish("other", 0L);
+        assertThat(publishing.await(5, TimeUnit.SECONDS)).isTrue();
+        publisher.publishAll("users", Arrays.asList(1L, 2L, 3L, 4L, 5L));
+        release.countDown();
+        publisher.shutdown();
+
+        assertThat(published).extracting(DoubleCacheMessagePublisherTest::keysOf)
+                .containsExactly(Collections.singletonList(0L), Arrays.asList(1L, 2L), Arrays.asList(3L, 4L),
+                        Collections.singletonList(5L));
+    }
+
+    @Test
+    void nonSerializableKeyPublishesClearInsteadOfFailing() {
+        DoubleCacheMessagePublisher publisher = new DoubleCacheMessagePublisher(cacheWriter, codec, "topic",
+                NODE_ID, Duration.ZERO, 100);
+        //同步发布时发布失败会让已经写入二级缓存的put/evict抛出异常
+        publisher.publish("users", new Object());
+        publisher.publishAll("users", Arrays.asList(1L, new Object()));
+
+        assertThat(published).hasSize(2).allSatisfy(message -> {
+            assertThat(message.getKey()).isNull();
+            assertThat(message.getKeys()).isNull();
+            assertThat(message.getCacheId()).isEqualTo(DoubleCacheMessageCodec.cacheId("users"));
+        });
+    }
+
+    @Test
+    void legacyFormatPublishesOneMessagePerKey() {
+        DoubleCacheMessagePublisher publisher = new DoubleCacheMessagePublisher(cacheWriter, codec, "topic",
+                NODE_ID, Duration.ZERO, 100);
+        publisher.setLegacyFormat(true);
+        publisher.publishAll("users", Arrays.asList("a", "b"));
+
+        assertThat(published).isEmpty();
+        List<Object> keys = new ArrayList<>();
+        for (DoubleCacheMessage message : legacyPublished) {
+            assertThat(message.getCacheName()).isEqualTo("users");
+            assertThat(message.getKeys()).isNull();
+            assertThat(message.getNodeId()).isZero();
+            assertThat(DoubleCacheMessageCodec.legacyNodeId(message.getUuid())).isEqualTo(NODE_ID);
+            keys.add(message.getKey());
+        }
+        assertThat(keys).containsExactly("a", "b");
+    }
+
+    /**
+     * 只有一个key的批量消息解码后放在key字段中
+     */
+    private static List<Object> keysOf(DoubleCacheMessage message) {
+        return message.getKeys() != null ? message.getKeys() : Collections.singletonList(message.getKey());
+    }
+}
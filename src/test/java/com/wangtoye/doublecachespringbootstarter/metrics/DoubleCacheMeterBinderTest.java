@@ -0,0 +1,52 @@
+package com.wangtoye.doublecachespringbootstarter.metrics;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wangtoye.doublecachespringbootstarter.cache.DoubleCache;
+import com.wangtoye.doublecachespringbootstarter.cache.writer.RedisCallbackCacheWriter;
+import com.wangtoye.doublecachespringbootstarter.support.InMemoryRedis;
+import com.wangtoye.doublecachespringbootstarter.support.TestRedisCache;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 加载耗时的指标
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 成功和失败的加载分别计时，失败的耗时不算进成功的耗时里
+ */
+class DoubleCacheMeterBinderTest {
+
+    @Test
+    void loadTimerIsTaggedPerResult() {
+        RedisCallbackCacheWriter cacheWriter = new RedisCallbackCacheWriter(
+                new InMemoryRedis().getConnectionFactory(), null);
+        DoubleCache cache = new DoubleCache("users", Caffeine.newBuilder().build(),
+                new TestRedisCache("users", cacheWriter, RedisCacheConfiguration.defaultCacheConfig()),
+                true, "topic");
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new DoubleCacheMeterBinder(cache, Collections.emptyList()).bindTo(registry);
+
+        cache.get("1", () -> "v1");
+        assertThatThrownBy(() -> cache.get("2", () -> {
+            Thread.sleep(200);
+            throw new IllegalStateException("db down");
+        })).isInstanceOf(Cache.ValueRetrievalException.class);
+
+        FunctionTimer success = registry.get("cache.load").tag("result", "success").functionTimer();
+        FunctionTimer failure = registry.get("cache.load").tag("result", "failure").functionTimer();
+        assertThat(success.count()).isEqualTo(1);
+        assertThat(failure.count()).isEqualTo(1);
+        assertThat(failure.totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(200);
+        assertThat(success.totalTime(TimeUnit.MILLISECONDS)).isLessThan(200);
+    }
+}
@@ -0,0 +1,181 @@
+package com.wangtoye.doublecachespringbootstarter.support;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.types.Expiration;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 测试用的内存redis
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 用mockito模拟RedisConnection，只实现缓存读写、缓存锁、租约、扫描和发布用到的命令，
+ * 过期时间按系统时间计算；eval只支持释放租约的比较删除脚本，scan的匹配规则只支持 *
+ */
+public class InMemoryRedis {
+    private final Map<ByteBuffer, Entry> data = new ConcurrentHashMap<>();
+    private final List<byte[]> published = new CopyOnWriteArrayList<>();
+    private final RedisConnectionFactory connectionFactory = mock(RedisConnectionFactory.class);
+
+    public InMemoryRedis() {
+        RedisConnection connection = mock(RedisConnection.class);
+        when(connectionFactory.getConnection()).thenReturn(connection);
+        when(connection.get(any())).thenAnswer(invocation -> get(invocation.getArgument(0)));
+        when(connection.set(any(), any())).thenAnswer(invocation -> {
+            data.put(wrap(invocation.getArgument(0)), new Entry(invocation.getArgument(1), Long.MAX_VALUE));
+            return true;
+        });
+        when(connection.set(any(), any(), any(Expiration.class), any(RedisStringCommands.SetOption.class)))
+                .thenAnswer(invocation -> set(invocation.getArgument(0), invocation.getArgument(1),
+                        invocation.getArgument(2), invocation.getArgument(3)));
+        when(connection.setNX(any(), any())).thenAnswer(invocation -> set(invocation.getArgument(0),
+                invocation.getArgument(1), Expiration.persistent(), RedisStringCommands.SetOption.SET_IF_ABSENT));
+        when(connection.exists(any(byte[].class))).thenAnswer(invocation -> get(invocation.getArgument(0)) != null);
+        //mockito把可变参数展开成单独的参数
+        when(connection.mGet(any())).thenAnswer(invocation -> {
+            List<byte[]> values = new ArrayList<>();
+            for (Object key : invocation.getArguments()) {
+                values.add(get((byte[]) key));
+            }
+            return values;
+        });
+        when(connection.del(any())).thenAnswer(invocation -> {
+            long deleted = 0;
+            for (Object key : invocation.getArguments()) {
+                if (data.remove(wrap((byte[]) key)) != null) {
+                    deleted++;
+                }
+            }
+            return deleted;
+        });
+        when(connection.scan(any(ScanOptions.class)))
+                .thenAnswer(invocation -> scan(((ScanOptions) invocation.getArgument(0)).getPattern()));
+        when(connection.publish(any(), any())).thenAnswer(invocation -> {
+            published.add(invocation.getArgument(1));
+            return 0L;
+        });
+        doAnswer(invocation -> compareAndDelete(invocation.getArgument(3), invocation.getArgument(4)))
+                .when(connection).eval(any(byte[].class), any(ReturnType.class), anyInt(), any(), any());
+    }
+
+    /**
+     * @return 连接工厂，每次返回同一个模拟连接
+     */
+    public RedisConnectionFactory getConnectionFactory() {
+        return connectionFactory;
+    }
+
+    /**
+     * @param key redis中的key
+     * @return 还没有过期的值，不存在时为null
+     */
+    public byte[] get(byte[] key) {
+        Entry entry = data.get(wrap(key));
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expireAt <= System.currentTimeMillis()) {
+            data.remove(wrap(key), entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * @param key redis中的key
+     * @return 剩余的过期时间，毫秒，不存在时为-2，没有过期时间时为-1
+     */
+    public long pttl(byte[] key) {
+        Entry entry = data.get(wrap(key));
+        if (entry == null || get(key) == null) {
+            return -2;
+        }
+        return entry.expireAt == Long.MAX_VALUE ? -1 : entry.expireAt - System.currentTimeMillis();
+    }
+
+    /**
+     * @return 发布过的消息内容
+     */
+    public List<byte[]> getPublished() {
+        return published;
+    }
+
+    private synchronized Boolean set(byte[] key, byte[] value, Expiration expiration,
+                                     RedisStringCommands.SetOption option) {
+        boolean exists = get(key) != null;
+        if (option == RedisStringCommands.SetOption.SET_IF_ABSENT && exists
+                || option == RedisStringCommands.SetOption.SET_IF_PRESENT && !exists) {
+            return false;
+        }
+        long expireAt = expiration.isPersistent() ? Long.MAX_VALUE :
+                System.currentTimeMillis() + expiration.getExpirationTimeInMilliseconds();
+        data.put(wrap(key), new Entry(value, expireAt));
+        return true;
+    }
+
+    private synchronized Long compareAndDelete(byte[] key, byte[] expected) {
+        byte[] current = get(key);
+        if (current == null || !Arrays.equals(current, expected)) {
+            return 0L;
+        }
+        data.remove(wrap(key));
+        return 1L;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Cursor<byte[]> scan(String pattern) {
+        String[] parts = pattern.split("\\*", -1);
+        StringBuilder regex = new StringBuilder(Pattern.quote(parts[0]));
+        for (int i = 1; i < parts.length; i++) {
+            regex.append(".*").append(Pattern.quote(parts[i]));
+        }
+        Pattern matcher = Pattern.compile(regex.toString(), Pattern.DOTALL);
+        List<byte[]> keys = new ArrayList<>();
+        for (ByteBuffer key : data.keySet()) {
+            byte[] bytes = key.array();
+            if (matcher.matcher(new String(bytes, StandardCharsets.UTF_8)).matches() && get(bytes) != null) {
+                keys.add(bytes);
+            }
+        }
+        Iterator<byte[]> iterator = keys.iterator();
+        Cursor<byte[]> cursor = mock(Cursor.class);
+        when(cursor.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+        when(cursor.next()).thenAnswer(invocation -> iterator.next());
+        return cursor;
+    }
+
+    private static ByteBuffer wrap(byte[] key) {
+        return ByteBuffer.wrap(key.clone());
+    }
+
+    private static final class Entry {
+        private final byte[] value;
+        private final long expireAt;
+
+        Entry(byte[] value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.wangtoye.doublecachespringbootstarter.support;
+
+import com.wangtoye.doublecachespringbootstarter.cache.RedisCacheExt;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 测试用的RedisCache
+ *
+ * @author wangtoye
+ * @date 2026-10-17
+ * Description: 和启动时javassist给RedisCache增加的方法一致，测试中不经过自动配置，直接继承实现；
+ * 通过RedisTemplate发送的消息只记录下来
+ */
+public class TestRedisCache extends RedisCache implements RedisCacheExt {
+    private final List<Object> sentMessages = new CopyOnWriteArrayList<>();
+
+    public TestRedisCache(String name, RedisCacheWriter cacheWriter, RedisCacheConfiguration cacheConfig) {
+        super(name, cacheWriter, cacheConfig);
+    }
+
+    @Override
+    public void convertAndSend(String topicName, Object message) {
+        sentMessages.add(message);
+    }
+
+    @Override
+    public byte[] serializeKey(Object key) {
+        return serializeCacheKey(createCacheKey(key));
+    }
+
+    @Override
+    public byte[] serializeValue(Object value) {
+        Object cacheValue = preProcessCacheValue(value);
+        if (cacheValue == null) {
+            throw new IllegalArgumentException("Cache '" + getName() + "' does not allow 'null' values.");
+        }
+        return serializeCacheValue(cacheValue);
+    }
+
+    @Override
+    public Object deserializeValue(byte[] value) {
+        return deserializeCacheValue(value);
+    }
+
+    /**
+     * @return 通过RedisTemplate发送的消息
+     */
+    public List<Object> getSentMessages() {
+        return sentMessages;
+    }
+}
@@ -0,0 +1,189 @@
+package com.wangtoye.doublecachespringbootstarter.warmup;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wangtoye.doublecachespringbootstarter.cache.DoubleCache;
+import com.wangtoye.doublecachespringbootstarter.cache.manager.DoubleCacheManager;
+import com.wangtoye.doublecachespringbootstarter.cache.writer.RedisCallbackCacheWriter;
+import com.wangtoye.doublecachespringbootstarter.support.InMemoryRedis;
+import com.wangtoye.doublecachespringbootstarter.support.TestRedisCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 启动时的缓存预热和就绪等待
+ *
+ * @author wangtoye
+ * @date 2026-10-18
+ * Description: 预热按批次把二级缓存的值读到一级缓存；lifecycle在快照恢复和预热完成或者到达截止时间之后才返回
+ */
+class CacheWarmupTest {
+    private final Cache<Object, Object> l1 = Caffeine.newBuilder().build();
+    private TestRedisCache redisCache;
+    private DoubleCacheManager cacheManager;
+
+    @BeforeEach
+    void setUp() {
+        redisCache = new TestRedisCache("users",
+                new RedisCallbackCacheWriter(new InMemoryRedis().getConnectionFactory(), null),
+                RedisCacheConfiguration.defaultCacheConfig());
+        cacheManager = mock(DoubleCacheManager.class);
+        when(cacheManager.getDoubleCache("users")).thenReturn(new DoubleCache("users", l1, redisCache, true, "topic"));
+        when(cacheManager.getBloomFilterLoad()).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    void keysAreReadFromL2InBatches() {
+        redisCache.put("1", "v1");
+        redisCache.put("2", "v2");
+        redisCache.put("3", "v3");
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        CacheWarmupSource source = new KeyListWarmupSource("users", () -> Arrays.asList("1", "2", "3", "4")) {
+            @Override
+            public void load(DoubleCache cache, Collection<?> keys) {
+                batchSizes.add(keys.size());
+                super.load(cache, keys);
+            }
+        };
+
+        assertThat(new CacheWarmer(cacheManager, Collections.singletonList(source), 2, 3)
+                .warmup(Duration.ofSeconds(5))).isTrue();
+
+        assertThat(batchSizes).containsExactlyInAnyOrder(3, 1);
+        //二级缓存中没有的key不会写入一级缓存
+        assertThat(l1.asMap()).containsOnlyKeys("1", "2", "3");
+    }
+
+    @Test
+    void bulkLoaderFillsKeysMissingFromBothTiers() {
+        redisCache.put("1", "v1");
+        List<Object> loaded = new CopyOnWriteArrayList<>();
+        CacheWarmupSource source = new BulkLoaderWarmupSource("users", () -> Arrays.asList("1", "2"), keys -> {
+            loaded.addAll(keys);
+            return Collections.singletonMap("2", "v2");
+        });
+
+        assertThat(new CacheWarmer(cacheManager, Collections.singletonList(source), 1, 10)
+                .warmup(Duration.ofSeconds(5))).isTrue();
+
+        assertThat(loaded).containsExactly("2");
+        assertThat(l1.asMap()).containsOnlyKeys("1", "2");
+        assertThat(redisCache.get("2").get()).isEqualTo("v2");
+    }
+
+    @Test
+    void failingAndUnknownSourcesDoNotStopTheOthers() {
+        redisCache.put("1", "v1");
+        CacheWarmupSource failing = new KeyListWarmupSource("users", () -> {
+            throw new IllegalStateException("key列表不可用");
+        });
+        CacheWarmupSource unknown = new KeyListWarmupSource("orders", () -> Collections.singletonList("1"));
+        CacheWarmupSource working = new KeyListWarmupSource("users", () -> Collections.singletonList("1"));
+
+        assertThat(new CacheWarmer(cacheManager, Arrays.asList(failing, unknown, working), 2, 10)
+                .warmup(Duration.ofSeconds(5))).isTrue();
+
+        assertThat(l1.asMap()).containsOnlyKeys("1");
+    }
+
+    @Test
+    void warmupStopsWaitingAtTheDeadline() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CacheWarmupSource slow = new KeyListWarmupSource("users", () -> Collections.singletonList("1")) {
+            @Override
+            public void load(DoubleCache cache, Collection<?> keys) {
+                try {
+                    Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                } catch (InterruptedException ex) {
+                    interrupted.countDown();
+                }
+            }
+        };
+
+        long start = System.nanoTime();
+        assertThat(new CacheWarmer(cacheManager, Collections.singletonList(slow), 1, 10)
+                .warmup(Duration.ofMillis(200))).isFalse();
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(5000);
+        //未完成的任务被中断
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void lifecycleWaitsForSnapshotRestoreThenWarmup() {
+        redisCache.put("1", "v1");
+        List<String> events = new CopyOnWriteArrayList<>();
+        CompletableFuture<Integer> restore = new CompletableFuture<>();
+        when(cacheManager.getL1SnapshotRestore()).thenReturn(restore);
+        CompletableFuture.runAsync(() -> {
+            sleep(100);
+            events.add("restored");
+            restore.complete(0);
+        });
+        CacheWarmupSource source = new KeyListWarmupSource("users", () -> {
+            events.add("warmup");
+            return Collections.singletonList("1");
+        });
+        CacheWarmupLifecycle lifecycle = new CacheWarmupLifecycle(cacheManager,
+                new CacheWarmer(cacheManager, Collections.singletonList(source), 1, 10), Duration.ofSeconds(5));
+
+        lifecycle.start();
+
+        assertThat(lifecycle.isRunning()).isTrue();
+        assertThat(events).containsExactly("restored", "warmup");
+        //start返回时一级缓存已经就绪
+        assertThat(l1.asMap()).containsOnlyKeys("1");
+    }
+
+    @Test
+    void lifecycleSkipsWarmupWhenRestoreUsesTheWholeDeadline() {
+        when(cacheManager.getL1SnapshotRestore()).thenReturn(new CompletableFuture<>());
+        CacheWarmer cacheWarmer = mock(CacheWarmer.class);
+
+        long start = System.nanoTime();
+        new CacheWarmupLifecycle(cacheManager, cacheWarmer, Duration.ofMillis(200)).start();
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isBetween(200L, 5000L);
+        verify(cacheWarmer, never()).warmup(any());
+    }
+
+    @Test
+    void lifecycleWarmsUpAfterFailedRestoreWithinTheSameDeadline() {
+        CompletableFuture<Integer> restore = new CompletableFuture<>();
+        restore.completeExceptionally(new IllegalStateException("快照损坏"));
+        when(cacheManager.getL1SnapshotRestore()).thenReturn(restore);
+        CacheWarmer cacheWarmer = mock(CacheWarmer.class);
+
+        new CacheWarmupLifecycle(cacheManager, cacheWarmer, Duration.ofSeconds(5)).start();
+
+        verify(cacheWarmer).warmup(argThat(remaining -> remaining.compareTo(Duration.ofSeconds(5)) <= 0
+                && !remaining.isNegative()));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}